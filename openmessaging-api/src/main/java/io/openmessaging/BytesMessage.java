@@ -17,12 +17,18 @@
 
 package io.openmessaging;
 
+import java.nio.ByteBuffer;
+
 /**
  * The {@code BytesMessage} contains a stream of uninterpreted bytes. It inherits from the {@code Message} interface and
  * adds a bytes message body.
  * <p>
  * The {@code BytesMessage} doesn't know the format or encoding rules of the body, the provider and consumer decide the
  * interpretation of the bytes body.
+ * <p>
+ * The body may be backed by a {@link ByteBuffer}, either on heap or direct, like a network or a memory-mapped
+ * buffer. Such a body is shared through read-only views and slices instead of being copied, and {@link #getBody()}
+ * only materializes a byte array when it's called.
  *
  * @version OMS 1.0.0
  * @since OMS 1.0.0
@@ -30,15 +36,55 @@ package io.openmessaging;
 public interface BytesMessage extends Message {
     /**
      * Returns the bytes message body.
+     * <p>
+     * If the body is backed by a {@code ByteBuffer}, its content is copied into a new byte array
+     * on the first call, and the same array is returned by the subsequent calls.
      *
      * @return the bytes message body
      */
     byte[] getBody();
 
+    /**
+     * Returns a read-only view of the bytes message body, which shares the content of the body without copying.
+     * <p>
+     * The position of the returned buffer is zero and its limit is the length of the body,
+     * each call returns a new view with independent position and limit.
+     *
+     * @return the read-only view of the bytes message body, or {@code null} if the body isn't set
+     */
+    ByteBuffer getBodyBuffer();
+
+    /**
+     * Returns a read-only slice of the bytes message body, which shares the content of the body without copying.
+     *
+     * @param offset the offset of the slice in the body
+     * @param length the length of the slice
+     * @return the read-only slice of the bytes message body
+     * @throws IndexOutOfBoundsException if the offset and length don't fit in the body
+     */
+    ByteBuffer getBodyBuffer(int offset, int length);
+
+    /**
+     * Returns the length of the bytes message body, without materializing it.
+     *
+     * @return the length of the bytes message body in bytes, zero if the body isn't set
+     */
+    int getBodyLength();
+
     /**
      * Sets the bytes message body.
      *
      * @param body the message body to be set
      */
     BytesMessage setBody(byte[] body);
+
+    /**
+     * Sets the bytes message body to the remaining content of the specified buffer, without copying it.
+     * <p>
+     * The position and limit of the specified buffer aren't changed, and its content must not be modified
+     * as long as the message is in use.
+     *
+     * @param body the message body to be set
+     */
+    BytesMessage setBody(ByteBuffer body);
 }
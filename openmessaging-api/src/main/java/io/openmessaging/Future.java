@@ -17,6 +17,8 @@
 
 package io.openmessaging;
 
+import java.util.concurrent.Executor;
+
 /**
  * A {@code Future} represents the result of an asynchronous computation.  Methods are provided to check if the
  * computation is complete, to wait for its completion, and to retrieve the result of the computation.  The result can
@@ -71,6 +73,18 @@ public interface Future<V> {
      */
     void addListener(FutureListener<V> listener);
 
+    /**
+     * Adds the specified listener to this future, the listener is notified by the specified executor when this future
+     * is done, rather than by the thread completing this future, which could be an I/O thread of the implementation.
+     * <p>
+     * If the executor rejects the notification, the listener is notified by the thread completing this future.
+     *
+     * @param listener FutureListener
+     * @param executor the executor notifying the listener, {@link OMS#directExecutor()} to notify it right away in
+     * the completing thread, like {@link #addListener(FutureListener)}
+     */
+    void addListener(FutureListener<V> listener, Executor executor);
+
     /**
      * Returns the cause of the failed future
      *
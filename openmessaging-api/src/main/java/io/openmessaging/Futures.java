@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging;
+
+import io.openmessaging.internal.DefaultPromise;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Combinators aggregating several {@link Future}s, like the ones of a message sent to several queues, into a
+ * single {@code Future}, without blocking any thread while waiting.
+ * <p>
+ * The combinators register one shared listener to every given future, the combined future is completed by the
+ * thread completing the last, or the deciding, given future.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public final class Futures {
+    private Futures() {
+    }
+
+    /**
+     * Returns a {@code Future} completed with the results of all the specified futures, in their order, once
+     * they are all completed successfully, or failed with the cause of the first of them which fails.
+     *
+     * @param futures the futures to wait for
+     * @param <V> the result type of the futures
+     * @return the combined {@code Future}
+     */
+    public static <V> Future<List<V>> allOf(List<? extends Future<V>> futures) {
+        final DefaultPromise<List<V>> promise = new DefaultPromise<List<V>>();
+        if (futures.isEmpty()) {
+            promise.set(Collections.<V>emptyList());
+            return promise;
+        }
+        final List<Future<V>> inputs = new ArrayList<Future<V>>(futures);
+        final AtomicInteger remaining = new AtomicInteger(inputs.size());
+        FutureListener<V> listener = new FutureListener<V>() {
+            @Override
+            public void operationSucceeded(Future<V> future) {
+                if (remaining.decrementAndGet() == 0) {
+                    List<V> results = new ArrayList<V>(inputs.size());
+                    for (Future<V> input : inputs) {
+                        results.add(input.get());
+                    }
+                    promise.set(results);
+                }
+            }
+
+            @Override
+            public void operationFailed(Future<V> future) {
+                promise.setFailure(future.getThrowable());
+            }
+        };
+        for (Future<V> input : inputs) {
+            input.addListener(listener);
+        }
+        return promise;
+    }
+
+    /**
+     * Returns a {@code Future} completed like the first of the specified futures to complete, either successfully
+     * or not.
+     *
+     * @param futures the futures to wait for, at least one
+     * @param <V> the result type of the futures
+     * @return the combined {@code Future}
+     * @throws IllegalArgumentException if no future is specified
+     */
+    public static <V> Future<V> anyOf(List<? extends Future<V>> futures) {
+        if (futures.isEmpty()) {
+            throw new IllegalArgumentException("At least one future is required");
+        }
+        final DefaultPromise<V> promise = new DefaultPromise<V>();
+        FutureListener<V> listener = new FutureListener<V>() {
+            @Override
+            public void operationSucceeded(Future<V> future) {
+                if (!promise.isDone()) {
+                    promise.set(future.get());
+                }
+            }
+
+            @Override
+            public void operationFailed(Future<V> future) {
+                promise.setFailure(future.getThrowable());
+            }
+        };
+        for (Future<V> input : futures) {
+            input.addListener(listener);
+            if (promise.isDone()) {
+                break;
+            }
+        }
+        return promise;
+    }
+}
@@ -18,6 +18,7 @@
 package io.openmessaging;
 
 import io.openmessaging.exception.OMSRuntimeException;
+import java.nio.ByteBuffer;
 
 /**
  * A factory interface for creating {@code Message} objects.
@@ -36,4 +37,18 @@ public interface MessageFactory {
      * @throws OMSRuntimeException if the OMS provider fails to create this message due to some internal error.
      */
     BytesMessage createBytesMessage(String queue, byte[] body);
+
+    /**
+     * Creates a {@code BytesMessage} object whose body is the remaining content of the specified buffer,
+     * the content is shared with the message instead of being copied.
+     * <p>
+     * The returned {@code BytesMessage} object only can be sent to the specified queue.
+     *
+     * @param queue the target queue to send
+     * @param body the body data for a message, which may be a direct buffer
+     * @return the created {@code BytesMessage} object
+     * @throws OMSRuntimeException if the OMS provider fails to create this message due to some internal error.
+     * @see BytesMessage#setBody(ByteBuffer)
+     */
+    BytesMessage createBytesMessage(String queue, ByteBuffer body);
 }
\ No newline at end of file
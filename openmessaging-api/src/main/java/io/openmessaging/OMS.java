@@ -18,11 +18,14 @@
 package io.openmessaging;
 
 import io.openmessaging.exception.OMSRuntimeException;
-import io.openmessaging.internal.DefaultKeyValue;
+import io.openmessaging.internal.CompactKeyValue;
+import io.openmessaging.internal.DirectExecutor;
 import io.openmessaging.internal.MessagingAccessPointAdapter;
+import io.openmessaging.internal.TypedKeyValue;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 
 /**
  * The oms class provides some static methods to create a {@code MessagingAccessPoint}
@@ -77,11 +80,51 @@ public class OMS {
 
     /**
      * Returns a default and internal {@code KeyValue} implementation instance.
+     * <p>
+     * The returned instance keeps {@code int}, {@code long} and {@code double} values unboxed in
+     * type-tagged slots, and only converts a value when it is read with a different type.
      *
      * @return a {@code KeyValue} instance
      */
     public static KeyValue newKeyValue() {
-        return new DefaultKeyValue();
+        return new TypedKeyValue();
+    }
+
+    /**
+     * Returns a compact and internal {@code KeyValue} implementation instance, which is backed by flat arrays
+     * and uses far less memory than the default one for small sets of attributes, like message headers.
+     * <p>
+     * The returned instance isn't thread-safe, it should be written by a single thread only.
+     *
+     * @return a {@code KeyValue} instance
+     */
+    public static KeyValue newCompactKeyValue() {
+        return new CompactKeyValue();
+    }
+
+    /**
+     * Returns a compact and internal {@code KeyValue} implementation instance sized to hold the expected number
+     * of entries without growing.
+     * <p>
+     * The returned instance isn't thread-safe, it should be written by a single thread only.
+     *
+     * @param expectedSize the expected number of entries
+     * @return a {@code KeyValue} instance
+     * @see #newCompactKeyValue()
+     */
+    public static KeyValue newCompactKeyValue(int expectedSize) {
+        return new CompactKeyValue(expectedSize);
+    }
+
+    /**
+     * Returns an {@code Executor} running every task right away in the calling thread, to register the cheap
+     * listeners which don't need to leave the completing thread with {@link Future#addListener(FutureListener,
+     * Executor)}.
+     *
+     * @return the direct {@code Executor}
+     */
+    public static Executor directExecutor() {
+        return DirectExecutor.INSTANCE;
     }
 
     /**
@@ -86,4 +86,126 @@ public interface OMSBuiltinKeys {
      * The {@code Routing} consists of a triple, include source queue, destination queue and expression.
      */
     String ROUTING_EXPRESSION = "ROUTING_EXPRESSION";
+
+    /**
+     * The {@code BATCH_MAX_MESSAGES} key defines the maximum number of messages a {@code Producer} groups into
+     * one batch of asynchronous sends to the same queue.
+     */
+    String BATCH_MAX_MESSAGES = "BATCH_MAX_MESSAGES";
+
+    /**
+     * The {@code BATCH_MAX_BYTES} key defines the maximum total body size in bytes of one batch of
+     * asynchronous sends to the same queue.
+     */
+    String BATCH_MAX_BYTES = "BATCH_MAX_BYTES";
+
+    /**
+     * The {@code BATCH_LINGER_TIME} key defines how long in milliseconds a {@code Producer} waits for more
+     * asynchronous sends to the same queue before sending a batch which isn't full, zero disables the batching.
+     */
+    String BATCH_LINGER_TIME = "BATCH_LINGER_TIME";
+
+    /**
+     * The {@code MAX_IN_FLIGHT_MESSAGES} key defines the maximum number of asynchronous sends of a {@code Producer}
+     * which are not completed yet.
+     */
+    String MAX_IN_FLIGHT_MESSAGES = "MAX_IN_FLIGHT_MESSAGES";
+
+    /**
+     * The {@code MAX_IN_FLIGHT_BYTES} key defines the maximum total body size in bytes of the asynchronous sends
+     * of a {@code Producer} which are not completed yet.
+     */
+    String MAX_IN_FLIGHT_BYTES = "MAX_IN_FLIGHT_BYTES";
+
+    /**
+     * The {@code IN_FLIGHT_FULL_POLICY} key defines what an asynchronous send does when the in-flight window is full,
+     * one of {@code BLOCK}, waiting up to the {@link #OPERATION_TIMEOUT}, {@code FAIL_FAST} or {@code DROP_OLDEST}.
+     */
+    String IN_FLIGHT_FULL_POLICY = "IN_FLIGHT_FULL_POLICY";
+
+    /**
+     * The {@code PREFETCH_MAX_MESSAGES} key defines the maximum number of messages a {@code PullConsumer} fetches
+     * ahead of its receives for an attached queue, a non-positive number disables the prefetching.
+     */
+    String PREFETCH_MAX_MESSAGES = "PREFETCH_MAX_MESSAGES";
+
+    /**
+     * The {@code PREFETCH_MAX_BYTES} key defines the maximum total body size in bytes of the messages a
+     * {@code PullConsumer} fetches ahead of its receives for an attached queue.
+     */
+    String PREFETCH_MAX_BYTES = "PREFETCH_MAX_BYTES";
+
+    /**
+     * The {@code PREFETCH_LOW_WATER_MARK} key defines the percentage of the prefetch limits below which the
+     * prefetched messages of a queue are fetched again.
+     */
+    String PREFETCH_LOW_WATER_MARK = "PREFETCH_LOW_WATER_MARK";
+
+    /**
+     * The {@code ACK_BATCH_MAX_MESSAGES} key defines the maximum number of acknowledgements a {@code PullConsumer}
+     * coalesces into one request.
+     */
+    String ACK_BATCH_MAX_MESSAGES = "ACK_BATCH_MAX_MESSAGES";
+
+    /**
+     * The {@code ACK_FLUSH_INTERVAL} key defines how long in milliseconds a {@code PullConsumer} holds back the
+     * acknowledgements before sending a request which isn't full, zero disables the coalescing.
+     */
+    String ACK_FLUSH_INTERVAL = "ACK_FLUSH_INTERVAL";
+
+    /**
+     * The {@code CONSUME_THREADS} key defines how many threads of a {@code PushConsumer} call the listeners
+     * concurrently, the messages with the same {@link Message.BuiltinKeys#STREAM_KEY} are still delivered in order.
+     */
+    String CONSUME_THREADS = "CONSUME_THREADS";
+
+    /**
+     * The {@code CONSUME_QUEUE_CAPACITY} key defines how many received messages may wait for each consume thread of
+     * a {@code PushConsumer}, before the consumer stops receiving.
+     */
+    String CONSUME_QUEUE_CAPACITY = "CONSUME_QUEUE_CAPACITY";
+
+    /**
+     * The {@code CONSUME_THREAD_MODE} key defines the threads calling the listeners of a {@code PushConsumer}, one of
+     * {@code PLATFORM}, a pool of {@link #CONSUME_THREADS}, or {@code VIRTUAL}, a virtual thread per delivery on the
+     * JDKs supporting them, and the pool otherwise.
+     */
+    String CONSUME_THREAD_MODE = "CONSUME_THREAD_MODE";
+
+    /**
+     * The {@code CONSUME_MAX_CONCURRENCY} key defines the maximum number of deliveries of a {@code PushConsumer} in
+     * progress at once on virtual threads.
+     */
+    String CONSUME_MAX_CONCURRENCY = "CONSUME_MAX_CONCURRENCY";
+
+    /**
+     * The {@code CONSUME_BATCH_MAX_MESSAGES} key defines the maximum number of messages a {@code PushConsumer}
+     * delivers at once to a {@code BatchMessageListener}.
+     */
+    String CONSUME_BATCH_MAX_MESSAGES = "CONSUME_BATCH_MAX_MESSAGES";
+
+    /**
+     * The {@code CONSUME_BATCH_MAX_BYTES} key defines the maximum total body size in bytes of the messages a
+     * {@code PushConsumer} delivers at once to a {@code BatchMessageListener}.
+     */
+    String CONSUME_BATCH_MAX_BYTES = "CONSUME_BATCH_MAX_BYTES";
+
+    /**
+     * The {@code CONSUME_BATCH_MAX_WAIT} key defines how long in milliseconds a {@code PushConsumer} waits for more
+     * messages before delivering a batch which isn't full, zero delivers the messages available at once.
+     */
+    String CONSUME_BATCH_MAX_WAIT = "CONSUME_BATCH_MAX_WAIT";
+
+    /**
+     * The {@code CONSUME_CREDIT_MESSAGES} key defines how many messages a {@code PushConsumer} lets the driver
+     * deliver ahead of their acknowledgements, a non-positive number disables this limit.
+     */
+    String CONSUME_CREDIT_MESSAGES = "CONSUME_CREDIT_MESSAGES";
+
+    /**
+     * The {@code CONSUME_CREDIT_BYTES} key defines the total body size in bytes of the messages a
+     * {@code PushConsumer} lets the driver deliver ahead of their acknowledgements, a non-positive size disables
+     * this limit.
+     */
+    String CONSUME_CREDIT_BYTES = "CONSUME_CREDIT_BYTES";
 }
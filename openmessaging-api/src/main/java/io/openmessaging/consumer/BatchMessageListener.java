@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.consumer;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.exception.OMSRuntimeException;
+import java.util.List;
+
+/**
+ * A message listener can implement this {@code BatchMessageListener} interface instead of {@link MessageListener}
+ * to receive the messages of a queue in batches, and amortize the cost of its processing, like a database write,
+ * over many messages.
+ * <p>
+ * A batch holds up to {@link OMSBuiltinKeys#CONSUME_BATCH_MAX_MESSAGES} messages, up to
+ * {@link OMSBuiltinKeys#CONSUME_BATCH_MAX_BYTES} of bodies, and is delivered at the latest
+ * {@link OMSBuiltinKeys#CONSUME_BATCH_MAX_WAIT} milliseconds after the arrival of its first message.
+ *
+ * @version OMS 1.0.0
+ * @see PushConsumer#attachQueue(String, BatchMessageListener)
+ * @since OMS 1.0.0
+ */
+public interface BatchMessageListener {
+    /**
+     * Callback method to receive a batch of incoming messages.
+     * <p>
+     * The batches of a queue are delivered one at a time, in order.
+     *
+     * @param messages the received messages, in the order of the queue
+     * @param context the context delivered to the consume thread
+     */
+    void onReceived(List<Message> messages, Context context);
+
+    interface Context {
+        /**
+         * Returns the attributes of this {@code Context} instance.
+         *
+         * @return the attributes
+         */
+        KeyValue attributes();
+
+        /**
+         * Acknowledges all the messages of the batch, which is related to this {@code Context}.
+         * <p>
+         * Messages that have been received but not acknowledged may be redelivered.
+         *
+         * @throws OMSRuntimeException if the consumer fails to acknowledge the messages due to some internal error.
+         */
+        void ack();
+
+        /**
+         * Acknowledges the specified message of the batch only, so that the others may be redelivered.
+         *
+         * @param messageId the consumed message id
+         * @throws OMSRuntimeException if the consumer fails to acknowledge the message due to some internal error.
+         */
+        void ack(String messageId);
+    }
+}
@@ -23,6 +23,7 @@ import io.openmessaging.MessagingAccessPoint;
 import io.openmessaging.OMSBuiltinKeys;
 import io.openmessaging.ServiceLifecycle;
 import io.openmessaging.exception.OMSRuntimeException;
+import java.util.List;
 
 /**
  * A {@code PullConsumer} pulls messages from the specified queue,
@@ -100,6 +101,23 @@ public interface PullConsumer extends ServiceLifecycle {
      */
     Message receive(KeyValue attributes);
 
+    /**
+     * Receives a batch of messages from the attached queues of this consumer, with long-polling.
+     * <p>
+     * This call blocks until a message arrives, the timeout expires, or until this {@code PullConsumer} is shut
+     * down. Once it has a message, it returns right away with the messages available at this moment, up to the
+     * specified number, so the batch fills up to its maximum while the consumer is behind, without delaying the
+     * messages when it isn't.
+     *
+     * @param maxMessages the maximum number of messages to receive
+     * @param timeout the maximum time to wait for the first message in milliseconds, a non-positive timeout
+     * doesn't wait at all
+     * @return the received messages, which is empty if the consumer is concurrently shut down or the timeout
+     * expires
+     * @throws OMSRuntimeException if the consumer fails to pull the messages due to some internal error.
+     */
+    List<Message> receive(int maxMessages, long timeout);
+
     /**
      * Acknowledges the specified and consumed message with unique message id.
      * <p>
@@ -119,4 +137,26 @@ public interface PullConsumer extends ServiceLifecycle {
      * @throws OMSRuntimeException if the consumer fails to acknowledge the messages due to some internal error.
      */
     void ack(String messageId, KeyValue attributes);
-}
\ No newline at end of file
+
+    /**
+     * Acknowledges the specified and consumed messages together, with a single request where the driver supports it.
+     * <p>
+     * Messages that have been received but not acknowledged may be redelivered.
+     *
+     * @param messageIds the consumed message ids
+     * @throws OMSRuntimeException if the consumer fails to acknowledge the messages due to some internal error.
+     */
+    void ack(List<String> messageIds);
+
+    /**
+     * Acknowledges the specified and consumed message, along with all the messages received before it from the
+     * same stream.
+     * <p>
+     * This cumulative acknowledgement suits the consumers processing the streams in order, one acknowledgement of
+     * the last processed message of a stream covers the whole stream up to it.
+     *
+     * @param messageId the last consumed message id of its stream
+     * @throws OMSRuntimeException if the consumer fails to acknowledge the messages due to some internal error.
+     */
+    void ackUpTo(String messageId);
+}
@@ -42,6 +42,13 @@ public interface PushConsumer extends ServiceLifecycle {
      * <ul>
      * <li> {@link OMSBuiltinKeys#CONSUMER_ID}, the unique consumer id for a consumer instance.
      * <li> {@link OMSBuiltinKeys#OPERATION_TIMEOUT}, the default timeout period for operations of {@code PushConsumer}.
+     * <li> {@link OMSBuiltinKeys#CONSUME_THREADS}, the number of threads calling the listeners concurrently.
+     * <li> {@link OMSBuiltinKeys#CONSUME_QUEUE_CAPACITY}, the number of received messages waiting for each thread.
+     * <li> {@link OMSBuiltinKeys#CONSUME_THREAD_MODE}, the platform threads of a pool or a virtual thread per message.
+     * <li> {@link OMSBuiltinKeys#CONSUME_MAX_CONCURRENCY}, the number of messages delivered at once on virtual threads.
+     * <li> {@link OMSBuiltinKeys#CONSUME_CREDIT_MESSAGES} and {@link OMSBuiltinKeys#CONSUME_CREDIT_BYTES}, the
+     * messages and bytes delivered ahead of their acknowledgements, which pace the delivery more smoothly than
+     * {@link #suspend()} and {@link #resume()}.
      * </ul>
      *
      * @return the attributes
@@ -100,6 +107,9 @@ public interface PushConsumer extends ServiceLifecycle {
      * <p>
      * {@link MessageListener#onReceived(Message, MessageListener.Context)} will be called when new
      * delivered message is coming.
+     * <p>
+     * The listener may be called concurrently by the {@link OMSBuiltinKeys#CONSUME_THREADS} of the consumer, but the
+     * messages with the same {@link Message.BuiltinKeys#STREAM_KEY} are delivered one at a time, in order.
      *
      * @param queueName a specified queue
      * @param listener a specified listener to receive new message
@@ -121,6 +131,31 @@ public interface PushConsumer extends ServiceLifecycle {
      */
     PushConsumer attachQueue(String queueName, MessageListener listener, KeyValue attributes);
 
+    /**
+     * Attaches the {@code PushConsumer} to a specified queue, with a {@code BatchMessageListener}.
+     * <p>
+     * {@link BatchMessageListener#onReceived(java.util.List, BatchMessageListener.Context)} will be called with
+     * batches of the delivered messages, bounded by the {@link OMSBuiltinKeys#CONSUME_BATCH_MAX_MESSAGES},
+     * {@link OMSBuiltinKeys#CONSUME_BATCH_MAX_BYTES} and {@link OMSBuiltinKeys#CONSUME_BATCH_MAX_WAIT} attributes
+     * of this consumer.
+     *
+     * @param queueName a specified queue
+     * @param listener a specified listener to receive the batches of new messages
+     * @return this {@code PushConsumer} instance
+     */
+    PushConsumer attachQueue(String queueName, BatchMessageListener listener);
+
+    /**
+     * Attaches the {@code PushConsumer} to a specified queue, with a {@code BatchMessageListener} and some
+     * specified attributes, which may override the batch limits of this consumer.
+     *
+     * @param queueName a specified queue
+     * @param listener a specified listener to receive the batches of new messages
+     * @param attributes some specified attributes
+     * @return this {@code PushConsumer} instance
+     */
+    PushConsumer attachQueue(String queueName, BatchMessageListener listener, KeyValue attributes);
+
     /**
      * Detaches the {@code PushConsumer} from a specified queue.
      * <p>
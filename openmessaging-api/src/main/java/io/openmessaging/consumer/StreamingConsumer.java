@@ -80,4 +80,21 @@ public interface StreamingConsumer extends ServiceLifecycle {
      * @return a message iterator at the specified position
      */
     StreamingIterator seek(String streamName, String position);
+
+    /**
+     * Creates a {@code StreamingIterator} from the first message of the specified stream stored at or after the
+     * specified time, according to its {@link io.openmessaging.Message.BuiltinKeys#STORE_TIMESTAMP}.
+     * <p>
+     * Creates a {@code StreamingIterator} from the begin position if the given time is earlier than the store
+     * time of the first message in this stream, and from the end position if it is later than the store time of
+     * the last message.
+     * <p>
+     * The implementations are expected to find the position with an index of the store times, rather than
+     * by reading the stream.
+     *
+     * @param streamName the specified stream
+     * @param timestamp the store time in milliseconds since the epoch
+     * @return a message iterator at the position of the specified time
+     */
+    StreamingIterator seekByTime(String streamName, long timestamp);
 }
@@ -21,6 +21,8 @@ import io.openmessaging.KeyValue;
 import io.openmessaging.Message;
 import io.openmessaging.OMSBuiltinKeys;
 import io.openmessaging.exception.OMSRuntimeException;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * A {@code StreamingIterator} is provided by {@code Stream} and is used to
@@ -63,6 +65,32 @@ public interface StreamingIterator {
      */
     Message next();
 
+    /**
+     * Returns the next messages in the iteration, up to the specified number, and advances the offset position
+     * past them.
+     * <p>
+     * The messages are consecutive in the stream, the batch ends before the first message which isn't available
+     * yet, so it is empty if {@link #hasNext()} would return {@code false}. It is equivalent to calling
+     * {@link #next()} repeatedly, without paying its checks for every message.
+     *
+     * @param maxMessages the maximum number of messages to return
+     * @return the next messages, in the stream order
+     * @throws OMSRuntimeException if the consumer fails to receive the next messages
+     */
+    List<Message> next(int maxMessages);
+
+    /**
+     * Adds the next messages in the iteration, up to the specified number, to the specified collection and
+     * advances the offset position past them, like {@link #next(int)}, so that a consumer may reuse the same
+     * collection for every batch.
+     *
+     * @param messages the collection receiving the messages
+     * @param maxMessages the maximum number of messages to add
+     * @return the number of added messages
+     * @throws OMSRuntimeException if the consumer fails to receive the next messages
+     */
+    int drainTo(Collection<? super Message> messages, int maxMessages);
+
     /**
      * Returns {@code true} if this partition iterator has more messages when
      * traversing the iterator in the reverse direction.
@@ -85,6 +113,19 @@ public interface StreamingIterator {
      */
     Message previous();
 
+    /**
+     * Returns the previous messages in the iteration, up to the specified number, and moves the offset position
+     * backwards before them.
+     * <p>
+     * The messages are returned in the order of a backwards traversal, like calling {@link #previous()}
+     * repeatedly, the batch is empty if {@link #hasPrevious()} would return {@code false}.
+     *
+     * @param maxMessages the maximum number of messages to return
+     * @return the previous messages, in the reverse stream order
+     * @throws OMSRuntimeException if the consumer fails to receive the previous messages
+     */
+    List<Message> previous(int maxMessages);
+
     /**
      * Returns the position of the message that would be returned by a
      * subsequent call to {@link #next}.
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.exception;
+
+/**
+ * The {@code OMSFlowControlException} must be thrown when an operation is refused, or a pending operation is
+ * discarded, because the flow control limits of a service endpoint are reached.
+ * <p>
+ * For example, a {@code Producer} throws it when the window of the asynchronous sends in flight is full.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class OMSFlowControlException extends OMSRuntimeException {
+    /**
+     * @see OMSRuntimeException#OMSRuntimeException(String, String)
+     */
+    public OMSFlowControlException(String errorCode, String message) {
+        super(errorCode, message);
+    }
+
+    /**
+     * @see OMSRuntimeException#OMSRuntimeException(String, Throwable)
+     */
+    public OMSFlowControlException(String errorCode, Throwable cause) {
+        super(errorCode, cause);
+    }
+
+    /**
+     * @see OMSRuntimeException#OMSRuntimeException(String, String, Throwable)
+     */
+    public OMSFlowControlException(String errorCode, String message, Throwable cause) {
+        super(errorCode, message, cause);
+    }
+}
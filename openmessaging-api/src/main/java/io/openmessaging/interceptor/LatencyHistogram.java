@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.interceptor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@code LatencyHistogram} records non-negative values, like latencies or sizes, into log-linear buckets, in the
+ * manner of an HDR histogram with two significant digits: from zero up to a highest trackable value, the relative
+ * error stays under 1/128, less than 1%.
+ * <p>
+ * The recording is lock-free and striped per thread: every recording thread updates the atomic counters of its own
+ * stripe, allocated on its first recording, so the threads don't contend. A {@link #snapshot()} merges the stripes
+ * while the recording goes on, it may miss the values recorded meanwhile. A value out of range is recorded as zero
+ * or as the highest trackable value.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class LatencyHistogram {
+    /**
+     * The values below {@code 1 << SUB_BUCKET_BITS} have a bucket each, every power of two above is split into half
+     * as many linear sub-buckets, whose width is at most 1/128 of their values.
+     */
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+    private static final int MAX_STRIPES = 64;
+
+    private final long highestTrackableValue;
+    private final int bucketCount;
+    /**
+     * The stripes hold the bucket counts, followed by the sum and the maximum of the values.
+     */
+    private final AtomicReferenceArray<AtomicLongArray> stripes;
+
+    /**
+     * Constructs a {@code LatencyHistogram} tracking the values up to the specified one, with a stripe per
+     * available processor.
+     *
+     * @param highestTrackableValue the highest trackable value, at least {@code 1}
+     */
+    public LatencyHistogram(long highestTrackableValue) {
+        this(highestTrackableValue, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a {@code LatencyHistogram} tracking the values up to the specified one.
+     *
+     * @param highestTrackableValue the highest trackable value, at least {@code 1}
+     * @param stripes the number of stripes, rounded up to a power of two
+     */
+    public LatencyHistogram(long highestTrackableValue, int stripes) {
+        this.highestTrackableValue = Math.max(1L, highestTrackableValue);
+        this.bucketCount = indexOf(this.highestTrackableValue) + 1;
+        int count = 1;
+        while (count < Math.min(stripes, MAX_STRIPES)) {
+            count <<= 1;
+        }
+        this.stripes = new AtomicReferenceArray<AtomicLongArray>(count);
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+        long clamped = value < 0 ? 0 : Math.min(value, highestTrackableValue);
+        AtomicLongArray stripe = stripe();
+        stripe.incrementAndGet(indexOf(clamped));
+        stripe.addAndGet(bucketCount, clamped);
+        int maxIndex = bucketCount + 1;
+        long max = stripe.get(maxIndex);
+        while (clamped > max && !stripe.compareAndSet(maxIndex, max, clamped)) {
+            max = stripe.get(maxIndex);
+        }
+    }
+
+    /**
+     * Returns the highest trackable value.
+     *
+     * @return the highest trackable value
+     */
+    public long highestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    /**
+     * Takes a snapshot of the values recorded so far, without stopping the recording.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[bucketCount];
+        long sum = 0;
+        long max = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            AtomicLongArray stripe = stripes.get(i);
+            if (stripe == null) {
+                continue;
+            }
+            for (int j = 0; j < bucketCount; j++) {
+                counts[j] += stripe.get(j);
+            }
+            sum += stripe.get(bucketCount);
+            max = Math.max(max, stripe.get(bucketCount + 1));
+        }
+        return new Snapshot(counts, sum, max);
+    }
+
+    private AtomicLongArray stripe() {
+        int index = (int) Thread.currentThread().getId() & (stripes.length() - 1);
+        AtomicLongArray stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new AtomicLongArray(bucketCount + 2));
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+        long subBucket = index - shift * SUB_BUCKET_HALF_COUNT;
+        long value = ((subBucket + 1) << shift) - 1;
+        return value < 0 ? Long.MAX_VALUE : value;
+    }
+
+    /**
+     * A point-in-time view of the values recorded by a {@code LatencyHistogram}.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long sum, long max) {
+            long count = 0;
+            for (long bucket : counts) {
+                count += bucket;
+            }
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Returns the number of recorded values.
+         *
+         * @return the number of values
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Returns the sum of the recorded values.
+         *
+         * @return the sum of the values
+         */
+        public long sum() {
+            return sum;
+        }
+
+        /**
+         * Returns the mean of the recorded values.
+         *
+         * @return the mean, or {@code 0} if no value is recorded
+         */
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Returns the maximum of the recorded values.
+         *
+         * @return the maximum, or {@code 0} if no value is recorded
+         */
+        public long max() {
+            return max;
+        }
+
+        /**
+         * Returns the value below or at which the specified percentage of the recorded values fall, like
+         * {@code 99.9} for the p999, within the precision of the histogram.
+         *
+         * @param percentile the percentage, from {@code 0} to {@code 100}
+         * @return the value at the percentile, or {@code 0} if no value is recorded
+         */
+        public long valueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            double fraction = Math.min(Math.max(percentile, 0), 100) / 100;
+            long target = Math.max(1L, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(highestEquivalentValue(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.interceptor;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.Message;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@code LatencyProducerInterceptor} records, per destination queue, the latency of the successful sends in
+ * nanoseconds and the body size of the sent messages in bytes, into {@link LatencyHistogram}s.
+ * <p>
+ * The latency of an asynchronous send is recorded once it is completed, it includes its batching and its transport,
+ * see {@link ProducerInterceptor.SendAfterContext#elapsedNanos()}.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class LatencyProducerInterceptor implements ProducerInterceptor {
+    public static final long DEFAULT_HIGHEST_LATENCY = TimeUnit.MINUTES.toNanos(1);
+    public static final long DEFAULT_HIGHEST_SIZE = Integer.MAX_VALUE;
+
+    private final ConcurrentMap<String, QueueHistograms> queues = new ConcurrentHashMap<String, QueueHistograms>();
+
+    @Override
+    public void sendBefore(SendBeforeContext context) {
+    }
+
+    @Override
+    public void sendAfter(SendAfterContext context) {
+        String destination = context.destination();
+        if (destination == null || context.exception() != null) {
+            return;
+        }
+        QueueHistograms histograms = histogramsOf(destination);
+        histograms.sendLatency.record(context.elapsedNanos());
+        Message message = context.message();
+        histograms.messageSize.record(message instanceof BytesMessage ? ((BytesMessage) message).getBodyLength() : 0);
+    }
+
+    /**
+     * Returns the queues of the recorded sends.
+     *
+     * @return the queue names
+     */
+    public Set<String> queues() {
+        return queues.keySet();
+    }
+
+    /**
+     * Returns the histogram of the send latencies of a queue, in nanoseconds.
+     *
+     * @param queue the queue name
+     * @return the histogram, or {@code null} if no send to the queue is recorded
+     */
+    public LatencyHistogram sendLatency(String queue) {
+        QueueHistograms histograms = queues.get(queue);
+        return histograms == null ? null : histograms.sendLatency;
+    }
+
+    /**
+     * Returns the histogram of the message body sizes of a queue, in bytes.
+     *
+     * @param queue the queue name
+     * @return the histogram, or {@code null} if no send to the queue is recorded
+     */
+    public LatencyHistogram messageSize(String queue) {
+        QueueHistograms histograms = queues.get(queue);
+        return histograms == null ? null : histograms.messageSize;
+    }
+
+    private QueueHistograms histogramsOf(String queue) {
+        QueueHistograms histograms = queues.get(queue);
+        if (histograms == null) {
+            QueueHistograms created = new QueueHistograms();
+            histograms = queues.putIfAbsent(queue, created);
+            if (histograms == null) {
+                histograms = created;
+            }
+        }
+        return histograms;
+    }
+
+    private static final class QueueHistograms {
+        private final LatencyHistogram sendLatency = new LatencyHistogram(DEFAULT_HIGHEST_LATENCY);
+        private final LatencyHistogram messageSize = new LatencyHistogram(DEFAULT_HIGHEST_SIZE);
+    }
+}
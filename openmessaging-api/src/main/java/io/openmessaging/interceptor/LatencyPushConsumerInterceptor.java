@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.interceptor;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.Message;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@code LatencyPushConsumerInterceptor} records, per queue, into {@link LatencyHistogram}s:
+ * <ul>
+ * <li> the end-to-end latency of the received messages in milliseconds, from their
+ * {@link Message.BuiltinKeys#BORN_TIMESTAMP} to their delivery, which is subject to the clock skew between the
+ * producer and the consumer.
+ * <li> the processing time of the listener in nanoseconds, including the failed ones.
+ * <li> the body size of the received messages in bytes.
+ * </ul>
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class LatencyPushConsumerInterceptor implements PushConsumerInterceptor {
+    public static final long DEFAULT_HIGHEST_END_TO_END_LATENCY = TimeUnit.DAYS.toMillis(1);
+    public static final long DEFAULT_HIGHEST_PROCESSING_TIME = TimeUnit.MINUTES.toNanos(1);
+    public static final long DEFAULT_HIGHEST_SIZE = Integer.MAX_VALUE;
+
+    private final ConcurrentMap<String, QueueHistograms> queues = new ConcurrentHashMap<String, QueueHistograms>();
+
+    @Override
+    public void onReceivedBefore(OnMessageBeforeContext context) {
+        String destination = context.destination();
+        if (destination == null) {
+            return;
+        }
+        QueueHistograms histograms = histogramsOf(destination);
+        Message message = context.message();
+        if (message.sysHeaders().containsKey(Message.BuiltinKeys.BORN_TIMESTAMP)) {
+            histograms.endToEndLatency.record(System.currentTimeMillis()
+                - message.sysHeaders().getLong(Message.BuiltinKeys.BORN_TIMESTAMP));
+        }
+        histograms.messageSize.record(message instanceof BytesMessage ? ((BytesMessage) message).getBodyLength() : 0);
+    }
+
+    @Override
+    public void onReceivedAfter(OnMessageAfterContext context) {
+        String destination = context.destination();
+        if (destination != null) {
+            histogramsOf(destination).processingTime.record(context.elapsedNanos());
+        }
+    }
+
+    /**
+     * Returns the queues of the recorded messages.
+     *
+     * @return the queue names
+     */
+    public Set<String> queues() {
+        return queues.keySet();
+    }
+
+    /**
+     * Returns the histogram of the end-to-end latencies of a queue, in milliseconds.
+     *
+     * @param queue the queue name
+     * @return the histogram, or {@code null} if no message of the queue is recorded
+     */
+    public LatencyHistogram endToEndLatency(String queue) {
+        QueueHistograms histograms = queues.get(queue);
+        return histograms == null ? null : histograms.endToEndLatency;
+    }
+
+    /**
+     * Returns the histogram of the listener processing times of a queue, in nanoseconds.
+     *
+     * @param queue the queue name
+     * @return the histogram, or {@code null} if no message of the queue is recorded
+     */
+    public LatencyHistogram processingTime(String queue) {
+        QueueHistograms histograms = queues.get(queue);
+        return histograms == null ? null : histograms.processingTime;
+    }
+
+    /**
+     * Returns the histogram of the message body sizes of a queue, in bytes.
+     *
+     * @param queue the queue name
+     * @return the histogram, or {@code null} if no message of the queue is recorded
+     */
+    public LatencyHistogram messageSize(String queue) {
+        QueueHistograms histograms = queues.get(queue);
+        return histograms == null ? null : histograms.messageSize;
+    }
+
+    private QueueHistograms histogramsOf(String queue) {
+        QueueHistograms histograms = queues.get(queue);
+        if (histograms == null) {
+            QueueHistograms created = new QueueHistograms();
+            histograms = queues.putIfAbsent(queue, created);
+            if (histograms == null) {
+                histograms = created;
+            }
+        }
+        return histograms;
+    }
+
+    private static final class QueueHistograms {
+        private final LatencyHistogram endToEndLatency = new LatencyHistogram(DEFAULT_HIGHEST_END_TO_END_LATENCY);
+        private final LatencyHistogram processingTime = new LatencyHistogram(DEFAULT_HIGHEST_PROCESSING_TIME);
+        private final LatencyHistogram messageSize = new LatencyHistogram(DEFAULT_HIGHEST_SIZE);
+    }
+}
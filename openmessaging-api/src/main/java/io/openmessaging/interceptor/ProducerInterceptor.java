@@ -1,7 +1,13 @@
 package io.openmessaging.interceptor;
 
+import io.openmessaging.Message;
+import io.openmessaging.producer.SendResult;
+
 /**
  * A {@code ProducerInterceptor} is used to intercept send operations of producer.
+ * <p>
+ * The contexts are reused by the producer from one send to the next, an interceptor must read them during the
+ * call only, and not keep them.
  *
  * @version OMS 1.0.0
  * @since OMS 1.0.0
@@ -23,8 +29,51 @@ public interface ProducerInterceptor {
     void sendAfter(SendAfterContext context);
 
     interface SendBeforeContext {
+        /**
+         * Returns the message being sent.
+         *
+         * @return the message
+         */
+        Message message();
+
+        /**
+         * Returns the destination queue of the message.
+         *
+         * @return the destination queue
+         */
+        String destination();
+
+        /**
+         * Returns the start time of the send operation, as given by {@link System#nanoTime()}.
+         *
+         * @return the start time in nanoseconds
+         */
+        long startNanos();
     }
 
-    interface SendAfterContext {
+    interface SendAfterContext extends SendBeforeContext {
+        /**
+         * Returns the time elapsed since the start of the send operation until its completion.
+         * <p>
+         * An asynchronous send is intercepted once its {@code Future} is completed, by the completing thread, so its
+         * elapsed time includes its batching and its transport.
+         *
+         * @return the elapsed time in nanoseconds
+         */
+        long elapsedNanos();
+
+        /**
+         * Returns the result of the send operation.
+         *
+         * @return the result, or {@code null} if the send failed
+         */
+        SendResult result();
+
+        /**
+         * Returns the exception which failed the send operation.
+         *
+         * @return the exception, or {@code null} if the send didn't fail
+         */
+        Throwable exception();
     }
 }
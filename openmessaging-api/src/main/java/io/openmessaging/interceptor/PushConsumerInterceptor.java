@@ -1,7 +1,12 @@
 package io.openmessaging.interceptor;
 
+import io.openmessaging.Message;
+
 /**
  * A {@code PushConsumerInterceptor} is used to intercept consume operations of push consumer.
+ * <p>
+ * The contexts are reused by the consumer from one message to the next, an interceptor must read them during the
+ * call only, and not keep them.
  *
  * @version OMS 1.0.0
  * @since OMS 1.0.0
@@ -22,8 +27,41 @@ public interface PushConsumerInterceptor {
     void onReceivedAfter(OnMessageAfterContext context);
 
     interface OnMessageBeforeContext {
+        /**
+         * Returns the message being consumed.
+         *
+         * @return the message
+         */
+        Message message();
+
+        /**
+         * Returns the queue the message is received from.
+         *
+         * @return the queue
+         */
+        String destination();
+
+        /**
+         * Returns the start time of the consumption, as given by {@link System#nanoTime()}.
+         *
+         * @return the start time in nanoseconds
+         */
+        long startNanos();
     }
 
-    interface OnMessageAfterContext {
+    interface OnMessageAfterContext extends OnMessageBeforeContext {
+        /**
+         * Returns the time elapsed since the start of the consumption.
+         *
+         * @return the elapsed time in nanoseconds
+         */
+        long elapsedNanos();
+
+        /**
+         * Returns the exception thrown by the listener.
+         *
+         * @return the exception, or {@code null} if the listener didn't throw any
+         */
+        Throwable exception();
     }
 }
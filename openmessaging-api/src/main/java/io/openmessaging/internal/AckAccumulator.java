@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Future;
+import io.openmessaging.FutureListener;
+import io.openmessaging.KeyValue;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.ServiceLifecycle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code AckAccumulator} coalesces the acknowledgements of a {@code PullConsumer} into requests, which are
+ * handed over to an {@link AckTransport}.
+ * <p>
+ * The pending acknowledgements are sent once they are {@link OMSBuiltinKeys#ACK_BATCH_MAX_MESSAGES}, or once the
+ * first of them has waited for {@link OMSBuiltinKeys#ACK_FLUSH_INTERVAL} milliseconds. A non-positive interval
+ * disables the coalescing, every acknowledgement is sent right away.
+ * <p>
+ * A cumulative acknowledgement, see {@link #ackUpTo(String, String)}, replaces the pending cumulative one of the
+ * same stream, so an ordered consumer sends at most one acknowledgement per stream and interval, however many
+ * messages it processes.
+ * <p>
+ * The requests are handed over to the transport in order, while holding the lock of the accumulator, so the
+ * transport is expected to return without blocking. A failed request is only counted, the messages it acknowledges
+ * are redelivered like the ones which are never acknowledged.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class AckAccumulator implements ServiceLifecycle {
+    public static final int DEFAULT_MAX_MESSAGES = 128;
+    public static final long DEFAULT_FLUSH_INTERVAL = 0;
+
+    private final AckTransport transport;
+    private final int maxMessages;
+    private final long flushInterval;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownScheduler;
+
+    private List<String> pending = new ArrayList<String>();
+    private Map<String, String> pendingUpTo = new LinkedHashMap<String, String>();
+    private Runnable flushTask;
+    private ScheduledFuture<?> flushTimer;
+    private boolean shutdown;
+
+    private final AtomicLong acks = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final FutureListener<Void> requestListener = new FutureListener<Void>() {
+        @Override
+        public void operationSucceeded(Future<Void> future) {
+        }
+
+        @Override
+        public void operationFailed(Future<Void> future) {
+            failedRequests.incrementAndGet();
+        }
+    };
+
+    /**
+     * Constructs an {@code AckAccumulator} configured by the specified consumer attributes, which flushes on a
+     * timer thread of its own.
+     *
+     * @param attributes the consumer attributes
+     * @param transport the transport sending the acknowledgements
+     */
+    public AckAccumulator(KeyValue attributes, AckTransport transport) {
+        this(attributes, transport, null);
+    }
+
+    /**
+     * Constructs an {@code AckAccumulator} configured by the specified consumer attributes.
+     *
+     * @param attributes the consumer attributes
+     * @param transport the transport sending the acknowledgements
+     * @param scheduler the scheduler of the flush timers, or {@code null} to use a timer thread of its own
+     */
+    public AckAccumulator(KeyValue attributes, AckTransport transport, ScheduledExecutorService scheduler) {
+        this.transport = transport;
+        this.maxMessages = Math.max(1, attributes.getInt(OMSBuiltinKeys.ACK_BATCH_MAX_MESSAGES, DEFAULT_MAX_MESSAGES));
+        this.flushInterval = attributes.getLong(OMSBuiltinKeys.ACK_FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL);
+        this.ownScheduler = scheduler == null && flushInterval > 0;
+        this.scheduler = ownScheduler ? Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "OMS-AckFlushTimer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : scheduler;
+    }
+
+    /**
+     * Acknowledges the specified message.
+     *
+     * @param messageId the consumed message id
+     * @throws io.openmessaging.exception.OMSRuntimeException if the transport fails to send a due request
+     */
+    public void ack(String messageId) {
+        ack(Collections.singletonList(messageId));
+    }
+
+    /**
+     * Acknowledges the specified messages.
+     *
+     * @param messageIds the consumed message ids
+     * @throws io.openmessaging.exception.OMSRuntimeException if the transport fails to send a due request
+     */
+    public synchronized void ack(Collection<String> messageIds) {
+        pending.addAll(messageIds);
+        acks.addAndGet(messageIds.size());
+        added();
+    }
+
+    /**
+     * Acknowledges the specified message, along with all the messages before it in the specified stream.
+     *
+     * @param streamName the stream of the message
+     * @param messageId the last consumed message id of the stream
+     * @throws io.openmessaging.exception.OMSRuntimeException if the transport fails to send a due request
+     */
+    public synchronized void ackUpTo(String streamName, String messageId) {
+        pendingUpTo.put(streamName, messageId);
+        acks.incrementAndGet();
+        added();
+    }
+
+    /**
+     * Sends all the pending acknowledgements right away.
+     *
+     * @throws io.openmessaging.exception.OMSRuntimeException if the transport fails to send a request
+     */
+    public synchronized void flush() {
+        if (flushTimer != null) {
+            flushTimer.cancel(false);
+            flushTimer = null;
+            flushTask = null;
+        }
+        RuntimeException error = null;
+        while (!pending.isEmpty()) {
+            List<String> ids = pending;
+            if (ids.size() > maxMessages) {
+                pending = new ArrayList<String>(ids.subList(maxMessages, ids.size()));
+                ids = new ArrayList<String>(ids.subList(0, maxMessages));
+            } else {
+                pending = new ArrayList<String>();
+            }
+            try {
+                requests.incrementAndGet();
+                transport.ack(ids).addListener(requestListener);
+            } catch (RuntimeException e) {
+                failedRequests.incrementAndGet();
+                error = e;
+            }
+        }
+        if (!pendingUpTo.isEmpty()) {
+            Map<String, String> ids = pendingUpTo;
+            pendingUpTo = new LinkedHashMap<String, String>();
+            try {
+                requests.incrementAndGet();
+                transport.ackUpTo(ids).addListener(requestListener);
+            } catch (RuntimeException e) {
+                failedRequests.incrementAndGet();
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Returns the number of acknowledgements pending in the accumulator.
+     *
+     * @return the number of pending acknowledgements
+     */
+    public synchronized int pendingAcks() {
+        return pending.size() + pendingUpTo.size();
+    }
+
+    /**
+     * Returns the number of acknowledgements made so far, cumulative ones included.
+     *
+     * @return the number of acknowledgements
+     */
+    public long acks() {
+        return acks.get();
+    }
+
+    /**
+     * Returns the number of requests handed over to the transport so far, which is {@link #acks()} divided by the
+     * average coalescing factor.
+     *
+     * @return the number of requests
+     */
+    public long requests() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of requests failed so far.
+     *
+     * @return the number of failed requests
+     */
+    public long failedRequests() {
+        return failedRequests.get();
+    }
+
+    @Override
+    public void startup() {
+    }
+
+    /**
+     * Sends all the pending acknowledgements, any further acknowledgement is sent right away.
+     */
+    @Override
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            flush();
+        }
+        if (ownScheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    private void added() {
+        if (shutdown || flushInterval <= 0 || pendingAcks() >= maxMessages) {
+            flush();
+        } else if (flushTimer == null) {
+            flushTask = new Runnable() {
+                @Override
+                public void run() {
+                    expire(this);
+                }
+            };
+            flushTimer = scheduler.schedule(flushTask, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void expire(Runnable task) {
+        if (flushTask != task) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException ignore) {
+            // Counted as a failed request already
+        }
+    }
+}
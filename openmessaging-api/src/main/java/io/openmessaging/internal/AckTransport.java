@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Future;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The vendor side of an {@link AckAccumulator}, which sends many acknowledgements to the server in one request.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public interface AckTransport {
+    /**
+     * Acknowledges the specified messages asynchronously.
+     *
+     * @param messageIds the acknowledged message ids
+     * @return the {@code Future} of the acknowledge request
+     */
+    Future<Void> ack(List<String> messageIds);
+
+    /**
+     * Acknowledges cumulatively the specified messages asynchronously, each one along with all the messages before
+     * it in its stream.
+     *
+     * @param messageIds the last acknowledged message id of every stream, keyed by the stream name
+     * @return the {@code Future} of the acknowledge request
+     */
+    Future<Void> ackUpTo(Map<String, String> messageIds);
+}
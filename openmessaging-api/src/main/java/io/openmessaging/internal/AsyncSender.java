@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Future;
+import io.openmessaging.Message;
+import io.openmessaging.producer.SendResult;
+
+/**
+ * A stage of the asynchronous send path of a {@code Producer}, like a {@link BatchAccumulator} or the
+ * vendor transport itself, which can be wrapped by a {@link SendWindow}.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public interface AsyncSender {
+    /**
+     * Sends a message to the destination preset in its system headers asynchronously.
+     *
+     * @param message the message to send
+     * @return the {@code Future} of the send operation
+     */
+    Future<SendResult> sendAsync(Message message);
+}
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.Future;
+import io.openmessaging.FutureListener;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.ServiceLifecycle;
+import io.openmessaging.producer.SendResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static io.openmessaging.internal.InternalErrorCode.generateInternalException;
+
+/**
+ * The {@code BatchAccumulator} groups the asynchronous sends of a {@code Producer} per destination queue into
+ * batches, which are handed over to a {@link BatchTransport}.
+ * <p>
+ * A batch is sent once it holds {@link OMSBuiltinKeys#BATCH_MAX_MESSAGES} messages, once it can't take the next
+ * message without exceeding {@link OMSBuiltinKeys#BATCH_MAX_BYTES} of bodies, or once its first message has waited
+ * for {@link OMSBuiltinKeys#BATCH_LINGER_TIME} milliseconds. A non-positive linger time disables the batching, every
+ * message is sent right away in a batch of its own.
+ * <p>
+ * Every {@link #append(Message)} returns its own {@code Future}, completed with the {@code SendResult} of its
+ * message when the batch is acknowledged, or failed along with the whole batch.
+ * <p>
+ * The batches of a queue are handed over to the transport in order, while holding a lock of the queue, so
+ * {@link BatchTransport#sendBatch(String, List)} is expected to return without blocking. The messages whose
+ * {@code Future} has been cancelled while waiting in a batch, like the ones dropped by a {@link SendWindow},
+ * are left out of the batch.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class BatchAccumulator implements AsyncSender, ServiceLifecycle {
+    public static final int DEFAULT_MAX_MESSAGES = 128;
+    public static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+    public static final long DEFAULT_LINGER_TIME = 0;
+
+    private final BatchTransport transport;
+    private final int maxMessages;
+    private final int maxBytes;
+    private final long lingerTime;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownScheduler;
+    private final ConcurrentMap<String, QueueBatcher> batchers = new ConcurrentHashMap<String, QueueBatcher>();
+    private volatile boolean shutdown;
+
+    /**
+     * Constructs a {@code BatchAccumulator} configured by the specified producer attributes, which lingers on a
+     * timer thread of its own.
+     *
+     * @param attributes the producer attributes
+     * @param transport the transport sending the batches
+     */
+    public BatchAccumulator(KeyValue attributes, BatchTransport transport) {
+        this(attributes, transport, null);
+    }
+
+    /**
+     * Constructs a {@code BatchAccumulator} configured by the specified producer attributes.
+     *
+     * @param attributes the producer attributes
+     * @param transport the transport sending the batches
+     * @param scheduler the scheduler of the linger timers, or {@code null} to use a timer thread of its own
+     */
+    public BatchAccumulator(KeyValue attributes, BatchTransport transport, ScheduledExecutorService scheduler) {
+        this.transport = transport;
+        this.maxMessages = Math.max(1, attributes.getInt(OMSBuiltinKeys.BATCH_MAX_MESSAGES, DEFAULT_MAX_MESSAGES));
+        this.maxBytes = Math.max(1, attributes.getInt(OMSBuiltinKeys.BATCH_MAX_BYTES, DEFAULT_MAX_BYTES));
+        this.lingerTime = attributes.getLong(OMSBuiltinKeys.BATCH_LINGER_TIME, DEFAULT_LINGER_TIME);
+        this.ownScheduler = scheduler == null && lingerTime > 0;
+        this.scheduler = ownScheduler ? Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "OMS-BatchLingerTimer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : scheduler;
+    }
+
+    /**
+     * Appends a message to the batch of its destination queue.
+     *
+     * @param message the message to send
+     * @return the {@code Future} of the send operation of the message
+     * @throws io.openmessaging.exception.OMSRuntimeException if the message doesn't have a destination
+     */
+    public Future<SendResult> append(Message message) {
+        String queue = message.sysHeaders().getString(Message.BuiltinKeys.DESTINATION);
+        if (queue == null) {
+            throw generateInternalException(InternalErrorCode.MESSAGE_DESTINATION_MISSING,
+                message.sysHeaders().getString(Message.BuiltinKeys.MESSAGE_ID));
+        }
+        DefaultPromise<SendResult> promise = new DefaultPromise<SendResult>();
+        batcherOf(queue).append(message, bodySize(message), promise);
+        return promise;
+    }
+
+    @Override
+    public Future<SendResult> sendAsync(Message message) {
+        return append(message);
+    }
+
+    /**
+     * Sends all the pending batches right away.
+     */
+    public void flush() {
+        for (QueueBatcher batcher : batchers.values()) {
+            batcher.flush();
+        }
+    }
+
+    @Override
+    public void startup() {
+    }
+
+    /**
+     * Sends all the pending batches and rejects any further message.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        flush();
+        if (ownScheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    private QueueBatcher batcherOf(String queue) {
+        QueueBatcher batcher = batchers.get(queue);
+        if (batcher == null) {
+            QueueBatcher created = new QueueBatcher(queue);
+            batcher = batchers.putIfAbsent(queue, created);
+            if (batcher == null) {
+                batcher = created;
+            }
+        }
+        return batcher;
+    }
+
+    private static int bodySize(Message message) {
+        return message instanceof BytesMessage ? ((BytesMessage) message).getBodyLength() : 0;
+    }
+
+    private final class QueueBatcher {
+        private final String queue;
+        private Batch current;
+
+        QueueBatcher(String queue) {
+            this.queue = queue;
+        }
+
+        synchronized void append(Message message, int size, DefaultPromise<SendResult> promise) {
+            if (shutdown) {
+                promise.setFailure(generateInternalException(InternalErrorCode.PRODUCER_SHUTDOWN, queue));
+                return;
+            }
+            if (current != null && current.bytes + size > maxBytes) {
+                send(detach());
+            }
+            if (current == null) {
+                current = new Batch(this);
+                if (lingerTime > 0) {
+                    current.linger = scheduler.schedule(current, lingerTime, TimeUnit.MILLISECONDS);
+                }
+            }
+            current.add(message, size, promise);
+            if (lingerTime <= 0 || current.messages.size() >= maxMessages || current.bytes >= maxBytes) {
+                send(detach());
+            }
+        }
+
+        synchronized void flush() {
+            if (current != null) {
+                send(detach());
+            }
+        }
+
+        synchronized void expire(Batch batch) {
+            if (current == batch) {
+                current = null;
+                send(batch);
+            }
+        }
+
+        private Batch detach() {
+            Batch batch = current;
+            current = null;
+            if (batch.linger != null) {
+                batch.linger.cancel(false);
+            }
+            return batch;
+        }
+
+        private void send(Batch batch) {
+            if (!batch.removeCancelled()) {
+                return;
+            }
+            Future<List<SendResult>> future;
+            try {
+                future = transport.sendBatch(queue, batch.messages);
+            } catch (RuntimeException e) {
+                batch.fail(e);
+                return;
+            }
+            future.addListener(batch);
+        }
+    }
+
+    private static final class Batch implements Runnable, FutureListener<List<SendResult>> {
+        private final QueueBatcher batcher;
+        private final List<Message> messages = new ArrayList<Message>();
+        private final List<DefaultPromise<SendResult>> promises = new ArrayList<DefaultPromise<SendResult>>();
+        private int bytes;
+        private ScheduledFuture<?> linger;
+
+        Batch(QueueBatcher batcher) {
+            this.batcher = batcher;
+        }
+
+        void add(Message message, int size, DefaultPromise<SendResult> promise) {
+            messages.add(message);
+            promises.add(promise);
+            bytes += size;
+        }
+
+        /**
+         * Removes the messages whose promise has been cancelled, returns whether any message is left.
+         */
+        boolean removeCancelled() {
+            for (int i = promises.size() - 1; i >= 0; i--) {
+                if (promises.get(i).isCancelled()) {
+                    promises.remove(i);
+                    messages.remove(i);
+                }
+            }
+            return !messages.isEmpty();
+        }
+
+        @Override
+        public void run() {
+            batcher.expire(this);
+        }
+
+        @Override
+        public void operationSucceeded(Future<List<SendResult>> future) {
+            List<SendResult> results = future.get();
+            if (results == null || results.size() != promises.size()) {
+                fail(null);
+                return;
+            }
+            Error error = null;
+            for (int i = 0; i < promises.size(); i++) {
+                try {
+                    promises.get(i).set(results.get(i));
+                } catch (Error e) {
+                    // Rethrown once the whole batch is completed
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        @Override
+        public void operationFailed(Future<List<SendResult>> future) {
+            fail(future.getThrowable());
+        }
+
+        void fail(Throwable cause) {
+            if (cause == null) {
+                cause = generateInternalException(InternalErrorCode.BATCH_SEND_FAILED,
+                    String.valueOf(messages.size()), batcher.queue);
+            }
+            Error error = null;
+            for (DefaultPromise<SendResult> promise : promises) {
+                try {
+                    promise.setFailure(cause);
+                } catch (Error e) {
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Future;
+import io.openmessaging.Message;
+import io.openmessaging.producer.SendResult;
+import java.util.List;
+
+/**
+ * The vendor side of a {@link BatchAccumulator}, which sends a whole batch of messages to a queue in one request.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public interface BatchTransport {
+    /**
+     * Sends the specified messages to the specified queue asynchronously.
+     * <p>
+     * The returned {@code Future} completes with one {@code SendResult} per message, in the order of the messages,
+     * or fails as a whole.
+     *
+     * @param queue the target queue
+     * @param messages the messages of the batch
+     * @return the {@code Future} of the batch send operation
+     */
+    Future<List<SendResult>> sendBatch(String queue, List<Message> messages);
+}
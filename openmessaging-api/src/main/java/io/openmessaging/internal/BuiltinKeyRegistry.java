@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+
+/**
+ * The {@code BuiltinKeyRegistry} assigns a fixed ordinal to every key of {@link Message.BuiltinKeys} and
+ * {@link OMSBuiltinKeys}, so that {@code KeyValue} implementations can keep these keys in indexed slots
+ * and only use a hash table for the user defined keys.
+ * <p>
+ * The message header keys take the ordinals from zero to {@link #MESSAGE_KEYS} - 1, followed by the
+ * attribute keys of {@code OMSBuiltinKeys} which identify an access point. The tuning keys of the producers and
+ * the consumers are read once when these are created, so they are looked up as user defined keys.
+ * <p>
+ * {@code CompactKeyValue} tracks the builtin slots in a {@code long} mask, so at most {@value #MAX_KEYS} keys
+ * can be registered, more fail the initialization of this class.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public final class BuiltinKeyRegistry {
+    private static final String[] KEYS = {
+        Message.BuiltinKeys.MESSAGE_ID,
+        Message.BuiltinKeys.DESTINATION,
+        Message.BuiltinKeys.BORN_TIMESTAMP,
+        Message.BuiltinKeys.BORN_HOST,
+        Message.BuiltinKeys.STORE_TIMESTAMP,
+        Message.BuiltinKeys.STORE_HOST,
+        Message.BuiltinKeys.START_TIME,
+        Message.BuiltinKeys.STOP_TIME,
+        Message.BuiltinKeys.TIMEOUT,
+        Message.BuiltinKeys.PRIORITY,
+        Message.BuiltinKeys.RELIABILITY,
+        Message.BuiltinKeys.SEARCH_KEY,
+        Message.BuiltinKeys.SCHEDULE_EXPRESSION,
+        Message.BuiltinKeys.TRACE_ID,
+        Message.BuiltinKeys.STREAM_KEY,
+        Message.BuiltinKeys.REDELIVERED_NUMBER,
+        Message.BuiltinKeys.REDELIVERED_REASON,
+
+        OMSBuiltinKeys.DRIVER_IMPL,
+        OMSBuiltinKeys.ACCESS_POINTS,
+        OMSBuiltinKeys.NAMESPACE,
+        OMSBuiltinKeys.ACCOUNT_ID,
+        OMSBuiltinKeys.REGION,
+        OMSBuiltinKeys.PRODUCER_ID,
+        OMSBuiltinKeys.CONSUMER_ID,
+        OMSBuiltinKeys.OPERATION_TIMEOUT,
+        OMSBuiltinKeys.ROUTING_SOURCE,
+        OMSBuiltinKeys.ROUTING_DESTINATION,
+        OMSBuiltinKeys.ROUTING_EXPRESSION
+    };
+
+    /**
+     * The number of message header keys, which own the lowest ordinals.
+     */
+    public static final int MESSAGE_KEYS = 17;
+
+    /**
+     * The maximum number of builtin keys, one per bit of a {@code long} mask.
+     */
+    public static final int MAX_KEYS = Long.SIZE;
+
+    private static final String[] TABLE;
+    private static final int[] ORDINALS;
+
+    static {
+        if (KEYS.length > MAX_KEYS) {
+            throw new IllegalStateException("At most " + MAX_KEYS + " builtin keys can be registered, but there are "
+                + KEYS.length);
+        }
+        int capacity = Integer.highestOneBit(KEYS.length) << 2;
+        TABLE = new String[capacity];
+        ORDINALS = new int[capacity];
+        for (int ordinal = 0; ordinal < KEYS.length; ordinal++) {
+            int index = hash(KEYS[ordinal]) & (capacity - 1);
+            while (TABLE[index] != null) {
+                index = (index + 1) & (capacity - 1);
+            }
+            TABLE[index] = KEYS[ordinal];
+            ORDINALS[index] = ordinal;
+        }
+    }
+
+    private BuiltinKeyRegistry() {
+    }
+
+    /**
+     * Returns the ordinal of the specified key.
+     * <p>
+     * Passing the constants of {@code Message.BuiltinKeys} or {@code OMSBuiltinKeys} is resolved by
+     * reference comparison, any other equal {@code String} is resolved as well.
+     *
+     * @param key the key
+     * @return the ordinal of the key, or -1 if it isn't a builtin key
+     */
+    public static int ordinalOf(String key) {
+        if (key == null) {
+            return -1;
+        }
+        int mask = TABLE.length - 1;
+        int index = hash(key) & mask;
+        for (String k = TABLE[index]; k != null; k = TABLE[index]) {
+            if (k == key || k.equals(key)) {
+                return ORDINALS[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the builtin key of the specified ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the builtin key
+     */
+    public static String keyOf(int ordinal) {
+        return KEYS[ordinal];
+    }
+
+    /**
+     * Returns the number of builtin keys.
+     *
+     * @return the number of builtin keys
+     */
+    public static int size() {
+        return KEYS.length;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code BytesBody} holds the body of a {@link io.openmessaging.BytesMessage}, which is backed either
+ * by a byte array or by a {@link ByteBuffer}.
+ * <p>
+ * The content is exposed through read-only views and slices sharing the backing storage, the byte array
+ * form of a buffer backed body is only materialized on demand, once.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public final class BytesBody {
+    private final ByteBuffer buffer;
+    private volatile byte[] array;
+
+    private BytesBody(ByteBuffer buffer, byte[] array) {
+        this.buffer = buffer;
+        this.array = array;
+    }
+
+    /**
+     * Creates a {@code BytesBody} backed by the specified array.
+     *
+     * @param array the backing array
+     * @return a {@code BytesBody} instance
+     */
+    public static BytesBody wrap(byte[] array) {
+        return new BytesBody(ByteBuffer.wrap(array).asReadOnlyBuffer(), array);
+    }
+
+    /**
+     * Creates a {@code BytesBody} backed by the remaining content of the specified buffer.
+     * <p>
+     * The position and limit of the specified buffer are left untouched.
+     *
+     * @param buffer the backing buffer
+     * @return a {@code BytesBody} instance
+     */
+    public static BytesBody wrap(ByteBuffer buffer) {
+        return new BytesBody(buffer.slice().asReadOnlyBuffer(), null);
+    }
+
+    /**
+     * Returns the length of the body.
+     *
+     * @return the length in bytes
+     */
+    public int length() {
+        return buffer.limit();
+    }
+
+    /**
+     * Returns a read-only view of the whole body, positioned at zero.
+     *
+     * @return a new read-only view
+     */
+    public ByteBuffer buffer() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * Returns a read-only view of a range of the body, positioned at zero.
+     *
+     * @param offset the offset of the range
+     * @param length the length of the range
+     * @return a new read-only view
+     * @throws IndexOutOfBoundsException if the range doesn't fit in the body
+     */
+    public ByteBuffer slice(int offset, int length) {
+        if (offset < 0 || length < 0 || offset > buffer.limit() - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                + ", body length " + buffer.limit());
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice();
+    }
+
+    /**
+     * Returns the body as a byte array, which is copied from the backing buffer on the first call.
+     *
+     * @return the body content
+     */
+    public byte[] array() {
+        byte[] array = this.array;
+        if (array == null) {
+            array = new byte[buffer.limit()];
+            buffer.duplicate().get(array);
+            this.array = array;
+        }
+        return array;
+    }
+}
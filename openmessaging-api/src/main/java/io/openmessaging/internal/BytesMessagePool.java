@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.Future;
+import io.openmessaging.Message;
+import io.openmessaging.MessageFactory;
+import io.openmessaging.producer.SendResult;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A producer scoped pool of recyclable {@link BytesMessage} instances, for the producers which send
+ * messages at a high rate and want to avoid allocating a new message, header set and body per send.
+ * <p>
+ * A message obtained from the pool is reset, and must be returned to the pool exactly once, usually by
+ * {@link PooledBytesMessage#releaseOnComplete(Future)} right after it has been sent asynchronously.
+ * <p>
+ * In debug mode, which is enabled by the constructor argument or the {@code oms.pool.leakDetection} system
+ * property, the pool also reports the messages that have been garbage collected without being released, along
+ * with the stack trace of their acquisition.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class BytesMessagePool implements MessageFactory {
+    private final BlockingQueue<PooledBytesMessage> pooled;
+    private final boolean leakDetection;
+    private final ReferenceQueue<PooledBytesMessage> collected;
+    private final Set<LeakTracker> trackers;
+    private final AtomicLong leaks = new AtomicLong();
+    private volatile Throwable lastLeak;
+
+    public BytesMessagePool(int capacity) {
+        this(capacity, Boolean.getBoolean("oms.pool.leakDetection"));
+    }
+
+    public BytesMessagePool(int capacity, boolean leakDetection) {
+        this.pooled = new ArrayBlockingQueue<PooledBytesMessage>(capacity);
+        this.leakDetection = leakDetection;
+        this.collected = leakDetection ? new ReferenceQueue<PooledBytesMessage>() : null;
+        this.trackers = leakDetection ?
+            Collections.newSetFromMap(new ConcurrentHashMap<LeakTracker, Boolean>()) : null;
+    }
+
+    /**
+     * Acquires a reset message which will be sent to the specified queue.
+     *
+     * @param queue the target queue to send
+     * @return a pooled message
+     */
+    public PooledBytesMessage acquire(String queue) {
+        PooledBytesMessage message = pooled.poll();
+        if (message == null) {
+            message = new PooledBytesMessage(this);
+        }
+        message.acquire();
+        if (leakDetection) {
+            reportLeaks();
+            message.leakTracker = new LeakTracker(message, collected);
+            trackers.add(message.leakTracker);
+        }
+        message.sysHeaders().put(Message.BuiltinKeys.DESTINATION, queue);
+        return message;
+    }
+
+    @Override
+    public BytesMessage createBytesMessage(String queue, byte[] body) {
+        return acquire(queue).setBody(body);
+    }
+
+    @Override
+    public BytesMessage createBytesMessage(String queue, ByteBuffer body) {
+        return acquire(queue).setBody(body);
+    }
+
+    /**
+     * Returns the specified message to this pool.
+     *
+     * @param message the message to return
+     * @throws IllegalStateException if the message has been released already
+     */
+    public void release(PooledBytesMessage message) {
+        if (!message.markReleased()) {
+            throw new IllegalStateException("The pooled message has been released already");
+        }
+        if (message.leakTracker != null) {
+            trackers.remove(message.leakTracker);
+            message.leakTracker.clear();
+            message.leakTracker = null;
+        }
+        message.reset();
+        pooled.offer(message);
+    }
+
+    /**
+     * Returns the specified message to this pool once the specified future completes.
+     *
+     * @param future the future of the send operation of the message
+     * @param message the message to return
+     * @see PooledBytesMessage#releaseOnComplete(Future)
+     */
+    public void releaseOnComplete(Future<SendResult> future, PooledBytesMessage message) {
+        message.releaseOnComplete(future);
+    }
+
+    /**
+     * Returns the number of idle messages in this pool.
+     *
+     * @return the number of idle messages
+     */
+    public int idle() {
+        return pooled.size();
+    }
+
+    /**
+     * Returns the number of leaked messages detected so far, always zero if the debug mode is off.
+     *
+     * @return the number of leaked messages
+     */
+    public long leaks() {
+        reportLeaks();
+        return leaks.get();
+    }
+
+    /**
+     * Returns the stack trace of the acquisition of the last leaked message.
+     *
+     * @return the stack trace, or {@code null} if no leak has been detected
+     */
+    public Throwable lastLeak() {
+        return lastLeak;
+    }
+
+    private void reportLeaks() {
+        if (!leakDetection) {
+            return;
+        }
+        LeakTracker tracker;
+        while ((tracker = (LeakTracker) collected.poll()) != null) {
+            if (trackers.remove(tracker)) {
+                leaks.incrementAndGet();
+                lastLeak = tracker.acquisition;
+            }
+        }
+    }
+
+    static final class LeakTracker extends WeakReference<PooledBytesMessage> {
+        private final Throwable acquisition;
+
+        LeakTracker(PooledBytesMessage message, ReferenceQueue<PooledBytesMessage> queue) {
+            super(message, queue);
+            this.acquisition = new Throwable("The pooled message was acquired here, but never released");
+        }
+    }
+}
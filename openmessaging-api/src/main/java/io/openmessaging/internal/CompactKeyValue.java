@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.KeyValue;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static io.openmessaging.internal.TypedKeyValue.TYPE_DOUBLE;
+import static io.openmessaging.internal.TypedKeyValue.TYPE_INT;
+import static io.openmessaging.internal.TypedKeyValue.TYPE_LONG;
+import static io.openmessaging.internal.TypedKeyValue.TYPE_STRING;
+
+/**
+ * A compact, array-backed {@link KeyValue} implementation designed for the small header sets carried by messages.
+ * <p>
+ * Keys and values are kept in parallel flat arrays and located by open addressing with linear probing, the
+ * arrays grow on demand. Values keep the type they were written with, as {@link TypedKeyValue} does.
+ * <p>
+ * The builtin keys registered in {@link BuiltinKeyRegistry} are kept apart in slots indexed by their ordinals,
+ * so the hash table only holds the user defined keys, and isn't allocated until the first one is put.
+ * <p>
+ * This implementation is not thread-safe, it is meant to be written by a single thread, and to be handed over
+ * to other threads only through a safe publication, like a concurrent queue.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class CompactKeyValue implements KeyValue {
+    private static final int DEFAULT_EXPECTED_SIZE = 3;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private long builtinMask;
+    private byte[] builtinTypes;
+    private long[] builtinBits;
+    private String[] builtinTexts;
+
+    private final int initialCapacity;
+    private String[] keys;
+    private byte[] types;
+    private long[] bits;
+    private String[] texts;
+    private int size;
+
+    public CompactKeyValue() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * Constructs a {@code CompactKeyValue} sized for the expected number of user defined keys.
+     *
+     * @param expectedSize the expected number of user defined keys
+     */
+    public CompactKeyValue(int expectedSize) {
+        initialCapacity = capacityFor(expectedSize);
+    }
+
+    @Override
+    public KeyValue put(String key, int value) {
+        return put(key, TYPE_INT, value, null);
+    }
+
+    @Override
+    public KeyValue put(String key, long value) {
+        return put(key, TYPE_LONG, value, null);
+    }
+
+    @Override
+    public KeyValue put(String key, double value) {
+        return put(key, TYPE_DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    @Override
+    public KeyValue put(String key, String value) {
+        return put(key, TYPE_STRING, 0, String.valueOf(value));
+    }
+
+    @Override
+    public int getInt(String key) {
+        return getInt(key, 0);
+    }
+
+    @Override
+    public int getInt(final String key, final int defaultValue) {
+        int ordinal = BuiltinKeyRegistry.ordinalOf(key);
+        if (ordinal >= 0) {
+            return hasBuiltin(ordinal) ?
+                TypedKeyValue.toInt(builtinTypes[ordinal], builtinBits[ordinal], builtinTexts[ordinal]) : defaultValue;
+        }
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : TypedKeyValue.toInt(types[index], bits[index], texts[index]);
+    }
+
+    @Override
+    public long getLong(String key) {
+        return getLong(key, 0);
+    }
+
+    @Override
+    public long getLong(final String key, final long defaultValue) {
+        int ordinal = BuiltinKeyRegistry.ordinalOf(key);
+        if (ordinal >= 0) {
+            return hasBuiltin(ordinal) ?
+                TypedKeyValue.toLong(builtinTypes[ordinal], builtinBits[ordinal], builtinTexts[ordinal]) : defaultValue;
+        }
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : TypedKeyValue.toLong(types[index], bits[index], texts[index]);
+    }
+
+    @Override
+    public double getDouble(String key) {
+        return getDouble(key, 0);
+    }
+
+    @Override
+    public double getDouble(final String key, final double defaultValue) {
+        int ordinal = BuiltinKeyRegistry.ordinalOf(key);
+        if (ordinal >= 0) {
+            return hasBuiltin(ordinal) ?
+                TypedKeyValue.toDouble(builtinTypes[ordinal], builtinBits[ordinal], builtinTexts[ordinal]) : defaultValue;
+        }
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : TypedKeyValue.toDouble(types[index], bits[index], texts[index]);
+    }
+
+    @Override
+    public String getString(String key) {
+        return getString(key, null);
+    }
+
+    @Override
+    public String getString(final String key, final String defaultValue) {
+        int ordinal = BuiltinKeyRegistry.ordinalOf(key);
+        if (ordinal >= 0) {
+            return hasBuiltin(ordinal) ?
+                TypedKeyValue.toString(builtinTypes[ordinal], builtinBits[ordinal], builtinTexts[ordinal]) : defaultValue;
+        }
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : TypedKeyValue.toString(types[index], bits[index], texts[index]);
+    }
+
+    /**
+     * Returns a read-only {@link Set} view of the keys contained in this {@code KeyValue} object.
+     *
+     * @return the key set view of this {@code KeyValue} object.
+     */
+    @Override
+    public Set<String> keySet() {
+        return new KeySet();
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        int ordinal = BuiltinKeyRegistry.ordinalOf(key);
+        return ordinal >= 0 ? hasBuiltin(ordinal) : indexOf(key) >= 0;
+    }
+
+    /**
+     * Removes all the entries from this {@code KeyValue}, the allocated arrays are kept for reuse.
+     */
+    public void clear() {
+        builtinMask = 0;
+        if (builtinTexts != null) {
+            Arrays.fill(builtinTexts, null);
+        }
+        if (keys != null && size > 0) {
+            Arrays.fill(keys, null);
+            Arrays.fill(texts, null);
+        }
+        size = 0;
+    }
+
+    private boolean hasBuiltin(int ordinal) {
+        return (builtinMask & (1L << ordinal)) != 0;
+    }
+
+    private KeyValue put(String key, byte type, long value, String text) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        int ordinal = BuiltinKeyRegistry.ordinalOf(key);
+        if (ordinal >= 0) {
+            putBuiltin(ordinal, type, value, text);
+            return this;
+        }
+        if (keys == null) {
+            allocate(initialCapacity);
+        }
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        for (String k = keys[index]; k != null; k = keys[index]) {
+            if (k == key || k.equals(key)) {
+                store(index, type, value, text);
+                return this;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        store(index, type, value, text);
+        if (++size > threshold(keys.length)) {
+            resize(keys.length << 1);
+        }
+        return this;
+    }
+
+    private void putBuiltin(int ordinal, byte type, long value, String text) {
+        if (builtinTypes == null || builtinTypes.length <= ordinal) {
+            // Most of the instances are message headers, only these slots are allocated for them
+            int length = ordinal < BuiltinKeyRegistry.MESSAGE_KEYS ?
+                BuiltinKeyRegistry.MESSAGE_KEYS : BuiltinKeyRegistry.size();
+            if (builtinTypes == null) {
+                builtinTypes = new byte[length];
+                builtinBits = new long[length];
+                builtinTexts = new String[length];
+            } else {
+                builtinTypes = Arrays.copyOf(builtinTypes, length);
+                builtinBits = Arrays.copyOf(builtinBits, length);
+                builtinTexts = Arrays.copyOf(builtinTexts, length);
+            }
+        }
+        builtinTypes[ordinal] = type;
+        builtinBits[ordinal] = value;
+        builtinTexts[ordinal] = text;
+        builtinMask |= 1L << ordinal;
+    }
+
+    private void store(int index, byte type, long value, String text) {
+        types[index] = type;
+        bits[index] = value;
+        texts[index] = text;
+    }
+
+    private int indexOf(String key) {
+        String[] keys = this.keys;
+        if (key == null || keys == null) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        for (String k = keys[index]; k != null; k = keys[index]) {
+            if (k == key || k.equals(key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize(int newCapacity) {
+        if (keys.length >= MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("Too many entries in a CompactKeyValue: " + size);
+        }
+        String[] oldKeys = keys;
+        byte[] oldTypes = types;
+        long[] oldBits = bits;
+        String[] oldTexts = texts;
+
+        allocate(newCapacity);
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            String key = oldKeys[i];
+            if (key != null) {
+                int index = hash(key) & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                store(index, oldTypes[i], oldBits[i], oldTexts[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        types = new byte[capacity];
+        bits = new long[capacity];
+        texts = new String[capacity];
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int threshold(int capacity) {
+        return capacity - (capacity >>> 2);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 4;
+        while (capacity < MAXIMUM_CAPACITY && threshold(capacity) < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private final class KeySet extends AbstractSet<String> {
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private long builtins = builtinMask;
+                private final String[] snapshot = keys;
+                private int index = advance(0);
+
+                private int advance(int from) {
+                    if (snapshot == null) {
+                        return 0;
+                    }
+                    while (from < snapshot.length && snapshot[from] == null) {
+                        from++;
+                    }
+                    return from;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return builtins != 0 || snapshot != null && index < snapshot.length;
+                }
+
+                @Override
+                public String next() {
+                    if (builtins != 0) {
+                        int ordinal = Long.numberOfTrailingZeros(builtins);
+                        builtins &= builtins - 1;
+                        return BuiltinKeyRegistry.keyOf(ordinal);
+                    }
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    String key = snapshot[index];
+                    index = advance(index + 1);
+                    return key;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException("remove");
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return Long.bitCount(builtinMask) + size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && containsKey((String) o);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import java.nio.ByteBuffer;
+
+/**
+ * The default implementation of the interface {@link BytesMessage}, which may be used by OMS vendors.
+ * <p>
+ * The headers are kept in {@link CompactKeyValue} instances, so a message should be filled by one thread
+ * and handed over to other threads through a safe publication.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class DefaultBytesMessage implements BytesMessage {
+    private final KeyValue sysHeaders;
+    private final KeyValue userHeaders;
+    private BytesBody body;
+
+    public DefaultBytesMessage() {
+        this(new CompactKeyValue(), new CompactKeyValue());
+    }
+
+    public DefaultBytesMessage(String queue, byte[] body) {
+        this();
+        sysHeaders.put(Message.BuiltinKeys.DESTINATION, queue);
+        setBody(body);
+    }
+
+    public DefaultBytesMessage(String queue, ByteBuffer body) {
+        this();
+        sysHeaders.put(Message.BuiltinKeys.DESTINATION, queue);
+        setBody(body);
+    }
+
+    public DefaultBytesMessage(KeyValue sysHeaders, KeyValue userHeaders) {
+        this.sysHeaders = sysHeaders;
+        this.userHeaders = userHeaders;
+    }
+
+    @Override
+    public byte[] getBody() {
+        return body == null ? null : body.array();
+    }
+
+    @Override
+    public ByteBuffer getBodyBuffer() {
+        return body == null ? null : body.buffer();
+    }
+
+    @Override
+    public ByteBuffer getBodyBuffer(int offset, int length) {
+        if (body == null) {
+            throw new IndexOutOfBoundsException("The body isn't set");
+        }
+        return body.slice(offset, length);
+    }
+
+    @Override
+    public int getBodyLength() {
+        return body == null ? 0 : body.length();
+    }
+
+    @Override
+    public BytesMessage setBody(byte[] body) {
+        this.body = body == null ? null : BytesBody.wrap(body);
+        return this;
+    }
+
+    @Override
+    public BytesMessage setBody(ByteBuffer body) {
+        this.body = body == null ? null : BytesBody.wrap(body);
+        return this;
+    }
+
+    @Override
+    public KeyValue sysHeaders() {
+        return sysHeaders;
+    }
+
+    @Override
+    public KeyValue userHeaders() {
+        return userHeaders;
+    }
+
+    @Override
+    public Message putSysHeaders(String key, int value) {
+        sysHeaders.put(key, value);
+        return this;
+    }
+
+    @Override
+    public Message putSysHeaders(String key, long value) {
+        sysHeaders.put(key, value);
+        return this;
+    }
+
+    @Override
+    public Message putSysHeaders(String key, double value) {
+        sysHeaders.put(key, value);
+        return this;
+    }
+
+    @Override
+    public Message putSysHeaders(String key, String value) {
+        sysHeaders.put(key, value);
+        return this;
+    }
+
+    @Override
+    public Message putUserHeaders(String key, int value) {
+        userHeaders.put(key, value);
+        return this;
+    }
+
+    @Override
+    public Message putUserHeaders(String key, long value) {
+        userHeaders.put(key, value);
+        return this;
+    }
+
+    @Override
+    public Message putUserHeaders(String key, double value) {
+        userHeaders.put(key, value);
+        return this;
+    }
+
+    @Override
+    public Message putUserHeaders(String key, String value) {
+        userHeaders.put(key, value);
+        return this;
+    }
+}
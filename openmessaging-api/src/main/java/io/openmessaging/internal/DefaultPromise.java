@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.FutureListener;
+import io.openmessaging.Promise;
+import io.openmessaging.exception.OMSRuntimeException;
+import io.openmessaging.exception.OMSTimeOutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free {@link Promise} implementation, which doesn't take any monitor lock.
+ * <p>
+ * The whole state is kept in a single atomic field: while the promise is pending, it holds a stack of the
+ * registered listeners and waiting threads, which is swapped by a CAS for the outcome upon completion. A thread
+ * giving up waiting, on a timeout or an interrupt, unlinks its node from the stack, like the ones of other threads
+ * which gave up meanwhile, so that polling a pending promise doesn't grow it. The completing thread then notifies
+ * the listeners in their registration order and unparks the waiting threads. An exception thrown by a listener is
+ * ignored, so that it can neither hold back the next ones nor fail the completing thread, while an {@code Error} is
+ * rethrown to the completing thread once all of them are notified.
+ * A listener registered after the completion is notified right away by the registering thread, unless it is
+ * registered with an {@code Executor}, which then notifies it in any case. Either way, what it throws is handled the
+ * same, an exception is ignored and an {@code Error} is rethrown.
+ * <p>
+ * {@link #get()} and {@link #get(long)} rethrow the cause of a failed promise, wrapped in an
+ * {@link OMSRuntimeException} unless it is one, and {@code get(long)} throws an {@link OMSTimeOutException}
+ * if the timeout elapses first.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class DefaultPromise<V> implements Promise<V> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<DefaultPromise, Object> STATE_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(DefaultPromise.class, Object.class, "state");
+
+    private static final Object NULL_VALUE = new Object();
+
+    /**
+     * {@code null} or a {@link Node} while pending, the value, {@link #NULL_VALUE} or a {@link Failure} once done.
+     */
+    private volatile Object state;
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return complete(new Failure(new CancellationException(), true));
+    }
+
+    @Override
+    public boolean set(V value) {
+        return complete(value == null ? NULL_VALUE : value);
+    }
+
+    @Override
+    public boolean setFailure(Throwable cause) {
+        return complete(new Failure(cause, false));
+    }
+
+    @Override
+    public boolean isCancelled() {
+        Object state = this.state;
+        return state instanceof Failure && ((Failure) state).cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return isDone(state);
+    }
+
+    @Override
+    public V get() {
+        Object state = this.state;
+        if (!isDone(state)) {
+            state = await(0, false);
+        }
+        return report(state);
+    }
+
+    @Override
+    public V get(long timeout) {
+        Object state = this.state;
+        if (!isDone(state)) {
+            state = await(TimeUnit.MILLISECONDS.toNanos(timeout), true);
+            if (!isDone(state)) {
+                throw new OMSTimeOutException(InternalErrorCode.FUTURE_TIMEOUT.name(),
+                    InternalErrorCode.FUTURE_TIMEOUT.formatMessage(String.valueOf(timeout)));
+            }
+        }
+        return report(state);
+    }
+
+    @Override
+    public void addListener(FutureListener<V> listener) {
+        if (!push(new Node(listener, null, null))) {
+            notifyListener(listener, state);
+        }
+    }
+
+    @Override
+    public void addListener(FutureListener<V> listener, Executor executor) {
+        if (executor == DirectExecutor.INSTANCE) {
+            addListener(listener);
+        } else if (!push(new Node(listener, executor, null))) {
+            dispatch(listener, executor, state);
+        }
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        Object state = this.state;
+        return state instanceof Failure ? ((Failure) state).cause : null;
+    }
+
+    private static boolean isDone(Object state) {
+        return state != null && !(state instanceof Node);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V report(Object state) {
+        if (state instanceof Failure) {
+            Throwable cause = ((Failure) state).cause;
+            if (cause instanceof OMSRuntimeException) {
+                throw (OMSRuntimeException) cause;
+            }
+            throw generateFailure(cause);
+        }
+        return state == NULL_VALUE ? null : (V) state;
+    }
+
+    private static OMSRuntimeException generateFailure(Throwable cause) {
+        return new OMSRuntimeException(InternalErrorCode.FUTURE_FAILED.name(),
+            InternalErrorCode.FUTURE_FAILED.formatMessage(String.valueOf(cause)), cause);
+    }
+
+    /**
+     * Pushes a node onto the stack of a pending promise, returns {@code false} if the promise is done.
+     */
+    private boolean push(Node node) {
+        for (;;) {
+            Object state = this.state;
+            if (isDone(state)) {
+                return false;
+            }
+            node.next = (Node) state;
+            if (STATE_UPDATER.compareAndSet(this, state, node)) {
+                return true;
+            }
+        }
+    }
+
+    private Object await(long nanos, boolean timed) {
+        Node waiter = new Node(null, null, Thread.currentThread());
+        if (!push(waiter)) {
+            return state;
+        }
+        long deadline = timed ? System.nanoTime() + nanos : 0;
+        Object state;
+        while (!isDone(state = this.state)) {
+            if (Thread.interrupted()) {
+                removeWaiter(waiter);
+                Thread.currentThread().interrupt();
+                throw generateFailure(new InterruptedException());
+            }
+            if (timed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    removeWaiter(waiter);
+                    return state;
+                }
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Unlinks the nodes of the threads which gave up waiting from the stack of a pending promise, in the manner of
+     * {@code FutureTask}: a node whose predecessor is unlinked concurrently may be left in the stack, so the
+     * traversal starts over then.
+     */
+    private void removeWaiter(Node waiter) {
+        waiter.waiter = null;
+        retry:
+        for (;;) {
+            Object state = this.state;
+            if (isDone(state)) {
+                return;
+            }
+            Node pred = null;
+            for (Node node = (Node) state, next; node != null; node = next) {
+                next = node.next;
+                if (!node.isDead()) {
+                    pred = node;
+                } else if (pred != null) {
+                    pred.next = next;
+                    if (pred.isDead()) {
+                        continue retry;
+                    }
+                } else if (!STATE_UPDATER.compareAndSet(this, node, next)) {
+                    continue retry;
+                }
+            }
+            return;
+        }
+    }
+
+    private boolean complete(Object outcome) {
+        for (;;) {
+            Object state = this.state;
+            if (isDone(state)) {
+                return false;
+            }
+            if (STATE_UPDATER.compareAndSet(this, state, outcome)) {
+                fire((Node) state, outcome);
+                return true;
+            }
+        }
+    }
+
+    private void fire(Node stack, Object outcome) {
+        if (stack == null) {
+            return;
+        }
+        if (stack.next == null) {
+            notifyNode(stack, outcome);
+            return;
+        }
+        // The stack is in the reverse registration order, and isn't reversed in place, as a thread giving up waiting
+        // may still be unlinking its node
+        int count = 0;
+        for (Node node = stack; node != null; node = node.next) {
+            count++;
+        }
+        Node[] nodes = new Node[count];
+        for (Node node = stack; node != null && count > 0; node = node.next) {
+            nodes[--count] = node;
+        }
+        Error error = null;
+        for (int i = count; i < nodes.length; i++) {
+            try {
+                notifyNode(nodes[i], outcome);
+            } catch (Error e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifyNode(Node node, Object outcome) {
+        Thread waiter = node.waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        } else if (node.listener != null) {
+            try {
+                if (node.executor != null) {
+                    dispatch((FutureListener<V>) node.listener, node.executor, outcome);
+                } else {
+                    notifyListener((FutureListener<V>) node.listener, outcome);
+                }
+            } catch (Exception ignore) {
+            }
+        }
+    }
+
+    private void dispatch(final FutureListener<V> listener, Executor executor, final Object outcome) {
+        Runnable notification = new Runnable() {
+            @Override
+            public void run() {
+                notifyListener(listener, outcome);
+            }
+        };
+        try {
+            executor.execute(notification);
+        } catch (RejectedExecutionException e) {
+            notification.run();
+        }
+    }
+
+    /**
+     * Notifies a listener of the outcome, ignoring the exceptions it throws, but not the errors.
+     */
+    private void notifyListener(FutureListener<V> listener, Object outcome) {
+        try {
+            if (outcome instanceof Failure) {
+                listener.operationFailed(this);
+            } else {
+                listener.operationSucceeded(this);
+            }
+        } catch (Exception ignore) {
+        }
+    }
+
+    private static final class Node {
+        private final FutureListener<?> listener;
+        private final Executor executor;
+        private volatile Thread waiter;
+        private volatile Node next;
+
+        Node(FutureListener<?> listener, Executor executor, Thread waiter) {
+            this.listener = listener;
+            this.executor = executor;
+            this.waiter = waiter;
+        }
+
+        /**
+         * Returns whether the node is the one of a thread which gave up waiting.
+         */
+        boolean isDead() {
+            return listener == null && waiter == null;
+        }
+    }
+
+    private static final class Failure {
+        private final Throwable cause;
+        private final boolean cancelled;
+
+        Failure(Throwable cause, boolean cancelled) {
+            this.cause = cause;
+            this.cancelled = cancelled;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code FlowCredits} paces the deliveries of a {@code PushConsumer} by the acknowledgements of its listeners,
+ * rather than all or nothing like {@code suspend()} and {@code resume()}.
+ * <p>
+ * The consumer grants the driver {@link OMSBuiltinKeys#CONSUME_CREDIT_MESSAGES} messages and
+ * {@link OMSBuiltinKeys#CONSUME_CREDIT_BYTES} bytes of bodies. Every delivered message takes its share of the credits
+ * with {@link #acquire(int, long)}, and gives it back with {@link #release(int, long)} once it is acknowledged, so
+ * the delivery rate follows the processing rate of the listeners. The driver waits in {@link #await(long)} before
+ * receiving more messages while the credits are exhausted.
+ * <p>
+ * A message larger than the byte credits is still delivered when no other message holds any credit.
+ * <p>
+ * The credits record how long the driver has been stalled waiting for them.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class FlowCredits {
+    private final int maxMessages;
+    private final long maxBytes;
+
+    private int messages;
+    private long bytes;
+    private boolean closed;
+
+    private long stalls;
+    private long stallNanos;
+
+    /**
+     * Constructs the {@code FlowCredits} configured by the specified consumer attributes.
+     *
+     * @param attributes the consumer attributes
+     */
+    public FlowCredits(KeyValue attributes) {
+        int maxMessages = attributes.getInt(OMSBuiltinKeys.CONSUME_CREDIT_MESSAGES, 0);
+        long maxBytes = attributes.getLong(OMSBuiltinKeys.CONSUME_CREDIT_BYTES, 0);
+        this.maxMessages = maxMessages > 0 ? maxMessages : Integer.MAX_VALUE;
+        this.maxBytes = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns whether the specified consumer attributes grant limited credits.
+     *
+     * @param attributes the consumer attributes
+     * @return {@code true} if the messages or the bytes of credit are limited
+     */
+    public static boolean isLimited(KeyValue attributes) {
+        return attributes.getInt(OMSBuiltinKeys.CONSUME_CREDIT_MESSAGES, 0) > 0
+            || attributes.getLong(OMSBuiltinKeys.CONSUME_CREDIT_BYTES, 0) > 0;
+    }
+
+    /**
+     * Waits until some credit is available.
+     *
+     * @param timeout the maximum time to wait in milliseconds, no timeout if non-positive
+     * @return {@code true} if some credit is available, {@code false} if the timeout expires, the credits are closed
+     * or the thread is interrupted
+     */
+    public synchronized boolean await(long timeout) {
+        if (hasCredit() || closed) {
+            return !closed;
+        }
+        long start = System.nanoTime();
+        long deadline = timeout > 0 ? start + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+        stalls++;
+        try {
+            while (!hasCredit() && !closed) {
+                if (timeout > 0) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } else {
+                    wait();
+                }
+            }
+            return !closed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            stallNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Returns whether some credit is available, without waiting.
+     *
+     * @return {@code true} if some credit is available
+     */
+    public synchronized boolean hasCredit() {
+        return messages == 0 || messages < maxMessages && bytes < maxBytes;
+    }
+
+    /**
+     * Takes the credits of the delivered messages, which may overdraw the credits.
+     *
+     * @param count the number of messages
+     * @param size the total body size of the messages
+     */
+    public synchronized void acquire(int count, long size) {
+        messages += count;
+        bytes += size;
+    }
+
+    /**
+     * Takes the credits of a delivered message.
+     *
+     * @param message the delivered message
+     */
+    public void acquire(Message message) {
+        acquire(1, sizeOf(message));
+    }
+
+    /**
+     * Gives back the credits of the acknowledged messages, which wakes the driver waiting for them.
+     *
+     * @param count the number of messages
+     * @param size the total body size of the messages
+     */
+    public synchronized void release(int count, long size) {
+        boolean stalled = !hasCredit();
+        messages -= count;
+        bytes -= size;
+        if (stalled && hasCredit()) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Gives back the credits of an acknowledged message.
+     *
+     * @param message the acknowledged message
+     */
+    public void release(Message message) {
+        release(1, sizeOf(message));
+    }
+
+    /**
+     * Wakes the threads waiting for credits, and lets any further {@link #await(long)} return {@code false}.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of messages which can still be delivered, overdrawn credits counting as zero.
+     *
+     * @return the available message credits
+     */
+    public synchronized int availableMessages() {
+        return maxMessages == Integer.MAX_VALUE ? Integer.MAX_VALUE : Math.max(0, maxMessages - messages);
+    }
+
+    /**
+     * Returns the total body size which can still be delivered, overdrawn credits counting as zero.
+     *
+     * @return the available byte credits
+     */
+    public synchronized long availableBytes() {
+        return maxBytes == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(0L, maxBytes - bytes);
+    }
+
+    /**
+     * Returns the number of times the driver has waited for credits so far.
+     *
+     * @return the number of stalls
+     */
+    public synchronized long stalls() {
+        return stalls;
+    }
+
+    /**
+     * Returns the total time the driver has waited for credits so far.
+     *
+     * @return the stall time in nanoseconds
+     */
+    public synchronized long stallNanos() {
+        return stallNanos;
+    }
+
+    /**
+     * Returns the body size of the specified message, which counts against the byte credits.
+     *
+     * @param message the message
+     * @return the body size in bytes
+     */
+    public static long sizeOf(Message message) {
+        return message instanceof BytesMessage ? ((BytesMessage) message).getBodyLength() : 0;
+    }
+}
@@ -26,7 +26,24 @@ public enum InternalErrorCode {
     OMS_DRIVER_UNAVAILABLE("#oms_driver_unavailable", "Can't construct a MessagingAccessPoint instance from the given OMS driver URL [%s]."),
     OMS_DRIVER_URL_ILLEGAL("#oms_driver_url_illegal", "The OMS driver URL [%s] is illegal."),
     IMPL_VERSION_ILLEGAL("#impl_version_illegal", "The implementation version [%s] is illegal."),
-    SPEC_IMPL_VERSION_MISMATCH("#spec_impl_version_mismatch", "The implementation version [%s] isn't compatible with the specification version [%s].")
+    SPEC_IMPL_VERSION_MISMATCH("#spec_impl_version_mismatch", "The implementation version [%s] isn't compatible with the specification version [%s]."),
+    MESSAGE_DESTINATION_MISSING("#message_destination_missing", "The message [%s] doesn't have a destination queue."),
+    PRODUCER_SHUTDOWN("#producer_shutdown", "Can't send the message to the queue [%s], the producer has been shut down."),
+    BATCH_SEND_FAILED("#batch_send_failed", "Failed to send a batch of [%s] messages to the queue [%s]."),
+    ILLEGAL_ATTRIBUTE_VALUE("#illegal_attribute_value", "The value [%s] of the attribute [%s] is illegal."),
+    IN_FLIGHT_WINDOW_FULL("#in_flight_window_full", "The in-flight window of [%s] messages and [%s] bytes is full."),
+    IN_FLIGHT_WINDOW_TIMEOUT("#in_flight_window_timeout", "The in-flight window stayed full for [%s] ms."),
+    IN_FLIGHT_MESSAGE_DROPPED("#in_flight_message_dropped", "The message [%s] was dropped as the oldest send in flight."),
+    PREFETCH_FAILED("#prefetch_failed", "Failed to prefetch the messages of the queue [%s]."),
+    FUTURE_TIMEOUT("#future_timeout", "The future isn't completed in [%s] ms."),
+    FUTURE_FAILED("#future_failed", "The future is completed with a failure [%s]."),
+    RESOURCE_NOT_EXIST("#resource_not_exist", "The %s [%s] doesn't exist."),
+    STREAM_POSITION_ILLEGAL("#stream_position_illegal", "The position [%s] of the stream [%s] is illegal."),
+    STREAM_NO_MESSAGE("#stream_no_message", "The stream [%s] has no message at the position [%s]."),
+    CONSUMER_SHUTDOWN("#consumer_shutdown", "The consumer [%s] has been shut down."),
+    OPERATION_NOT_SUPPORTED("#operation_not_supported", "The operation [%s] isn't supported by this driver."),
+    STORE_IO_FAILED("#store_io_failed", "Failed to access the store file [%s]."),
+    STORE_LOCKED("#store_locked", "The store directory [%s] is used by another access point.")
     ;
 
     String refBase = "http://openmessaging.cloud/internal/error-code";
@@ -37,6 +54,16 @@ public enum InternalErrorCode {
     }
 
     public static OMSRuntimeException generateInternalException(InternalErrorCode errorCode, String... messageArgs) {
-        return new OMSRuntimeException(errorCode.name(), String.format(errorCode.message, (Object[]) messageArgs));
+        return new OMSRuntimeException(errorCode.name(), errorCode.formatMessage(messageArgs));
+    }
+
+    /**
+     * Formats the message of this error code, to construct the exceptions of a specific type.
+     *
+     * @param messageArgs the arguments of the message
+     * @return the formatted message
+     */
+    public String formatMessage(String... messageArgs) {
+        return String.format(message, (Object[]) messageArgs);
     }
 }
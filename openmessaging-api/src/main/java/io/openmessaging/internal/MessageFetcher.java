@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Future;
+import io.openmessaging.Message;
+import java.util.List;
+
+/**
+ * The vendor side of a {@link PrefetchBuffer}, which fetches the next messages of a queue in one request.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public interface MessageFetcher {
+    /**
+     * Fetches the next messages of the specified queue asynchronously, up to the specified limits.
+     * <p>
+     * The returned {@code Future} is expected to wait for messages for a while, like a long-poll, before it
+     * completes with an empty list, as the buffer fetches again right away, then backs off only while the empty
+     * fetches keep completing at once. It may be completed by the calling thread.
+     *
+     * @param queue the queue to fetch from
+     * @param maxMessages the maximum number of messages to fetch
+     * @param maxBytes the maximum total body size in bytes to fetch, exceeded only by a single message
+     * @return the {@code Future} of the fetched messages
+     */
+    Future<List<Message>> fetch(String queue, int maxMessages, long maxBytes);
+
+    /**
+     * Gives back the fetched messages which the buffer didn't deliver when it is closed, so that they can be
+     * delivered to another consumer of the queue.
+     *
+     * @param queue the queue the messages were fetched from
+     * @param messages the messages which weren't delivered, in the order they were fetched
+     */
+    void release(String queue, List<Message> messages);
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.OMSBuiltinKeys;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code OrderedDispatcher} runs the deliveries of a {@code PushConsumer} on {@link OMSBuiltinKeys#CONSUME_THREADS}
+ * lanes, each one a thread with a queue of {@link OMSBuiltinKeys#CONSUME_QUEUE_CAPACITY} pending tasks.
+ * <p>
+ * The tasks are assigned to the lanes by the hash of their key, typically the
+ * {@link io.openmessaging.Message.BuiltinKeys#STREAM_KEY} of the delivered message, so the tasks with the same key
+ * run one at a time, in their dispatch order, while the ones with distinct keys may run concurrently. The tasks
+ * without a key are spread over the lanes in turn, without any ordering.
+ * <p>
+ * {@link #dispatch(String, Runnable)} blocks while the queue of the lane is full, which stops the consumer from
+ * receiving more messages than its listeners keep up with.
+ * <p>
+ * This is the dispatcher of the {@link ThreadMode#PLATFORM} mode, and the fallback of the {@link ThreadMode#VIRTUAL}
+ * one on the JDKs without virtual threads.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class OrderedDispatcher implements TaskDispatcher {
+    public static final int DEFAULT_THREADS = 1;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final Runnable STOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private final Lane[] lanes;
+    private final AtomicInteger nextLane = new AtomicInteger();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong failedTasks = new AtomicLong();
+    private volatile boolean shutdown;
+
+    /**
+     * Constructs an {@code OrderedDispatcher} configured by the specified consumer attributes, whose lanes run on
+     * daemon threads named after the specified name.
+     *
+     * @param name the prefix of the thread names
+     * @param attributes the consumer attributes
+     */
+    public OrderedDispatcher(final String name, KeyValue attributes) {
+        this(attributes, new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Constructs an {@code OrderedDispatcher} configured by the specified consumer attributes.
+     *
+     * @param attributes the consumer attributes
+     * @param threadFactory the factory of the lane threads
+     */
+    public OrderedDispatcher(KeyValue attributes, ThreadFactory threadFactory) {
+        int threads = Math.max(1, attributes.getInt(OMSBuiltinKeys.CONSUME_THREADS, DEFAULT_THREADS));
+        int capacity = Math.max(1, attributes.getInt(OMSBuiltinKeys.CONSUME_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY));
+        this.lanes = new Lane[threads];
+        for (int i = 0; i < threads; i++) {
+            lanes[i] = new Lane(capacity);
+            lanes[i].thread = threadFactory.newThread(lanes[i]);
+        }
+    }
+
+    /**
+     * Queues a task on the lane of the specified key, waiting for room if the lane is full.
+     *
+     * @param key the ordering key of the task, or {@code null} if it doesn't need any ordering
+     * @param task the task to run
+     * @return {@code true} if the task is queued, {@code false} if the dispatcher is shut down or the calling
+     * thread is interrupted
+     */
+    @Override
+    public boolean dispatch(String key, Runnable task) {
+        return dispatch(key, task, Long.MAX_VALUE);
+    }
+
+    /**
+     * Queues a task on the lane of the specified key, waiting up to the specified timeout for room if the lane is
+     * full.
+     *
+     * @param key the ordering key of the task, or {@code null} if it doesn't need any ordering
+     * @param task the task to run
+     * @param timeout the maximum time to wait for room in milliseconds
+     * @return {@code true} if the task is queued, {@code false} if the timeout expires, the dispatcher is shut
+     * down or the calling thread is interrupted
+     */
+    @Override
+    public boolean dispatch(String key, Runnable task, long timeout) {
+        if (shutdown) {
+            return false;
+        }
+        Lane lane = laneOf(key);
+        try {
+            if (timeout == Long.MAX_VALUE) {
+                lane.queue.put(task);
+            } else if (!lane.queue.offer(task, timeout, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        // A lane which has seen the shutdown may have stopped before the task was queued
+        return !shutdown || !lane.queue.remove(task);
+    }
+
+    /**
+     * Returns the number of lanes, which is the maximum number of tasks running concurrently.
+     *
+     * @return the number of lanes
+     */
+    public int lanes() {
+        return lanes.length;
+    }
+
+    /**
+     * Returns the number of tasks waiting in the lanes.
+     *
+     * @return the number of waiting tasks
+     */
+    public int queuedTasks() {
+        int queued = 0;
+        for (Lane lane : lanes) {
+            queued += lane.queue.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Returns the number of tasks run so far, the failed ones included.
+     *
+     * @return the number of run tasks
+     */
+    @Override
+    public long completedTasks() {
+        return completedTasks.get();
+    }
+
+    /**
+     * Returns the number of tasks which have thrown an exception or an error so far, which doesn't stop their lane.
+     *
+     * @return the number of failed tasks
+     */
+    @Override
+    public long failedTasks() {
+        return failedTasks.get();
+    }
+
+    /**
+     * Starts the lane threads.
+     */
+    @Override
+    public void startup() {
+        for (Lane lane : lanes) {
+            lane.thread.start();
+        }
+    }
+
+    /**
+     * Stops accepting tasks, and waits for the lanes to run the tasks they have queued already.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (Lane lane : lanes) {
+            // Wakes an idle lane, a full one checks the shutdown before its next take
+            lane.queue.offer(STOP);
+        }
+        for (Lane lane : lanes) {
+            if (lane.thread == Thread.currentThread() || !lane.thread.isAlive()) {
+                continue;
+            }
+            try {
+                lane.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Lane laneOf(String key) {
+        if (lanes.length == 1) {
+            return lanes[0];
+        }
+        if (key == null) {
+            return lanes[(nextLane.getAndIncrement() & Integer.MAX_VALUE) % lanes.length];
+        }
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return lanes[(hash & Integer.MAX_VALUE) % lanes.length];
+    }
+
+    private final class Lane implements Runnable {
+        private final BlockingQueue<Runnable> queue;
+        private Thread thread;
+
+        Lane(int capacity) {
+            this.queue = new ArrayBlockingQueue<Runnable>(capacity);
+        }
+
+        @Override
+        public void run() {
+            for (;;) {
+                if (shutdown && queue.isEmpty()) {
+                    return;
+                }
+                Runnable task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                if (task == STOP) {
+                    continue;
+                }
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    failedTasks.incrementAndGet();
+                }
+                completedTasks.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.Future;
+import io.openmessaging.FutureListener;
+import io.openmessaging.producer.SendResult;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A {@link BytesMessage} handed out by a {@link BytesMessagePool}, which is reset and reused once released.
+ * <p>
+ * Besides the usual ways to set the body, a pooled message owns a reusable body buffer: the content is
+ * written into the buffer returned by {@link #bodyWriter(int)}, then published as the body by
+ * {@link #commitBody()}, so that sending a message of a similar size doesn't allocate a new array.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class PooledBytesMessage extends DefaultBytesMessage {
+    private static final AtomicIntegerFieldUpdater<PooledBytesMessage> STATE_UPDATER =
+        AtomicIntegerFieldUpdater.newUpdater(PooledBytesMessage.class, "state");
+
+    static final int RELEASED = 0;
+    static final int ACQUIRED = 1;
+
+    private final BytesMessagePool pool;
+    private final FutureListener<SendResult> releaseListener;
+    private volatile int state;
+    BytesMessagePool.LeakTracker leakTracker;
+
+    private ByteBuffer writer;
+    private ByteBuffer reader;
+    private boolean committed;
+    private BytesBody external;
+    private byte[] materialized;
+
+    PooledBytesMessage(BytesMessagePool pool) {
+        this.pool = pool;
+        this.releaseListener = new FutureListener<SendResult>() {
+            @Override
+            public void operationSucceeded(Future<SendResult> future) {
+                release();
+            }
+
+            @Override
+            public void operationFailed(Future<SendResult> future) {
+                release();
+            }
+        };
+    }
+
+    /**
+     * Returns the reusable body buffer, cleared and able to hold at least the specified number of bytes.
+     * <p>
+     * The content written into the buffer becomes the message body on {@link #commitBody()}.
+     *
+     * @param capacity the minimum capacity
+     * @return the writable body buffer
+     */
+    public ByteBuffer bodyWriter(int capacity) {
+        if (writer == null || writer.capacity() < capacity) {
+            writer = ByteBuffer.allocate(capacity);
+            reader = writer.asReadOnlyBuffer();
+        }
+        resetBody();
+        return writer;
+    }
+
+    /**
+     * Publishes the content written into the reusable body buffer, from zero to its position, as the body.
+     *
+     * @return this message
+     */
+    public BytesMessage commitBody() {
+        if (writer == null) {
+            throw new IllegalStateException("The body writer isn't acquired");
+        }
+        external = null;
+        materialized = null;
+        reader.limit(writer.position());
+        committed = true;
+        return this;
+    }
+
+    /**
+     * Returns this message to its pool, the message must not be used any more after this call.
+     *
+     * @throws IllegalStateException if the message has been released already
+     */
+    public void release() {
+        pool.release(this);
+    }
+
+    /**
+     * Returns this message to its pool once the specified future completes, either successfully or not.
+     *
+     * @param future the future of the send operation of this message
+     */
+    public void releaseOnComplete(Future<SendResult> future) {
+        future.addListener(releaseListener);
+    }
+
+    @Override
+    public byte[] getBody() {
+        if (external != null) {
+            return external.array();
+        }
+        if (!committed) {
+            return null;
+        }
+        if (materialized == null) {
+            materialized = new byte[reader.limit()];
+            reader.duplicate().get(materialized);
+        }
+        return materialized;
+    }
+
+    @Override
+    public ByteBuffer getBodyBuffer() {
+        if (external != null) {
+            return external.buffer();
+        }
+        return committed ? reader.duplicate() : null;
+    }
+
+    @Override
+    public ByteBuffer getBodyBuffer(int offset, int length) {
+        if (external != null) {
+            return external.slice(offset, length);
+        }
+        if (!committed) {
+            throw new IndexOutOfBoundsException("The body isn't set");
+        }
+        int bodyLength = getBodyLength();
+        if (offset < 0 || length < 0 || offset > bodyLength - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                + ", body length " + bodyLength);
+        }
+        ByteBuffer view = reader.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice();
+    }
+
+    @Override
+    public int getBodyLength() {
+        if (external != null) {
+            return external.length();
+        }
+        return committed ? reader.limit() : 0;
+    }
+
+    @Override
+    public BytesMessage setBody(byte[] body) {
+        resetBody();
+        external = body == null ? null : BytesBody.wrap(body);
+        return this;
+    }
+
+    @Override
+    public BytesMessage setBody(ByteBuffer body) {
+        resetBody();
+        external = body == null ? null : BytesBody.wrap(body);
+        return this;
+    }
+
+    boolean acquire() {
+        return STATE_UPDATER.compareAndSet(this, RELEASED, ACQUIRED);
+    }
+
+    boolean markReleased() {
+        return STATE_UPDATER.compareAndSet(this, ACQUIRED, RELEASED);
+    }
+
+    void reset() {
+        ((CompactKeyValue) sysHeaders()).clear();
+        ((CompactKeyValue) userHeaders()).clear();
+        resetBody();
+    }
+
+    private void resetBody() {
+        committed = false;
+        external = null;
+        materialized = null;
+        if (reader != null) {
+            reader.limit(0);
+            writer.clear();
+        }
+    }
+}
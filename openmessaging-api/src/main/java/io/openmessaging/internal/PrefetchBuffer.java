@@ -0,0 +1,425 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.Future;
+import io.openmessaging.FutureListener;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.exception.OMSRuntimeException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code PrefetchBuffer} keeps the messages of an attached queue fetched ahead of the receives of a
+ * {@code PullConsumer}, so that the latency of the broker is hidden from the receiving threads.
+ * <p>
+ * The buffer holds up to {@link OMSBuiltinKeys#PREFETCH_MAX_MESSAGES} messages and
+ * {@link OMSBuiltinKeys#PREFETCH_MAX_BYTES} of bodies. Once the receives make it drop below the
+ * {@link OMSBuiltinKeys#PREFETCH_LOW_WATER_MARK} percentage of both limits, it asks its {@link MessageFetcher}
+ * for the room left, in the background: there is a single fetch in flight at most, and the receives never wait
+ * for it, they only find the buffer empty.
+ * <p>
+ * A failed fetch is reported by the next receive which finds the buffer empty, as an {@link OMSRuntimeException},
+ * then the buffer fetches again. After an empty fetch, the buffer fetches again right away, then backs off from a
+ * millisecond up to {@link #MAX_BACKOFF_NANOS} while the fetches keep completing empty sooner than that, so a
+ * fetcher which doesn't long-poll doesn't make it spin. A fetch completed by the thread requesting it doesn't make
+ * the buffer recurse either.
+ * <p>
+ * When the buffer is closed, the messages it holds, and the ones of a fetch completed afterwards, are given back to
+ * the {@code MessageFetcher}, as they are claimed from the queue already.
+ * <p>
+ * The buffer records how full it is, and the latency of its refills, from the request of a fetch to the arrival of
+ * its messages.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class PrefetchBuffer {
+    public static final int DEFAULT_MAX_MESSAGES = 1000;
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+    public static final int DEFAULT_LOW_WATER_MARK = 50;
+    public static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final int REGISTERING = 0;
+    private static final int REGISTERED = 1;
+    private static final int REFILL_INLINE = 2;
+
+    private static final HashedWheelTimer BACKOFF_TIMER = new HashedWheelTimer("OMS-PrefetchBackoff", 1,
+        TimeUnit.MILLISECONDS, 128);
+
+    private final String queue;
+    private final MessageFetcher fetcher;
+    private final Runnable availability;
+    private final int maxMessages;
+    private final long maxBytes;
+    private final int lowWaterMessages;
+    private final long lowWaterBytes;
+
+    private final ArrayDeque<Message> messages = new ArrayDeque<Message>();
+    private long bytes;
+    private boolean fetching;
+    private int emptyFetches;
+    private Throwable failure;
+    private boolean closed;
+
+    private final AtomicLong refills = new AtomicLong();
+    private final AtomicLong refillNanos = new AtomicLong();
+    private final AtomicLong maxRefillNanos = new AtomicLong();
+    private final AtomicLong emptyPolls = new AtomicLong();
+    private final AtomicLong releasedMessages = new AtomicLong();
+    private final Runnable refillTask = new Runnable() {
+        @Override
+        public void run() {
+            refill();
+        }
+    };
+
+    /**
+     * Constructs a {@code PrefetchBuffer} configured by the specified attributes, of the attached queue first, then
+     * of the consumer.
+     *
+     * @param queue the attached queue
+     * @param attributes the attributes of the prefetching
+     * @param fetcher the fetcher of the messages
+     * @param availability the callback run when messages are added to the buffer, like to wake the receiving
+     * threads, or {@code null}
+     */
+    public PrefetchBuffer(String queue, KeyValue attributes, MessageFetcher fetcher, Runnable availability) {
+        this.queue = queue;
+        this.fetcher = fetcher;
+        this.availability = availability;
+        this.maxMessages = Math.max(1, attributes.getInt(OMSBuiltinKeys.PREFETCH_MAX_MESSAGES, DEFAULT_MAX_MESSAGES));
+        this.maxBytes = Math.max(1L, attributes.getLong(OMSBuiltinKeys.PREFETCH_MAX_BYTES, DEFAULT_MAX_BYTES));
+        int lowWaterMark = Math.min(100, Math.max(0,
+            attributes.getInt(OMSBuiltinKeys.PREFETCH_LOW_WATER_MARK, DEFAULT_LOW_WATER_MARK)));
+        // Refills as soon as a message is taken at least, when the mark is too low for the limits
+        this.lowWaterMessages = Math.max(1, (int) ((long) maxMessages * lowWaterMark / 100));
+        this.lowWaterBytes = Math.max(1L, maxBytes / 100 * lowWaterMark);
+    }
+
+    /**
+     * Starts fetching the messages of the queue.
+     */
+    public void start() {
+        refill();
+    }
+
+    /**
+     * Takes the next prefetched message without waiting.
+     *
+     * @return the next message, or {@code null} if the buffer is empty
+     * @throws OMSRuntimeException if the buffer is empty and the last fetch failed
+     */
+    public Message poll() {
+        Message message;
+        synchronized (messages) {
+            message = messages.poll();
+            if (message != null) {
+                bytes -= bodySize(message);
+            }
+        }
+        if (message == null) {
+            emptyPolls.incrementAndGet();
+            reportFailure();
+        }
+        refill();
+        return message;
+    }
+
+    /**
+     * Takes the next prefetched messages, up to the specified number, without waiting.
+     *
+     * @param maxMessages the maximum number of messages to take
+     * @param collection the collection receiving the messages
+     * @return the number of messages taken
+     * @throws OMSRuntimeException if the buffer is empty and the last fetch failed
+     */
+    public int poll(int maxMessages, Collection<? super Message> collection) {
+        int count = 0;
+        synchronized (messages) {
+            Message message;
+            while (count < maxMessages && (message = messages.poll()) != null) {
+                bytes -= bodySize(message);
+                collection.add(message);
+                count++;
+            }
+        }
+        if (count == 0 && maxMessages > 0) {
+            emptyPolls.incrementAndGet();
+            reportFailure();
+        }
+        refill();
+        return count;
+    }
+
+    /**
+     * Stops fetching and gives the prefetched messages back to the fetcher.
+     */
+    public void close() {
+        List<Message> undelivered;
+        synchronized (messages) {
+            closed = true;
+            undelivered = new ArrayList<Message>(messages);
+            messages.clear();
+            bytes = 0;
+        }
+        release(undelivered);
+    }
+
+    /**
+     * Returns the attached queue.
+     *
+     * @return the name of the queue
+     */
+    public String queue() {
+        return queue;
+    }
+
+    /**
+     * Returns the number of prefetched messages.
+     *
+     * @return the number of messages in the buffer
+     */
+    public int bufferedMessages() {
+        synchronized (messages) {
+            return messages.size();
+        }
+    }
+
+    /**
+     * Returns the total body size of the prefetched messages.
+     *
+     * @return the number of bytes in the buffer
+     */
+    public long bufferedBytes() {
+        synchronized (messages) {
+            return bytes;
+        }
+    }
+
+    /**
+     * Returns the maximum number of prefetched messages.
+     *
+     * @return the maximum number of messages in the buffer
+     */
+    public int maxMessages() {
+        return maxMessages;
+    }
+
+    /**
+     * Returns the maximum total body size of the prefetched messages.
+     *
+     * @return the maximum number of bytes in the buffer
+     */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the number of completed fetches which brought messages.
+     *
+     * @return the number of refills
+     */
+    public long refills() {
+        return refills.get();
+    }
+
+    /**
+     * Returns the average latency of the refills.
+     *
+     * @return the average latency in nanoseconds, or zero if there isn't any refill yet
+     */
+    public long averageRefillNanos() {
+        long refills = this.refills.get();
+        return refills == 0 ? 0 : refillNanos.get() / refills;
+    }
+
+    /**
+     * Returns the maximum latency of the refills.
+     *
+     * @return the maximum latency in nanoseconds
+     */
+    public long maxRefillNanos() {
+        return maxRefillNanos.get();
+    }
+
+    /**
+     * Returns the number of polls which found the buffer empty, a growing number shows that the buffer doesn't
+     * keep up with the receives.
+     *
+     * @return the number of empty polls
+     */
+    public long emptyPolls() {
+        return emptyPolls.get();
+    }
+
+    /**
+     * Returns the number of messages given back to the fetcher, which the buffer held when it was closed or which
+     * arrived afterwards.
+     *
+     * @return the number of released messages
+     */
+    public long releasedMessages() {
+        return releasedMessages.get();
+    }
+
+    private void refill() {
+        Refill refill;
+        do {
+            int fetchMessages;
+            long fetchBytes;
+            synchronized (messages) {
+                if (fetching || closed || failure != null
+                    || messages.size() >= lowWaterMessages || bytes >= lowWaterBytes) {
+                    return;
+                }
+                fetching = true;
+                fetchMessages = maxMessages - messages.size();
+                fetchBytes = maxBytes - bytes;
+            }
+            refill = new Refill();
+            Future<List<Message>> future;
+            try {
+                future = fetcher.fetch(queue, fetchMessages, fetchBytes);
+            } catch (RuntimeException e) {
+                refill.complete(null, e);
+                return;
+            }
+            future.addListener(refill);
+        } while (!refill.registered());
+    }
+
+    /**
+     * Returns the delay before the fetch following the specified number of consecutive empty fetches, the first
+     * one excepted, it doubles from a millisecond up to {@link #MAX_BACKOFF_NANOS}.
+     */
+    private static long backoffNanos(int emptyFetches) {
+        if (emptyFetches <= 1) {
+            return 0;
+        }
+        return Math.min(MAX_BACKOFF_NANOS, TimeUnit.MILLISECONDS.toNanos(1) << Math.min(emptyFetches - 2, 16));
+    }
+
+    private void release(List<Message> undelivered) {
+        if (!undelivered.isEmpty()) {
+            releasedMessages.addAndGet(undelivered.size());
+            fetcher.release(queue, undelivered);
+        }
+    }
+
+    private void reportFailure() {
+        Throwable failure;
+        synchronized (messages) {
+            failure = this.failure;
+            this.failure = null;
+        }
+        if (failure != null) {
+            throw new OMSRuntimeException(InternalErrorCode.PREFETCH_FAILED.name(),
+                InternalErrorCode.PREFETCH_FAILED.formatMessage(queue), failure);
+        }
+    }
+
+    private static int bodySize(Message message) {
+        return message instanceof BytesMessage ? ((BytesMessage) message).getBodyLength() : 0;
+    }
+
+    private final class Refill implements FutureListener<List<Message>> {
+        private final long start = System.nanoTime();
+        /**
+         * {@link #REGISTERING} until the listener is added to the future of the fetch, then {@link #REGISTERED},
+         * or {@link #REFILL_INLINE} if it has been completed meanwhile and left the next fetch to the caller.
+         */
+        private final AtomicInteger state = new AtomicInteger(REGISTERING);
+
+        @Override
+        public void operationSucceeded(Future<List<Message>> future) {
+            complete(future.get(), null);
+        }
+
+        @Override
+        public void operationFailed(Future<List<Message>> future) {
+            complete(null, future.getThrowable());
+        }
+
+        void complete(List<Message> fetched, Throwable cause) {
+            boolean available = fetched != null && !fetched.isEmpty();
+            if (available) {
+                long latency = System.nanoTime() - start;
+                refills.incrementAndGet();
+                refillNanos.addAndGet(latency);
+                long max = maxRefillNanos.get();
+                while (max < latency && !maxRefillNanos.compareAndSet(max, latency)) {
+                    max = maxRefillNanos.get();
+                }
+            }
+            long delay = 0;
+            boolean undelivered = false;
+            synchronized (messages) {
+                fetching = false;
+                if (cause != null) {
+                    failure = cause;
+                } else if (available) {
+                    emptyFetches = 0;
+                    if (closed) {
+                        undelivered = true;
+                    } else {
+                        for (Message message : fetched) {
+                            messages.add(message);
+                            bytes += bodySize(message);
+                        }
+                    }
+                } else {
+                    emptyFetches++;
+                    delay = backoffNanos(emptyFetches) - (System.nanoTime() - start);
+                }
+            }
+            if (undelivered) {
+                release(fetched);
+                return;
+            }
+            if ((available || cause != null) && availability != null) {
+                availability.run();
+            }
+            if (cause != null) {
+                return;
+            }
+            // Fetches again while still below the low-water mark, or after an empty fetch, once backed off
+            if (delay > 0) {
+                BACKOFF_TIMER.newTimeout(refillTask, delay, TimeUnit.NANOSECONDS);
+            } else if (!state.compareAndSet(REGISTERING, REFILL_INLINE)) {
+                refill();
+            }
+        }
+
+        /**
+         * Returns whether the listener is registered, or if it has been completed by the calling thread, which
+         * then runs the next fetch itself, instead of recursing.
+         */
+        boolean registered() {
+            return state.compareAndSet(REGISTERING, REGISTERED);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Future;
+import io.openmessaging.FutureListener;
+import io.openmessaging.Message;
+import io.openmessaging.interceptor.ProducerInterceptor;
+import io.openmessaging.producer.SendResult;
+
+/**
+ * The {@code ProducerInterceptorChain} holds the interceptors of a {@code Producer} in a copy-on-write array, and
+ * calls them without allocating anything per synchronous send. An asynchronous send allocates its context.
+ * <p>
+ * The array is replaced as a whole by {@link #add(ProducerInterceptor)} and {@link #remove(ProducerInterceptor)},
+ * so a send is intercepted by the same interceptors before and after it, and is traversed by index. The contexts
+ * of the synchronous sends are reused per thread, a nested send, made by an interceptor for instance, gets a context
+ * of its own. An asynchronous send gets a new context, which is also the listener of its {@code Future}, so that
+ * it is intercepted after its completion, by the completing thread, with its result or exception. The context isn't
+ * pooled, as it is released by whichever thread completes the send, while the send allocates its {@code Future}
+ * anyway. An empty chain doesn't even read the clock.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class ProducerInterceptorChain {
+    private static final ProducerInterceptor[] EMPTY = new ProducerInterceptor[0];
+
+    private volatile ProducerInterceptor[] interceptors = EMPTY;
+    private final ThreadLocal<Invocation> invocations = new ThreadLocal<Invocation>();
+
+    /**
+     * Appends an interceptor to the chain.
+     *
+     * @param interceptor the interceptor to add
+     */
+    public synchronized void add(ProducerInterceptor interceptor) {
+        ProducerInterceptor[] interceptors = this.interceptors;
+        ProducerInterceptor[] added = new ProducerInterceptor[interceptors.length + 1];
+        System.arraycopy(interceptors, 0, added, 0, interceptors.length);
+        added[interceptors.length] = interceptor;
+        this.interceptors = added;
+    }
+
+    /**
+     * Removes the first occurrence of an interceptor from the chain, if any.
+     *
+     * @param interceptor the interceptor to remove
+     */
+    public synchronized void remove(ProducerInterceptor interceptor) {
+        ProducerInterceptor[] interceptors = this.interceptors;
+        for (int i = 0; i < interceptors.length; i++) {
+            if (interceptors[i].equals(interceptor)) {
+                ProducerInterceptor[] removed = new ProducerInterceptor[interceptors.length - 1];
+                System.arraycopy(interceptors, 0, removed, 0, i);
+                System.arraycopy(interceptors, i + 1, removed, i, removed.length - i);
+                this.interceptors = removed;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of interceptors in the chain.
+     *
+     * @return the number of interceptors
+     */
+    public int size() {
+        return interceptors.length;
+    }
+
+    /**
+     * Calls {@link ProducerInterceptor#sendBefore(ProducerInterceptor.SendBeforeContext)} of every interceptor.
+     *
+     * @param message the message being sent
+     * @return the invocation to pass to {@link #after(Invocation, SendResult, Throwable)}, or {@code null} if the
+     * chain is empty
+     */
+    public Invocation before(Message message) {
+        ProducerInterceptor[] interceptors = this.interceptors;
+        if (interceptors.length == 0) {
+            return null;
+        }
+        Invocation invocation = invocations.get();
+        if (invocation == null) {
+            invocation = new Invocation();
+            invocations.set(invocation);
+        } else if (invocation.interceptors != null) {
+            invocation = new Invocation();
+        }
+        return start(invocation, interceptors, message);
+    }
+
+    /**
+     * Calls {@link ProducerInterceptor#sendBefore(ProducerInterceptor.SendBeforeContext)} of every interceptor, for
+     * an asynchronous send.
+     *
+     * @param message the message being sent
+     * @return the invocation to pass to {@link #after(Invocation, Future)}, or to
+     * {@link #after(Invocation, SendResult, Throwable)} if the send fails right away, or {@code null} if the chain
+     * is empty
+     */
+    public Invocation beforeAsync(Message message) {
+        ProducerInterceptor[] interceptors = this.interceptors;
+        if (interceptors.length == 0) {
+            return null;
+        }
+        return start(new Invocation(), interceptors, message);
+    }
+
+    /**
+     * Calls {@link ProducerInterceptor#sendAfter(ProducerInterceptor.SendAfterContext)} of the interceptors which
+     * were called before an asynchronous send, once the specified {@code Future} of the send is completed.
+     *
+     * @param invocation the invocation returned by {@link #beforeAsync(Message)}, or {@code null}
+     * @param future the {@code Future} of the send
+     */
+    public void after(Invocation invocation, Future<SendResult> future) {
+        if (invocation != null) {
+            future.addListener(invocation);
+        }
+    }
+
+    /**
+     * Calls {@link ProducerInterceptor#sendAfter(ProducerInterceptor.SendAfterContext)} of the interceptors which
+     * were called before the send, then releases the invocation.
+     *
+     * @param invocation the invocation returned by {@link #before(Message)}, or {@code null}
+     * @param result the result of the send, or {@code null}
+     * @param exception the exception which failed the send, or {@code null}
+     */
+    public void after(Invocation invocation, SendResult result, Throwable exception) {
+        if (invocation != null) {
+            invocation.complete(result, exception);
+        }
+    }
+
+    private static Invocation start(Invocation invocation, ProducerInterceptor[] interceptors, Message message) {
+        invocation.interceptors = interceptors;
+        invocation.message = message;
+        invocation.startNanos = System.nanoTime();
+        try {
+            for (int i = 0; i < interceptors.length; i++) {
+                interceptors[i].sendBefore(invocation);
+            }
+        } catch (RuntimeException e) {
+            invocation.release();
+            throw e;
+        }
+        return invocation;
+    }
+
+    /**
+     * The context of an intercepted send, reusable by the synchronous sends, which is the listener of the
+     * {@code Future} of an asynchronous send.
+     */
+    public static final class Invocation implements ProducerInterceptor.SendAfterContext, FutureListener<SendResult> {
+        private ProducerInterceptor[] interceptors;
+        private Message message;
+        private long startNanos;
+        private long elapsedNanos;
+        private SendResult result;
+        private Throwable exception;
+
+        @Override
+        public Message message() {
+            return message;
+        }
+
+        @Override
+        public String destination() {
+            return message.sysHeaders().getString(Message.BuiltinKeys.DESTINATION);
+        }
+
+        @Override
+        public long startNanos() {
+            return startNanos;
+        }
+
+        @Override
+        public long elapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public SendResult result() {
+            return result;
+        }
+
+        @Override
+        public Throwable exception() {
+            return exception;
+        }
+
+        @Override
+        public void operationSucceeded(Future<SendResult> future) {
+            complete(future.get(), null);
+        }
+
+        @Override
+        public void operationFailed(Future<SendResult> future) {
+            complete(null, future.getThrowable());
+        }
+
+        private void complete(SendResult result, Throwable exception) {
+            elapsedNanos = System.nanoTime() - startNanos;
+            this.result = result;
+            this.exception = exception;
+            try {
+                for (int i = 0; i < interceptors.length; i++) {
+                    interceptors[i].sendAfter(this);
+                }
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            interceptors = null;
+            message = null;
+            elapsedNanos = 0;
+            result = null;
+            exception = null;
+        }
+    }
+}
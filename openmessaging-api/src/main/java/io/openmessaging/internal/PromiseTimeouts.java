@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Future;
+import io.openmessaging.FutureListener;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.Promise;
+import io.openmessaging.exception.OMSTimeOutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires the pending {@link Promise}s of the asynchronous operations with an {@link OMSTimeOutException}, using
+ * one {@link HashedWheelTimer} shared by all the producers and consumers, instead of a scheduled task per request.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public final class PromiseTimeouts {
+    public static final long DEFAULT_OPERATION_TIMEOUT = 3000;
+
+    private static final HashedWheelTimer TIMER = new HashedWheelTimer("OMS-PromiseTimeouts", 1,
+        TimeUnit.MILLISECONDS, 512);
+
+    private PromiseTimeouts() {
+    }
+
+    /**
+     * Fails the specified promise with an {@code OMSTimeOutException} if it isn't completed within the specified
+     * timeout, the timeout is cancelled as soon as the promise completes.
+     *
+     * @param promise the promise to expire
+     * @param timeout the timeout in milliseconds, no timeout if non-positive
+     * @param <V> the result type of the promise
+     */
+    public static <V> void expireAfter(Promise<V> promise, long timeout) {
+        if (timeout <= 0 || promise.isDone()) {
+            return;
+        }
+        Expiry<V> expiry = new Expiry<V>(promise, timeout);
+        expiry.timeout = TIMER.newTimeout(expiry, timeout, TimeUnit.MILLISECONDS);
+        promise.addListener(expiry);
+    }
+
+    /**
+     * Returns the timeout of an operation on the specified message, the {@link OMSBuiltinKeys#OPERATION_TIMEOUT}
+     * of the specified attributes, shortened to the time-to-live of the message if its
+     * {@link Message.BuiltinKeys#TIMEOUT} header is set, since the message expires anyway after that.
+     *
+     * @param message the message
+     * @param attributes the attributes of the producer or the operation
+     * @return the timeout in milliseconds
+     */
+    public static long timeoutOf(Message message, KeyValue attributes) {
+        return timeoutOf(message, attributes.getLong(OMSBuiltinKeys.OPERATION_TIMEOUT, DEFAULT_OPERATION_TIMEOUT));
+    }
+
+    /**
+     * Returns the timeout of an operation on the specified message, the specified operation timeout shortened to the
+     * time-to-live of the message if its {@link Message.BuiltinKeys#TIMEOUT} header is set.
+     *
+     * @param message the message
+     * @param timeout the operation timeout in milliseconds, no timeout if non-positive
+     * @return the timeout in milliseconds
+     */
+    public static long timeoutOf(Message message, long timeout) {
+        long timeToLive = message.sysHeaders().getLong(Message.BuiltinKeys.TIMEOUT, 0);
+        return timeToLive > 0 && (timeout <= 0 || timeToLive < timeout) ? timeToLive : timeout;
+    }
+
+    /**
+     * Returns the number of pending timeouts of the shared timer.
+     *
+     * @return the number of pending timeouts
+     */
+    public static long pendingTimeouts() {
+        return TIMER.pendingTimeouts();
+    }
+
+    private static final class Expiry<V> implements Runnable, FutureListener<V> {
+        private final Promise<V> promise;
+        private final long delay;
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        Expiry(Promise<V> promise, long delay) {
+            this.promise = promise;
+            this.delay = delay;
+        }
+
+        @Override
+        public void run() {
+            promise.setFailure(new OMSTimeOutException(InternalErrorCode.FUTURE_TIMEOUT.name(),
+                InternalErrorCode.FUTURE_TIMEOUT.formatMessage(String.valueOf(delay))));
+        }
+
+        @Override
+        public void operationSucceeded(Future<V> future) {
+            timeout.cancel();
+        }
+
+        @Override
+        public void operationFailed(Future<V> future) {
+            timeout.cancel();
+        }
+    }
+}
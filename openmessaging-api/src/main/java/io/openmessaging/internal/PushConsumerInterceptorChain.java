@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Message;
+import io.openmessaging.interceptor.PushConsumerInterceptor;
+import java.util.List;
+
+/**
+ * The {@code PushConsumerInterceptorChain} holds the interceptors of a {@code PushConsumer} in a copy-on-write
+ * array, and calls them without allocating anything per message, like a {@link ProducerInterceptorChain} does
+ * for a synchronous send.
+ * <p>
+ * The messages of a batch are intercepted one after the other with the same context, before and after the call of
+ * the listener, and share its start time.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class PushConsumerInterceptorChain {
+    private static final PushConsumerInterceptor[] EMPTY = new PushConsumerInterceptor[0];
+
+    private volatile PushConsumerInterceptor[] interceptors = EMPTY;
+    private final ThreadLocal<Invocation> invocations = new ThreadLocal<Invocation>();
+
+    /**
+     * Appends an interceptor to the chain.
+     *
+     * @param interceptor the interceptor to add
+     */
+    public synchronized void add(PushConsumerInterceptor interceptor) {
+        PushConsumerInterceptor[] interceptors = this.interceptors;
+        PushConsumerInterceptor[] added = new PushConsumerInterceptor[interceptors.length + 1];
+        System.arraycopy(interceptors, 0, added, 0, interceptors.length);
+        added[interceptors.length] = interceptor;
+        this.interceptors = added;
+    }
+
+    /**
+     * Removes the first occurrence of an interceptor from the chain, if any.
+     *
+     * @param interceptor the interceptor to remove
+     */
+    public synchronized void remove(PushConsumerInterceptor interceptor) {
+        PushConsumerInterceptor[] interceptors = this.interceptors;
+        for (int i = 0; i < interceptors.length; i++) {
+            if (interceptors[i].equals(interceptor)) {
+                PushConsumerInterceptor[] removed = new PushConsumerInterceptor[interceptors.length - 1];
+                System.arraycopy(interceptors, 0, removed, 0, i);
+                System.arraycopy(interceptors, i + 1, removed, i, removed.length - i);
+                this.interceptors = removed;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of interceptors in the chain.
+     *
+     * @return the number of interceptors
+     */
+    public int size() {
+        return interceptors.length;
+    }
+
+    /**
+     * Calls {@link PushConsumerInterceptor#onReceivedBefore(PushConsumerInterceptor.OnMessageBeforeContext)} of
+     * every interceptor.
+     *
+     * @param message the message being consumed
+     * @return the invocation to pass to {@link #after(Invocation, Throwable)}, or {@code null} if the chain is empty
+     */
+    public Invocation before(Message message) {
+        Invocation invocation = start();
+        if (invocation != null) {
+            invocation.before(message);
+        }
+        return invocation;
+    }
+
+    /**
+     * Calls {@link PushConsumerInterceptor#onReceivedBefore(PushConsumerInterceptor.OnMessageBeforeContext)} of
+     * every interceptor, for every message of a batch.
+     *
+     * @param messages the messages being consumed
+     * @return the invocation to pass to {@link #after(Invocation, List, Throwable)}, or {@code null} if the chain is
+     * empty
+     */
+    public Invocation before(List<Message> messages) {
+        Invocation invocation = start();
+        if (invocation != null) {
+            for (int i = 0; i < messages.size(); i++) {
+                invocation.before(messages.get(i));
+            }
+        }
+        return invocation;
+    }
+
+    /**
+     * Calls {@link PushConsumerInterceptor#onReceivedAfter(PushConsumerInterceptor.OnMessageAfterContext)} of the
+     * interceptors which were called before the consumption, then releases the invocation.
+     *
+     * @param invocation the invocation returned by {@link #before(Message)}, or {@code null}
+     * @param exception the exception thrown by the listener, or {@code null}
+     */
+    public void after(Invocation invocation, Throwable exception) {
+        if (invocation == null) {
+            return;
+        }
+        try {
+            invocation.after(invocation.message, exception);
+        } finally {
+            invocation.release();
+        }
+    }
+
+    /**
+     * Calls {@link PushConsumerInterceptor#onReceivedAfter(PushConsumerInterceptor.OnMessageAfterContext)} of the
+     * interceptors which were called before the consumption, for every message of a batch, then releases the
+     * invocation.
+     *
+     * @param invocation the invocation returned by {@link #before(List)}, or {@code null}
+     * @param messages the consumed messages
+     * @param exception the exception thrown by the listener, or {@code null}
+     */
+    public void after(Invocation invocation, List<Message> messages, Throwable exception) {
+        if (invocation == null) {
+            return;
+        }
+        try {
+            for (int i = 0; i < messages.size(); i++) {
+                invocation.after(messages.get(i), exception);
+            }
+        } finally {
+            invocation.release();
+        }
+    }
+
+    private Invocation start() {
+        PushConsumerInterceptor[] interceptors = this.interceptors;
+        if (interceptors.length == 0) {
+            return null;
+        }
+        Invocation invocation = invocations.get();
+        if (invocation == null) {
+            invocation = new Invocation();
+            invocations.set(invocation);
+        } else if (invocation.interceptors != null) {
+            invocation = new Invocation();
+        }
+        invocation.interceptors = interceptors;
+        invocation.startNanos = System.nanoTime();
+        return invocation;
+    }
+
+    /**
+     * The reusable context of an intercepted consumption.
+     */
+    public static final class Invocation implements PushConsumerInterceptor.OnMessageAfterContext {
+        private PushConsumerInterceptor[] interceptors;
+        private Message message;
+        private long startNanos;
+        private long elapsedNanos;
+        private Throwable exception;
+
+        @Override
+        public Message message() {
+            return message;
+        }
+
+        @Override
+        public String destination() {
+            return message.sysHeaders().getString(Message.BuiltinKeys.DESTINATION);
+        }
+
+        @Override
+        public long startNanos() {
+            return startNanos;
+        }
+
+        @Override
+        public long elapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public Throwable exception() {
+            return exception;
+        }
+
+        private void before(Message message) {
+            this.message = message;
+            try {
+                for (int i = 0; i < interceptors.length; i++) {
+                    interceptors[i].onReceivedBefore(this);
+                }
+            } catch (RuntimeException e) {
+                release();
+                throw e;
+            }
+        }
+
+        private void after(Message message, Throwable exception) {
+            this.message = message;
+            this.elapsedNanos = System.nanoTime() - startNanos;
+            this.exception = exception;
+            for (int i = 0; i < interceptors.length; i++) {
+                interceptors[i].onReceivedAfter(this);
+            }
+        }
+
+        private void release() {
+            interceptors = null;
+            message = null;
+            elapsedNanos = 0;
+            exception = null;
+        }
+    }
+}
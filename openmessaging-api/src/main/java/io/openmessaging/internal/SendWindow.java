@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.Future;
+import io.openmessaging.FutureListener;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.Promise;
+import io.openmessaging.exception.OMSFlowControlException;
+import io.openmessaging.exception.OMSTimeOutException;
+import io.openmessaging.producer.SendResult;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.openmessaging.internal.InternalErrorCode.generateInternalException;
+
+/**
+ * The {@code SendWindow} bounds the asynchronous sends of a {@code Producer} which are not completed yet, by
+ * number with {@link OMSBuiltinKeys#MAX_IN_FLIGHT_MESSAGES} and by total body size with
+ * {@link OMSBuiltinKeys#MAX_IN_FLIGHT_BYTES}, so that a slow broker can't make the pending sends grow without limit.
+ * <p>
+ * When the window is full, a send behaves according to the {@link OMSBuiltinKeys#IN_FLIGHT_FULL_POLICY} attribute:
+ * <ul>
+ * <li> {@link FullPolicy#BLOCK}, the default, waits for room up to the {@link OMSBuiltinKeys#OPERATION_TIMEOUT},
+ * then throws an {@link OMSTimeOutException}.
+ * <li> {@link FullPolicy#FAIL_FAST} throws an {@link OMSFlowControlException} right away.
+ * <li> {@link FullPolicy#DROP_OLDEST} makes room by failing the oldest sends in flight with an
+ * {@link OMSFlowControlException}, and cancels them if the wrapped sender supports it. It suits the telemetry
+ * streams, where the latest messages matter the most.
+ * </ul>
+ * A message larger than the byte limit is still accepted when the window is empty.
+ * <p>
+ * A send which isn't completed within the operation timeout, or the time-to-live of its message if shorter, fails
+ * with an {@link OMSTimeOutException}, which releases its room in the window.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class SendWindow implements AsyncSender {
+    public static final int DEFAULT_MAX_IN_FLIGHT_MESSAGES = 10000;
+    public static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The behaviors of a send when the window is full.
+     */
+    public enum FullPolicy {
+        BLOCK,
+        FAIL_FAST,
+        DROP_OLDEST
+    }
+
+    private final AsyncSender sender;
+    private final int maxMessages;
+    private final long maxBytes;
+    private final FullPolicy policy;
+    private final long timeout;
+
+    private final Object lock = new Object();
+    private final Set<InFlight> inFlight = new LinkedHashSet<InFlight>();
+    private long inFlightBytes;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Constructs a {@code SendWindow} configured by the specified producer attributes.
+     *
+     * @param attributes the producer attributes
+     * @param sender the wrapped sender
+     * @throws io.openmessaging.exception.OMSRuntimeException if the full policy attribute is illegal
+     */
+    public SendWindow(KeyValue attributes, AsyncSender sender) {
+        this.sender = sender;
+        this.maxMessages = Math.max(1,
+            attributes.getInt(OMSBuiltinKeys.MAX_IN_FLIGHT_MESSAGES, DEFAULT_MAX_IN_FLIGHT_MESSAGES));
+        this.maxBytes = Math.max(1L,
+            attributes.getLong(OMSBuiltinKeys.MAX_IN_FLIGHT_BYTES, DEFAULT_MAX_IN_FLIGHT_BYTES));
+        this.timeout = attributes.getLong(OMSBuiltinKeys.OPERATION_TIMEOUT,
+            PromiseTimeouts.DEFAULT_OPERATION_TIMEOUT);
+        String policy = attributes.getString(OMSBuiltinKeys.IN_FLIGHT_FULL_POLICY, FullPolicy.BLOCK.name());
+        try {
+            this.policy = FullPolicy.valueOf(policy);
+        } catch (IllegalArgumentException e) {
+            throw generateInternalException(InternalErrorCode.ILLEGAL_ATTRIBUTE_VALUE,
+                policy, OMSBuiltinKeys.IN_FLIGHT_FULL_POLICY);
+        }
+    }
+
+    /**
+     * Sends a message through the wrapped sender once the window has room for it.
+     *
+     * @param message the message to send
+     * @return the {@code Future} of the send operation
+     * @throws OMSFlowControlException if the window is full and the policy is {@code FAIL_FAST}
+     * @throws OMSTimeOutException if the window stays full for the operation timeout and the policy is {@code BLOCK}
+     */
+    @Override
+    public Future<SendResult> sendAsync(Message message) {
+        InFlight entry = new InFlight(message);
+        reserve(entry);
+        Future<SendResult> future;
+        try {
+            future = sender.sendAsync(message);
+        } catch (RuntimeException e) {
+            release(entry);
+            throw e;
+        }
+        entry.attach(future);
+        PromiseTimeouts.expireAfter(entry, PromiseTimeouts.timeoutOf(message, timeout));
+        return entry;
+    }
+
+    /**
+     * Returns the number of sends in flight.
+     *
+     * @return the number of sends in flight
+     */
+    public int inFlightMessages() {
+        synchronized (lock) {
+            return inFlight.size();
+        }
+    }
+
+    /**
+     * Returns the total body size of the sends in flight.
+     *
+     * @return the total body size in bytes
+     */
+    public long inFlightBytes() {
+        synchronized (lock) {
+            return inFlightBytes;
+        }
+    }
+
+    /**
+     * Returns the maximum number of sends in flight.
+     *
+     * @return the maximum number of sends in flight
+     */
+    public int maxInFlightMessages() {
+        return maxMessages;
+    }
+
+    /**
+     * Returns the maximum total body size of the sends in flight.
+     *
+     * @return the maximum total body size in bytes
+     */
+    public long maxInFlightBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the number of sends refused so far because the window was full.
+     *
+     * @return the number of refused sends
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Returns the number of sends in flight dropped so far to make room for newer ones.
+     *
+     * @return the number of dropped sends
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    private void reserve(InFlight entry) {
+        List<InFlight> evicted = null;
+        synchronized (lock) {
+            if (!hasRoom(entry.size)) {
+                switch (policy) {
+                    case FAIL_FAST:
+                        rejected.incrementAndGet();
+                        throw new OMSFlowControlException(InternalErrorCode.IN_FLIGHT_WINDOW_FULL.name(),
+                            InternalErrorCode.IN_FLIGHT_WINDOW_FULL.formatMessage(
+                                String.valueOf(inFlight.size()), String.valueOf(inFlightBytes)));
+                    case DROP_OLDEST:
+                        evicted = new ArrayList<InFlight>();
+                        Iterator<InFlight> iterator = inFlight.iterator();
+                        while (!hasRoom(entry.size)) {
+                            InFlight oldest = iterator.next();
+                            iterator.remove();
+                            inFlightBytes -= oldest.size;
+                            evicted.add(oldest);
+                        }
+                        break;
+                    default:
+                        awaitRoom(entry.size);
+                }
+            }
+            inFlight.add(entry);
+            inFlightBytes += entry.size;
+        }
+        if (evicted != null) {
+            dropped.addAndGet(evicted.size());
+            for (InFlight oldest : evicted) {
+                oldest.drop();
+            }
+        }
+    }
+
+    private void awaitRoom(int size) {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (!hasRoom(size)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                rejected.incrementAndGet();
+                throw new OMSTimeOutException(InternalErrorCode.IN_FLIGHT_WINDOW_TIMEOUT.name(),
+                    InternalErrorCode.IN_FLIGHT_WINDOW_TIMEOUT.formatMessage(String.valueOf(timeout)));
+            }
+            try {
+                lock.wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejected.incrementAndGet();
+                throw new OMSFlowControlException(InternalErrorCode.IN_FLIGHT_WINDOW_FULL.name(),
+                    InternalErrorCode.IN_FLIGHT_WINDOW_FULL.formatMessage(
+                        String.valueOf(inFlight.size()), String.valueOf(inFlightBytes)), e);
+            }
+        }
+    }
+
+    private boolean hasRoom(int size) {
+        return inFlight.isEmpty() || inFlight.size() < maxMessages && inFlightBytes + size <= maxBytes;
+    }
+
+    private void release(InFlight entry) {
+        synchronized (lock) {
+            if (inFlight.remove(entry)) {
+                inFlightBytes -= entry.size;
+                if (policy == FullPolicy.BLOCK) {
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * A send in flight, which is also the promise returned to the caller, failing it by any means, like an
+     * expiration or a drop, releases its room and cancels the wrapped send. The room is released before the promise
+     * is completed, so that its listeners can't hold it.
+     */
+    private final class InFlight extends DefaultPromise<SendResult> implements FutureListener<SendResult> {
+        private final Message message;
+        private final int size;
+        private volatile Future<SendResult> future;
+
+        InFlight(Message message) {
+            this.message = message;
+            this.size = message instanceof BytesMessage ? ((BytesMessage) message).getBodyLength() : 0;
+        }
+
+        void attach(Future<SendResult> future) {
+            this.future = future;
+            future.addListener(this);
+            if (isDone()) {
+                cancel(future);
+            }
+        }
+
+        void drop() {
+            setFailure(new OMSFlowControlException(InternalErrorCode.IN_FLIGHT_MESSAGE_DROPPED.name(),
+                InternalErrorCode.IN_FLIGHT_MESSAGE_DROPPED.formatMessage(
+                    message.sysHeaders().getString(Message.BuiltinKeys.MESSAGE_ID))));
+        }
+
+        @Override
+        public boolean setFailure(Throwable cause) {
+            release(this);
+            return super.setFailure(cause) && abandon();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            release(this);
+            return super.cancel(mayInterruptIfRunning) && abandon();
+        }
+
+        private boolean abandon() {
+            Future<SendResult> future = this.future;
+            if (future != null) {
+                cancel(future);
+            }
+            return true;
+        }
+
+        private void cancel(Future<SendResult> future) {
+            if (future instanceof Promise && !future.isDone()) {
+                ((Promise<SendResult>) future).cancel(false);
+            }
+        }
+
+        @Override
+        public void operationSucceeded(Future<SendResult> future) {
+            release(this);
+            set(future.get());
+        }
+
+        @Override
+        public void operationFailed(Future<SendResult> future) {
+            setFailure(future.getThrowable());
+        }
+    }
+}
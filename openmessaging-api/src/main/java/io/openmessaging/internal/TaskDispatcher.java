@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.ServiceLifecycle;
+
+/**
+ * A {@code TaskDispatcher} runs the deliveries of a {@code PushConsumer} concurrently, except the ones with the
+ * same key, which run one at a time in their dispatch order.
+ *
+ * @version OMS 1.0.0
+ * @see TaskDispatchers#newDispatcher(String, io.openmessaging.KeyValue)
+ * @since OMS 1.0.0
+ */
+public interface TaskDispatcher extends ServiceLifecycle {
+    /**
+     * The threads running the tasks.
+     */
+    enum ThreadMode {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    /**
+     * Dispatches a task, waiting while the dispatcher is saturated.
+     *
+     * @param key the ordering key of the task, or {@code null} if it doesn't need any ordering
+     * @param task the task to run
+     * @return {@code true} if the task is accepted, {@code false} if the dispatcher is shut down or the calling
+     * thread is interrupted
+     */
+    boolean dispatch(String key, Runnable task);
+
+    /**
+     * Dispatches a task, waiting up to the specified timeout while the dispatcher is saturated.
+     *
+     * @param key the ordering key of the task, or {@code null} if it doesn't need any ordering
+     * @param task the task to run
+     * @param timeout the maximum time to wait in milliseconds
+     * @return {@code true} if the task is accepted, {@code false} if the timeout expires, the dispatcher is shut
+     * down or the calling thread is interrupted
+     */
+    boolean dispatch(String key, Runnable task, long timeout);
+
+    /**
+     * Returns the number of tasks run so far, the failed ones included.
+     *
+     * @return the number of run tasks
+     */
+    long completedTasks();
+
+    /**
+     * Returns the number of tasks which have thrown an exception or an error so far, which doesn't stop the
+     * dispatcher.
+     *
+     * @return the number of failed tasks
+     */
+    long failedTasks();
+}
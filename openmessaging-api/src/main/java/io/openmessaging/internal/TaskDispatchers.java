@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.OMSBuiltinKeys;
+import java.util.concurrent.ThreadFactory;
+
+import static io.openmessaging.internal.InternalErrorCode.generateInternalException;
+
+/**
+ * Creates the {@link TaskDispatcher} of a {@code PushConsumer} according to its
+ * {@link OMSBuiltinKeys#CONSUME_THREAD_MODE}.
+ * <p>
+ * The virtual threads are looked up by reflection, since this module is built for older JDKs, the
+ * {@link TaskDispatcher.ThreadMode#VIRTUAL} mode falls back to an {@link OrderedDispatcher} on the JDKs without
+ * them, or with them as a preview feature only.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public final class TaskDispatchers {
+    private static final boolean VIRTUAL_THREAD_SUPPORTED = virtualThreadFactory("OMS-VirtualThread") != null;
+
+    private TaskDispatchers() {
+    }
+
+    /**
+     * Creates a dispatcher configured by the specified consumer attributes, whose threads are named after the
+     * specified name.
+     *
+     * @param name the prefix of the thread names
+     * @param attributes the consumer attributes
+     * @return the dispatcher, not started yet
+     * @throws io.openmessaging.exception.OMSRuntimeException if the thread mode attribute is illegal
+     */
+    public static TaskDispatcher newDispatcher(String name, KeyValue attributes) {
+        String mode = attributes.getString(OMSBuiltinKeys.CONSUME_THREAD_MODE,
+            TaskDispatcher.ThreadMode.PLATFORM.name());
+        TaskDispatcher.ThreadMode threadMode;
+        try {
+            threadMode = TaskDispatcher.ThreadMode.valueOf(mode);
+        } catch (IllegalArgumentException e) {
+            throw generateInternalException(InternalErrorCode.ILLEGAL_ATTRIBUTE_VALUE,
+                mode, OMSBuiltinKeys.CONSUME_THREAD_MODE);
+        }
+        if (threadMode == TaskDispatcher.ThreadMode.VIRTUAL) {
+            ThreadFactory factory = VIRTUAL_THREAD_SUPPORTED ? virtualThreadFactory(name) : null;
+            if (factory != null) {
+                return new VirtualThreadDispatcher(attributes, factory);
+            }
+        }
+        return new OrderedDispatcher(name, attributes);
+    }
+
+    /**
+     * Returns whether the running JDK supports the virtual threads.
+     *
+     * @return {@code true} if the virtual threads are supported
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_SUPPORTED;
+    }
+
+    /**
+     * Returns a factory of virtual threads named after the specified name, or {@code null} if the running JDK
+     * doesn't support them.
+     */
+    static ThreadFactory virtualThreadFactory(String name) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            // A preview feature throws an UnsupportedOperationException unless it is enabled
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
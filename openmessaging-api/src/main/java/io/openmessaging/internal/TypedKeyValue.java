@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.KeyValue;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link KeyValue} implementation which keeps every value in the type it was written with.
+ * <p>
+ * {@code int}, {@code long} and {@code double} values are stored as raw bits in a primitive slot tagged with
+ * their type, so reading a value back with the same type neither boxes nor parses. A value is only converted
+ * when it is read with a different type than it was written with, following the same string representation
+ * as {@link DefaultKeyValue}: a value which does not fit the type it is read with, or a {@code double} value read
+ * as an integer, even an integral one like {@code 3.0}, is not truncated but throws a
+ * {@link NumberFormatException}.
+ * <p>
+ * Every put allocates a new immutable slot, which is the price of being thread-safe, as a reader never sees the
+ * type of a value along with the bits of another. A hot path written by a single thread, like the headers of a
+ * message being built, would rather use a {@link CompactKeyValue}, which writes its values in place.
+ * <p>
+ * The builtin keys registered in {@link BuiltinKeyRegistry} are kept in an array indexed by their ordinals,
+ * only the user defined keys are looked up in the hash table.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class TypedKeyValue implements KeyValue {
+    static final byte TYPE_INT = 1;
+    static final byte TYPE_LONG = 2;
+    static final byte TYPE_DOUBLE = 3;
+    static final byte TYPE_STRING = 4;
+
+    private AtomicReferenceArray<Slot> builtins;
+    private Map<String, Slot> properties;
+
+    public TypedKeyValue() {
+        builtins = new AtomicReferenceArray<Slot>(BuiltinKeyRegistry.size());
+        properties = new ConcurrentHashMap<String, Slot>();
+    }
+
+    @Override
+    public KeyValue put(String key, int value) {
+        return put(key, new Slot(TYPE_INT, value, null));
+    }
+
+    @Override
+    public KeyValue put(String key, long value) {
+        return put(key, new Slot(TYPE_LONG, value, null));
+    }
+
+    @Override
+    public KeyValue put(String key, double value) {
+        return put(key, new Slot(TYPE_DOUBLE, Double.doubleToRawLongBits(value), null));
+    }
+
+    @Override
+    public KeyValue put(String key, String value) {
+        return put(key, new Slot(TYPE_STRING, 0, String.valueOf(value)));
+    }
+
+    @Override
+    public int getInt(String key) {
+        return getInt(key, 0);
+    }
+
+    @Override
+    public int getInt(final String key, final int defaultValue) {
+        Slot slot = slotOf(key);
+        return slot == null ? defaultValue : toInt(slot.type, slot.bits, slot.text);
+    }
+
+    @Override
+    public long getLong(String key) {
+        return getLong(key, 0);
+    }
+
+    @Override
+    public long getLong(final String key, final long defaultValue) {
+        Slot slot = slotOf(key);
+        return slot == null ? defaultValue : toLong(slot.type, slot.bits, slot.text);
+    }
+
+    @Override
+    public double getDouble(String key) {
+        return getDouble(key, 0);
+    }
+
+    @Override
+    public double getDouble(final String key, final double defaultValue) {
+        Slot slot = slotOf(key);
+        return slot == null ? defaultValue : toDouble(slot.type, slot.bits, slot.text);
+    }
+
+    @Override
+    public String getString(String key) {
+        return getString(key, null);
+    }
+
+    @Override
+    public String getString(final String key, final String defaultValue) {
+        Slot slot = slotOf(key);
+        return slot == null ? defaultValue : toString(slot.type, slot.bits, slot.text);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new KeySet();
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return slotOf(key) != null;
+    }
+
+    private KeyValue put(String key, Slot slot) {
+        int ordinal = BuiltinKeyRegistry.ordinalOf(key);
+        if (ordinal >= 0) {
+            builtins.set(ordinal, slot);
+        } else {
+            properties.put(key, slot);
+        }
+        return this;
+    }
+
+    private Slot slotOf(String key) {
+        int ordinal = BuiltinKeyRegistry.ordinalOf(key);
+        return ordinal >= 0 ? builtins.get(ordinal) : properties.get(key);
+    }
+
+    static int toInt(byte type, long bits, String text) {
+        switch (type) {
+            case TYPE_INT:
+                return (int) bits;
+            case TYPE_LONG:
+                if (bits != (int) bits) {
+                    throw notConvertible(String.valueOf(bits));
+                }
+                return (int) bits;
+            case TYPE_DOUBLE:
+                // Like Integer.parseInt of the string representation, which always has a fraction or an exponent
+                throw notConvertible(String.valueOf(Double.longBitsToDouble(bits)));
+            default:
+                return Integer.parseInt(text);
+        }
+    }
+
+    static long toLong(byte type, long bits, String text) {
+        switch (type) {
+            case TYPE_INT:
+            case TYPE_LONG:
+                return bits;
+            case TYPE_DOUBLE:
+                throw notConvertible(String.valueOf(Double.longBitsToDouble(bits)));
+            default:
+                return Long.parseLong(text);
+        }
+    }
+
+    private static NumberFormatException notConvertible(String value) {
+        return new NumberFormatException("For input string: \"" + value + "\"");
+    }
+
+    static double toDouble(byte type, long bits, String text) {
+        switch (type) {
+            case TYPE_INT:
+            case TYPE_LONG:
+                return bits;
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(bits);
+            default:
+                return Double.parseDouble(text);
+        }
+    }
+
+    static String toString(byte type, long bits, String text) {
+        switch (type) {
+            case TYPE_INT:
+                return String.valueOf((int) bits);
+            case TYPE_LONG:
+                return String.valueOf(bits);
+            case TYPE_DOUBLE:
+                return String.valueOf(Double.longBitsToDouble(bits));
+            default:
+                return text;
+        }
+    }
+
+    /**
+     * A {@link Set} view of the builtin keys followed by the user defined keys, removals are written through.
+     */
+    private final class KeySet extends AbstractSet<String> {
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private final Iterator<String> userKeys = properties.keySet().iterator();
+                private int nextOrdinal = advance(0);
+                private int lastOrdinal = -1;
+
+                private int advance(int from) {
+                    while (from < builtins.length() && builtins.get(from) == null) {
+                        from++;
+                    }
+                    return from;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return nextOrdinal < builtins.length() || userKeys.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    if (nextOrdinal < builtins.length()) {
+                        lastOrdinal = nextOrdinal;
+                        nextOrdinal = advance(nextOrdinal + 1);
+                        return BuiltinKeyRegistry.keyOf(lastOrdinal);
+                    }
+                    lastOrdinal = -1;
+                    return userKeys.next();
+                }
+
+                @Override
+                public void remove() {
+                    if (lastOrdinal >= 0) {
+                        builtins.set(lastOrdinal, null);
+                        lastOrdinal = -1;
+                    } else {
+                        userKeys.remove();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            int size = properties.size();
+            for (int i = 0; i < builtins.length(); i++) {
+                if (builtins.get(i) != null) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && containsKey((String) o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof String)) {
+                return false;
+            }
+            int ordinal = BuiltinKeyRegistry.ordinalOf((String) o);
+            return ordinal >= 0 ? builtins.getAndSet(ordinal, null) != null : properties.remove(o) != null;
+        }
+    }
+
+    /**
+     * An immutable, type-tagged value holder, replaced as a whole on every put so that
+     * concurrent readers always observe a consistent type and value.
+     */
+    private static final class Slot {
+        private final byte type;
+        private final long bits;
+        private final String text;
+
+        private Slot(byte type, long bits, String text) {
+            this.type = type;
+            this.bits = bits;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.OMSBuiltinKeys;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code VirtualThreadDispatcher} starts a thread per task, meant to be a virtual thread so that the listeners
+ * blocking on I/O don't hold a pooled thread each, see {@link TaskDispatchers#newDispatcher(String, KeyValue)}.
+ * <p>
+ * At most {@link OMSBuiltinKeys#CONSUME_MAX_CONCURRENCY} tasks are in progress at once, counting the ones waiting for
+ * an earlier task with the same key, {@link #dispatch(String, Runnable)} blocks beyond. The tasks with the same key
+ * are chained on a single thread, which runs them in their dispatch order and ends with the last of them.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class VirtualThreadDispatcher implements TaskDispatcher {
+    public static final int DEFAULT_MAX_CONCURRENCY = 1024;
+
+    private final ThreadFactory threadFactory;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final Map<String, Queue<Runnable>> chains = new HashMap<String, Queue<Runnable>>();
+    private final ThreadLocal<Boolean> running = new ThreadLocal<Boolean>();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong failedTasks = new AtomicLong();
+    private volatile boolean shutdown;
+
+    /**
+     * Constructs a {@code VirtualThreadDispatcher} configured by the specified consumer attributes.
+     *
+     * @param attributes the consumer attributes
+     * @param threadFactory the factory of the threads, one per task or chain of tasks
+     */
+    public VirtualThreadDispatcher(KeyValue attributes, ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+        this.maxConcurrency = Math.max(1,
+            attributes.getInt(OMSBuiltinKeys.CONSUME_MAX_CONCURRENCY, DEFAULT_MAX_CONCURRENCY));
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    @Override
+    public boolean dispatch(String key, Runnable task) {
+        return dispatch(key, task, Long.MAX_VALUE);
+    }
+
+    @Override
+    public boolean dispatch(String key, final Runnable task, long timeout) {
+        if (shutdown) {
+            return false;
+        }
+        try {
+            if (timeout == Long.MAX_VALUE) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        // The shutdown waits for the permits acquired before it only
+        if (shutdown) {
+            permits.release();
+            return false;
+        }
+        if (key == null) {
+            start(new Runnable() {
+                @Override
+                public void run() {
+                    runTask(task);
+                }
+            });
+            return true;
+        }
+        synchronized (chains) {
+            Queue<Runnable> chain = chains.get(key);
+            if (chain != null) {
+                chain.add(task);
+                return true;
+            }
+            chain = new ArrayDeque<Runnable>();
+            chain.add(task);
+            chains.put(key, chain);
+        }
+        start(new Chain(key));
+        return true;
+    }
+
+    /**
+     * Returns the maximum number of tasks in progress at once.
+     *
+     * @return the maximum number of tasks in progress
+     */
+    public int maxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the number of tasks in progress, running or waiting for an earlier task with the same key.
+     *
+     * @return the number of tasks in progress
+     */
+    public int inProgressTasks() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    @Override
+    public long completedTasks() {
+        return completedTasks.get();
+    }
+
+    @Override
+    public long failedTasks() {
+        return failedTasks.get();
+    }
+
+    @Override
+    public void startup() {
+    }
+
+    /**
+     * Stops accepting tasks, and waits for the tasks in progress, except the calling one if it is a task.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        int awaited = running.get() != null ? maxConcurrency - 1 : maxConcurrency;
+        try {
+            permits.acquire(awaited);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        permits.release(awaited);
+    }
+
+    private void start(Runnable runnable) {
+        threadFactory.newThread(runnable).start();
+    }
+
+    private void runTask(Runnable task) {
+        running.set(Boolean.TRUE);
+        try {
+            task.run();
+        } catch (Throwable e) {
+            failedTasks.incrementAndGet();
+        } finally {
+            running.remove();
+            completedTasks.incrementAndGet();
+            permits.release();
+        }
+    }
+
+    private final class Chain implements Runnable {
+        private final String key;
+
+        Chain(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            synchronized (chains) {
+                task = chains.get(key).poll();
+            }
+            for (;;) {
+                runTask(task);
+                // The chain stays registered until it is empty, so the tasks added meanwhile are run by this thread
+                synchronized (chains) {
+                    task = chains.get(key).poll();
+                    if (task == null) {
+                        chains.remove(key);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
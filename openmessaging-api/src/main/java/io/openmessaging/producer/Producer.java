@@ -25,6 +25,7 @@ import io.openmessaging.MessageFactory;
 import io.openmessaging.MessagingAccessPoint;
 import io.openmessaging.OMSBuiltinKeys;
 import io.openmessaging.ServiceLifecycle;
+import io.openmessaging.exception.OMSFlowControlException;
 import io.openmessaging.exception.OMSMessageFormatException;
 import io.openmessaging.exception.OMSRuntimeException;
 import io.openmessaging.exception.OMSTimeOutException;
@@ -57,6 +58,12 @@ public interface Producer extends MessageFactory, ServiceLifecycle {
      * <ul>
      * <li> {@link OMSBuiltinKeys#PRODUCER_ID}, the unique producer id for a producer instance.
      * <li> {@link OMSBuiltinKeys#OPERATION_TIMEOUT}, the default timeout period for operations of {@code Producer}.
+     * <li> {@link OMSBuiltinKeys#BATCH_MAX_MESSAGES}, the maximum number of messages in a batch of asynchronous sends.
+     * <li> {@link OMSBuiltinKeys#BATCH_MAX_BYTES}, the maximum total body size of a batch of asynchronous sends.
+     * <li> {@link OMSBuiltinKeys#BATCH_LINGER_TIME}, the maximum time an asynchronous send waits for a batch to fill.
+     * <li> {@link OMSBuiltinKeys#MAX_IN_FLIGHT_MESSAGES}, the maximum number of asynchronous sends in flight.
+     * <li> {@link OMSBuiltinKeys#MAX_IN_FLIGHT_BYTES}, the maximum total body size of the asynchronous sends in flight.
+     * <li> {@link OMSBuiltinKeys#IN_FLIGHT_FULL_POLICY}, what an asynchronous send does when the in-flight window is full.
      * </ul>
      *
      * @return the attributes
@@ -111,9 +118,20 @@ public interface Producer extends MessageFactory, ServiceLifecycle {
      * <p>
      * The returned {@code Promise} will have the result once the operation completes, and the registered
      * {@code FutureListener} will be notified, either because the operation was successful or because of an error.
+     * <p>
+     * If the {@link OMSBuiltinKeys#BATCH_LINGER_TIME} attribute of this {@code Producer} is positive, the messages
+     * sent to the same queue are grouped into batches, and each returned {@code Promise} completes individually
+     * once the batch containing its message is acknowledged.
+     * <p>
+     * If the {@link OMSBuiltinKeys#MAX_IN_FLIGHT_MESSAGES} or {@link OMSBuiltinKeys#MAX_IN_FLIGHT_BYTES} limit is
+     * reached, the call blocks, fails or drops the oldest send in flight, according to the
+     * {@link OMSBuiltinKeys#IN_FLIGHT_FULL_POLICY} attribute.
      *
      * @param message a message will be sent
      * @return the {@code Promise} of an asynchronous message send operation.
+     * @throws OMSFlowControlException if the in-flight window is full and the policy is {@code FAIL_FAST}
+     * @throws OMSTimeOutException if the in-flight window stays full for the operation timeout and the policy
+     * is {@code BLOCK}
      * @see Future
      * @see FutureListener
      */
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging;
+
+import io.openmessaging.internal.DefaultPromise;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class FuturesTest {
+    @Test
+    public void testAllOf() throws Exception {
+        List<DefaultPromise<String>> promises = promises(3);
+        Future<List<String>> all = Futures.allOf(promises);
+
+        promises.get(2).set("C");
+        promises.get(0).set("A");
+        assertThat(all.isDone()).isFalse();
+        promises.get(1).set("B");
+        assertThat(all.isDone()).isTrue();
+        assertThat(all.get()).containsExactly("A", "B", "C");
+    }
+
+    @Test
+    public void testAllOfFailure() throws Exception {
+        List<DefaultPromise<String>> promises = promises(2);
+        Future<List<String>> all = Futures.allOf(promises);
+
+        RuntimeException cause = new RuntimeException("failed");
+        promises.get(1).setFailure(cause);
+        assertThat(all.getThrowable()).isSameAs(cause);
+        promises.get(0).set("A");
+        assertThat(all.getThrowable()).isSameAs(cause);
+    }
+
+    @Test
+    public void testAllOfEmpty() throws Exception {
+        Future<List<String>> all = Futures.allOf(new ArrayList<Future<String>>());
+        assertThat(all.get()).isEmpty();
+    }
+
+    @Test
+    public void testAnyOf() throws Exception {
+        List<DefaultPromise<String>> promises = promises(3);
+        Future<String> any = Futures.anyOf(promises);
+        assertThat(any.isDone()).isFalse();
+
+        promises.get(1).set("B");
+        promises.get(0).setFailure(new RuntimeException("failed"));
+        assertThat(any.get()).isEqualTo("B");
+
+        DefaultPromise<String> done = new DefaultPromise<String>();
+        done.set("DONE");
+        assertThat(Futures.anyOf(Arrays.asList(new DefaultPromise<String>(), done)).get()).isEqualTo("DONE");
+    }
+
+    @Test
+    public void testAnyOfEmpty() throws Exception {
+        try {
+            Futures.anyOf(new ArrayList<Future<String>>());
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        } catch (IllegalArgumentException ignore) {
+        }
+    }
+
+    private static List<DefaultPromise<String>> promises(int count) {
+        List<DefaultPromise<String>> promises = new ArrayList<DefaultPromise<String>>();
+        for (int i = 0; i < count; i++) {
+            promises.add(new DefaultPromise<String>());
+        }
+        return promises;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openmessaging.interceptor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testEmpty() throws Exception {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram(1000).snapshot();
+        assertThat(snapshot.count()).isEqualTo(0);
+        assertThat(snapshot.mean()).isEqualTo(0);
+        assertThat(snapshot.valueAtPercentile(99)).isEqualTo(0);
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(TimeUnit.MINUTES.toNanos(1));
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.count()).isEqualTo(100000);
+        assertThat(snapshot.max()).isEqualTo(100000000L);
+        assertThat(snapshot.mean()).isEqualTo(50000500.0);
+        assertWithin(snapshot.valueAtPercentile(50), 50000000L);
+        assertWithin(snapshot.valueAtPercentile(99), 99000000L);
+        assertWithin(snapshot.valueAtPercentile(99.9), 99900000L);
+        assertThat(snapshot.valueAtPercentile(100)).isEqualTo(100000000L);
+        assertWithin(snapshot.valueAtPercentile(0), 1000L);
+    }
+
+    @Test
+    public void testPowerOfTwoBoundaries() throws Exception {
+        for (int bits = 8; bits < 40; bits++) {
+            LatencyHistogram histogram = new LatencyHistogram(Long.MAX_VALUE);
+            histogram.record(1L << bits);
+            histogram.record(1L << bits + 2);
+            // The highest value of the bucket of a power of two is the farthest from it
+            assertWithin(histogram.snapshot().valueAtPercentile(0), 1L << bits);
+        }
+    }
+
+    @Test
+    public void testOutOfRange() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(1000);
+        histogram.record(-5);
+        histogram.record(5000);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.count()).isEqualTo(3);
+        assertThat(snapshot.valueAtPercentile(0)).isEqualTo(0);
+        assertThat(snapshot.max()).isEqualTo(1000);
+
+        LatencyHistogram unbounded = new LatencyHistogram(Long.MAX_VALUE);
+        unbounded.record(Long.MAX_VALUE);
+        assertThat(unbounded.snapshot().valueAtPercentile(50)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram(1000000, 4);
+        final int threads = 8;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int value = 0; value < 10000; value++) {
+                        histogram.record(value);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        long previous = 0;
+        while (!done.await(1, TimeUnit.MILLISECONDS)) {
+            long count = histogram.snapshot().count();
+            assertThat(count).isGreaterThanOrEqualTo(previous);
+            previous = count;
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.count()).isEqualTo(threads * 10000L);
+        assertThat(snapshot.sum()).isEqualTo(threads * 49995000L);
+        assertThat(snapshot.max()).isEqualTo(9999);
+    }
+
+    private static void assertWithin(long actual, long expected) {
+        assertThat(Math.abs(actual - expected)).isLessThanOrEqualTo(expected / 100);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Future;
+import io.openmessaging.KeyValue;
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class AckAccumulatorTest {
+    private final RecordingTransport transport = new RecordingTransport();
+
+    @Test
+    public void testNoCoalescing() throws Exception {
+        AckAccumulator accumulator = new AckAccumulator(OMS.newKeyValue(), transport);
+        accumulator.ack("1");
+        accumulator.ack(Arrays.asList("2", "3"));
+        assertThat(transport.requests).containsExactly("[1]", "[2, 3]");
+        assertThat(accumulator.pendingAcks()).isEqualTo(0);
+        assertThat(accumulator.acks()).isEqualTo(3);
+        assertThat(accumulator.requests()).isEqualTo(2);
+    }
+
+    @Test
+    public void testMaxMessages() throws Exception {
+        AckAccumulator accumulator = new AckAccumulator(attributes(3, 60000), transport);
+        accumulator.ack("1");
+        accumulator.ack("2");
+        assertThat(transport.requests).isEmpty();
+        assertThat(accumulator.pendingAcks()).isEqualTo(2);
+        accumulator.ack(Arrays.asList("3", "4", "5", "6", "7"));
+        assertThat(transport.requests).containsExactly("[1, 2, 3]", "[4, 5, 6]", "[7]");
+        accumulator.shutdown();
+    }
+
+    @Test
+    public void testFlushInterval() throws Exception {
+        AckAccumulator accumulator = new AckAccumulator(attributes(100, 20), transport);
+        accumulator.ack("1");
+        accumulator.ack("2");
+        for (int i = 0; i < 500 && transport.requests.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(transport.requests).containsExactly("[1, 2]");
+        assertThat(accumulator.pendingAcks()).isEqualTo(0);
+        accumulator.shutdown();
+    }
+
+    @Test
+    public void testCumulative() throws Exception {
+        AckAccumulator accumulator = new AckAccumulator(attributes(100, 60000), transport);
+        for (int i = 0; i < 10; i++) {
+            accumulator.ackUpTo("stream-" + i % 2, String.valueOf(i));
+        }
+        assertThat(accumulator.pendingAcks()).isEqualTo(2);
+        accumulator.shutdown();
+        assertThat(transport.requests).containsExactly("{stream-0=8, stream-1=9}");
+        assertThat(accumulator.acks()).isEqualTo(10);
+        assertThat(accumulator.requests()).isEqualTo(1);
+
+        accumulator.ack("10");
+        assertThat(transport.requests).hasSize(2);
+    }
+
+    @Test
+    public void testFailedRequest() throws Exception {
+        AckAccumulator accumulator = new AckAccumulator(OMS.newKeyValue(), new AckTransport() {
+            @Override
+            public Future<Void> ack(List<String> messageIds) {
+                DefaultPromise<Void> promise = new DefaultPromise<Void>();
+                promise.setFailure(new RuntimeException("failed"));
+                return promise;
+            }
+
+            @Override
+            public Future<Void> ackUpTo(Map<String, String> messageIds) {
+                throw new IllegalStateException("failed");
+            }
+        });
+        accumulator.ack("1");
+        try {
+            accumulator.ackUpTo("stream", "2");
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException ignore) {
+        }
+        assertThat(accumulator.requests()).isEqualTo(2);
+        assertThat(accumulator.failedRequests()).isEqualTo(2);
+        assertThat(accumulator.pendingAcks()).isEqualTo(0);
+    }
+
+    private static KeyValue attributes(int maxMessages, long flushInterval) {
+        return OMS.newKeyValue()
+            .put(OMSBuiltinKeys.ACK_BATCH_MAX_MESSAGES, maxMessages)
+            .put(OMSBuiltinKeys.ACK_FLUSH_INTERVAL, flushInterval);
+    }
+
+    private static class RecordingTransport implements AckTransport {
+        private final List<String> requests = new CopyOnWriteArrayList<String>();
+
+        @Override
+        public Future<Void> ack(List<String> messageIds) {
+            requests.add(messageIds.toString());
+            return done();
+        }
+
+        @Override
+        public Future<Void> ackUpTo(Map<String, String> messageIds) {
+            requests.add(messageIds.toString());
+            return done();
+        }
+
+        private static Future<Void> done() {
+            DefaultPromise<Void> promise = new DefaultPromise<Void>();
+            promise.set(null);
+            return promise;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Future;
+import io.openmessaging.FutureListener;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.exception.OMSRuntimeException;
+import io.openmessaging.producer.SendResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class BatchAccumulatorTest {
+    private final RecordingTransport transport = new RecordingTransport();
+
+    @Test
+    public void testMaxMessages() throws Exception {
+        BatchAccumulator accumulator = new BatchAccumulator(attributes(3, 1024, 60000), transport);
+        Future<SendResult> first = accumulator.append(message("QUEUE_A", 1));
+        accumulator.append(message("QUEUE_B", 1));
+        accumulator.append(message("QUEUE_A", 1));
+        assertThat(transport.batches).isEmpty();
+
+        Future<SendResult> third = accumulator.append(message("QUEUE_A", 1));
+        assertThat(transport.batches).hasSize(1);
+        assertThat(transport.batches.get(0)).hasSize(3);
+        assertThat(transport.queues.get(0)).isEqualTo("QUEUE_A");
+
+        transport.complete(0);
+        assertThat(first.isDone()).isTrue();
+        assertThat(first.get().messageId()).isEqualTo("QUEUE_A-0");
+        assertThat(third.get().messageId()).isEqualTo("QUEUE_A-2");
+        accumulator.shutdown();
+    }
+
+    @Test
+    public void testMaxBytes() throws Exception {
+        BatchAccumulator accumulator = new BatchAccumulator(attributes(100, 10, 60000), transport);
+        accumulator.append(message("QUEUE_A", 4));
+        accumulator.append(message("QUEUE_A", 4));
+        assertThat(transport.batches).isEmpty();
+
+        accumulator.append(message("QUEUE_A", 4));
+        assertThat(transport.batches).hasSize(1);
+        assertThat(transport.batches.get(0)).hasSize(2);
+
+        accumulator.append(message("QUEUE_A", 20));
+        assertThat(transport.batches).hasSize(3);
+        assertThat(transport.batches.get(1)).hasSize(1);
+        assertThat(transport.batches.get(2)).hasSize(1);
+        accumulator.shutdown();
+    }
+
+    @Test
+    public void testLinger() throws Exception {
+        BatchAccumulator accumulator = new BatchAccumulator(attributes(100, 1024, 10), transport);
+        accumulator.append(message("QUEUE_A", 1));
+        accumulator.append(message("QUEUE_A", 1));
+        for (int i = 0; i < 100 && transport.batches.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(transport.batches).hasSize(1);
+        assertThat(transport.batches.get(0)).hasSize(2);
+        accumulator.shutdown();
+    }
+
+    @Test
+    public void testNoLinger() throws Exception {
+        BatchAccumulator accumulator = new BatchAccumulator(attributes(100, 1024, 0), transport);
+        accumulator.append(message("QUEUE_A", 1));
+        accumulator.append(message("QUEUE_A", 1));
+        assertThat(transport.batches).hasSize(2);
+        accumulator.shutdown();
+    }
+
+    @Test
+    public void testBatchFailure() throws Exception {
+        BatchAccumulator accumulator = new BatchAccumulator(attributes(2, 1024, 60000), transport);
+        Future<SendResult> first = accumulator.append(message("QUEUE_A", 1));
+        Future<SendResult> second = accumulator.append(message("QUEUE_A", 1));
+
+        OMSRuntimeException cause = new OMSRuntimeException("-1", "broker unavailable");
+        transport.promises.get(0).setFailure(cause);
+        assertThat(first.getThrowable()).isSameAs(cause);
+        assertThat(second.getThrowable()).isSameAs(cause);
+        accumulator.shutdown();
+    }
+
+    @Test
+    public void testThrowingListener() throws Exception {
+        BatchAccumulator accumulator = new BatchAccumulator(attributes(2, 1024, 60000), transport);
+        Future<SendResult> first = accumulator.append(message("QUEUE_A", 1));
+        Future<SendResult> second = accumulator.append(message("QUEUE_A", 1));
+        first.addListener(new FutureListener<SendResult>() {
+            @Override
+            public void operationSucceeded(Future<SendResult> future) {
+                throw new AssertionError("failed");
+            }
+
+            @Override
+            public void operationFailed(Future<SendResult> future) {
+            }
+        });
+
+        try {
+            transport.complete(0);
+            failBecauseExceptionWasNotThrown(AssertionError.class);
+        } catch (AssertionError e) {
+            // Rethrown once the whole batch is completed
+            assertThat(e).hasMessage("failed");
+        }
+        assertThat(first.isDone()).isTrue();
+        assertThat(second.isDone()).isTrue();
+        assertThat(second.get().messageId()).isEqualTo("QUEUE_A-1");
+        accumulator.shutdown();
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        BatchAccumulator accumulator = new BatchAccumulator(attributes(100, 1024, 60000), transport);
+        accumulator.append(message("QUEUE_A", 1));
+        accumulator.shutdown();
+        assertThat(transport.batches).hasSize(1);
+
+        Future<SendResult> rejected = accumulator.append(message("QUEUE_A", 1));
+        assertThat(rejected.getThrowable()).isInstanceOf(OMSRuntimeException.class);
+        assertThat(((OMSRuntimeException) rejected.getThrowable()).getErrorCode())
+            .isEqualTo(InternalErrorCode.PRODUCER_SHUTDOWN.name());
+    }
+
+    @Test
+    public void testMissingDestination() throws Exception {
+        BatchAccumulator accumulator = new BatchAccumulator(attributes(100, 1024, 0), transport);
+        try {
+            accumulator.append(new DefaultBytesMessage());
+            failBecauseExceptionWasNotThrown(OMSRuntimeException.class);
+        } catch (OMSRuntimeException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.MESSAGE_DESTINATION_MISSING.name());
+        }
+    }
+
+    private static KeyValue attributes(int maxMessages, int maxBytes, long lingerTime) {
+        return OMS.newKeyValue()
+            .put(OMSBuiltinKeys.BATCH_MAX_MESSAGES, maxMessages)
+            .put(OMSBuiltinKeys.BATCH_MAX_BYTES, maxBytes)
+            .put(OMSBuiltinKeys.BATCH_LINGER_TIME, lingerTime);
+    }
+
+    private static Message message(String queue, int size) {
+        return new DefaultBytesMessage(queue, new byte[size]);
+    }
+
+    private static class RecordingTransport implements BatchTransport {
+        private final List<String> queues = new CopyOnWriteArrayList<String>();
+        private final List<List<Message>> batches = new CopyOnWriteArrayList<List<Message>>();
+        private final List<DefaultPromise<List<SendResult>>> promises =
+            new CopyOnWriteArrayList<DefaultPromise<List<SendResult>>>();
+
+        @Override
+        public Future<List<SendResult>> sendBatch(String queue, List<Message> messages) {
+            DefaultPromise<List<SendResult>> promise = new DefaultPromise<List<SendResult>>();
+            queues.add(queue);
+            batches.add(messages);
+            promises.add(promise);
+            return promise;
+        }
+
+        void complete(int batch) {
+            List<SendResult> results = new ArrayList<SendResult>();
+            for (int i = 0; i < batches.get(batch).size(); i++) {
+                final String messageId = queues.get(batch) + "-" + i;
+                results.add(new SendResult() {
+                    @Override
+                    public String messageId() {
+                        return messageId;
+                    }
+                });
+            }
+            promises.get(batch).set(results);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BuiltinKeyRegistryTest {
+    private static final String[] ATTRIBUTE_KEYS = {
+        OMSBuiltinKeys.DRIVER_IMPL,
+        OMSBuiltinKeys.ACCESS_POINTS,
+        OMSBuiltinKeys.NAMESPACE,
+        OMSBuiltinKeys.ACCOUNT_ID,
+        OMSBuiltinKeys.REGION,
+        OMSBuiltinKeys.PRODUCER_ID,
+        OMSBuiltinKeys.CONSUMER_ID,
+        OMSBuiltinKeys.OPERATION_TIMEOUT,
+        OMSBuiltinKeys.ROUTING_SOURCE,
+        OMSBuiltinKeys.ROUTING_DESTINATION,
+        OMSBuiltinKeys.ROUTING_EXPRESSION
+    };
+
+    @Test
+    public void testOrdinalOf() throws Exception {
+        assertThat(BuiltinKeyRegistry.ordinalOf(Message.BuiltinKeys.MESSAGE_ID)).isEqualTo(0);
+        assertThat(BuiltinKeyRegistry.ordinalOf(new String("BORN_TIMESTAMP")))
+            .isEqualTo(BuiltinKeyRegistry.ordinalOf(Message.BuiltinKeys.BORN_TIMESTAMP));
+        assertThat(BuiltinKeyRegistry.ordinalOf(OMSBuiltinKeys.OPERATION_TIMEOUT))
+            .isGreaterThanOrEqualTo(BuiltinKeyRegistry.MESSAGE_KEYS);
+        assertThat(BuiltinKeyRegistry.ordinalOf("UserKey")).isEqualTo(-1);
+        assertThat(BuiltinKeyRegistry.ordinalOf(null)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testAllBuiltinKeysRegistered() throws Exception {
+        Set<Integer> ordinals = new HashSet<Integer>();
+        for (Field field : Message.BuiltinKeys.class.getFields()) {
+            int ordinal = BuiltinKeyRegistry.ordinalOf((String) field.get(null));
+            assertThat(ordinal).isGreaterThanOrEqualTo(0).isLessThan(BuiltinKeyRegistry.MESSAGE_KEYS);
+            ordinals.add(ordinal);
+        }
+        for (String key : ATTRIBUTE_KEYS) {
+            int ordinal = BuiltinKeyRegistry.ordinalOf(key);
+            assertThat(ordinal).isGreaterThanOrEqualTo(BuiltinKeyRegistry.MESSAGE_KEYS);
+            assertThat(BuiltinKeyRegistry.keyOf(ordinal)).isEqualTo(key);
+            ordinals.add(ordinal);
+        }
+        assertThat(ordinals).hasSize(BuiltinKeyRegistry.size());
+        assertThat(BuiltinKeyRegistry.size()).isLessThanOrEqualTo(BuiltinKeyRegistry.MAX_KEYS);
+    }
+
+    @Test
+    public void testTuningKeysNotRegistered() throws Exception {
+        List<String> attributeKeys = Arrays.asList(ATTRIBUTE_KEYS);
+        for (Field field : OMSBuiltinKeys.class.getFields()) {
+            String key = (String) field.get(null);
+            if (!attributeKeys.contains(key)) {
+                assertThat(BuiltinKeyRegistry.ordinalOf(key)).isEqualTo(-1);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Message;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class BytesMessagePoolTest {
+    @Test
+    public void testAcquireAndRelease() throws Exception {
+        BytesMessagePool pool = new BytesMessagePool(4, false);
+        PooledBytesMessage message = pool.acquire("HELLO_QUEUE");
+        message.putUserHeaders("UserKey", "USER");
+        ByteBuffer writer = message.bodyWriter(16);
+        writer.put("HELLO_BODY".getBytes());
+        message.commitBody();
+
+        assertThat(message.sysHeaders().getString(Message.BuiltinKeys.DESTINATION)).isEqualTo("HELLO_QUEUE");
+        assertThat(message.getBodyLength()).isEqualTo(10);
+        assertThat(message.getBody()).isEqualTo("HELLO_BODY".getBytes());
+
+        message.release();
+        assertThat(pool.idle()).isEqualTo(1);
+
+        PooledBytesMessage reused = pool.acquire("OTHER_QUEUE");
+        assertThat(reused).isSameAs(message);
+        assertThat(reused.userHeaders().containsKey("UserKey")).isFalse();
+        assertThat(reused.sysHeaders().getString(Message.BuiltinKeys.DESTINATION)).isEqualTo("OTHER_QUEUE");
+        assertThat(reused.getBody()).isNull();
+        assertThat(reused.bodyWriter(8)).isSameAs(writer);
+    }
+
+    @Test
+    public void testDoubleRelease() throws Exception {
+        BytesMessagePool pool = new BytesMessagePool(4, false);
+        PooledBytesMessage message = pool.acquire("HELLO_QUEUE");
+        message.release();
+        try {
+            message.release();
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException ignore) {
+        }
+        assertThat(pool.idle()).isEqualTo(1);
+    }
+
+    @Test
+    public void testLeakDetection() throws Exception {
+        BytesMessagePool pool = new BytesMessagePool(4, true);
+        pool.acquire("HELLO_QUEUE");
+        pool.acquire("HELLO_QUEUE").release();
+
+        for (int i = 0; i < 50 && pool.leaks() == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertThat(pool.leaks()).isEqualTo(1);
+        assertThat(pool.lastLeak()).hasMessageContaining("never released");
+    }
+}
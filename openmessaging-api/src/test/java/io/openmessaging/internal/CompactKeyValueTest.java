@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactKeyValueTest {
+    private KeyValue keyValue = new CompactKeyValue();
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        keyValue.put("IntKey", 123);
+        assertThat(keyValue.getInt("IntKey")).isEqualTo(123);
+
+        keyValue.put("StringKey", "HELLO");
+        assertThat(keyValue.getString("StringKey")).isEqualTo("HELLO");
+
+        keyValue.put("LongKey", 123L);
+        assertThat(keyValue.getLong("LongKey")).isEqualTo(123L);
+
+        keyValue.put("DoubleKey", 1.23);
+        assertThat(keyValue.getDouble("DoubleKey")).isEqualTo(1.23);
+    }
+
+    @Test
+    public void testReplace() throws Exception {
+        keyValue.put("ReplaceKey", "HELLO");
+        keyValue.put("ReplaceKey", 10L);
+        assertThat(keyValue.getLong("ReplaceKey")).isEqualTo(10L);
+        assertThat(keyValue.getString("ReplaceKey")).isEqualTo("10");
+        assertThat(keyValue.keySet()).hasSize(1);
+    }
+
+    @Test
+    public void testGrow() throws Exception {
+        KeyValue small = new CompactKeyValue(1);
+        for (int i = 0; i < 1000; i++) {
+            small.put("Key" + i, i);
+        }
+        assertThat(small.keySet()).hasSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(small.getInt("Key" + i)).isEqualTo(i);
+        }
+        assertThat(small.containsKey("Key1000")).isFalse();
+    }
+
+    @Test
+    public void testBuiltinKeys() throws Exception {
+        keyValue.put(Message.BuiltinKeys.BORN_TIMESTAMP, 1510000000000L);
+        keyValue.put(Message.BuiltinKeys.DESTINATION, "HELLO_QUEUE");
+        keyValue.put(OMSBuiltinKeys.OPERATION_TIMEOUT, 3000);
+        keyValue.put("UserKey", "USER");
+
+        assertThat(keyValue.getLong(Message.BuiltinKeys.BORN_TIMESTAMP)).isEqualTo(1510000000000L);
+        assertThat(keyValue.getString(new String("DESTINATION"))).isEqualTo("HELLO_QUEUE");
+        assertThat(keyValue.getLong(OMSBuiltinKeys.OPERATION_TIMEOUT)).isEqualTo(3000L);
+        assertThat(keyValue.containsKey(Message.BuiltinKeys.MESSAGE_ID)).isFalse();
+        assertThat(keyValue.getString(Message.BuiltinKeys.MESSAGE_ID)).isNull();
+        assertThat(keyValue.keySet()).containsOnly(Message.BuiltinKeys.BORN_TIMESTAMP,
+            Message.BuiltinKeys.DESTINATION, OMSBuiltinKeys.OPERATION_TIMEOUT, "UserKey");
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        CompactKeyValue compact = new CompactKeyValue();
+        compact.put(Message.BuiltinKeys.MESSAGE_ID, "ID");
+        compact.put("UserKey", 1);
+        compact.clear();
+        assertThat(compact.keySet()).isEmpty();
+        assertThat(compact.containsKey(Message.BuiltinKeys.MESSAGE_ID)).isFalse();
+
+        compact.put("UserKey", 2);
+        assertThat(compact.getInt("UserKey")).isEqualTo(2);
+    }
+
+    @Test
+    public void testKeySet() throws Exception {
+        keyValue.put("IndexKey", 123);
+        keyValue.put("OtherKey", "VALUE");
+        assertThat(keyValue.keySet()).containsOnly("IndexKey", "OtherKey");
+    }
+
+    @Test
+    public void testContainsKey() throws Exception {
+        keyValue.put("ContainsKey", 123);
+        assertThat(keyValue.containsKey("ContainsKey")).isTrue();
+        assertThat(keyValue.containsKey("AbsentKey")).isFalse();
+        assertThat(keyValue.getString("AbsentKey", "DEFAULT")).isEqualTo("DEFAULT");
+    }
+}
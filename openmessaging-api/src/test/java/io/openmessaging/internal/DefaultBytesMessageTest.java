@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.Message;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class DefaultBytesMessageTest {
+    private byte[] content = "HELLO_BODY".getBytes();
+
+    @Test
+    public void testArrayBody() throws Exception {
+        BytesMessage message = new DefaultBytesMessage("HELLO_QUEUE", content);
+        assertThat(message.sysHeaders().getString(Message.BuiltinKeys.DESTINATION)).isEqualTo("HELLO_QUEUE");
+        assertThat(message.getBody()).isSameAs(content);
+        assertThat(message.getBodyLength()).isEqualTo(content.length);
+        assertThat(message.getBodyBuffer().remaining()).isEqualTo(content.length);
+    }
+
+    @Test
+    public void testDirectBufferBody() throws Exception {
+        ByteBuffer direct = ByteBuffer.allocateDirect(32);
+        direct.put("XXHELLO_BODYXX".getBytes());
+        direct.position(2);
+        direct.limit(12);
+
+        BytesMessage message = new DefaultBytesMessage("HELLO_QUEUE", direct);
+        assertThat(direct.position()).isEqualTo(2);
+        assertThat(direct.limit()).isEqualTo(12);
+        assertThat(message.getBodyLength()).isEqualTo(10);
+
+        ByteBuffer view = message.getBodyBuffer();
+        assertThat(view.isDirect()).isTrue();
+        assertThat(view.isReadOnly()).isTrue();
+        assertThat(view.get(0)).isEqualTo((byte) 'H');
+
+        byte[] body = message.getBody();
+        assertThat(body).isEqualTo(content);
+        assertThat(message.getBody()).isSameAs(body);
+    }
+
+    @Test
+    public void testBodySlice() throws Exception {
+        BytesMessage message = new DefaultBytesMessage("HELLO_QUEUE", ByteBuffer.wrap(content));
+        ByteBuffer slice = message.getBodyBuffer(6, 4);
+        assertThat(slice.remaining()).isEqualTo(4);
+        assertThat(slice.get()).isEqualTo((byte) 'B');
+
+        try {
+            slice.put(0, (byte) 0);
+            failBecauseExceptionWasNotThrown(ReadOnlyBufferException.class);
+        } catch (ReadOnlyBufferException ignore) {
+        }
+
+        try {
+            message.getBodyBuffer(8, 4);
+            failBecauseExceptionWasNotThrown(IndexOutOfBoundsException.class);
+        } catch (IndexOutOfBoundsException ignore) {
+        }
+    }
+
+    @Test
+    public void testNullBody() throws Exception {
+        BytesMessage message = new DefaultBytesMessage();
+        assertThat(message.getBody()).isNull();
+        assertThat(message.getBodyBuffer()).isNull();
+        assertThat(message.getBodyLength()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Future;
+import io.openmessaging.FutureListener;
+import io.openmessaging.OMS;
+import io.openmessaging.exception.OMSRuntimeException;
+import io.openmessaging.exception.OMSTimeOutException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class DefaultPromiseTest {
+    @Test
+    public void testSet() throws Exception {
+        final DefaultPromise<String> promise = new DefaultPromise<String>();
+        final List<String> notified = new ArrayList<String>();
+        promise.addListener(new RecordingListener(notified, "first"));
+        promise.addListener(new RecordingListener(notified, "second"));
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                promise.set("HELLO");
+            }
+        }).start();
+        assertThat(promise.get()).isEqualTo("HELLO");
+        assertThat(promise.isDone()).isTrue();
+        assertThat(promise.set("OTHER")).isFalse();
+        assertThat(promise.get()).isEqualTo("HELLO");
+
+        promise.addListener(new RecordingListener(notified, "third"));
+        assertThat(notified).containsExactly("first succeeded", "second succeeded", "third succeeded");
+    }
+
+    @Test
+    public void testSetNull() throws Exception {
+        DefaultPromise<String> promise = new DefaultPromise<String>();
+        assertThat(promise.set(null)).isTrue();
+        assertThat(promise.isDone()).isTrue();
+        assertThat(promise.get(10)).isNull();
+        assertThat(promise.getThrowable()).isNull();
+    }
+
+    @Test
+    public void testSetFailure() throws Exception {
+        DefaultPromise<String> promise = new DefaultPromise<String>();
+        List<String> notified = new ArrayList<String>();
+        promise.addListener(new RecordingListener(notified, "first"));
+
+        RuntimeException cause = new RuntimeException("failed");
+        assertThat(promise.setFailure(cause)).isTrue();
+        assertThat(promise.getThrowable()).isSameAs(cause);
+        assertThat(promise.cancel(false)).isFalse();
+        assertThat(promise.isCancelled()).isFalse();
+        assertThat(notified).containsExactly("first failed");
+        try {
+            promise.get();
+            failBecauseExceptionWasNotThrown(OMSRuntimeException.class);
+        } catch (OMSRuntimeException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.FUTURE_FAILED.name());
+            assertThat(e.getCause()).isSameAs(cause);
+        }
+    }
+
+    @Test
+    public void testThrowingListener() throws Exception {
+        final DefaultPromise<String> promise = new DefaultPromise<String>();
+        List<String> notified = new ArrayList<String>();
+        promise.addListener(new RecordingListener(notified, "first") {
+            @Override
+            public void operationSucceeded(Future<String> future) {
+                throw new StackOverflowError();
+            }
+        });
+        promise.addListener(new RecordingListener(notified, "second") {
+            @Override
+            public void operationSucceeded(Future<String> future) {
+                throw new IllegalStateException();
+            }
+        });
+        promise.addListener(new RecordingListener(notified, "third"));
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                waiting.countDown();
+                results.add(promise.get());
+            }
+        });
+        waiter.start();
+        waiting.await();
+        Thread.sleep(20);
+
+        // The exceptions are ignored, the errors are rethrown once the next listeners are notified
+        try {
+            promise.set("HELLO");
+            failBecauseExceptionWasNotThrown(StackOverflowError.class);
+        } catch (StackOverflowError expected) {
+        }
+        assertThat(promise.isDone()).isTrue();
+        waiter.join(5000);
+        assertThat(notified).containsExactly("third succeeded");
+        assertThat(results).containsExactly("HELLO");
+    }
+
+    @Test
+    public void testThrowingListenerAddedWhenDone() throws Exception {
+        DefaultPromise<String> promise = new DefaultPromise<String>();
+        promise.set("HELLO");
+        List<String> notified = new ArrayList<String>();
+        promise.addListener(new RecordingListener(notified, "first") {
+            @Override
+            public void operationSucceeded(Future<String> future) {
+                throw new IllegalStateException();
+            }
+        });
+        promise.addListener(new RecordingListener(notified, "second"));
+        assertThat(notified).containsExactly("second succeeded");
+        try {
+            promise.addListener(new RecordingListener(notified, "third") {
+                @Override
+                public void operationSucceeded(Future<String> future) {
+                    throw new StackOverflowError();
+                }
+            });
+            failBecauseExceptionWasNotThrown(StackOverflowError.class);
+        } catch (StackOverflowError expected) {
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        DefaultPromise<String> promise = new DefaultPromise<String>();
+        assertThat(promise.cancel(false)).isTrue();
+        assertThat(promise.isCancelled()).isTrue();
+        assertThat(promise.isDone()).isTrue();
+        assertThat(promise.getThrowable()).isInstanceOf(CancellationException.class);
+        assertThat(promise.set("HELLO")).isFalse();
+    }
+
+    @Test
+    public void testGetTimeout() throws Exception {
+        DefaultPromise<String> promise = new DefaultPromise<String>();
+        try {
+            promise.get(10);
+            failBecauseExceptionWasNotThrown(OMSTimeOutException.class);
+        } catch (OMSTimeOutException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.FUTURE_TIMEOUT.name());
+        }
+        assertThat(promise.isDone()).isFalse();
+        promise.set("HELLO");
+        assertThat(promise.get(10)).isEqualTo("HELLO");
+    }
+
+    @Test
+    public void testGetTimeoutUnlinksWaiter() throws Exception {
+        DefaultPromise<String> promise = new DefaultPromise<String>();
+        List<String> notified = new ArrayList<String>();
+        promise.addListener(new RecordingListener(notified, "first"));
+        for (int i = 0; i < 1000; i++) {
+            try {
+                promise.get(0);
+                failBecauseExceptionWasNotThrown(OMSTimeOutException.class);
+            } catch (OMSTimeOutException expected) {
+            }
+        }
+        Thread.currentThread().interrupt();
+        try {
+            promise.get();
+            failBecauseExceptionWasNotThrown(OMSRuntimeException.class);
+        } catch (OMSRuntimeException e) {
+            assertThat(e.getCause()).isInstanceOf(InterruptedException.class);
+            assertThat(Thread.interrupted()).isTrue();
+        }
+        promise.addListener(new RecordingListener(notified, "second"));
+        // Only the listeners are left in the stack
+        assertThat(stackSize(promise)).isEqualTo(2);
+
+        promise.set("HELLO");
+        assertThat(notified).containsExactly("first succeeded", "second succeeded");
+    }
+
+    @Test
+    public void testExecutorListener() throws Exception {
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch notified = new CountDownLatch(3);
+        ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "callback");
+            }
+        });
+        FutureListener<String> listener = new FutureListener<String>() {
+            @Override
+            public void operationSucceeded(Future<String> future) {
+                threads.add(Thread.currentThread().getName());
+                notified.countDown();
+            }
+
+            @Override
+            public void operationFailed(Future<String> future) {
+            }
+        };
+        DefaultPromise<String> promise = new DefaultPromise<String>();
+        promise.addListener(listener, executor);
+        promise.addListener(listener, OMS.directExecutor());
+        promise.set("HELLO");
+        promise.addListener(listener, executor);
+        assertThat(notified.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(threads).containsOnly("callback", Thread.currentThread().getName()).hasSize(3);
+
+        promise.addListener(listener, executor);
+        assertThat(threads).hasSize(4);
+        assertThat(threads.get(3)).isEqualTo(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void testConcurrentCompletion() throws Exception {
+        final int threads = 8;
+        for (int round = 0; round < 200; round++) {
+            final DefaultPromise<Integer> promise = new DefaultPromise<Integer>();
+            final CountDownLatch start = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(threads * 2);
+            final AtomicInteger wins = new AtomicInteger();
+            final AtomicInteger notifications = new AtomicInteger();
+            final List<Integer> results = Collections.synchronizedList(new ArrayList<Integer>());
+            for (int i = 0; i < threads; i++) {
+                final int value = i;
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        awaitQuietly(start);
+                        promise.addListener(new FutureListener<Integer>() {
+                            @Override
+                            public void operationSucceeded(Future<Integer> future) {
+                                notifications.incrementAndGet();
+                            }
+
+                            @Override
+                            public void operationFailed(Future<Integer> future) {
+                                notifications.incrementAndGet();
+                            }
+                        });
+                        if (promise.set(value)) {
+                            wins.incrementAndGet();
+                        }
+                        done.countDown();
+                    }
+                }).start();
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        awaitQuietly(start);
+                        // Half of the threads give up waiting repeatedly, unlinking their nodes meanwhile
+                        while (value % 2 == 1 && !promise.isDone()) {
+                            try {
+                                promise.get(0);
+                            } catch (OMSTimeOutException ignore) {
+                            }
+                        }
+                        results.add(promise.get());
+                        done.countDown();
+                    }
+                }).start();
+            }
+            start.countDown();
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(wins.get()).isEqualTo(1);
+            assertThat(notifications.get()).isEqualTo(threads);
+            assertThat(results).hasSize(threads);
+            assertThat(new HashSet<Integer>(results)).containsOnly(promise.get());
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int stackSize(DefaultPromise<?> promise) throws Exception {
+        Field state = DefaultPromise.class.getDeclaredField("state");
+        state.setAccessible(true);
+        Object node = state.get(promise);
+        int size = 0;
+        while (node != null) {
+            Field next = node.getClass().getDeclaredField("next");
+            next.setAccessible(true);
+            node = next.get(node);
+            size++;
+        }
+        return size;
+    }
+
+    private static class RecordingListener implements FutureListener<String> {
+        private final List<String> notified;
+        private final String name;
+
+        RecordingListener(List<String> notified, String name) {
+            this.notified = notified;
+            this.name = name;
+        }
+
+        @Override
+        public void operationSucceeded(Future<String> future) {
+            notified.add(name + " succeeded");
+        }
+
+        @Override
+        public void operationFailed(Future<String> future) {
+            notified.add(name + " failed");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlowCreditsTest {
+    @Test
+    public void testMessageCredits() throws Exception {
+        FlowCredits credits = new FlowCredits(OMS.newKeyValue().put(OMSBuiltinKeys.CONSUME_CREDIT_MESSAGES, 2));
+        assertThat(credits.availableMessages()).isEqualTo(2);
+        assertThat(credits.availableBytes()).isEqualTo(Long.MAX_VALUE);
+        credits.acquire(1, 100);
+        assertThat(credits.await(10)).isTrue();
+        credits.acquire(1, 100);
+        assertThat(credits.availableMessages()).isEqualTo(0);
+        assertThat(credits.hasCredit()).isFalse();
+        assertThat(credits.await(10)).isFalse();
+        assertThat(credits.stalls()).isEqualTo(1);
+        assertThat(credits.stallNanos()).isGreaterThanOrEqualTo(10000000L);
+
+        credits.release(1, 100);
+        assertThat(credits.availableMessages()).isEqualTo(1);
+        assertThat(credits.await(10)).isTrue();
+    }
+
+    @Test
+    public void testByteCredits() throws Exception {
+        FlowCredits credits = new FlowCredits(OMS.newKeyValue().put(OMSBuiltinKeys.CONSUME_CREDIT_BYTES, 100));
+        credits.acquire(1, 150);
+        // An oversized message overdraws the credits
+        assertThat(credits.availableBytes()).isEqualTo(0);
+        assertThat(credits.hasCredit()).isFalse();
+        credits.release(1, 150);
+        assertThat(credits.availableBytes()).isEqualTo(100);
+        assertThat(credits.hasCredit()).isTrue();
+    }
+
+    @Test
+    public void testReleaseWakesWaiter() throws Exception {
+        final FlowCredits credits = new FlowCredits(OMS.newKeyValue().put(OMSBuiltinKeys.CONSUME_CREDIT_MESSAGES, 1));
+        credits.acquire(1, 0);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignore) {
+                }
+                credits.release(1, 0);
+            }
+        }).start();
+        assertThat(credits.await(5000)).isTrue();
+        assertThat(credits.stallNanos()).isPositive();
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final FlowCredits credits = new FlowCredits(OMS.newKeyValue().put(OMSBuiltinKeys.CONSUME_CREDIT_MESSAGES, 1));
+        credits.acquire(1, 0);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignore) {
+                }
+                credits.close();
+            }
+        }).start();
+        assertThat(credits.await(0)).isFalse();
+        assertThat(FlowCredits.isLimited(OMS.newKeyValue())).isFalse();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class HashedWheelTimerTest {
+    private final HashedWheelTimer timer = new HashedWheelTimer("test-timer", 1, TimeUnit.MILLISECONDS, 8);
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        final List<Integer> expired = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch latch = new CountDownLatch(3);
+        // The delays span several rounds of the wheel
+        int[] delays = {40, 5, 20};
+        for (final int delay : delays) {
+            timer.newTimeout(new Runnable() {
+                @Override
+                public void run() {
+                    expired.add(delay);
+                    latch.countDown();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        long start = System.nanoTime();
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(39);
+        assertThat(expired).containsExactly(5, 20, 40);
+        assertThat(timer.pendingTimeouts()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        HashedWheelTimer.Timeout cancelled = timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 1000, TimeUnit.MILLISECONDS);
+        assertThat(timer.pendingTimeouts()).isEqualTo(1);
+        assertThat(cancelled.cancel()).isTrue();
+        assertThat(cancelled.cancel()).isFalse();
+        assertThat(cancelled.isCancelled()).isTrue();
+        assertThat(timer.pendingTimeouts()).isEqualTo(0);
+
+        HashedWheelTimer.Timeout expired = timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, 30, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 500 && !expired.isExpired(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(expired.isExpired()).isTrue();
+        assertThat(expired.cancel()).isFalse();
+        assertThat(latch.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testThrowingTask() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                throw new StackOverflowError();
+            }
+        }, 1, TimeUnit.MILLISECONDS);
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 20, TimeUnit.MILLISECONDS);
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        timer.stop();
+        try {
+            timer.newTimeout(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }, 1, TimeUnit.MILLISECONDS);
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException ignore) {
+        }
+    }
+}
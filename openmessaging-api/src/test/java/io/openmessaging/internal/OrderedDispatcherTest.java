@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderedDispatcherTest {
+    @Test
+    public void testOrderPerKey() throws Exception {
+        OrderedDispatcher dispatcher = new OrderedDispatcher("test", attributes(4, 8));
+        dispatcher.startup();
+        List<List<Integer>> runs = new ArrayList<List<Integer>>();
+        for (int key = 0; key < 10; key++) {
+            runs.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertThat(dispatcher.dispatch("key-" + i % 10, new Recording(runs.get(i % 10), i))).isTrue();
+        }
+        dispatcher.shutdown();
+        assertThat(dispatcher.completedTasks()).isEqualTo(1000);
+        for (int key = 0; key < 10; key++) {
+            List<Integer> run = runs.get(key);
+            assertThat(run).hasSize(100);
+            for (int j = 0; j < run.size(); j++) {
+                assertThat(run.get(j)).isEqualTo(key + j * 10);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentKeys() throws Exception {
+        OrderedDispatcher dispatcher = new OrderedDispatcher("test", attributes(2, 8));
+        dispatcher.startup();
+        final CountDownLatch started = new CountDownLatch(2);
+        Runnable rendezvous = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    started.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        // Keys of distinct lanes, the tasks can only meet if they run concurrently
+        dispatcher.dispatch("a", rendezvous);
+        dispatcher.dispatch("b", rendezvous);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testBoundedQueue() throws Exception {
+        OrderedDispatcher dispatcher = new OrderedDispatcher("test", attributes(1, 1));
+        dispatcher.startup();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch running = new CountDownLatch(1);
+        dispatcher.dispatch(null, new Runnable() {
+            @Override
+            public void run() {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(dispatcher.dispatch(null, new Recording(null, 0), 10)).isTrue();
+        assertThat(dispatcher.queuedTasks()).isEqualTo(1);
+        assertThat(dispatcher.dispatch(null, new Recording(null, 0), 10)).isFalse();
+        release.countDown();
+        dispatcher.shutdown();
+        assertThat(dispatcher.completedTasks()).isEqualTo(2);
+        assertThat(dispatcher.dispatch(null, new Recording(null, 0))).isFalse();
+    }
+
+    @Test
+    public void testFailedTask() throws Exception {
+        OrderedDispatcher dispatcher = new OrderedDispatcher("test", attributes(1, 8));
+        dispatcher.startup();
+        dispatcher.dispatch("key", new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("failed");
+            }
+        });
+        List<Integer> run = new ArrayList<Integer>();
+        dispatcher.dispatch("key", new Recording(run, 1));
+        dispatcher.shutdown();
+        assertThat(dispatcher.failedTasks()).isEqualTo(1);
+        assertThat(run).containsExactly(1);
+    }
+
+    @Test
+    public void testFailingTask() throws Exception {
+        OrderedDispatcher dispatcher = new OrderedDispatcher("test", attributes(1, 1));
+        dispatcher.startup();
+        List<Integer> run = Collections.synchronizedList(new ArrayList<Integer>());
+        assertThat(dispatcher.dispatch("a", new Runnable() {
+            @Override
+            public void run() {
+                throw new AssertionError("failed");
+            }
+        })).isTrue();
+        for (int i = 0; i < 3; i++) {
+            assertThat(dispatcher.dispatch("a", new Recording(run, i), 5000)).isTrue();
+        }
+        dispatcher.shutdown();
+        assertThat(run).containsExactly(0, 1, 2);
+        assertThat(dispatcher.failedTasks()).isEqualTo(1);
+        assertThat(dispatcher.completedTasks()).isEqualTo(4);
+    }
+
+    private static KeyValue attributes(int threads, int capacity) {
+        return OMS.newKeyValue()
+            .put(OMSBuiltinKeys.CONSUME_THREADS, threads)
+            .put(OMSBuiltinKeys.CONSUME_QUEUE_CAPACITY, capacity);
+    }
+
+    private static class Recording implements Runnable {
+        private final List<Integer> run;
+        private final int index;
+
+        Recording(List<Integer> run, int index) {
+            this.run = run;
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            if (run != null) {
+                run.add(index);
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Future;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.exception.OMSRuntimeException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class PrefetchBufferTest {
+    private final PendingFetcher fetcher = new PendingFetcher();
+    private final AtomicInteger available = new AtomicInteger();
+    private final Runnable availability = new Runnable() {
+        @Override
+        public void run() {
+            available.incrementAndGet();
+        }
+    };
+
+    @Test
+    public void testRefillBelowLowWaterMark() throws Exception {
+        PrefetchBuffer buffer = new PrefetchBuffer("HELLO_QUEUE", attributes(4, 1024, 50), fetcher, availability);
+        buffer.start();
+        assertThat(fetcher.requests).containsExactly("4/1024");
+        assertThat(buffer.poll()).isNull();
+        assertThat(fetcher.requests).hasSize(1);
+
+        fetcher.complete(0, message(10), message(10), message(10), message(10));
+        assertThat(available.get()).isEqualTo(1);
+        assertThat(buffer.bufferedMessages()).isEqualTo(4);
+        assertThat(buffer.bufferedBytes()).isEqualTo(40);
+        assertThat(buffer.refills()).isEqualTo(1);
+        assertThat(buffer.maxRefillNanos()).isGreaterThan(0);
+
+        assertThat(buffer.poll()).isNotNull();
+        assertThat(buffer.poll()).isNotNull();
+        assertThat(fetcher.requests).hasSize(1);
+        assertThat(buffer.poll()).isNotNull();
+        assertThat(fetcher.requests).containsExactly("4/1024", "3/1014");
+
+        // Fetches again right away after an empty long-poll
+        fetcher.complete(1);
+        assertThat(fetcher.requests).hasSize(3);
+        assertThat(buffer.refills()).isEqualTo(1);
+        List<Message> messages = new ArrayList<Message>();
+        assertThat(buffer.poll(10, messages)).isEqualTo(1);
+        assertThat(buffer.poll(10, messages)).isEqualTo(0);
+        assertThat(buffer.emptyPolls()).isEqualTo(2);
+    }
+
+    @Test
+    public void testMaxBytes() throws Exception {
+        PrefetchBuffer buffer = new PrefetchBuffer("HELLO_QUEUE", attributes(100, 100, 50), fetcher, availability);
+        buffer.start();
+        fetcher.complete(0, message(30), message(30), message(30));
+        assertThat(buffer.poll()).isNotNull();
+        assertThat(fetcher.requests).hasSize(1);
+        assertThat(buffer.poll()).isNotNull();
+        assertThat(fetcher.requests).containsExactly("100/100", "99/70");
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        PrefetchBuffer buffer = new PrefetchBuffer("HELLO_QUEUE", attributes(4, 1024, 50), fetcher, availability);
+        buffer.start();
+        RuntimeException cause = new RuntimeException("failed");
+        fetcher.promises.get(0).setFailure(cause);
+        assertThat(fetcher.requests).hasSize(1);
+        try {
+            buffer.poll();
+            failBecauseExceptionWasNotThrown(OMSRuntimeException.class);
+        } catch (OMSRuntimeException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.PREFETCH_FAILED.name());
+            assertThat(e.getCause()).isSameAs(cause);
+        }
+        assertThat(buffer.poll()).isNull();
+        assertThat(fetcher.requests).hasSize(2);
+    }
+
+    @Test
+    public void testCompletedEmptyFetches() throws Exception {
+        final AtomicInteger fetches = new AtomicInteger();
+        PrefetchBuffer buffer = new PrefetchBuffer("HELLO_QUEUE", attributes(4, 1024, 50), new MessageFetcher() {
+            @Override
+            public Future<List<Message>> fetch(String queue, int maxMessages, long maxBytes) {
+                fetches.incrementAndGet();
+                DefaultPromise<List<Message>> promise = new DefaultPromise<List<Message>>();
+                promise.set(new ArrayList<Message>());
+                return promise;
+            }
+
+            @Override
+            public void release(String queue, List<Message> messages) {
+            }
+        }, availability);
+        buffer.start();
+        Thread.sleep(300);
+        buffer.close();
+        // Backs off from a millisecond up to 100 milliseconds, instead of recursing or spinning
+        assertThat(fetches.get()).isGreaterThan(2).isLessThan(50);
+    }
+
+    @Test
+    public void testCompletedFetches() throws Exception {
+        final AtomicInteger fetches = new AtomicInteger();
+        PrefetchBuffer buffer = new PrefetchBuffer("HELLO_QUEUE", attributes(50000, 1024 * 1024, 100),
+            new MessageFetcher() {
+                @Override
+                public Future<List<Message>> fetch(String queue, int maxMessages, long maxBytes) {
+                    fetches.incrementAndGet();
+                    DefaultPromise<List<Message>> promise = new DefaultPromise<List<Message>>();
+                    promise.set(Arrays.asList(message(1)));
+                    return promise;
+                }
+
+                @Override
+                public void release(String queue, List<Message> messages) {
+                }
+            }, availability);
+        buffer.start();
+        assertThat(buffer.bufferedMessages()).isEqualTo(50000);
+        assertThat(fetches.get()).isEqualTo(50000);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        PrefetchBuffer buffer = new PrefetchBuffer("HELLO_QUEUE", attributes(4, 1024, 50), fetcher, availability);
+        buffer.start();
+        Message first = message(10);
+        Message second = message(10);
+        fetcher.complete(0, first, second);
+        assertThat(buffer.poll()).isSameAs(first);
+        buffer.close();
+        // The undelivered messages are given back, along with the ones of the fetch in flight
+        assertThat(fetcher.released).containsExactly(second);
+        Message late = message(10);
+        fetcher.complete(1, late);
+        assertThat(fetcher.released).containsExactly(second, late);
+        assertThat(buffer.releasedMessages()).isEqualTo(2);
+        assertThat(buffer.bufferedMessages()).isEqualTo(0);
+        assertThat(buffer.poll()).isNull();
+        assertThat(fetcher.requests).hasSize(2);
+    }
+
+    private static KeyValue attributes(int maxMessages, long maxBytes, int lowWaterMark) {
+        return OMS.newKeyValue()
+            .put(OMSBuiltinKeys.PREFETCH_MAX_MESSAGES, maxMessages)
+            .put(OMSBuiltinKeys.PREFETCH_MAX_BYTES, maxBytes)
+            .put(OMSBuiltinKeys.PREFETCH_LOW_WATER_MARK, lowWaterMark);
+    }
+
+    private static Message message(int size) {
+        return new DefaultBytesMessage("HELLO_QUEUE", new byte[size]);
+    }
+
+    private static class PendingFetcher implements MessageFetcher {
+        private final List<String> requests = new CopyOnWriteArrayList<String>();
+        private final List<DefaultPromise<List<Message>>> promises =
+            new CopyOnWriteArrayList<DefaultPromise<List<Message>>>();
+        private final List<Message> released = new CopyOnWriteArrayList<Message>();
+
+        @Override
+        public Future<List<Message>> fetch(String queue, int maxMessages, long maxBytes) {
+            requests.add(maxMessages + "/" + maxBytes);
+            DefaultPromise<List<Message>> promise = new DefaultPromise<List<Message>>();
+            promises.add(promise);
+            return promise;
+        }
+
+        @Override
+        public void release(String queue, List<Message> messages) {
+            released.addAll(messages);
+        }
+
+        void complete(int index, Message... messages) {
+            promises.get(index).set(Arrays.asList(messages));
+        }
+    }
+}
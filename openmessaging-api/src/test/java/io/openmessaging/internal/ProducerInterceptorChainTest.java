@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Message;
+import io.openmessaging.interceptor.ProducerInterceptor;
+import io.openmessaging.interceptor.ProducerInterceptor.SendBeforeContext;
+import io.openmessaging.producer.SendResult;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class ProducerInterceptorChainTest {
+    private final ProducerInterceptorChain chain = new ProducerInterceptorChain();
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertThat(chain.size()).isEqualTo(0);
+        assertThat(chain.before(message())).isNull();
+        chain.after(null, null, null);
+    }
+
+    @Test
+    public void testContexts() throws Exception {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        chain.add(interceptor);
+        Message message = message();
+        SendResult result = new SendResult() {
+            @Override
+            public String messageId() {
+                return "ID";
+            }
+        };
+
+        ProducerInterceptorChain.Invocation invocation = chain.before(message);
+        assertThat(interceptor.events).containsExactly("before HELLO_QUEUE");
+        assertThat(invocation.message()).isSameAs(message);
+        Thread.sleep(2);
+        chain.after(invocation, result, null);
+        assertThat(interceptor.events).containsExactly("before HELLO_QUEUE", "after HELLO_QUEUE");
+        assertThat(interceptor.elapsedNanos).isGreaterThanOrEqualTo(2000000L);
+        assertThat(interceptor.result).isSameAs(result);
+        assertThat(interceptor.exception).isNull();
+
+        RuntimeException failure = new RuntimeException("failed");
+        chain.after(chain.before(message), null, failure);
+        assertThat(interceptor.result).isNull();
+        assertThat(interceptor.exception).isSameAs(failure);
+        assertThat(invocation.message()).isNull();
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        chain.add(interceptor);
+        SendResult result = new SendResult() {
+            @Override
+            public String messageId() {
+                return "ID";
+            }
+        };
+
+        DefaultPromise<SendResult> succeeding = new DefaultPromise<SendResult>();
+        ProducerInterceptorChain.Invocation first = chain.beforeAsync(message());
+        chain.after(first, succeeding);
+        // The context of an asynchronous send isn't the reusable one of the thread
+        DefaultPromise<SendResult> failing = new DefaultPromise<SendResult>();
+        ProducerInterceptorChain.Invocation second = chain.beforeAsync(message());
+        assertThat(second).isNotSameAs(first);
+        chain.after(second, failing);
+        assertThat(chain.before(message())).isNotSameAs(first).isNotSameAs(second);
+        assertThat(interceptor.events).hasSize(3);
+
+        Thread.sleep(2);
+        succeeding.set(result);
+        assertThat(interceptor.events).hasSize(4);
+        assertThat(interceptor.result).isSameAs(result);
+        assertThat(interceptor.elapsedNanos).isGreaterThanOrEqualTo(2000000L);
+
+        RuntimeException failure = new RuntimeException("failed");
+        failing.setFailure(failure);
+        assertThat(interceptor.events).hasSize(5);
+        assertThat(interceptor.result).isNull();
+        assertThat(interceptor.exception).isSameAs(failure);
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        chain.add(new RecordingInterceptor());
+        ProducerInterceptorChain.Invocation first = chain.before(message());
+        ProducerInterceptorChain.Invocation nested = chain.before(message());
+        assertThat(nested).isNotSameAs(first);
+        chain.after(nested, null, null);
+        chain.after(first, null, null);
+        assertThat(chain.before(message())).isSameAs(first);
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        RecordingInterceptor first = new RecordingInterceptor();
+        RecordingInterceptor second = new RecordingInterceptor();
+        chain.add(first);
+        ProducerInterceptorChain.Invocation invocation = chain.before(message());
+        chain.add(second);
+        chain.remove(first);
+        chain.after(invocation, null, null);
+        assertThat(first.events).containsExactly("before HELLO_QUEUE", "after HELLO_QUEUE");
+        assertThat(second.events).isEmpty();
+        assertThat(chain.size()).isEqualTo(1);
+
+        chain.remove(second);
+        assertThat(chain.before(message())).isNull();
+    }
+
+    @Test
+    public void testInterceptorFailure() throws Exception {
+        final List<SendBeforeContext> contexts = new ArrayList<SendBeforeContext>();
+        RecordingInterceptor failing = new RecordingInterceptor() {
+            @Override
+            public void sendBefore(SendBeforeContext context) {
+                contexts.add(context);
+                throw new IllegalStateException("failed");
+            }
+        };
+        chain.add(failing);
+        try {
+            chain.before(message());
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException ignore) {
+        }
+        chain.remove(failing);
+        chain.add(new RecordingInterceptor());
+        assertThat(chain.before(message())).isSameAs(contexts.get(0));
+    }
+
+    private static Message message() {
+        return new DefaultBytesMessage("HELLO_QUEUE", new byte[1]);
+    }
+
+    private static class RecordingInterceptor implements ProducerInterceptor {
+        private final List<String> events = new ArrayList<String>();
+        private long elapsedNanos;
+        private SendResult result;
+        private Throwable exception;
+
+        @Override
+        public void sendBefore(SendBeforeContext context) {
+            events.add("before " + context.destination());
+        }
+
+        @Override
+        public void sendAfter(SendAfterContext context) {
+            events.add("after " + context.destination());
+            elapsedNanos = context.elapsedNanos();
+            result = context.result();
+            exception = context.exception();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.exception.OMSTimeOutException;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PromiseTimeoutsTest {
+    @Test
+    public void testExpireAfter() throws Exception {
+        DefaultPromise<String> expiring = new DefaultPromise<String>();
+        PromiseTimeouts.expireAfter(expiring, 10);
+        for (int i = 0; i < 500 && !expiring.isDone(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(expiring.getThrowable()).isInstanceOf(OMSTimeOutException.class);
+
+        DefaultPromise<String> completed = new DefaultPromise<String>();
+        long pending = PromiseTimeouts.pendingTimeouts();
+        PromiseTimeouts.expireAfter(completed, 60000);
+        assertThat(PromiseTimeouts.pendingTimeouts()).isEqualTo(pending + 1);
+        completed.set("HELLO");
+        assertThat(PromiseTimeouts.pendingTimeouts()).isEqualTo(pending);
+        assertThat(completed.get()).isEqualTo("HELLO");
+    }
+
+    @Test
+    public void testTimeoutOf() throws Exception {
+        KeyValue attributes = OMS.newKeyValue().put(OMSBuiltinKeys.OPERATION_TIMEOUT, 5000);
+        Message message = new DefaultBytesMessage("HELLO_QUEUE", new byte[0]);
+        assertThat(PromiseTimeouts.timeoutOf(message, OMS.newKeyValue()))
+            .isEqualTo(PromiseTimeouts.DEFAULT_OPERATION_TIMEOUT);
+        assertThat(PromiseTimeouts.timeoutOf(message, attributes)).isEqualTo(5000);
+
+        message.putSysHeaders(Message.BuiltinKeys.TIMEOUT, 1000L);
+        assertThat(PromiseTimeouts.timeoutOf(message, attributes)).isEqualTo(1000);
+        message.putSysHeaders(Message.BuiltinKeys.TIMEOUT, 9000L);
+        assertThat(PromiseTimeouts.timeoutOf(message, attributes)).isEqualTo(5000);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Message;
+import io.openmessaging.interceptor.PushConsumerInterceptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PushConsumerInterceptorChainTest {
+    private final PushConsumerInterceptorChain chain = new PushConsumerInterceptorChain();
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertThat(chain.before(message("HELLO_QUEUE"))).isNull();
+        assertThat(chain.before(Arrays.asList(message("HELLO_QUEUE")))).isNull();
+        chain.after(null, null);
+        chain.after(null, null, null);
+    }
+
+    @Test
+    public void testMessage() throws Exception {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        chain.add(interceptor);
+        RuntimeException failure = new RuntimeException("failed");
+        PushConsumerInterceptorChain.Invocation invocation = chain.before(message("HELLO_QUEUE"));
+        assertThat(invocation.startNanos()).isLessThanOrEqualTo(System.nanoTime());
+        chain.after(invocation, failure);
+
+        assertThat(interceptor.events).containsExactly("before HELLO_QUEUE", "after HELLO_QUEUE failed");
+        assertThat(chain.before(message("HELLO_QUEUE"))).isSameAs(invocation);
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        RecordingInterceptor first = new RecordingInterceptor();
+        RecordingInterceptor second = new RecordingInterceptor();
+        chain.add(first);
+        chain.add(second);
+        List<Message> messages = Arrays.asList(message("QUEUE_A"), message("QUEUE_B"));
+        PushConsumerInterceptorChain.Invocation invocation = chain.before(messages);
+        chain.remove(second);
+        chain.after(invocation, messages, null);
+
+        assertThat(first.events).containsExactly("before QUEUE_A", "before QUEUE_B", "after QUEUE_A", "after QUEUE_B");
+        assertThat(second.events).isEqualTo(first.events);
+        assertThat(chain.size()).isEqualTo(1);
+    }
+
+    private static Message message(String queue) {
+        return new DefaultBytesMessage(queue, new byte[1]);
+    }
+
+    private static class RecordingInterceptor implements PushConsumerInterceptor {
+        private final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void onReceivedBefore(OnMessageBeforeContext context) {
+            events.add("before " + context.destination());
+        }
+
+        @Override
+        public void onReceivedAfter(OnMessageAfterContext context) {
+            assertThat(context.elapsedNanos()).isGreaterThanOrEqualTo(0);
+            events.add("after " + context.destination()
+                + (context.exception() == null ? "" : " " + context.exception().getMessage()));
+        }
+    }
+}
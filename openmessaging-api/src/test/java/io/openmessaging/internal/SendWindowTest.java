@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.Future;
+import io.openmessaging.FutureListener;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.exception.OMSFlowControlException;
+import io.openmessaging.exception.OMSRuntimeException;
+import io.openmessaging.exception.OMSTimeOutException;
+import io.openmessaging.producer.SendResult;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class SendWindowTest {
+    private final PendingSender sender = new PendingSender();
+
+    @Test
+    public void testFailFast() throws Exception {
+        SendWindow window = new SendWindow(attributes(2, 1024, "FAIL_FAST"), sender);
+        window.sendAsync(message(10));
+        window.sendAsync(message(10));
+        assertThat(window.inFlightMessages()).isEqualTo(2);
+        assertThat(window.inFlightBytes()).isEqualTo(20);
+        try {
+            window.sendAsync(message(10));
+            failBecauseExceptionWasNotThrown(OMSFlowControlException.class);
+        } catch (OMSFlowControlException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.IN_FLIGHT_WINDOW_FULL.name());
+        }
+        assertThat(window.rejected()).isEqualTo(1);
+
+        sender.promises.get(0).set(null);
+        assertThat(window.inFlightMessages()).isEqualTo(1);
+        window.sendAsync(message(10));
+        assertThat(window.inFlightMessages()).isEqualTo(2);
+    }
+
+    @Test
+    public void testMaxBytes() throws Exception {
+        SendWindow window = new SendWindow(attributes(100, 16, "FAIL_FAST"), sender);
+        window.sendAsync(message(64));
+        try {
+            window.sendAsync(message(1));
+            failBecauseExceptionWasNotThrown(OMSFlowControlException.class);
+        } catch (OMSFlowControlException ignore) {
+        }
+        sender.promises.get(0).setFailure(new RuntimeException("failed"));
+        assertThat(window.inFlightBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void testThrowingListener() throws Exception {
+        SendWindow window = new SendWindow(attributes(1, 1024, "FAIL_FAST"), sender);
+        FutureListener<SendResult> throwing = new FutureListener<SendResult>() {
+            @Override
+            public void operationSucceeded(Future<SendResult> future) {
+                throw new IllegalStateException("failed");
+            }
+
+            @Override
+            public void operationFailed(Future<SendResult> future) {
+                throw new IllegalStateException("failed");
+            }
+        };
+        window.sendAsync(message(1)).addListener(throwing);
+        sender.promises.get(0).setFailure(new RuntimeException("failed"));
+        assertThat(window.inFlightMessages()).isEqualTo(0);
+
+        window.sendAsync(message(1)).addListener(throwing);
+        sender.promises.get(1).set(null);
+        assertThat(window.inFlightMessages()).isEqualTo(0);
+        assertThat(window.inFlightBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        final SendWindow window = new SendWindow(attributes(1, 1024, "BLOCK").put(OMSBuiltinKeys.OPERATION_TIMEOUT, 5000),
+            sender);
+        final Future<SendResult> first = window.sendAsync(message(1));
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignore) {
+                }
+                sender.promises.get(0).set(null);
+            }
+        }).start();
+        window.sendAsync(message(1));
+        assertThat(first.get(1000)).isNull();
+        assertThat(window.inFlightMessages()).isEqualTo(1);
+    }
+
+    @Test
+    public void testBlockTimeout() throws Exception {
+        SendWindow window = new SendWindow(attributes(1, 1024, "BLOCK").put(OMSBuiltinKeys.OPERATION_TIMEOUT, 20),
+            sender);
+        window.sendAsync(message(1));
+        try {
+            window.sendAsync(message(1));
+            failBecauseExceptionWasNotThrown(OMSTimeOutException.class);
+        } catch (OMSTimeOutException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.IN_FLIGHT_WINDOW_TIMEOUT.name());
+        }
+        assertThat(sender.promises).hasSize(1);
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        SendWindow window = new SendWindow(attributes(2, 1024, "DROP_OLDEST"), sender);
+        Future<SendResult> first = window.sendAsync(message(1));
+        Future<SendResult> second = window.sendAsync(message(1));
+        Future<SendResult> third = window.sendAsync(message(1));
+
+        assertThat(first.getThrowable()).isInstanceOf(OMSFlowControlException.class);
+        assertThat(sender.promises.get(0).isCancelled()).isTrue();
+        assertThat(second.isDone()).isFalse();
+        assertThat(third.isDone()).isFalse();
+        assertThat(window.dropped()).isEqualTo(1);
+        assertThat(window.inFlightMessages()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDropOldestBeforeBatchSent() throws Exception {
+        final List<List<Message>> batches = new CopyOnWriteArrayList<List<Message>>();
+        BatchAccumulator accumulator = new BatchAccumulator(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.BATCH_MAX_MESSAGES, 3)
+            .put(OMSBuiltinKeys.BATCH_LINGER_TIME, 60000), new BatchTransport() {
+                @Override
+                public Future<List<SendResult>> sendBatch(String queue, List<Message> messages) {
+                    batches.add(messages);
+                    return new DefaultPromise<List<SendResult>>();
+                }
+            });
+        SendWindow window = new SendWindow(attributes(2, 1024, "DROP_OLDEST"), accumulator);
+        window.sendAsync(message(1));
+        window.sendAsync(message(2));
+        window.sendAsync(message(3));
+        accumulator.shutdown();
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).hasSize(2);
+    }
+
+    @Test
+    public void testSendTimeout() throws Exception {
+        SendWindow window = new SendWindow(attributes(1, 1024, "FAIL_FAST").put(OMSBuiltinKeys.OPERATION_TIMEOUT, 10),
+            sender);
+        Future<SendResult> expiring = window.sendAsync(message(1));
+        for (int i = 0; i < 500 && !expiring.isDone(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(expiring.getThrowable()).isInstanceOf(OMSTimeOutException.class);
+        assertThat(sender.promises.get(0).isCancelled()).isTrue();
+        assertThat(window.inFlightMessages()).isEqualTo(0);
+    }
+
+    @Test
+    public void testIllegalPolicy() throws Exception {
+        try {
+            new SendWindow(attributes(1, 1, "WAIT"), sender);
+            failBecauseExceptionWasNotThrown(OMSRuntimeException.class);
+        } catch (OMSRuntimeException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.ILLEGAL_ATTRIBUTE_VALUE.name());
+        }
+    }
+
+    private static KeyValue attributes(int maxMessages, long maxBytes, String policy) {
+        return OMS.newKeyValue()
+            .put(OMSBuiltinKeys.MAX_IN_FLIGHT_MESSAGES, maxMessages)
+            .put(OMSBuiltinKeys.MAX_IN_FLIGHT_BYTES, maxBytes)
+            .put(OMSBuiltinKeys.IN_FLIGHT_FULL_POLICY, policy);
+    }
+
+    private static Message message(int size) {
+        return new DefaultBytesMessage("HELLO_QUEUE", new byte[size]);
+    }
+
+    private static class PendingSender implements AsyncSender {
+        private final List<DefaultPromise<SendResult>> promises = new CopyOnWriteArrayList<DefaultPromise<SendResult>>();
+
+        @Override
+        public Future<SendResult> sendAsync(Message message) {
+            DefaultPromise<SendResult> promise = new DefaultPromise<SendResult>();
+            promises.add(promise);
+            return promise;
+        }
+    }
+}
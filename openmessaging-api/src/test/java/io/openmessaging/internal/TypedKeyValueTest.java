@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class TypedKeyValueTest {
+    private KeyValue keyValue = new TypedKeyValue();
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        keyValue.put("IntKey", 123);
+        assertThat(keyValue.getInt("IntKey")).isEqualTo(123);
+
+        keyValue.put("StringKey", "HELLO");
+        assertThat(keyValue.getString("StringKey")).isEqualTo("HELLO");
+
+        keyValue.put("LongKey", 123L);
+        assertThat(keyValue.getLong("LongKey")).isEqualTo(123L);
+
+        keyValue.put("DoubleKey", 1.23);
+        assertThat(keyValue.getDouble("DoubleKey")).isEqualTo(1.23);
+    }
+
+    @Test
+    public void testGetWithDefaultValue() throws Exception {
+        assertThat(keyValue.getInt("MissingKey")).isEqualTo(0);
+        assertThat(keyValue.getInt("MissingKey", 7)).isEqualTo(7);
+        assertThat(keyValue.getLong("MissingKey", 7L)).isEqualTo(7L);
+        assertThat(keyValue.getDouble("MissingKey", 0.7)).isEqualTo(0.7);
+        assertThat(keyValue.getString("MissingKey")).isNull();
+        assertThat(keyValue.getString("MissingKey", "DEFAULT")).isEqualTo("DEFAULT");
+    }
+
+    @Test
+    public void testConvertBetweenTypes() throws Exception {
+        keyValue.put("LongKey", Long.MAX_VALUE);
+        assertThat(keyValue.getString("LongKey")).isEqualTo(String.valueOf(Long.MAX_VALUE));
+        assertThat(keyValue.getDouble("LongKey")).isEqualTo((double) Long.MAX_VALUE);
+
+        keyValue.put("IntKey", -5);
+        assertThat(keyValue.getLong("IntKey")).isEqualTo(-5L);
+        assertThat(keyValue.getString("IntKey")).isEqualTo("-5");
+
+        keyValue.put("DoubleKey", 2.5);
+        assertThat(keyValue.getString("DoubleKey")).isEqualTo("2.5");
+        assertThat(keyValue.getDouble("DoubleKey")).isEqualTo(2.5);
+
+        keyValue.put("StringKey", "42");
+        assertThat(keyValue.getInt("StringKey")).isEqualTo(42);
+        assertThat(keyValue.getLong("StringKey")).isEqualTo(42L);
+        assertThat(keyValue.getDouble("StringKey")).isEqualTo(42.0);
+    }
+
+    @Test
+    public void testConvertWithoutTruncation() throws Exception {
+        keyValue.put("LongKey", Integer.MAX_VALUE + 1L);
+        assertNotConvertibleToInt("LongKey");
+        keyValue.put("LongKey", (long) Integer.MIN_VALUE);
+        assertThat(keyValue.getInt("LongKey")).isEqualTo(Integer.MIN_VALUE);
+
+        keyValue.put("DoubleKey", 2.5);
+        assertNotConvertibleToInt("DoubleKey");
+        assertNotConvertibleToLong("DoubleKey");
+
+        // An integral double isn't read as an integer either, as DefaultKeyValue can't parse "-3.0"
+        keyValue.put("DoubleKey", -3.0);
+        assertNotConvertibleToInt("DoubleKey");
+        assertNotConvertibleToLong("DoubleKey");
+        keyValue.put("DoubleKey", 1e10);
+        assertNotConvertibleToInt("DoubleKey");
+        assertNotConvertibleToLong("DoubleKey");
+        keyValue.put("DoubleKey", 0x1p63);
+        assertNotConvertibleToLong("DoubleKey");
+
+        keyValue.put("DoubleKey", Double.NaN);
+        assertNotConvertibleToInt("DoubleKey");
+        assertNotConvertibleToLong("DoubleKey");
+    }
+
+    private void assertNotConvertibleToInt(String key) {
+        try {
+            keyValue.getInt(key);
+            failBecauseExceptionWasNotThrown(NumberFormatException.class);
+        } catch (NumberFormatException e) {
+            assertThat(e).hasMessageContaining(keyValue.getString(key));
+        }
+    }
+
+    private void assertNotConvertibleToLong(String key) {
+        try {
+            keyValue.getLong(key);
+            failBecauseExceptionWasNotThrown(NumberFormatException.class);
+        } catch (NumberFormatException e) {
+            assertThat(e).hasMessageContaining(keyValue.getString(key));
+        }
+    }
+
+    @Test
+    public void testReplaceWithDifferentType() throws Exception {
+        keyValue.put("ReplaceKey", "HELLO");
+        keyValue.put("ReplaceKey", 10L);
+        assertThat(keyValue.getLong("ReplaceKey")).isEqualTo(10L);
+        assertThat(keyValue.getString("ReplaceKey")).isEqualTo("10");
+    }
+
+    @Test
+    public void testBuiltinKeys() throws Exception {
+        keyValue.put(Message.BuiltinKeys.BORN_TIMESTAMP, 1510000000000L);
+        keyValue.put(Message.BuiltinKeys.DESTINATION, "HELLO_QUEUE");
+        keyValue.put(OMSBuiltinKeys.OPERATION_TIMEOUT, 3000);
+        keyValue.put("UserKey", "USER");
+
+        assertThat(keyValue.getLong(Message.BuiltinKeys.BORN_TIMESTAMP)).isEqualTo(1510000000000L);
+        assertThat(keyValue.getString(new String("DESTINATION"))).isEqualTo("HELLO_QUEUE");
+        assertThat(keyValue.getLong(OMSBuiltinKeys.OPERATION_TIMEOUT)).isEqualTo(3000L);
+        assertThat(keyValue.containsKey(Message.BuiltinKeys.MESSAGE_ID)).isFalse();
+        assertThat(keyValue.getString(Message.BuiltinKeys.MESSAGE_ID)).isNull();
+        assertThat(keyValue.keySet()).containsOnly(Message.BuiltinKeys.BORN_TIMESTAMP,
+            Message.BuiltinKeys.DESTINATION, OMSBuiltinKeys.OPERATION_TIMEOUT, "UserKey");
+    }
+
+    @Test
+    public void testKeySet() throws Exception {
+        keyValue.put("IndexKey", 123);
+        assertThat(keyValue.keySet()).contains("IndexKey");
+    }
+
+    @Test
+    public void testContainsKey() throws Exception {
+        keyValue.put("ContainsKey", 123);
+        assertThat(keyValue.containsKey("ContainsKey")).isTrue();
+        assertThat(keyValue.containsKey("AbsentKey")).isFalse();
+    }
+}
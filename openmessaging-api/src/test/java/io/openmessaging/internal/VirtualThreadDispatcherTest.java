@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.internal;
+
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.exception.OMSRuntimeException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class VirtualThreadDispatcherTest {
+    private static final ThreadFactory THREADS = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    @Test
+    public void testOrderPerKey() throws Exception {
+        VirtualThreadDispatcher dispatcher = new VirtualThreadDispatcher(OMS.newKeyValue(), THREADS);
+        List<List<Integer>> runs = new ArrayList<List<Integer>>();
+        for (int key = 0; key < 10; key++) {
+            runs.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        for (int i = 0; i < 1000; i++) {
+            final List<Integer> run = runs.get(i % 10);
+            final int index = i;
+            assertThat(dispatcher.dispatch("key-" + i % 10, new Runnable() {
+                @Override
+                public void run() {
+                    run.add(index);
+                }
+            })).isTrue();
+        }
+        dispatcher.shutdown();
+        assertThat(dispatcher.completedTasks()).isEqualTo(1000);
+        assertThat(dispatcher.inProgressTasks()).isEqualTo(0);
+        for (int key = 0; key < 10; key++) {
+            List<Integer> run = runs.get(key);
+            assertThat(run).hasSize(100);
+            for (int j = 0; j < run.size(); j++) {
+                assertThat(run.get(j)).isEqualTo(key + j * 10);
+            }
+        }
+    }
+
+    @Test
+    public void testFailingTask() throws Exception {
+        VirtualThreadDispatcher dispatcher = new VirtualThreadDispatcher(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.CONSUME_MAX_CONCURRENCY, 2), THREADS);
+        final AtomicInteger ran = new AtomicInteger();
+        Runnable counting = new Runnable() {
+            @Override
+            public void run() {
+                ran.incrementAndGet();
+            }
+        };
+        assertThat(dispatcher.dispatch("a", new Runnable() {
+            @Override
+            public void run() {
+                throw new StackOverflowError();
+            }
+        })).isTrue();
+        for (int i = 0; i < 3; i++) {
+            assertThat(dispatcher.dispatch("a", counting, 5000)).isTrue();
+        }
+        dispatcher.shutdown();
+        assertThat(ran.get()).isEqualTo(3);
+        assertThat(dispatcher.failedTasks()).isEqualTo(1);
+        assertThat(dispatcher.inProgressTasks()).isEqualTo(0);
+    }
+
+    @Test
+    public void testMaxConcurrency() throws Exception {
+        VirtualThreadDispatcher dispatcher = new VirtualThreadDispatcher(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.CONSUME_MAX_CONCURRENCY, 3), THREADS);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                running.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        assertThat(dispatcher.dispatch(null, blocking)).isTrue();
+        assertThat(dispatcher.dispatch(null, blocking)).isTrue();
+        assertThat(dispatcher.dispatch("key", blocking)).isTrue();
+        assertThat(dispatcher.dispatch(null, blocking, 10)).isFalse();
+        assertThat(dispatcher.inProgressTasks()).isEqualTo(3);
+
+        release.countDown();
+        dispatcher.shutdown();
+        assertThat(running.get()).isEqualTo(3);
+        assertThat(dispatcher.completedTasks()).isEqualTo(3);
+        assertThat(dispatcher.dispatch(null, blocking)).isFalse();
+    }
+
+    @Test
+    public void testNewDispatcher() throws Exception {
+        TaskDispatcher platform = TaskDispatchers.newDispatcher("test", OMS.newKeyValue());
+        assertThat(platform).isInstanceOf(OrderedDispatcher.class);
+
+        TaskDispatcher virtual = TaskDispatchers.newDispatcher("test", OMS.newKeyValue()
+            .put(OMSBuiltinKeys.CONSUME_THREAD_MODE, "VIRTUAL"));
+        assertThat(virtual).isInstanceOf(TaskDispatchers.isVirtualThreadSupported()
+            ? VirtualThreadDispatcher.class : OrderedDispatcher.class);
+        virtual.startup();
+        final CountDownLatch done = new CountDownLatch(1);
+        virtual.dispatch("key", new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        virtual.shutdown();
+
+        try {
+            TaskDispatchers.newDispatcher("test", OMS.newKeyValue().put(OMSBuiltinKeys.CONSUME_THREAD_MODE, "GREEN"));
+            failBecauseExceptionWasNotThrown(OMSRuntimeException.class);
+        } catch (OMSRuntimeException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.ILLEGAL_ATTRIBUTE_VALUE.name());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.benchmark;
+
+import io.openmessaging.Future;
+import io.openmessaging.Message;
+import io.openmessaging.MessagingAccessPoint;
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.consumer.PullConsumer;
+import io.openmessaging.inmemory.RingStreamLog;
+import io.openmessaging.producer.Producer;
+import io.openmessaging.producer.SendResult;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the in-memory driver, from the bare ring buffer append up to a send received by a pull
+ * consumer, which is the baseline of the overhead of the API layer on the client side. Run it with {@code -t} to
+ * measure the contention of several producer threads. The batch benchmarks are scored per message, receiving them
+ * one by one or with a single {@code receive(int, long)}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InMemoryDriverBenchmark {
+    private static final String QUEUE = "BENCHMARK_QUEUE";
+    private static final int BATCH = 64;
+
+    private MessagingAccessPoint accessPoint;
+    private Producer producer;
+    private PullConsumer consumer;
+    private RingStreamLog log;
+
+    @State(Scope.Thread)
+    public static class ThreadMessage {
+        private Message message;
+
+        @Setup
+        public void setup(InMemoryDriverBenchmark benchmark) {
+            message = benchmark.producer.createBytesMessage(QUEUE, new byte[64]);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        accessPoint = OMS.getMessagingAccessPoint("oms:inmemory://localhost/us-east:benchmark");
+        producer = accessPoint.createProducer();
+        consumer = accessPoint.createPullConsumer(OMS.newKeyValue().put(OMSBuiltinKeys.OPERATION_TIMEOUT, 1000));
+        consumer.attachQueue(QUEUE);
+        log = new RingStreamLog(RingStreamLog.DEFAULT_CAPACITY);
+    }
+
+    @TearDown
+    public void tearDown() {
+        consumer.shutdown();
+        producer.shutdown();
+        accessPoint.shutdown();
+    }
+
+    @Benchmark
+    public long ringAppend(ThreadMessage state) {
+        return log.append(state.message);
+    }
+
+    @Benchmark
+    public SendResult send(ThreadMessage state) {
+        return producer.send(state.message);
+    }
+
+    @Benchmark
+    public Future<SendResult> sendAsync(ThreadMessage state) {
+        return producer.sendAsync(state.message);
+    }
+
+    @Benchmark
+    public Message sendAndReceive(ThreadMessage state) {
+        producer.send(state.message);
+        return consumer.receive();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Message sendAndReceiveEach(ThreadMessage state) {
+        for (int i = 0; i < BATCH; i++) {
+            producer.send(state.message);
+        }
+        Message message = null;
+        for (int i = 0; i < BATCH; i++) {
+            message = consumer.receive();
+        }
+        return message;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<Message> sendAndReceiveBatch(ThreadMessage state) {
+        for (int i = 0; i < BATCH; i++) {
+            producer.send(state.message);
+        }
+        return consumer.receive(BATCH, 1000);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.benchmark;
+
+import io.openmessaging.Message;
+import io.openmessaging.interceptor.ProducerInterceptor;
+import io.openmessaging.interceptor.PushConsumerInterceptor;
+import io.openmessaging.internal.DefaultBytesMessage;
+import io.openmessaging.internal.DefaultPromise;
+import io.openmessaging.internal.ProducerInterceptorChain;
+import io.openmessaging.internal.PushConsumerInterceptorChain;
+import io.openmessaging.producer.SendResult;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the cost of intercepting a send and a consumption with a chain of interceptors which read their context.
+ * <p>
+ * Run with {@code -prof gc}, the {@code gc.alloc.rate.norm} score shows that the invocation of a synchronous send,
+ * or of a consumption, allocates nothing. The score of {@link #sendAsync(Blackhole)} is the context of the send
+ * along with its {@code Future}, both allocated per send.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InterceptorChainBenchmark {
+    @Param({"0", "3"})
+    private int interceptors;
+
+    private final ProducerInterceptorChain producerChain = new ProducerInterceptorChain();
+    private final PushConsumerInterceptorChain consumerChain = new PushConsumerInterceptorChain();
+    private Message message;
+
+    @Setup
+    public void setup() {
+        message = new DefaultBytesMessage("BENCHMARK_QUEUE", new byte[128]);
+        for (int i = 0; i < interceptors; i++) {
+            producerChain.add(new TimingInterceptor());
+            consumerChain.add(new TimingInterceptor());
+        }
+    }
+
+    @Benchmark
+    public void send(Blackhole blackhole) {
+        ProducerInterceptorChain.Invocation invocation = producerChain.before(message);
+        blackhole.consume(message);
+        producerChain.after(invocation, null, null);
+    }
+
+    @Benchmark
+    public void sendAsync(Blackhole blackhole) {
+        ProducerInterceptorChain.Invocation invocation = producerChain.beforeAsync(message);
+        DefaultPromise<SendResult> future = new DefaultPromise<SendResult>();
+        blackhole.consume(message);
+        producerChain.after(invocation, future);
+        future.set(null);
+    }
+
+    @Benchmark
+    public void consume(Blackhole blackhole) {
+        PushConsumerInterceptorChain.Invocation invocation = consumerChain.before(message);
+        blackhole.consume(message);
+        consumerChain.after(invocation, null);
+    }
+
+    private static final class TimingInterceptor implements ProducerInterceptor, PushConsumerInterceptor {
+        private long count;
+        private long elapsedNanos;
+
+        @Override
+        public void sendBefore(SendBeforeContext context) {
+            count += context.message() == null ? 0 : 1;
+        }
+
+        @Override
+        public void sendAfter(SendAfterContext context) {
+            elapsedNanos += context.elapsedNanos();
+        }
+
+        @Override
+        public void onReceivedBefore(OnMessageBeforeContext context) {
+            count += context.message() == null ? 0 : 1;
+        }
+
+        @Override
+        public void onReceivedAfter(OnMessageAfterContext context) {
+            elapsedNanos += context.elapsedNanos();
+        }
+    }
+}
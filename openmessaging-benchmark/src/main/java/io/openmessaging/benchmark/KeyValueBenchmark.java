@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.benchmark;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.internal.CompactKeyValue;
+import io.openmessaging.internal.DefaultKeyValue;
+import io.openmessaging.internal.TypedKeyValue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the {@code KeyValue} implementations on a typical set of message headers.
+ * <p>
+ * Run it with {@code java -jar openmessaging-benchmark/target/benchmarks.jar KeyValueBenchmark -prof gc}
+ * to also see the allocated bytes per operation, which approximates the memory held by each in-flight message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyValueBenchmark {
+    @Param({"default", "typed", "compact"})
+    private String impl;
+
+    private KeyValue headers;
+
+    @Setup
+    public void setup() {
+        headers = populate(newKeyValue());
+    }
+
+    @Benchmark
+    public KeyValue create() {
+        return populate(newKeyValue());
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) {
+        blackhole.consume(headers.getString(Message.BuiltinKeys.MESSAGE_ID));
+        blackhole.consume(headers.getString(Message.BuiltinKeys.DESTINATION));
+        blackhole.consume(headers.getLong(Message.BuiltinKeys.BORN_TIMESTAMP));
+        blackhole.consume(headers.getInt(Message.BuiltinKeys.PRIORITY));
+        blackhole.consume(headers.getLong(Message.BuiltinKeys.TIMEOUT));
+        blackhole.consume(headers.getInt(Message.BuiltinKeys.REDELIVERED_NUMBER));
+    }
+
+    private KeyValue newKeyValue() {
+        if ("default".equals(impl)) {
+            return new DefaultKeyValue();
+        } else if ("typed".equals(impl)) {
+            return new TypedKeyValue();
+        }
+        return new CompactKeyValue();
+    }
+
+    private static KeyValue populate(KeyValue keyValue) {
+        return keyValue.put(Message.BuiltinKeys.MESSAGE_ID, "0A0B0C0D00002A9F0000000000000001")
+            .put(Message.BuiltinKeys.DESTINATION, "HELLO_QUEUE")
+            .put(Message.BuiltinKeys.BORN_TIMESTAMP, 1510000000000L)
+            .put(Message.BuiltinKeys.BORN_HOST, "10.0.0.1:10911")
+            .put(Message.BuiltinKeys.PRIORITY, 4)
+            .put(Message.BuiltinKeys.TIMEOUT, 3000L)
+            .put(Message.BuiltinKeys.REDELIVERED_NUMBER, 0)
+            .put("TenantId", "tenant-42");
+    }
+}
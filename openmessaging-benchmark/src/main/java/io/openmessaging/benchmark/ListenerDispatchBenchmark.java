@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.benchmark;
+
+import io.openmessaging.Future;
+import io.openmessaging.FutureListener;
+import io.openmessaging.OMS;
+import io.openmessaging.internal.DefaultPromise;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures how long a completing thread, like a driver I/O thread, is stalled by completing a send future whose
+ * listener is slow, when the listener runs inline and when it is dispatched to an executor.
+ * <p>
+ * The callback executor drops its oldest pending notifications once its queue is full, so that the benchmark
+ * measures the hand-off cost only, regardless of how far the callback threads lag behind.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListenerDispatchBenchmark {
+    @Param({"direct", "executor"})
+    private String dispatch;
+
+    @Param({"0", "1000"})
+    private long listenerTokens;
+
+    private Executor executor;
+    private FutureListener<String> listener;
+
+    @Setup
+    public void setup() {
+        if ("direct".equals(dispatch)) {
+            executor = OMS.directExecutor();
+        } else {
+            executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(1024), new ThreadPoolExecutor.DiscardOldestPolicy());
+        }
+        final long tokens = listenerTokens;
+        listener = new FutureListener<String>() {
+            @Override
+            public void operationSucceeded(Future<String> future) {
+                Blackhole.consumeCPU(tokens);
+            }
+
+            @Override
+            public void operationFailed(Future<String> future) {
+                Blackhole.consumeCPU(tokens);
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor instanceof ThreadPoolExecutor) {
+            ((ThreadPoolExecutor) executor).shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public boolean complete() {
+        DefaultPromise<String> promise = new DefaultPromise<String>();
+        promise.addListener(listener, executor);
+        return promise.set("SEND_RESULT");
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.benchmark;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.Message;
+import io.openmessaging.internal.BytesMessagePool;
+import io.openmessaging.internal.DefaultBytesMessage;
+import io.openmessaging.internal.PooledBytesMessage;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the allocation of a new message per send with a recycled message from a {@link BytesMessagePool}.
+ * <p>
+ * Run it with {@code java -jar openmessaging-benchmark/target/benchmarks.jar MessagePoolBenchmark -prof gc},
+ * the {@code gc.alloc.rate.norm} metric shows the bytes allocated per message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessagePoolBenchmark {
+    @Param({"256", "4096"})
+    private int bodySize;
+
+    private byte[] payload;
+    private BytesMessagePool pool;
+
+    @Setup
+    public void setup() {
+        payload = new byte[bodySize];
+        pool = new BytesMessagePool(1024, false);
+    }
+
+    @Benchmark
+    public void newMessage(Blackhole blackhole) {
+        byte[] body = new byte[bodySize];
+        System.arraycopy(payload, 0, body, 0, bodySize);
+        BytesMessage message = new DefaultBytesMessage("HELLO_QUEUE", body);
+        fillHeaders(message);
+        blackhole.consume(message.getBodyBuffer());
+    }
+
+    @Benchmark
+    public void pooledMessage(Blackhole blackhole) {
+        PooledBytesMessage message = pool.acquire("HELLO_QUEUE");
+        ByteBuffer writer = message.bodyWriter(bodySize);
+        writer.put(payload);
+        message.commitBody();
+        fillHeaders(message);
+        blackhole.consume(message.getBodyBuffer());
+        message.release();
+    }
+
+    private static void fillHeaders(Message message) {
+        message.putSysHeaders(Message.BuiltinKeys.MESSAGE_ID, "0A0B0C0D00002A9F0000000000000001")
+            .putSysHeaders(Message.BuiltinKeys.BORN_TIMESTAMP, 1510000000000L)
+            .putSysHeaders(Message.BuiltinKeys.PRIORITY, 4)
+            .putSysHeaders(Message.BuiltinKeys.TIMEOUT, 3000L)
+            .putUserHeaders("TenantId", "tenant-42");
+    }
+}
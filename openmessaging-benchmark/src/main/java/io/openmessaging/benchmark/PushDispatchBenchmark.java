@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.benchmark;
+
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.internal.TaskDispatcher;
+import io.openmessaging.internal.TaskDispatchers;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the delivery throughput of a {@code PushConsumer} whose listener blocks for a millisecond on a downstream
+ * call, with a pool of 16 platform threads and with a virtual thread per delivery, the scores are per delivery.
+ * <p>
+ * The {@code VIRTUAL} mode falls back to the pool on the JDKs without virtual threads, where both modes score alike.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PushDispatchBenchmark {
+    private static final int DELIVERIES = 1000;
+    private static final long BLOCKING_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private String threadMode;
+
+    /**
+     * The number of distinct stream keys, zero for the messages without any.
+     */
+    @Param({"0", "100"})
+    private int streamKeys;
+
+    private TaskDispatcher dispatcher;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        dispatcher = TaskDispatchers.newDispatcher("OMS-Benchmark", OMS.newKeyValue()
+            .put(OMSBuiltinKeys.CONSUME_THREAD_MODE, threadMode)
+            .put(OMSBuiltinKeys.CONSUME_THREADS, 16)
+            .put(OMSBuiltinKeys.CONSUME_MAX_CONCURRENCY, DELIVERIES));
+        dispatcher.startup();
+        keys = new String[DELIVERIES];
+        for (int i = 0; i < DELIVERIES && streamKeys > 0; i++) {
+            keys[i] = "KEY-" + i % streamKeys;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DELIVERIES)
+    public void deliver() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(DELIVERIES);
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                LockSupport.parkNanos(BLOCKING_NANOS);
+                done.countDown();
+            }
+        };
+        for (int i = 0; i < DELIVERIES; i++) {
+            dispatcher.dispatch(keys[i], listener);
+        }
+        done.await();
+    }
+}
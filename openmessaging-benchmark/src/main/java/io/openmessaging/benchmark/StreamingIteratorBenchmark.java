@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.benchmark;
+
+import io.openmessaging.Message;
+import io.openmessaging.MessagingAccessPoint;
+import io.openmessaging.OMS;
+import io.openmessaging.consumer.StreamingConsumer;
+import io.openmessaging.consumer.StreamingIterator;
+import io.openmessaging.producer.Producer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the traversal of a stream message by message with {@link StreamingIterator#next()}, to the batches of
+ * {@link StreamingIterator#next(int)} and {@link StreamingIterator#drainTo(java.util.Collection, int)}, the scores
+ * are per message.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamingIteratorBenchmark {
+    private static final String QUEUE = "BENCHMARK_QUEUE";
+    private static final int MESSAGES = 1 << 16;
+    private static final int BATCH = 256;
+
+    private MessagingAccessPoint accessPoint;
+    private StreamingConsumer consumer;
+    private final List<Message> batch = new ArrayList<Message>(BATCH);
+
+    @Setup
+    public void setup() {
+        accessPoint = OMS.getMessagingAccessPoint("oms:inmemory://localhost/us-east:benchmark");
+        Producer producer = accessPoint.createProducer();
+        for (int i = 0; i < MESSAGES; i++) {
+            producer.send(producer.createBytesMessage(QUEUE, new byte[16]));
+        }
+        producer.shutdown();
+        consumer = accessPoint.createStreamingConsumer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        accessPoint.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void next(Blackhole blackhole) {
+        StreamingIterator iterator = consumer.seekToBeginning(QUEUE + "-0");
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void nextBatch(Blackhole blackhole) {
+        StreamingIterator iterator = consumer.seekToBeginning(QUEUE + "-0");
+        List<Message> messages;
+        while (!(messages = iterator.next(BATCH)).isEmpty()) {
+            for (int i = 0; i < messages.size(); i++) {
+                blackhole.consume(messages.get(i));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void drainTo(Blackhole blackhole) {
+        StreamingIterator iterator = consumer.seekToBeginning(QUEUE + "-0");
+        while (iterator.drainTo(batch, BATCH) > 0) {
+            for (int i = 0; i < batch.size(); i++) {
+                blackhole.consume(batch.get(i));
+            }
+            batch.clear();
+        }
+    }
+}
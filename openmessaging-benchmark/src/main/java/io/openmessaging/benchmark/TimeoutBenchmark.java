@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.benchmark;
+
+import io.openmessaging.internal.HashedWheelTimer;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cost of arming and cancelling the timeout of a request, the common case of a request answered in
+ * time, between a {@link HashedWheelTimer} and a heap-based {@link ScheduledThreadPoolExecutor}, while a large
+ * number of other requests are outstanding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class TimeoutBenchmark {
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Param({"wheel", "scheduled"})
+    private String scheduler;
+
+    @Param({"1000000"})
+    private int outstanding;
+
+    private HashedWheelTimer timer;
+    private ScheduledThreadPoolExecutor executor;
+
+    @Setup
+    public void setup() {
+        if ("wheel".equals(scheduler)) {
+            timer = new HashedWheelTimer("benchmark-timer", 1, TimeUnit.MILLISECONDS, 512);
+            for (int i = 0; i < outstanding; i++) {
+                timer.newTimeout(NOOP, 1, TimeUnit.HOURS);
+            }
+        } else {
+            executor = new ScheduledThreadPoolExecutor(1);
+            executor.setRemoveOnCancelPolicy(true);
+            for (int i = 0; i < outstanding; i++) {
+                executor.schedule(NOOP, 1, TimeUnit.HOURS);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (timer != null) {
+            timer.stop();
+        } else {
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public boolean armAndCancel() {
+        if (timer != null) {
+            return timer.newTimeout(NOOP, 3, TimeUnit.SECONDS).cancel();
+        }
+        return executor.schedule(NOOP, 3, TimeUnit.SECONDS).cancel(false);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.file;
+
+import io.openmessaging.OMSBuiltinKeys;
+
+/**
+ * The attributes of the file driver, in addition to the {@link OMSBuiltinKeys}. They are read from the attributes of
+ * a queue first, then from the ones of the access point.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public interface FileBuiltinKeys {
+    /**
+     * The {@code STORE_PATH} key shows the directory of the store, the host part of the URL is used if it isn't set,
+     * like {@literal /var/lib/oms} for {@literal oms:file:///var/lib/oms/us-east:default}, or else the {@literal openmessaging}
+     * directory of the temporary directory.
+     */
+    String STORE_PATH = "STORE_PATH";
+
+    /**
+     * The {@code SEGMENT_SIZE} key shows the size in bytes of the segment files of a stream, a message larger than a
+     * segment gets a segment of its own.
+     */
+    String SEGMENT_SIZE = "SEGMENT_SIZE";
+
+    /**
+     * The {@code INDEX_INTERVAL_BYTES} key shows the number of bytes of records between two entries of the sparse
+     * index of a segment, which locates the messages by offset and by store time. A smaller interval makes the
+     * reads and the seeks faster, at the cost of a larger index.
+     */
+    String INDEX_INTERVAL_BYTES = "INDEX_INTERVAL_BYTES";
+
+    /**
+     * The {@code RETENTION_TIME} key shows the time in milliseconds after which a segment which isn't written anymore
+     * is deleted, they are kept forever if it isn't set.
+     */
+    String RETENTION_TIME = "RETENTION_TIME";
+
+    /**
+     * The {@code RETENTION_BYTES} key shows the total size in bytes of the segments of a stream, above which the
+     * oldest segments are deleted, they are kept forever if it isn't set.
+     */
+    String RETENTION_BYTES = "RETENTION_BYTES";
+
+    /**
+     * The {@code FLUSH_INTERVAL_MESSAGES} key shows the number of messages after which a stream is flushed to the
+     * disk by the appending thread, {@literal 1} flushes every message before its send returns.
+     */
+    String FLUSH_INTERVAL_MESSAGES = "FLUSH_INTERVAL_MESSAGES";
+
+    /**
+     * The {@code FLUSH_INTERVAL_TIME} key shows the period in milliseconds of the flushes of the streams by a
+     * background thread, a non-positive period leaves the flushes to the operating system.
+     */
+    String FLUSH_INTERVAL_TIME = "FLUSH_INTERVAL_TIME";
+}
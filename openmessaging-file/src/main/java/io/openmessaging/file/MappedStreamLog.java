@@ -0,0 +1,711 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.file;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.exception.OMSRuntimeException;
+import io.openmessaging.inmemory.StreamLog;
+import io.openmessaging.internal.InternalErrorCode;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link StreamLog} persisted in a directory of append-only segment files, which are written and read through
+ * {@link MappedByteBuffer}s.
+ * <p>
+ * A segment is named by the offset of its first message, and holds the records of the consecutive messages: the
+ * length of the encoded message, the CRC32 of the store time and the encoded message, the store time, then the
+ * encoded message. When a message doesn't fit in the current segment anymore, the segment is flushed and a new one
+ * is started, then the oldest segments are deleted according to the {@link FileBuiltinKeys#RETENTION_TIME} and
+ * {@link FileBuiltinKeys#RETENTION_BYTES}.
+ * <p>
+ * Every segment has a sparse index, with an entry every {@link FileBuiltinKeys#INDEX_INTERVAL_BYTES} of records:
+ * the offset of a message, the position of its record in the segment and the latest store time up to this message.
+ * A message is read by a binary search of the segments and of the index, then by skipping the headers of the
+ * records following the entry, and {@link #offsetOfTime(long)} searches the store times the same way. The index
+ * of a segment is written next to it when it is sealed, in a file with the same name.
+ * <p>
+ * When a log is opened, the index of the sealed segments is loaded, while the last segment is scanned to rebuild
+ * its index, up to the first record which is incomplete or corrupted, like the last one written before a crash.
+ * <p>
+ * The appends are serialized by a lock, after the headers are encoded out of it, while the reads don't take any lock.
+ * The body of a message is only copied once, from the message into the segment, and the body of a message read is
+ * a slice of its segment, which stays readable after the segment is deleted, as the mapping is only released once
+ * unreachable.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class MappedStreamLog implements StreamLog {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_INDEX_INTERVAL_BYTES = 4096;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".index";
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int SCRATCH_SIZE = 4096;
+
+    private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[SCRATCH_SIZE];
+        }
+    };
+
+    private final File directory;
+    private final int segmentSize;
+    private final int indexInterval;
+    private final long retentionTime;
+    private final long retentionBytes;
+    private final int flushMessages;
+
+    private volatile Segment[] segments;
+    private volatile Segment active;
+    private volatile long endOffset;
+    private int unflushed;
+    private boolean closed;
+
+    /**
+     * Opens the log stored in the specified directory, which is created if needed.
+     *
+     * @param directory the directory of the segments
+     * @param attributes the attributes of the log, the {@link FileBuiltinKeys}
+     * @throws OMSRuntimeException if the segments can't be opened
+     */
+    public MappedStreamLog(File directory, KeyValue attributes) {
+        this.directory = directory;
+        this.segmentSize = Math.max(RECORD_HEADER_SIZE, attributes.getInt(FileBuiltinKeys.SEGMENT_SIZE,
+            DEFAULT_SEGMENT_SIZE));
+        this.indexInterval = Math.max(RECORD_HEADER_SIZE, attributes.getInt(FileBuiltinKeys.INDEX_INTERVAL_BYTES,
+            DEFAULT_INDEX_INTERVAL_BYTES));
+        this.retentionTime = attributes.getLong(FileBuiltinKeys.RETENTION_TIME, 0);
+        this.retentionBytes = attributes.getLong(FileBuiltinKeys.RETENTION_BYTES, 0);
+        this.flushMessages = attributes.getInt(FileBuiltinKeys.FLUSH_INTERVAL_MESSAGES, 0);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw ioFailure(directory, null);
+        }
+        Segment[] segments = openSegments();
+        if (segments.length == 0) {
+            segments = new Segment[] {Segment.create(directory, 0, segmentSize, indexInterval)};
+        }
+        this.segments = segments;
+        this.active = segments[segments.length - 1];
+        this.endOffset = active.baseOffset + active.count;
+        synchronized (this) {
+            applyRetention();
+        }
+    }
+
+    @Override
+    public long append(Message message) {
+        MessageCodec.Encoded payload = MessageCodec.encode(message);
+        long timestamp = message.sysHeaders().getLong(Message.BuiltinKeys.STORE_TIMESTAMP);
+        CRC32 crc = checksum(timestamp);
+        crc.update(payload.headers());
+        update(crc, payload.body());
+        synchronized (this) {
+            if (closed) {
+                throw ioFailure(directory, null);
+            }
+            Segment segment = active;
+            int length = payload.length();
+            if (!segment.hasRoom(RECORD_HEADER_SIZE + length)) {
+                segment = roll(RECORD_HEADER_SIZE + length);
+            }
+            long offset = endOffset;
+            segment.append(payload, (int) crc.getValue(), timestamp);
+            endOffset = offset + 1;
+            if (flushMessages > 0 && ++unflushed >= flushMessages) {
+                segment.flush();
+                unflushed = 0;
+            }
+            return offset;
+        }
+    }
+
+    @Override
+    public Message read(long offset) {
+        if (offset < 0 || offset >= endOffset) {
+            return null;
+        }
+        Segment segment = segmentOf(offset);
+        return segment != null ? segment.read((int) (offset - segment.baseOffset)) : null;
+    }
+
+    /**
+     * Locates the first message with the index, then reads the following records of its segment, and of the next
+     * segments, sequentially.
+     */
+    @Override
+    public int read(long offset, int maxMessages, Collection<? super Message> messages) {
+        long endOffset = this.endOffset;
+        if (offset < 0 || maxMessages <= 0 || offset >= endOffset) {
+            return 0;
+        }
+        Segment[] segments = this.segments;
+        int count = 0;
+        for (int i = Math.max(0, indexOf(segments, offset)); i < segments.length; i++) {
+            Segment segment = segments[i];
+            long limit = Math.min(endOffset, offset + maxMessages);
+            if (i + 1 < segments.length) {
+                limit = Math.min(limit, segments[i + 1].baseOffset);
+            }
+            if (limit <= offset + count) {
+                break;
+            }
+            if (segment.baseOffset > offset + count) {
+                // The first message isn't retained anymore
+                break;
+            }
+            int index = (int) (offset + count - segment.baseOffset);
+            count += segment.read(index, (int) (limit - offset - count), messages);
+            if (count == maxMessages || offset + count >= endOffset) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Searches the latest store times of the segments, then the index of the segment which reaches the specified
+     * time, and finally the records following its index entry.
+     */
+    @Override
+    public long offsetOfTime(long timestamp) {
+        long endOffset = this.endOffset;
+        Segment[] segments = this.segments;
+        int low = 0;
+        int high = segments.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (segments[middle].maxTimestamp < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == segments.length) {
+            return endOffset;
+        }
+        Segment segment = segments[low];
+        long limit = (low + 1 < segments.length ? segments[low + 1].baseOffset : endOffset) - segment.baseOffset;
+        return segment.baseOffset + segment.offsetOfTime(timestamp, (int) Math.max(0, limit));
+    }
+
+    @Override
+    public long beginOffset() {
+        return segments[0].baseOffset;
+    }
+
+    @Override
+    public long endOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Flushes the messages appended so far to the disk.
+     */
+    public void flush() {
+        active.flush();
+    }
+
+    /**
+     * Flushes and closes the segments, any further append fails.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    /**
+     * Returns the segment holding the specified offset, or {@code null} if it isn't retained.
+     */
+    private Segment segmentOf(long offset) {
+        Segment[] segments = this.segments;
+        int index = indexOf(segments, offset);
+        return index >= 0 ? segments[index] : null;
+    }
+
+    private static int indexOf(Segment[] segments, long offset) {
+        int low = 0;
+        int high = segments.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (segments[middle].baseOffset <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    private Segment[] openSegments() {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            throw ioFailure(directory, null);
+        }
+        Arrays.sort(files);
+        Segment[] segments = new Segment[files.length];
+        for (int i = 0; i < files.length; i++) {
+            String name = files[i].getName();
+            long baseOffset = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            segments[i] = Segment.open(files[i], baseOffset, indexInterval, i < files.length - 1);
+        }
+        return segments;
+    }
+
+    private Segment roll(int recordSize) {
+        Segment[] rolled;
+        if (active.count == 0) {
+            // Replaces an empty segment too small for the record, it would have the same name as the next one
+            active.delete();
+            rolled = segments.clone();
+        } else {
+            active.seal();
+            rolled = Arrays.copyOf(segments, segments.length + 1);
+        }
+        Segment next = Segment.create(directory, endOffset, Math.max(segmentSize, recordSize), indexInterval);
+        rolled[rolled.length - 1] = next;
+        segments = rolled;
+        active = next;
+        unflushed = 0;
+        applyRetention();
+        return next;
+    }
+
+    private void applyRetention() {
+        Segment[] segments = this.segments;
+        long totalBytes = 0;
+        for (Segment segment : segments) {
+            totalBytes += segment.capacity();
+        }
+        long now = System.currentTimeMillis();
+        int expired = 0;
+        // The active segment is always retained
+        while (expired < segments.length - 1
+            && (retentionBytes > 0 && totalBytes > retentionBytes
+            || retentionTime > 0 && now - segments[expired].lastModified > retentionTime)) {
+            totalBytes -= segments[expired].capacity();
+            expired++;
+        }
+        if (expired > 0) {
+            this.segments = Arrays.copyOfRange(segments, expired, segments.length);
+            for (int i = 0; i < expired; i++) {
+                segments[i].delete();
+            }
+        }
+    }
+
+    private static CRC32 checksum(long timestamp) {
+        CRC32 crc = new CRC32();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (timestamp >>> shift));
+        }
+        return crc;
+    }
+
+    /**
+     * Updates the checksum with the remaining content of the specified buffer, whose position is moved to its limit.
+     * The content is read through a small scratch array, as a {@code CRC32} only takes arrays before Java 8.
+     */
+    private static void update(CRC32 crc, ByteBuffer content) {
+        byte[] scratch = SCRATCH.get();
+        while (content.hasRemaining()) {
+            int length = Math.min(scratch.length, content.remaining());
+            content.get(scratch, 0, length);
+            crc.update(scratch, 0, length);
+        }
+    }
+
+    private static OMSRuntimeException ioFailure(File file, IOException cause) {
+        return new OMSRuntimeException(InternalErrorCode.STORE_IO_FAILED.name(),
+            InternalErrorCode.STORE_IO_FAILED.formatMessage(file.getPath()), cause);
+    }
+
+    /**
+     * A segment file, mapped in memory as a whole, along with its sparse index.
+     */
+    private static final class Segment {
+        private final long baseOffset;
+        private final File file;
+        private final File indexFile;
+        private final int indexInterval;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final ByteBuffer writer;
+        /**
+         * The index entries, published to the readers by their volatile count, which is written after them.
+         */
+        private int[] indexOffsets = new int[64];
+        private int[] indexPositions = new int[64];
+        private long[] indexTimestamps = new long[64];
+        private volatile int indexCount;
+        /**
+         * The latest store time of the records, published to the readers by the volatile end offset of the log.
+         */
+        private long maxTimestamp = Long.MIN_VALUE;
+        private int count;
+        private int lastPosition;
+        private long lastModified;
+
+        private Segment(long baseOffset, File file, int indexInterval, FileChannel channel, MappedByteBuffer buffer) {
+            this.baseOffset = baseOffset;
+            this.file = file;
+            this.indexFile = new File(file.getParentFile(), String.format("%020d", baseOffset) + INDEX_SUFFIX);
+            this.indexInterval = indexInterval;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.writer = buffer.duplicate();
+            this.lastModified = file.lastModified();
+        }
+
+        static Segment create(File directory, long baseOffset, int size, int indexInterval) {
+            File file = new File(directory, String.format("%020d", baseOffset) + SEGMENT_SUFFIX);
+            return map(file, baseOffset, size, indexInterval);
+        }
+
+        static Segment open(File file, long baseOffset, int indexInterval, boolean sealed) {
+            Segment segment = map(file, baseOffset, -1, indexInterval);
+            if (!sealed || !segment.loadIndex()) {
+                segment.recover();
+                if (sealed) {
+                    segment.writeIndex();
+                }
+            }
+            return segment;
+        }
+
+        private static Segment map(File file, long baseOffset, long size, int indexInterval) {
+            RandomAccessFile randomAccessFile = null;
+            try {
+                randomAccessFile = new RandomAccessFile(file, "rw");
+                if (size >= 0) {
+                    randomAccessFile.setLength(size);
+                }
+                FileChannel channel = randomAccessFile.getChannel();
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, randomAccessFile.length());
+                return new Segment(baseOffset, file, indexInterval, channel, buffer);
+            } catch (IOException e) {
+                closeQuietly(randomAccessFile);
+                throw ioFailure(file, e);
+            }
+        }
+
+        private void recover() {
+            ByteBuffer reader = buffer.duplicate();
+            int position = 0;
+            while (position + RECORD_HEADER_SIZE <= reader.limit()) {
+                int length = reader.getInt(position);
+                if (length <= 0 || length > reader.limit() - position - RECORD_HEADER_SIZE) {
+                    break;
+                }
+                long timestamp = reader.getLong(position + 8);
+                CRC32 crc = checksum(timestamp);
+                reader.limit(position + RECORD_HEADER_SIZE + length).position(position + RECORD_HEADER_SIZE);
+                update(crc, reader);
+                reader.limit(reader.capacity());
+                if ((int) crc.getValue() != reader.getInt(position + 4)) {
+                    break;
+                }
+                addRecord(position, timestamp);
+                position += RECORD_HEADER_SIZE + length;
+            }
+            writer.position(position);
+        }
+
+        /**
+         * Loads the index written when the segment was sealed, returns {@code false} if it is missing or invalid.
+         */
+        private boolean loadIndex() {
+            long length = indexFile.length();
+            if (length == 0 || length % INDEX_ENTRY_SIZE != 0 || length > Integer.MAX_VALUE) {
+                return false;
+            }
+            byte[] bytes = new byte[(int) length];
+            RandomAccessFile randomAccessFile = null;
+            try {
+                randomAccessFile = new RandomAccessFile(indexFile, "r");
+                randomAccessFile.readFully(bytes);
+            } catch (IOException e) {
+                return false;
+            } finally {
+                closeQuietly(randomAccessFile);
+            }
+            int entries = bytes.length / INDEX_ENTRY_SIZE;
+            int[] offsets = new int[entries];
+            int[] positions = new int[entries];
+            long[] timestamps = new long[entries];
+            ByteBuffer index = ByteBuffer.wrap(bytes);
+            for (int i = 0; i < entries; i++) {
+                offsets[i] = index.getInt();
+                positions[i] = index.getInt();
+                timestamps[i] = index.getLong();
+            }
+            // The last entry is the one of the last record
+            int last = positions[entries - 1];
+            if (last < 0 || last > buffer.limit() - RECORD_HEADER_SIZE) {
+                return false;
+            }
+            int end = last + RECORD_HEADER_SIZE + buffer.getInt(last);
+            if (end <= last || end > buffer.limit()) {
+                return false;
+            }
+            indexOffsets = offsets;
+            indexPositions = positions;
+            indexTimestamps = timestamps;
+            indexCount = entries;
+            maxTimestamp = timestamps[entries - 1];
+            count = offsets[entries - 1] + 1;
+            lastPosition = last;
+            writer.position(end);
+            return true;
+        }
+
+        /**
+         * Writes the index of a segment which doesn't get any more record, ending with an entry of the last record.
+         */
+        private void writeIndex() {
+            if (count == 0) {
+                return;
+            }
+            if (indexOffsets[indexCount - 1] != count - 1) {
+                addIndexEntry(count - 1, lastPosition);
+            }
+            ByteBuffer index = ByteBuffer.allocate(indexCount * INDEX_ENTRY_SIZE);
+            for (int i = 0; i < indexCount; i++) {
+                index.putInt(indexOffsets[i]).putInt(indexPositions[i]).putLong(indexTimestamps[i]);
+            }
+            index.flip();
+            // Written aside then renamed, so that an index file is always complete
+            File temporary = new File(indexFile.getPath() + ".tmp");
+            RandomAccessFile randomAccessFile = null;
+            try {
+                randomAccessFile = new RandomAccessFile(temporary, "rw");
+                randomAccessFile.setLength(0);
+                FileChannel indexChannel = randomAccessFile.getChannel();
+                while (index.hasRemaining()) {
+                    indexChannel.write(index);
+                }
+                indexChannel.force(true);
+            } catch (IOException e) {
+                throw ioFailure(indexFile, e);
+            } finally {
+                closeQuietly(randomAccessFile);
+            }
+            if (!temporary.renameTo(indexFile)) {
+                if (!indexFile.delete() || !temporary.renameTo(indexFile)) {
+                    throw ioFailure(indexFile, null);
+                }
+            }
+        }
+
+        boolean hasRoom(int recordSize) {
+            return writer.remaining() >= recordSize;
+        }
+
+        void append(MessageCodec.Encoded payload, int crc, long timestamp) {
+            int position = writer.position();
+            writer.putInt(payload.length()).putInt(crc).putLong(timestamp);
+            payload.writeTo(writer);
+            addRecord(position, timestamp);
+        }
+
+        private void addRecord(int position, long timestamp) {
+            if (timestamp > maxTimestamp) {
+                maxTimestamp = timestamp;
+            }
+            if (count == 0 || position - indexPositions[indexCount - 1] >= indexInterval) {
+                addIndexEntry(count, position);
+            }
+            lastPosition = position;
+            count++;
+        }
+
+        private void addIndexEntry(int offset, int position) {
+            int entries = indexCount;
+            if (entries == indexOffsets.length) {
+                indexOffsets = Arrays.copyOf(indexOffsets, entries * 2);
+                indexPositions = Arrays.copyOf(indexPositions, entries * 2);
+                indexTimestamps = Arrays.copyOf(indexTimestamps, entries * 2);
+            }
+            indexOffsets[entries] = offset;
+            indexPositions[entries] = position;
+            indexTimestamps[entries] = maxTimestamp;
+            indexCount = entries + 1;
+        }
+
+        Message read(int index) {
+            int position = positionOf(index);
+            return position >= 0 ? decode(buffer.duplicate(), position) : null;
+        }
+
+        /**
+         * Reads the specified number of consecutive records from the specified one.
+         */
+        int read(int index, int count, Collection<? super Message> messages) {
+            int position = positionOf(index);
+            if (position < 0) {
+                return 0;
+            }
+            ByteBuffer reader = buffer.duplicate();
+            for (int i = 0; i < count; i++) {
+                messages.add(decode(reader, position));
+                position += RECORD_HEADER_SIZE + buffer.getInt(position);
+            }
+            return count;
+        }
+
+        /**
+         * Returns the position of the specified record, found from the closest index entry before it.
+         */
+        private int positionOf(int index) {
+            int entries = indexCount;
+            int[] offsets = indexOffsets;
+            int low = 0;
+            int high = entries - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (offsets[middle] <= index) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (high < 0) {
+                return -1;
+            }
+            int position = indexPositions[high];
+            for (int i = offsets[high]; i < index; i++) {
+                position += RECORD_HEADER_SIZE + buffer.getInt(position);
+            }
+            return position;
+        }
+
+        /**
+         * Decodes the specified record, the body of the message is a slice of the mapped segment.
+         */
+        private Message decode(ByteBuffer reader, int position) {
+            int length = reader.getInt(position);
+            reader.limit(position + RECORD_HEADER_SIZE + length).position(position + RECORD_HEADER_SIZE);
+            try {
+                return MessageCodec.decode(reader);
+            } catch (IOException e) {
+                throw ioFailure(file, e);
+            } finally {
+                reader.limit(reader.capacity());
+            }
+        }
+
+        /**
+         * Returns the index of the first of the specified number of records whose store time is at or after the
+         * specified time, or this number if there is none.
+         */
+        int offsetOfTime(long timestamp, int limit) {
+            int entries = indexCount;
+            if (entries == 0) {
+                return limit;
+            }
+            long[] timestamps = indexTimestamps;
+            int low = 0;
+            int high = entries;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (timestamps[middle] < timestamp) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            // The records up to the previous entry are all earlier than the time
+            int entry = Math.max(0, low - 1);
+            int index = indexOffsets[entry];
+            int position = indexPositions[entry];
+            while (index < limit && buffer.getLong(position + 8) < timestamp) {
+                position += RECORD_HEADER_SIZE + buffer.getInt(position);
+                index++;
+            }
+            return Math.min(index, limit);
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+
+        /**
+         * Flushes the segment and writes its index once no more message is appended to it.
+         */
+        void seal() {
+            buffer.force();
+            writeIndex();
+            lastModified = System.currentTimeMillis();
+        }
+
+        void flush() {
+            buffer.force();
+        }
+
+        void close() {
+            buffer.force();
+            closeQuietly(channel);
+        }
+
+        void delete() {
+            closeQuietly(channel);
+            deleteFile(file);
+            deleteFile(indexFile);
+        }
+
+        private static void deleteFile(File file) {
+            if (file.exists() && !file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+
+        private static void closeQuietly(Closeable closeable) {
+            if (closeable != null) {
+                try {
+                    closeable.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.file;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.exception.OMSRuntimeException;
+import io.openmessaging.inmemory.StreamLog;
+import io.openmessaging.inmemory.StreamLogFactory;
+import io.openmessaging.internal.InternalErrorCode;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the {@link MappedStreamLog}s of a store directory, in {@literal <store>/<namespace>/<stream>}, and flushes
+ * them periodically.
+ * <p>
+ * The store directory is locked while the factory is open, so that a single access point writes into it.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class MappedStreamLogFactory implements StreamLogFactory {
+    public static final long DEFAULT_FLUSH_INTERVAL_TIME = 1000;
+
+    private static final String LOCK_FILE = "lock";
+
+    private final File directory;
+    private final KeyValue attributes;
+    private final RandomAccessFile lockFile;
+    private final FileLock lock;
+    private final Set<MappedStreamLog> logs = new CopyOnWriteArraySet<MappedStreamLog>();
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Opens the store directory of the specified access point attributes.
+     *
+     * @param attributes the attributes of the access point
+     * @throws OMSRuntimeException if the directory can't be opened, or is used by another access point
+     */
+    public MappedStreamLogFactory(KeyValue attributes) {
+        this.attributes = attributes;
+        String path = attributes.getString(FileBuiltinKeys.STORE_PATH, attributes.getString(OMSBuiltinKeys.ACCESS_POINTS));
+        this.directory = path != null ? new File(path) : new File(System.getProperty("java.io.tmpdir"), "openmessaging");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new OMSRuntimeException(InternalErrorCode.STORE_IO_FAILED.name(),
+                InternalErrorCode.STORE_IO_FAILED.formatMessage(directory.getPath()));
+        }
+        this.lockFile = openLockFile();
+        this.lock = tryLock();
+        long interval = attributes.getLong(FileBuiltinKeys.FLUSH_INTERVAL_TIME, DEFAULT_FLUSH_INTERVAL_TIME);
+        if (interval > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "OMS-FileFlusher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            flusher.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    @Override
+    public StreamLog createStreamLog(String namespace, String streamName, KeyValue queueAttributes) {
+        KeyValue logAttributes = OMS.newKeyValue();
+        copy(attributes, logAttributes);
+        copy(queueAttributes, logAttributes);
+        MappedStreamLog log = new MappedStreamLog(new File(new File(directory, namespace), streamName), logAttributes) {
+            @Override
+            public synchronized void close() {
+                super.close();
+                logs.remove(this);
+            }
+        };
+        logs.add(log);
+        return log;
+    }
+
+    /**
+     * Returns the store directory.
+     *
+     * @return the store directory
+     */
+    public File directory() {
+        return directory;
+    }
+
+    /**
+     * Flushes all the open logs to the disk.
+     */
+    public void flush() {
+        for (MappedStreamLog log : logs) {
+            log.flush();
+        }
+    }
+
+    /**
+     * Stops the periodic flushes, closes the open logs and unlocks the store directory.
+     */
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        for (MappedStreamLog log : logs) {
+            log.close();
+        }
+        try {
+            lock.release();
+            lockFile.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    private static void copy(KeyValue from, KeyValue to) {
+        for (String key : from.keySet()) {
+            to.put(key, from.getString(key));
+        }
+    }
+
+    private RandomAccessFile openLockFile() {
+        File file = new File(directory, LOCK_FILE);
+        try {
+            return new RandomAccessFile(file, "rw");
+        } catch (IOException e) {
+            throw new OMSRuntimeException(InternalErrorCode.STORE_IO_FAILED.name(),
+                InternalErrorCode.STORE_IO_FAILED.formatMessage(file.getPath()), e);
+        }
+    }
+
+    private FileLock tryLock() {
+        FileLock lock = null;
+        try {
+            lock = lockFile.getChannel().tryLock();
+        } catch (OverlappingFileLockException ignore) {
+        } catch (IOException ignore) {
+        }
+        if (lock == null) {
+            try {
+                lockFile.close();
+            } catch (IOException ignore) {
+            }
+            throw new OMSRuntimeException(InternalErrorCode.STORE_LOCKED.name(),
+                InternalErrorCode.STORE_LOCKED.formatMessage(directory.getPath()));
+        }
+        return lock;
+    }
+}
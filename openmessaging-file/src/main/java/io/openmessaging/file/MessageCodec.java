@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.file;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMS;
+import io.openmessaging.internal.DefaultBytesMessage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+/**
+ * Encodes the messages stored in the segment files: the system headers, the user headers, then the body. A header
+ * is stored as its string value, and is read back as a {@code String}, which {@link KeyValue} converts to the type
+ * it is read with.
+ * <p>
+ * The body is never copied but into the segment: it is written from {@link BytesMessage#getBodyBuffer()} straight
+ * into the mapped segment, and a decoded message has a read-only slice of the mapped segment as its body.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+final class MessageCodec {
+    private MessageCodec() {
+    }
+
+    static Encoded encode(Message message) {
+        ByteBuffer body = message instanceof BytesMessage ? ((BytesMessage) message).getBodyBuffer() : null;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            writeHeaders(output, message.sysHeaders());
+            writeHeaders(output, message.userHeaders());
+            output.writeInt(body == null ? 0 : body.remaining());
+            output.flush();
+        } catch (IOException e) {
+            // A ByteArrayOutputStream doesn't throw any IOException
+            throw new IllegalStateException(e);
+        }
+        return new Encoded(bytes.toByteArray(), body);
+    }
+
+    /**
+     * Decodes the remaining content of the specified buffer, whose position is moved to its limit. The body of the
+     * message is a slice of the buffer.
+     */
+    static Message decode(ByteBuffer record) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferInputStream(record));
+        KeyValue sysHeaders = readHeaders(input);
+        KeyValue userHeaders = readHeaders(input);
+        int length = record.getInt();
+        if (length < 0 || length > record.remaining()) {
+            throw new EOFException();
+        }
+        ByteBuffer body = record.slice();
+        body.limit(length);
+        record.position(record.limit());
+        DefaultBytesMessage message = new DefaultBytesMessage(sysHeaders, userHeaders);
+        message.setBody(body);
+        return message;
+    }
+
+    private static void writeHeaders(DataOutputStream output, KeyValue headers) throws IOException {
+        Set<String> keys = headers.keySet();
+        output.writeInt(keys.size());
+        for (String key : keys) {
+            output.writeUTF(key);
+            output.writeUTF(headers.getString(key));
+        }
+    }
+
+    private static KeyValue readHeaders(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        KeyValue headers = OMS.newCompactKeyValue(count);
+        for (int i = 0; i < count; i++) {
+            headers.put(input.readUTF(), input.readUTF());
+        }
+        return headers;
+    }
+
+    /**
+     * An encoded message: its headers, followed by the body of the message, which isn't copied.
+     */
+    static final class Encoded {
+        private static final ByteBuffer EMPTY_BODY = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+        private final byte[] headers;
+        private final ByteBuffer body;
+
+        private Encoded(byte[] headers, ByteBuffer body) {
+            this.headers = headers;
+            this.body = body;
+        }
+
+        int length() {
+            return headers.length + (body == null ? 0 : body.remaining());
+        }
+
+        byte[] headers() {
+            return headers;
+        }
+
+        /**
+         * Returns a view of the body, empty if the message doesn't have any.
+         */
+        ByteBuffer body() {
+            return body == null ? EMPTY_BODY.duplicate() : body.duplicate();
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.put(headers);
+            if (body != null) {
+                buffer.put(body.duplicate());
+            }
+        }
+    }
+
+    /**
+     * An {@link InputStream} reading the remaining content of a {@link ByteBuffer}.
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.file;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.OMS;
+import io.openmessaging.inmemory.InMemoryBuiltinKeys;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@code MessagingAccessPoint} of the file driver, loaded from the {@literal oms:file://...} URLs, like
+ * {@literal oms:file:///var/lib/oms/us-east:default} which stores the messages in {@literal /var/lib/oms}.
+ * <p>
+ * It works like the in-memory driver, but stores the streams in the segment files of {@link MappedStreamLog}s, so
+ * they survive a restart. The stored queues are reopened along with the access point, with as many streams as they
+ * had. The cursors of the queues aren't stored, a queue is consumed again from its oldest retained
+ * message after a restart, while the positions of the {@code StreamingConsumer} are the offsets of the messages in
+ * their stream, which stay valid.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class MessagingAccessPointImpl extends io.openmessaging.inmemory.MessagingAccessPointImpl {
+    private final MappedStreamLogFactory streamLogFactory;
+
+    /**
+     * Constructs a {@code MessagingAccessPointImpl} storing the streams in the store directory of the attributes.
+     *
+     * @param attributes the attributes of the access point
+     * @throws io.openmessaging.exception.OMSRuntimeException if the store directory can't be opened
+     */
+    public MessagingAccessPointImpl(KeyValue attributes) {
+        this(attributes, new MappedStreamLogFactory(attributes));
+    }
+
+    private MessagingAccessPointImpl(KeyValue attributes, MappedStreamLogFactory streamLogFactory) {
+        super(attributes, streamLogFactory);
+        this.streamLogFactory = streamLogFactory;
+        restoreQueues();
+    }
+
+    private void restoreQueues() {
+        File[] namespaces = streamLogFactory.directory().listFiles();
+        if (namespaces == null) {
+            return;
+        }
+        for (File namespace : namespaces) {
+            File[] streams = namespace.listFiles();
+            if (streams == null) {
+                continue;
+            }
+            // The streams of a queue are named after it, like <queue>-<index>
+            Map<String, Integer> streamCounts = new HashMap<String, Integer>();
+            for (File stream : streams) {
+                String name = stream.getName();
+                int separator = name.lastIndexOf('-');
+                if (!stream.isDirectory() || separator <= 0) {
+                    continue;
+                }
+                int index;
+                try {
+                    index = Integer.parseInt(name.substring(separator + 1));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                String queue = name.substring(0, separator);
+                Integer count = streamCounts.get(queue);
+                streamCounts.put(queue, Math.max(count != null ? count : 0, index + 1));
+            }
+            for (Map.Entry<String, Integer> entry : streamCounts.entrySet()) {
+                restoreQueue(namespace.getName(), entry.getKey(),
+                    OMS.newKeyValue().put(InMemoryBuiltinKeys.STREAM_COUNT, entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Closes the stream logs and unlocks the store directory.
+     */
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        streamLogFactory.close();
+    }
+}
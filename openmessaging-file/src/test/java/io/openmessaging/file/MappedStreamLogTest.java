@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.file;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMS;
+import io.openmessaging.internal.DefaultBytesMessage;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedStreamLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+        MappedStreamLog log = new MappedStreamLog(folder.getRoot(), OMS.newKeyValue());
+        Message message = new DefaultBytesMessage("HELLO_QUEUE", "HELLO".getBytes())
+            .putSysHeaders(Message.BuiltinKeys.STORE_TIMESTAMP, 1000L)
+            .putUserHeaders("COLOR", "RED");
+        assertThat(log.append(message)).isEqualTo(0);
+        assertThat(log.endOffset()).isEqualTo(1);
+
+        BytesMessage read = (BytesMessage) log.read(0);
+        assertThat(read.getBody()).isEqualTo("HELLO".getBytes());
+        assertThat(read.sysHeaders().getString(Message.BuiltinKeys.DESTINATION)).isEqualTo("HELLO_QUEUE");
+        assertThat(read.sysHeaders().getLong(Message.BuiltinKeys.STORE_TIMESTAMP)).isEqualTo(1000L);
+        assertThat(read.userHeaders().getString("COLOR")).isEqualTo("RED");
+        assertThat(log.read(1)).isNull();
+        assertThat(log.read(-1)).isNull();
+        log.close();
+    }
+
+    @Test
+    public void testBodyNotCopied() throws Exception {
+        MappedStreamLog log = new MappedStreamLog(folder.getRoot(), OMS.newKeyValue());
+        ByteBuffer body = ByteBuffer.allocateDirect(16);
+        body.put("__HELLO__".getBytes()).flip();
+        body.position(2).limit(7);
+        log.append(new DefaultBytesMessage("HELLO_QUEUE", body)
+            .putSysHeaders(Message.BuiltinKeys.STORE_TIMESTAMP, 1000L));
+        log.append(new DefaultBytesMessage("HELLO_QUEUE", new byte[0])
+            .putSysHeaders(Message.BuiltinKeys.STORE_TIMESTAMP, 1000L));
+
+        BytesMessage read = (BytesMessage) log.read(0);
+        // The body is a slice of the mapped segment
+        assertThat(read.getBodyBuffer().isDirect()).isTrue();
+        assertThat(read.getBodyLength()).isEqualTo(5);
+        assertThat(read.getBody()).isEqualTo("HELLO".getBytes());
+        assertThat(((BytesMessage) log.read(1)).getBody()).isEmpty();
+
+        List<Message> messages = new ArrayList<Message>();
+        assertThat(log.read(0, 2, messages)).isEqualTo(2);
+        assertThat(((BytesMessage) messages.get(0)).getBody()).isEqualTo("HELLO".getBytes());
+        assertThat(((BytesMessage) messages.get(1)).getBodyLength()).isEqualTo(0);
+        log.close();
+    }
+
+    @Test
+    public void testRollAndRecover() throws Exception {
+        KeyValue attributes = OMS.newKeyValue().put(FileBuiltinKeys.SEGMENT_SIZE, 256);
+        MappedStreamLog log = new MappedStreamLog(folder.getRoot(), attributes);
+        for (int i = 0; i < 20; i++) {
+            log.append(message(i, 32));
+        }
+        log.append(message(20, 1024));
+        log.close();
+        assertThat(segments()).isGreaterThan(2);
+
+        log = new MappedStreamLog(folder.getRoot(), attributes);
+        assertThat(log.beginOffset()).isEqualTo(0);
+        assertThat(log.endOffset()).isEqualTo(21);
+        for (int i = 0; i <= 20; i++) {
+            assertThat(log.read(i).userHeaders().getInt("INDEX")).isEqualTo(i);
+        }
+        assertThat(log.append(message(21, 32))).isEqualTo(21);
+        assertThat(log.read(21).userHeaders().getInt("INDEX")).isEqualTo(21);
+        log.close();
+    }
+
+    @Test
+    public void testRecoverTornRecord() throws Exception {
+        MappedStreamLog log = new MappedStreamLog(folder.getRoot(), OMS.newKeyValue().put(FileBuiltinKeys.SEGMENT_SIZE, 4096));
+        log.append(message(0, 16));
+        log.append(message(1, 16));
+        log.close();
+
+        File segment = new File(folder.getRoot(), String.format("%020d.log", 0));
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        // Corrupts the last byte of the second record
+        long position = 0;
+        for (int i = 0; i < 2; i++) {
+            file.seek(position);
+            position += 16 + file.readInt();
+        }
+        file.seek(position - 1);
+        int last = file.read();
+        file.seek(position - 1);
+        file.write(last ^ 0xFF);
+        file.close();
+
+        log = new MappedStreamLog(folder.getRoot(), OMS.newKeyValue());
+        assertThat(log.endOffset()).isEqualTo(1);
+        assertThat(log.append(message(1, 16))).isEqualTo(1);
+        assertThat(log.read(1).userHeaders().getInt("INDEX")).isEqualTo(1);
+        log.close();
+    }
+
+    @Test
+    public void testSparseIndex() throws Exception {
+        KeyValue attributes = OMS.newKeyValue()
+            .put(FileBuiltinKeys.SEGMENT_SIZE, 4096)
+            .put(FileBuiltinKeys.INDEX_INTERVAL_BYTES, 256);
+        MappedStreamLog log = new MappedStreamLog(folder.getRoot(), attributes);
+        for (int i = 0; i < 200; i++) {
+            log.append(message(i, i % 50).putSysHeaders(Message.BuiltinKeys.STORE_TIMESTAMP, 1000L + i * 10));
+        }
+        assertIndexed(log);
+        log.close();
+
+        assertThat(count(".index")).isEqualTo(segments() - 1);
+
+        // Loads the index of the sealed segments, or rebuilds it when it is lost
+        assertThat(new File(folder.getRoot(), String.format("%020d.index", 0)).delete()).isTrue();
+        log = new MappedStreamLog(folder.getRoot(), attributes);
+        assertThat(log.endOffset()).isEqualTo(200);
+        assertIndexed(log);
+        log.close();
+    }
+
+    private static void assertIndexed(MappedStreamLog log) {
+        for (int i = 0; i < 200; i++) {
+            assertThat(log.read(i).userHeaders().getInt("INDEX")).isEqualTo(i);
+        }
+        List<Message> messages = new ArrayList<Message>();
+        assertThat(log.read(20, 1000, messages)).isEqualTo(180);
+        for (int i = 0; i < messages.size(); i++) {
+            assertThat(messages.get(i).userHeaders().getInt("INDEX")).isEqualTo(20 + i);
+        }
+        messages.clear();
+        assertThat(log.read(150, 7, messages)).isEqualTo(7);
+        assertThat(messages.get(6).userHeaders().getInt("INDEX")).isEqualTo(156);
+        assertThat(log.read(200, 7, messages)).isEqualTo(0);
+        assertThat(log.offsetOfTime(0)).isEqualTo(0);
+        assertThat(log.offsetOfTime(1000)).isEqualTo(0);
+        assertThat(log.offsetOfTime(1001)).isEqualTo(1);
+        assertThat(log.offsetOfTime(1770)).isEqualTo(77);
+        assertThat(log.offsetOfTime(2990)).isEqualTo(199);
+        assertThat(log.offsetOfTime(2991)).isEqualTo(200);
+    }
+
+    @Test
+    public void testRetention() throws Exception {
+        MappedStreamLog log = new MappedStreamLog(folder.getRoot(), OMS.newKeyValue()
+            .put(FileBuiltinKeys.SEGMENT_SIZE, 256)
+            .put(FileBuiltinKeys.RETENTION_BYTES, 512));
+        for (int i = 0; i < 50; i++) {
+            log.append(message(i, 32));
+        }
+        assertThat(segments()).isLessThanOrEqualTo(2);
+        assertThat(log.beginOffset()).isGreaterThan(0);
+        assertThat(log.read(0)).isNull();
+        assertThat(log.read(log.beginOffset()).userHeaders().getInt("INDEX")).isEqualTo((int) log.beginOffset());
+        assertThat(log.read(49).userHeaders().getInt("INDEX")).isEqualTo(49);
+        log.close();
+    }
+
+    private int segments() {
+        return count(".log");
+    }
+
+    private int count(String suffix) {
+        int count = 0;
+        for (String name : folder.getRoot().list()) {
+            if (name.endsWith(suffix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Message message(int index, int size) {
+        return new DefaultBytesMessage("HELLO_QUEUE", new byte[size]).putUserHeaders("INDEX", index);
+    }
+}
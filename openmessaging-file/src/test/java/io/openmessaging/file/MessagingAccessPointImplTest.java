@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.file;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.MessagingAccessPoint;
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.consumer.PullConsumer;
+import io.openmessaging.consumer.StreamingIterator;
+import io.openmessaging.exception.OMSRuntimeException;
+import io.openmessaging.internal.InternalErrorCode;
+import io.openmessaging.producer.Producer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class MessagingAccessPointImplTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRestart() throws Exception {
+        String url = "oms:file://" + folder.getRoot().getAbsolutePath() + "/us-east:default";
+        MessagingAccessPoint accessPoint = OMS.getMessagingAccessPoint(url);
+        assertThat(accessPoint).isInstanceOf(MessagingAccessPointImpl.class);
+        Producer producer = accessPoint.createProducer();
+        for (int i = 0; i < 3; i++) {
+            producer.send(producer.createBytesMessage("HELLO_QUEUE", new byte[] {(byte) i}));
+        }
+        PullConsumer consumer = accessPoint.createPullConsumer(OMS.newKeyValue().put(OMSBuiltinKeys.OPERATION_TIMEOUT, 10));
+        consumer.attachQueue("HELLO_QUEUE");
+        assertThat(((BytesMessage) consumer.receive()).getBody()).containsOnly((byte) 0);
+        producer.shutdown();
+        accessPoint.shutdown();
+
+        accessPoint = OMS.getMessagingAccessPoint(url);
+        StreamingIterator iterator = accessPoint.createStreamingConsumer().seek("HELLO_QUEUE-0", "1");
+        assertThat(iterator.previousPosition()).isEqualTo("0");
+        assertThat(((BytesMessage) iterator.next()).getBody()).containsOnly((byte) 1);
+        assertThat(((BytesMessage) iterator.next()).getBody()).containsOnly((byte) 2);
+        assertThat(iterator.hasNext()).isFalse();
+        accessPoint.shutdown();
+    }
+
+    @Test
+    public void testStoreLocked() throws Exception {
+        MessagingAccessPointImpl accessPoint = new MessagingAccessPointImpl(OMS.newKeyValue()
+            .put(FileBuiltinKeys.STORE_PATH, folder.getRoot().getAbsolutePath()));
+        try {
+            new MessagingAccessPointImpl(OMS.newKeyValue().put(FileBuiltinKeys.STORE_PATH, folder.getRoot().getAbsolutePath()));
+            failBecauseExceptionWasNotThrown(OMSRuntimeException.class);
+        } catch (OMSRuntimeException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.STORE_LOCKED.name());
+        }
+        accessPoint.shutdown();
+        new MessagingAccessPointImpl(OMS.newKeyValue().put(FileBuiltinKeys.STORE_PATH, folder.getRoot().getAbsolutePath()))
+            .shutdown();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.OMSBuiltinKeys;
+
+/**
+ * The attributes of the queues specific to the in-memory driver, in addition to the {@link OMSBuiltinKeys}.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public interface InMemoryBuiltinKeys {
+    /**
+     * The {@code STREAM_COUNT} key shows the number of streams of a queue, the messages of a queue are spread over
+     * its streams by the hash of their {@code STREAM_KEY} header, or in turn if they don't have one.
+     */
+    String STREAM_COUNT = "STREAM_COUNT";
+
+    /**
+     * The {@code STREAM_CAPACITY} key shows the number of the latest messages retained by each stream of a queue,
+     * rounded up to a power of two.
+     */
+    String STREAM_CAPACITY = "STREAM_CAPACITY";
+}
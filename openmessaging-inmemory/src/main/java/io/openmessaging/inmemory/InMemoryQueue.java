@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A queue made of one or more streams, each one stored in a {@link StreamLog}.
+ * <p>
+ * The consumers of a queue compete for its messages: every stream has a single cursor shared by all of them, which
+ * they advance with a CAS to claim the message under it, so that each message is delivered to one consumer only.
+ * A cursor left behind the retained range of its stream skips to the oldest retained message.
+ * <p>
+ * The messages claimed by a consumer which can't deliver them anymore, like the ones of a prefetch buffer closed when
+ * its queue is detached, are released back to the queue, which delivers them before the ones of its streams.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+class InMemoryQueue {
+    private final String name;
+    private final KeyValue attributes;
+    private final String[] streamNames;
+    private final StreamLog[] logs;
+    private final AtomicLongArray cursors;
+    private final Queue<Message> released = new ConcurrentLinkedQueue<Message>();
+    private final AtomicInteger nextStream = new AtomicInteger();
+    private final Waiters waiters = new Waiters();
+
+    InMemoryQueue(String namespace, String name, KeyValue attributes, StreamLogFactory factory) {
+        this.name = name;
+        this.attributes = attributes;
+        int streams = Math.max(1, attributes.getInt(InMemoryBuiltinKeys.STREAM_COUNT, 1));
+        this.streamNames = new String[streams];
+        this.logs = new StreamLog[streams];
+        this.cursors = new AtomicLongArray(streams);
+        for (int i = 0; i < streams; i++) {
+            streamNames[i] = streamName(name, i);
+            logs[i] = factory.createStreamLog(namespace, streamNames[i], attributes);
+            cursors.set(i, logs[i].beginOffset());
+        }
+    }
+
+    /**
+     * Returns the name of a stream of a queue, the streams of the queue {@code q} are named {@code q-0}, {@code
+     * q-1} and so on.
+     */
+    static String streamName(String queue, int index) {
+        return queue + '-' + index;
+    }
+
+    String name() {
+        return name;
+    }
+
+    KeyValue attributes() {
+        return attributes;
+    }
+
+    List<String> streamNames() {
+        return new ArrayList<String>(Arrays.asList(streamNames));
+    }
+
+    int streamCount() {
+        return logs.length;
+    }
+
+    StreamLog log(int index) {
+        return logs[index];
+    }
+
+    Waiters waiters() {
+        return waiters;
+    }
+
+    /**
+     * Appends a message to a stream of the queue, then wakes the parked consumers.
+     */
+    long append(Message message) {
+        long offset = logs[streamOf(message)].append(message);
+        waiters.wakeAll();
+        return offset;
+    }
+
+    /**
+     * Releases claimed messages, which are delivered again before the next messages of the streams, then wakes the
+     * parked consumers.
+     */
+    void release(Collection<Message> messages) {
+        released.addAll(messages);
+        waiters.wakeAll();
+    }
+
+    /**
+     * Claims the next message of the queue, looking into its streams from the specified one.
+     *
+     * @return the claimed message, or {@code null} if the queue is empty
+     */
+    Message poll(int firstStream) {
+        if (!released.isEmpty()) {
+            Message message = released.poll();
+            if (message != null) {
+                return message;
+            }
+        }
+        int streams = logs.length;
+        for (int i = 0; i < streams; i++) {
+            Message message = claim((firstStream + i) % streams);
+            if (message != null) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Claims the next messages of the queue, up to the specified number and total body size, looking into its
+     * streams from the specified one. The messages of a stream are claimed together, with a single CAS of its
+     * cursor.
+     *
+     * @return the number of claimed messages
+     */
+    int poll(int firstStream, int maxMessages, long maxBytes, Collection<? super Message> messages) {
+        int streams = logs.length;
+        int count = 0;
+        long bytes = 0;
+        if (!released.isEmpty()) {
+            Message message;
+            while (count < maxMessages && (count == 0 || bytes < maxBytes) && (message = released.poll()) != null) {
+                messages.add(message);
+                bytes += bodySize(message);
+                count++;
+            }
+        }
+        List<Message> claimed = new ArrayList<Message>(Math.min(maxMessages, 64));
+        for (int i = 0; i < streams && count < maxMessages && (count == 0 || bytes < maxBytes); i++) {
+            int stream = (firstStream + i) % streams;
+            if (claim(stream, maxMessages - count, count == 0 ? maxBytes : maxBytes - bytes, claimed) > 0) {
+                for (Message message : claimed) {
+                    bytes += bodySize(message);
+                }
+                messages.addAll(claimed);
+                count += claimed.size();
+                claimed.clear();
+            }
+        }
+        return count;
+    }
+
+    void close() {
+        for (StreamLog log : logs) {
+            log.close();
+        }
+    }
+
+    private int streamOf(Message message) {
+        if (logs.length == 1) {
+            return 0;
+        }
+        String key = message.sysHeaders().getString(Message.BuiltinKeys.STREAM_KEY);
+        int hash = key != null ? key.hashCode() : nextStream.getAndIncrement();
+        return (hash & Integer.MAX_VALUE) % logs.length;
+    }
+
+    private int claim(int stream, int maxMessages, long maxBytes, List<Message> claimed) {
+        StreamLog log = logs[stream];
+        for (;;) {
+            long cursor = cursors.get(stream);
+            int count = trim(claimed, log.read(cursor, maxMessages, claimed), maxBytes);
+            if (count == 0) {
+                long begin = log.beginOffset();
+                if (cursor >= begin) {
+                    return 0;
+                }
+                cursors.compareAndSet(stream, cursor, begin);
+            } else if (cursors.compareAndSet(stream, cursor, cursor + count)) {
+                return count;
+            } else {
+                claimed.clear();
+            }
+        }
+    }
+
+    /**
+     * Keeps the messages within the specified total body size, the first one at least.
+     */
+    private static int trim(List<Message> messages, int count, long maxBytes) {
+        long bytes = 0;
+        for (int i = 0; i < count; i++) {
+            bytes += bodySize(messages.get(i));
+            if (bytes > maxBytes && i > 0) {
+                messages.subList(i, count).clear();
+                return i;
+            }
+        }
+        return count;
+    }
+
+    private static int bodySize(Message message) {
+        return message instanceof BytesMessage ? ((BytesMessage) message).getBodyLength() : 0;
+    }
+
+    private Message claim(int stream) {
+        StreamLog log = logs[stream];
+        for (;;) {
+            long cursor = cursors.get(stream);
+            Message message = log.read(cursor);
+            if (message == null) {
+                long begin = log.beginOffset();
+                if (cursor >= begin) {
+                    return null;
+                }
+                cursors.compareAndSet(stream, cursor, begin);
+            } else if (cursors.compareAndSet(stream, cursor, cursor + 1)) {
+                return message;
+            }
+        }
+    }
+}
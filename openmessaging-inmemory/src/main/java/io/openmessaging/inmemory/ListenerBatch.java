@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.consumer.BatchMessageListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The pending batch of a queue attached to a {@link PushConsumerImpl} with a {@link BatchMessageListener}, which is
+ * only accessed by the dispatcher thread of the consumer.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+class ListenerBatch {
+    static final int DEFAULT_MAX_MESSAGES = 32;
+    static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+    static final long DEFAULT_MAX_WAIT = 0;
+
+    private final String queue;
+    private final BatchMessageListener listener;
+    private final int maxMessages;
+    private final long maxBytes;
+    private final long maxWaitNanos;
+
+    private List<Message> messages;
+    private long bytes;
+    private long deadline;
+
+    ListenerBatch(String queue, BatchMessageListener listener, KeyValue attributes) {
+        this.queue = queue;
+        this.listener = listener;
+        this.maxMessages = Math.max(1,
+            attributes.getInt(OMSBuiltinKeys.CONSUME_BATCH_MAX_MESSAGES, DEFAULT_MAX_MESSAGES));
+        this.maxBytes = Math.max(1L, attributes.getLong(OMSBuiltinKeys.CONSUME_BATCH_MAX_BYTES, DEFAULT_MAX_BYTES));
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(
+            Math.max(0L, attributes.getLong(OMSBuiltinKeys.CONSUME_BATCH_MAX_WAIT, DEFAULT_MAX_WAIT)));
+        this.messages = new ArrayList<Message>(maxMessages);
+    }
+
+    String queue() {
+        return queue;
+    }
+
+    BatchMessageListener listener() {
+        return listener;
+    }
+
+    /**
+     * Returns whether the specified message doesn't fit in the pending messages, which must be delivered first.
+     */
+    boolean overflows(Message message) {
+        return !messages.isEmpty() && bytes + bodySize(message) > maxBytes;
+    }
+
+    /**
+     * Adds a message to the batch, returns whether the batch is full.
+     */
+    boolean add(Message message) {
+        if (messages.isEmpty()) {
+            deadline = System.nanoTime() + maxWaitNanos;
+        }
+        messages.add(message);
+        bytes += bodySize(message);
+        return messages.size() >= maxMessages || bytes >= maxBytes;
+    }
+
+    boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    /**
+     * Returns the time to wait in nanoseconds until the batch is due, which is non-positive once it is.
+     */
+    long remainingNanos(long now) {
+        return deadline - now;
+    }
+
+    /**
+     * Takes the pending messages out of the batch.
+     */
+    List<Message> drain() {
+        List<Message> drained = messages;
+        messages = new ArrayList<Message>(maxMessages);
+        bytes = 0;
+        return drained;
+    }
+
+    private static long bodySize(Message message) {
+        return message instanceof BytesMessage ? ((BytesMessage) message).getBodyLength() : 0;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.MessagingAccessPoint;
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.ResourceManager;
+import io.openmessaging.consumer.PullConsumer;
+import io.openmessaging.consumer.PushConsumer;
+import io.openmessaging.consumer.StreamingConsumer;
+import io.openmessaging.producer.Producer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@code MessagingAccessPoint} of the in-memory driver, loaded from the {@literal oms:inmemory://...} URLs,
+ * like {@literal oms:inmemory://localhost/us-east:default}.
+ * <p>
+ * Every access point is a broker of its own, which keeps the messages of its queues in the heap, in lock-free ring
+ * buffers by default. The messages are handed over from the producers to the consumers by reference, without any
+ * copy or serialization, so the driver measures the overhead of the client side of the API itself, and lets the
+ * applications be tested without a live broker. A message is delivered once at most, the acknowledgements are
+ * accepted but don't lead to any redelivery.
+ * <p>
+ * The producers and the consumers work on the namespace of the URL, while the {@link ResourceManager} may be
+ * switched to any namespace.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class MessagingAccessPointImpl implements MessagingAccessPoint {
+    public static final String DEFAULT_NAMESPACE = "default";
+
+    private static final StreamLogFactory RING_STREAM_LOG_FACTORY = new StreamLogFactory() {
+        @Override
+        public StreamLog createStreamLog(String namespace, String streamName, KeyValue queueAttributes) {
+            return new RingStreamLog(queueAttributes.getInt(InMemoryBuiltinKeys.STREAM_CAPACITY,
+                RingStreamLog.DEFAULT_CAPACITY));
+        }
+    };
+
+    private final KeyValue attributes;
+    private final StreamLogFactory streamLogFactory;
+    private final ConcurrentMap<String, Namespace> namespaces = new ConcurrentHashMap<String, Namespace>();
+    private final Namespace namespace;
+    private final ResourceManager resourceManager;
+
+    /**
+     * Constructs a {@code MessagingAccessPointImpl} storing the streams in ring buffers.
+     *
+     * @param attributes the attributes of the access point
+     */
+    public MessagingAccessPointImpl(KeyValue attributes) {
+        this(attributes, RING_STREAM_LOG_FACTORY);
+    }
+
+    /**
+     * Constructs a {@code MessagingAccessPointImpl} storing the streams in the logs of the specified factory.
+     *
+     * @param attributes the attributes of the access point
+     * @param streamLogFactory the factory of the stream logs
+     */
+    protected MessagingAccessPointImpl(KeyValue attributes, StreamLogFactory streamLogFactory) {
+        this.attributes = attributes;
+        this.streamLogFactory = streamLogFactory;
+        String name = attributes.getString(OMSBuiltinKeys.NAMESPACE, DEFAULT_NAMESPACE);
+        this.namespace = new Namespace(name, OMS.newKeyValue(), streamLogFactory);
+        this.namespaces.put(name, namespace);
+        this.resourceManager = new ResourceManagerImpl(this, namespace);
+    }
+
+    @Override
+    public String implVersion() {
+        return OMS.specVersion;
+    }
+
+    @Override
+    public KeyValue attributes() {
+        return attributes;
+    }
+
+    @Override
+    public Producer createProducer() {
+        return createProducer(OMS.newKeyValue());
+    }
+
+    @Override
+    public Producer createProducer(KeyValue attributes) {
+        return new ProducerImpl(namespace, attributes);
+    }
+
+    @Override
+    public PushConsumer createPushConsumer() {
+        return createPushConsumer(OMS.newKeyValue());
+    }
+
+    @Override
+    public PushConsumer createPushConsumer(KeyValue attributes) {
+        return new PushConsumerImpl(namespace, attributes);
+    }
+
+    @Override
+    public PullConsumer createPullConsumer() {
+        return createPullConsumer(OMS.newKeyValue());
+    }
+
+    @Override
+    public PullConsumer createPullConsumer(KeyValue attributes) {
+        return new PullConsumerImpl(namespace, attributes);
+    }
+
+    @Override
+    public StreamingConsumer createStreamingConsumer() {
+        return createStreamingConsumer(OMS.newKeyValue());
+    }
+
+    @Override
+    public StreamingConsumer createStreamingConsumer(KeyValue attributes) {
+        return new StreamingConsumerImpl(namespace, attributes);
+    }
+
+    @Override
+    public ResourceManager resourceManager() {
+        return resourceManager;
+    }
+
+    @Override
+    public void startup() {
+    }
+
+    /**
+     * Closes the logs of all the streams.
+     */
+    @Override
+    public void shutdown() {
+        for (Namespace namespace : namespaces.values()) {
+            namespace.close();
+        }
+    }
+
+    /**
+     * Creates a queue whose streams are already stored by the stream log factory, like after a restart of a
+     * persistent driver, along with its namespace if needed.
+     *
+     * @param namespaceName the namespace of the queue
+     * @param queueName the name of the queue
+     * @param queueAttributes the attributes of the queue
+     */
+    protected void restoreQueue(String namespaceName, String queueName, KeyValue queueAttributes) {
+        Namespace namespace = findNamespace(namespaceName);
+        if (namespace == null) {
+            namespace = createNamespace(namespaceName, OMS.newKeyValue());
+        }
+        namespace.createQueue(queueName, queueAttributes);
+    }
+
+    Namespace findNamespace(String name) {
+        return namespaces.get(name);
+    }
+
+    Namespace createNamespace(String name, KeyValue attributes) {
+        Namespace created = new Namespace(name, attributes, streamLogFactory);
+        Namespace existing = namespaces.putIfAbsent(name, created);
+        return existing != null ? existing : created;
+    }
+
+    boolean deleteNamespace(String name) {
+        Namespace removed = namespaces.remove(name);
+        if (removed == null) {
+            return false;
+        }
+        removed.close();
+        return true;
+    }
+
+    List<String> namespaceNames() {
+        return new ArrayList<String>(namespaces.keySet());
+    }
+}
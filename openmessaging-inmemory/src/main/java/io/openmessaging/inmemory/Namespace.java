@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.OMS;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A namespace holding the queues and the routings of an in-memory broker. A queue is created with the default
+ * attributes when it is used before being created.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+class Namespace {
+    private final String name;
+    private final StreamLogFactory streamLogFactory;
+    private final ConcurrentMap<String, InMemoryQueue> queues = new ConcurrentHashMap<String, InMemoryQueue>();
+    private final ConcurrentMap<String, KeyValue> routings = new ConcurrentHashMap<String, KeyValue>();
+    private volatile KeyValue attributes;
+
+    Namespace(String name, KeyValue attributes, StreamLogFactory streamLogFactory) {
+        this.name = name;
+        this.attributes = attributes;
+        this.streamLogFactory = streamLogFactory;
+    }
+
+    String name() {
+        return name;
+    }
+
+    KeyValue attributes() {
+        return attributes;
+    }
+
+    void attributes(KeyValue attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * Returns the specified queue, which is created if it doesn't exist.
+     */
+    InMemoryQueue queue(String queueName) {
+        InMemoryQueue queue = queues.get(queueName);
+        return queue != null ? queue : createQueue(queueName, OMS.newKeyValue());
+    }
+
+    /**
+     * Returns the specified queue, or {@code null} if it doesn't exist.
+     */
+    InMemoryQueue findQueue(String queueName) {
+        return queues.get(queueName);
+    }
+
+    InMemoryQueue createQueue(String queueName, KeyValue attributes) {
+        // Serializes the creations, so that the logs of a queue are never created twice
+        synchronized (queues) {
+            InMemoryQueue queue = queues.get(queueName);
+            if (queue == null) {
+                queue = new InMemoryQueue(name, queueName, attributes, streamLogFactory);
+                queues.put(queueName, queue);
+            }
+            return queue;
+        }
+    }
+
+    boolean deleteQueue(String queueName) {
+        InMemoryQueue queue = queues.remove(queueName);
+        if (queue == null) {
+            return false;
+        }
+        queue.close();
+        return true;
+    }
+
+    List<String> queueNames() {
+        return new ArrayList<String>(queues.keySet());
+    }
+
+    /**
+     * Returns the log of the specified stream, or {@code null} if it doesn't exist.
+     */
+    StreamLog findStream(String streamName) {
+        int separator = streamName.lastIndexOf('-');
+        if (separator < 0) {
+            return null;
+        }
+        InMemoryQueue queue = queues.get(streamName.substring(0, separator));
+        if (queue == null) {
+            return null;
+        }
+        try {
+            int index = Integer.parseInt(streamName.substring(separator + 1));
+            return index >= 0 && index < queue.streamCount() ? queue.log(index) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    ConcurrentMap<String, KeyValue> routings() {
+        return routings;
+    }
+
+    void close() {
+        for (InMemoryQueue queue : queues.values()) {
+            queue.close();
+        }
+    }
+}
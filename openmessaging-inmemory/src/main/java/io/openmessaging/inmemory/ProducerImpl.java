@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.Future;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.interceptor.ProducerInterceptor;
+import io.openmessaging.internal.AsyncSender;
+import io.openmessaging.internal.BatchAccumulator;
+import io.openmessaging.internal.BatchTransport;
+import io.openmessaging.internal.DefaultBytesMessage;
+import io.openmessaging.internal.DefaultPromise;
+import io.openmessaging.internal.InternalErrorCode;
+import io.openmessaging.internal.ProducerInterceptorChain;
+import io.openmessaging.internal.SendWindow;
+import io.openmessaging.producer.BatchMessageSender;
+import io.openmessaging.producer.LocalTransactionBranchExecutor;
+import io.openmessaging.producer.Producer;
+import io.openmessaging.producer.SendResult;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.openmessaging.internal.InternalErrorCode.generateInternalException;
+
+/**
+ * The {@code Producer} of the in-memory driver, which appends the messages to the streams of their destination
+ * queue right in the calling thread.
+ * <p>
+ * The asynchronous sends go through a {@link SendWindow} and a {@link BatchAccumulator}, configured by the
+ * attributes of the producer like the ones of a remote driver, so that their overhead can be measured too.
+ * <p>
+ * A message without a {@link Message.BuiltinKeys#MESSAGE_ID} is given one made of the producer id and a sequence
+ * number, its {@link Message.BuiltinKeys#BORN_TIMESTAMP} is set unless it has one already, and its
+ * {@link Message.BuiltinKeys#STORE_TIMESTAMP} is set when it is sent.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+class ProducerImpl implements Producer {
+    private static final AtomicLong PRODUCER_IDS = new AtomicLong();
+
+    private final Namespace namespace;
+    private final KeyValue attributes;
+    private final String messageIdPrefix;
+    private final AtomicLong messageIds = new AtomicLong();
+    private final ProducerInterceptorChain interceptors = new ProducerInterceptorChain();
+    private final BatchAccumulator accumulator;
+    private final AsyncSender asyncSender;
+    private volatile boolean shutdown;
+
+    ProducerImpl(final Namespace namespace, KeyValue attributes) {
+        this.namespace = namespace;
+        this.attributes = attributes;
+        if (!attributes.containsKey(OMSBuiltinKeys.PRODUCER_ID)) {
+            attributes.put(OMSBuiltinKeys.PRODUCER_ID, "OMS-Producer-" + PRODUCER_IDS.incrementAndGet());
+        }
+        this.messageIdPrefix = attributes.getString(OMSBuiltinKeys.PRODUCER_ID) + '-';
+        this.accumulator = new BatchAccumulator(attributes, new BatchTransport() {
+            @Override
+            public Future<List<SendResult>> sendBatch(String queue, List<Message> messages) {
+                InMemoryQueue destination = namespace.queue(queue);
+                List<SendResult> results = new ArrayList<SendResult>(messages.size());
+                for (Message message : messages) {
+                    destination.append(message);
+                    results.add(new DefaultSendResult(message.sysHeaders().getString(Message.BuiltinKeys.MESSAGE_ID)));
+                }
+                DefaultPromise<List<SendResult>> promise = new DefaultPromise<List<SendResult>>();
+                promise.set(results);
+                return promise;
+            }
+        });
+        this.asyncSender = new SendWindow(attributes, accumulator);
+    }
+
+    @Override
+    public KeyValue attributes() {
+        return attributes;
+    }
+
+    @Override
+    public SendResult send(Message message) {
+        InMemoryQueue queue = destinationOf(message);
+        return append(queue, message, stamp(message));
+    }
+
+    @Override
+    public SendResult send(Message message, KeyValue attributes) {
+        return send(message);
+    }
+
+    @Override
+    public SendResult send(Message message, LocalTransactionBranchExecutor branchExecutor, KeyValue attributes) {
+        InMemoryQueue queue = destinationOf(message);
+        String messageId = stamp(message);
+        TransactionBranch branch = new TransactionBranch();
+        branchExecutor.doLocalTransactionBranch(message, branch);
+        if (!branch.resolved) {
+            branchExecutor.checkLocalTransactionBranch(message, branch);
+        }
+        if (branch.committed) {
+            return append(queue, message, messageId);
+        }
+        return new DefaultSendResult(messageId);
+    }
+
+    @Override
+    public Future<SendResult> sendAsync(Message message) {
+        checkSendable(message);
+        stamp(message);
+        ProducerInterceptorChain.Invocation invocation = interceptors.beforeAsync(message);
+        Future<SendResult> future;
+        try {
+            future = asyncSender.sendAsync(message);
+        } catch (RuntimeException e) {
+            interceptors.after(invocation, null, e);
+            throw e;
+        }
+        interceptors.after(invocation, future);
+        return future;
+    }
+
+    @Override
+    public Future<SendResult> sendAsync(Message message, KeyValue attributes) {
+        return sendAsync(message);
+    }
+
+    @Override
+    public BatchMessageSender createBatchMessageSender() {
+        return new BatchMessageSenderImpl();
+    }
+
+    @Override
+    public void addInterceptor(ProducerInterceptor interceptor) {
+        interceptors.add(interceptor);
+    }
+
+    @Override
+    public void removeInterceptor(ProducerInterceptor interceptor) {
+        interceptors.remove(interceptor);
+    }
+
+    @Override
+    public BytesMessage createBytesMessage(String queue, byte[] body) {
+        return new DefaultBytesMessage(queue, body);
+    }
+
+    @Override
+    public BytesMessage createBytesMessage(String queue, ByteBuffer body) {
+        return new DefaultBytesMessage(queue, body);
+    }
+
+    @Override
+    public void startup() {
+    }
+
+    /**
+     * Sends the pending batches and rejects any further message.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        accumulator.shutdown();
+    }
+
+    private String checkSendable(Message message) {
+        String queue = message.sysHeaders().getString(Message.BuiltinKeys.DESTINATION);
+        if (queue == null) {
+            throw generateInternalException(InternalErrorCode.MESSAGE_DESTINATION_MISSING,
+                message.sysHeaders().getString(Message.BuiltinKeys.MESSAGE_ID));
+        }
+        if (shutdown) {
+            throw generateInternalException(InternalErrorCode.PRODUCER_SHUTDOWN, queue);
+        }
+        return queue;
+    }
+
+    private InMemoryQueue destinationOf(Message message) {
+        return namespace.queue(checkSendable(message));
+    }
+
+    private String stamp(Message message) {
+        KeyValue headers = message.sysHeaders();
+        String messageId = headers.getString(Message.BuiltinKeys.MESSAGE_ID);
+        if (messageId == null) {
+            messageId = messageIdPrefix + messageIds.incrementAndGet();
+            headers.put(Message.BuiltinKeys.MESSAGE_ID, messageId);
+        }
+        long now = System.currentTimeMillis();
+        if (!headers.containsKey(Message.BuiltinKeys.BORN_TIMESTAMP)) {
+            headers.put(Message.BuiltinKeys.BORN_TIMESTAMP, now);
+        }
+        headers.put(Message.BuiltinKeys.STORE_TIMESTAMP, now);
+        return messageId;
+    }
+
+    private SendResult append(InMemoryQueue queue, Message message, String messageId) {
+        ProducerInterceptorChain.Invocation invocation = interceptors.before(message);
+        try {
+            queue.append(message);
+        } catch (RuntimeException e) {
+            interceptors.after(invocation, null, e);
+            throw e;
+        }
+        SendResult result = new DefaultSendResult(messageId);
+        interceptors.after(invocation, result, null);
+        return result;
+    }
+
+    private static final class TransactionBranch implements LocalTransactionBranchExecutor.DoLocalTransactionBranchContext,
+        LocalTransactionBranchExecutor.CheckLocalTransactionBranchContext {
+        private boolean resolved;
+        private boolean committed;
+
+        @Override
+        public void commit() {
+            resolved = true;
+            committed = true;
+        }
+
+        @Override
+        public void rollback() {
+            resolved = true;
+            committed = false;
+        }
+    }
+
+    private final class BatchMessageSenderImpl implements BatchMessageSender {
+        private final List<Message> messages = new ArrayList<Message>();
+
+        @Override
+        public synchronized void send(Message message) {
+            checkSendable(message);
+            stamp(message);
+            messages.add(message);
+        }
+
+        @Override
+        public void send(Message message, KeyValue properties) {
+            send(message);
+        }
+
+        @Override
+        public synchronized void commit() {
+            for (Message message : messages) {
+                append(destinationOf(message), message,
+                    message.sysHeaders().getString(Message.BuiltinKeys.MESSAGE_ID));
+            }
+            messages.clear();
+        }
+
+        @Override
+        public synchronized void rollback() {
+            messages.clear();
+        }
+
+        @Override
+        public void close() {
+            rollback();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.OMS;
+import io.openmessaging.consumer.PullConsumer;
+import io.openmessaging.internal.PrefetchBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code PullConsumer} of the in-memory driver.
+ * <p>
+ * A {@link #receive()} waits for a message up to the {@link OMSBuiltinKeys#OPERATION_TIMEOUT} of the consumer, or
+ * indefinitely if it isn't set, and is woken right away by the producers. A {@link #receive(int, long)} claims the
+ * available messages of a stream together, with a single update of its cursor.
+ * <p>
+ * A queue attached with a positive {@link OMSBuiltinKeys#PREFETCH_MAX_MESSAGES}, in its attributes or else in the
+ * ones of the consumer, is read through a {@link PrefetchBuffer}, refilled by a {@link QueueFetcher} thread. The
+ * prefetched messages are claimed from the queue already, they are released back to the queue when it is detached,
+ * or attached again without prefetching.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+class PullConsumerImpl implements PullConsumer {
+    private static final AtomicLong CONSUMER_IDS = new AtomicLong();
+
+    private final Namespace namespace;
+    private final KeyValue attributes;
+    private final QueueReader reader = new QueueReader();
+    private final Map<String, Prefetch> prefetches = new HashMap<String, Prefetch>();
+
+    PullConsumerImpl(Namespace namespace, KeyValue attributes) {
+        this.namespace = namespace;
+        this.attributes = attributes;
+        if (!attributes.containsKey(OMSBuiltinKeys.CONSUMER_ID)) {
+            attributes.put(OMSBuiltinKeys.CONSUMER_ID, "OMS-PullConsumer-" + CONSUMER_IDS.incrementAndGet());
+        }
+    }
+
+    @Override
+    public KeyValue attributes() {
+        return attributes;
+    }
+
+    @Override
+    public PullConsumer attachQueue(String queueName) {
+        closePrefetch(queueName);
+        reader.attach(namespace.queue(queueName));
+        return this;
+    }
+
+    @Override
+    public PullConsumer attachQueue(String queueName, KeyValue attributes) {
+        KeyValue prefetchAttributes = OMS.newKeyValue();
+        copy(this.attributes, prefetchAttributes);
+        copy(attributes, prefetchAttributes);
+        if (prefetchAttributes.getInt(OMSBuiltinKeys.PREFETCH_MAX_MESSAGES, 0) <= 0) {
+            return attachQueue(queueName);
+        }
+        detachQueue(queueName);
+        QueueFetcher fetcher = new QueueFetcher(namespace.queue(queueName),
+            "OMS-Prefetcher-" + this.attributes.getString(OMSBuiltinKeys.CONSUMER_ID) + "-" + queueName);
+        PrefetchBuffer buffer = new PrefetchBuffer(queueName, prefetchAttributes, fetcher, new Runnable() {
+            @Override
+            public void run() {
+                reader.wake();
+            }
+        });
+        synchronized (prefetches) {
+            prefetches.put(queueName, new Prefetch(buffer, fetcher));
+        }
+        reader.attach(buffer);
+        buffer.start();
+        return this;
+    }
+
+    @Override
+    public PullConsumer detachQueue(String queueName) {
+        reader.detach(queueName);
+        closePrefetch(queueName);
+        return this;
+    }
+
+    /**
+     * Stops reading the specified queue through a prefetch buffer, if it is, and releases its messages.
+     */
+    private void closePrefetch(String queueName) {
+        Prefetch prefetch;
+        synchronized (prefetches) {
+            prefetch = prefetches.remove(queueName);
+        }
+        if (prefetch != null) {
+            reader.detach(queueName);
+            prefetch.close();
+        }
+    }
+
+    /**
+     * Returns the prefetch buffer of the specified queue, which holds the metrics of the prefetching.
+     *
+     * @return the prefetch buffer, or {@code null} if the queue isn't prefetched
+     */
+    PrefetchBuffer prefetchBuffer(String queueName) {
+        synchronized (prefetches) {
+            Prefetch prefetch = prefetches.get(queueName);
+            return prefetch != null ? prefetch.buffer : null;
+        }
+    }
+
+    @Override
+    public Message receive() {
+        return reader.take(attributes.getLong(OMSBuiltinKeys.OPERATION_TIMEOUT, 0));
+    }
+
+    @Override
+    public Message receive(KeyValue attributes) {
+        return reader.take(attributes.getLong(OMSBuiltinKeys.OPERATION_TIMEOUT,
+            this.attributes.getLong(OMSBuiltinKeys.OPERATION_TIMEOUT, 0)));
+    }
+
+    @Override
+    public List<Message> receive(int maxMessages, long timeout) {
+        List<Message> messages = new ArrayList<Message>(Math.max(0, Math.min(maxMessages, 256)));
+        reader.take(maxMessages, Long.MAX_VALUE, messages, timeout);
+        return messages;
+    }
+
+    @Override
+    public void ack(String messageId) {
+    }
+
+    @Override
+    public void ack(String messageId, KeyValue attributes) {
+    }
+
+    @Override
+    public void ack(List<String> messageIds) {
+    }
+
+    @Override
+    public void ackUpTo(String messageId) {
+    }
+
+    @Override
+    public void startup() {
+    }
+
+    /**
+     * Wakes the threads waiting for a message, which receive {@code null}, and stops the prefetching.
+     */
+    @Override
+    public void shutdown() {
+        reader.close();
+        synchronized (prefetches) {
+            for (Prefetch prefetch : prefetches.values()) {
+                prefetch.close();
+            }
+            prefetches.clear();
+        }
+    }
+
+    private static void copy(KeyValue from, KeyValue to) {
+        for (String key : from.keySet()) {
+            to.put(key, from.getString(key));
+        }
+    }
+
+    private static final class Prefetch {
+        private final PrefetchBuffer buffer;
+        private final QueueFetcher fetcher;
+
+        Prefetch(PrefetchBuffer buffer, QueueFetcher fetcher) {
+            this.buffer = buffer;
+            this.fetcher = fetcher;
+        }
+
+        /**
+         * Ends the fetching first, so that the pending long-poll doesn't claim the messages released by the buffer.
+         */
+        void close() {
+            fetcher.close();
+            buffer.close();
+        }
+    }
+}
@@ -0,0 +1,542 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.consumer.BatchMessageListener;
+import io.openmessaging.consumer.MessageListener;
+import io.openmessaging.consumer.PushConsumer;
+import io.openmessaging.interceptor.PushConsumerInterceptor;
+import io.openmessaging.internal.FlowCredits;
+import io.openmessaging.internal.PushConsumerInterceptorChain;
+import io.openmessaging.internal.TaskDispatcher;
+import io.openmessaging.internal.TaskDispatchers;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code PushConsumer} of the in-memory driver, which delivers the messages of its attached queues on a
+ * dispatcher thread of its own, started by {@link #startup()}.
+ * <p>
+ * A listener throwing an exception, or an error, doesn't stop the delivery, its message is considered consumed.
+ * <p>
+ * With more than one {@link OMSBuiltinKeys#CONSUME_THREADS}, or with a {@link OMSBuiltinKeys#CONSUME_THREAD_MODE},
+ * the dispatcher thread hands the messages over to a {@link TaskDispatcher}, which calls the listeners concurrently
+ * while keeping the order of the messages with the same {@link Message.BuiltinKeys#STREAM_KEY}.
+ * <p>
+ * The dispatcher thread also gathers the messages of the queues attached with a {@link BatchMessageListener}, it
+ * waits for a message up to the due time of the earliest pending batch. The batches of a queue are handed over to
+ * the consume threads with the queue name as the ordering key. The pending batch of a queue which is detached, or
+ * attached again, is still delivered to its listener, as its messages are claimed already.
+ * <p>
+ * With a {@link OMSBuiltinKeys#CONSUME_CREDIT_MESSAGES} or {@link OMSBuiltinKeys#CONSUME_CREDIT_BYTES}, the
+ * dispatcher thread receives a message only once the {@link FlowCredits} of the consumer allow it. A delivered
+ * message holds its credits until it is acknowledged through its context, or until its listener throws.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+class PushConsumerImpl implements PushConsumer {
+    private static final AtomicLong CONSUMER_IDS = new AtomicLong();
+
+    private static final long RUNNING = 0;
+    private static final long HAND_OVER_TIMEOUT = 100;
+    private static final long RETIRED_BATCH_CHECK = 100;
+    /**
+     * The maximum number of available messages gathered into the batches after a take.
+     */
+    private static final int GATHER_LIMIT = 1024;
+
+    private final Namespace namespace;
+    private final KeyValue attributes;
+    private final QueueReader reader = new QueueReader();
+    private final ConcurrentMap<String, MessageListener> listeners = new ConcurrentHashMap<String, MessageListener>();
+    private final ConcurrentMap<String, ListenerBatch> batches = new ConcurrentHashMap<String, ListenerBatch>();
+    /**
+     * The batches replaced or detached, whose pending messages are claimed already and are still to be delivered by
+     * the dispatcher thread to their listener.
+     */
+    private final Queue<ListenerBatch> retiredBatches = new ConcurrentLinkedQueue<ListenerBatch>();
+    private final PushConsumerInterceptorChain interceptors = new PushConsumerInterceptorChain();
+    /**
+     * {@link #RUNNING}, or the time in milliseconds until which the consumer is suspended.
+     */
+    private final AtomicLong suspendedUntil = new AtomicLong(RUNNING);
+    private final TaskDispatcher workers;
+    private final FlowCredits credits;
+    private Thread dispatcher;
+    private volatile boolean shutdown;
+
+    PushConsumerImpl(Namespace namespace, KeyValue attributes) {
+        this.namespace = namespace;
+        this.attributes = attributes;
+        if (!attributes.containsKey(OMSBuiltinKeys.CONSUMER_ID)) {
+            attributes.put(OMSBuiltinKeys.CONSUMER_ID, "OMS-PushConsumer-" + CONSUMER_IDS.incrementAndGet());
+        }
+        this.workers = attributes.getInt(OMSBuiltinKeys.CONSUME_THREADS, 1) > 1
+            || attributes.containsKey(OMSBuiltinKeys.CONSUME_THREAD_MODE)
+            ? TaskDispatchers.newDispatcher(attributes.getString(OMSBuiltinKeys.CONSUMER_ID), attributes) : null;
+        this.credits = FlowCredits.isLimited(attributes) ? new FlowCredits(attributes) : null;
+    }
+
+    @Override
+    public KeyValue attributes() {
+        return attributes;
+    }
+
+    @Override
+    public void resume() {
+        suspendedUntil.set(RUNNING);
+        Thread dispatcher = dispatcher();
+        if (dispatcher != null) {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    @Override
+    public void suspend() {
+        suspendedUntil.set(Long.MAX_VALUE);
+        reader.interrupt();
+    }
+
+    @Override
+    public void suspend(long timeout) {
+        suspendedUntil.set(System.currentTimeMillis() + timeout);
+        reader.interrupt();
+    }
+
+    @Override
+    public boolean isSuspended() {
+        long until = suspendedUntil.get();
+        return until != RUNNING && until > System.currentTimeMillis();
+    }
+
+    @Override
+    public PushConsumer attachQueue(String queueName, MessageListener listener) {
+        retire(batches.remove(queueName));
+        listeners.put(queueName, listener);
+        reader.attach(namespace.queue(queueName));
+        return this;
+    }
+
+    @Override
+    public PushConsumer attachQueue(String queueName, MessageListener listener, KeyValue attributes) {
+        return attachQueue(queueName, listener);
+    }
+
+    @Override
+    public PushConsumer attachQueue(String queueName, BatchMessageListener listener) {
+        return attachQueue(queueName, listener, OMS.newKeyValue());
+    }
+
+    @Override
+    public PushConsumer attachQueue(String queueName, BatchMessageListener listener, KeyValue attributes) {
+        KeyValue batchAttributes = OMS.newKeyValue();
+        copy(this.attributes, batchAttributes);
+        copy(attributes, batchAttributes);
+        listeners.remove(queueName);
+        retire(batches.put(queueName, new ListenerBatch(queueName, listener, batchAttributes)));
+        reader.attach(namespace.queue(queueName));
+        return this;
+    }
+
+    @Override
+    public PushConsumer detachQueue(String queueName) {
+        reader.detach(queueName);
+        listeners.remove(queueName);
+        retire(batches.remove(queueName));
+        return this;
+    }
+
+    @Override
+    public void addInterceptor(PushConsumerInterceptor interceptor) {
+        interceptors.add(interceptor);
+    }
+
+    @Override
+    public void removeInterceptor(PushConsumerInterceptor interceptor) {
+        interceptors.remove(interceptor);
+    }
+
+    @Override
+    public synchronized void startup() {
+        if (dispatcher != null || shutdown) {
+            return;
+        }
+        if (workers != null) {
+            workers.startup();
+        }
+        dispatcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dispatch();
+            }
+        }, attributes.getString(OMSBuiltinKeys.CONSUMER_ID));
+        dispatcher.start();
+    }
+
+    /**
+     * Stops the delivery, and waits for the messages being delivered if any, including the ones received already
+     * by the consume threads.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        reader.close();
+        if (credits != null) {
+            credits.close();
+        }
+        Thread dispatcher = dispatcher();
+        if (dispatcher == null) {
+            return;
+        }
+        if (dispatcher != Thread.currentThread()) {
+            LockSupport.unpark(dispatcher);
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Gives back the credits of the batches retired after the last flush of the dispatcher thread
+            ListenerBatch retired;
+            while ((retired = retiredBatches.poll()) != null) {
+                release(retired.drain());
+            }
+        }
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Returns the flow credits of the consumer, which hold the metrics of the flow control.
+     *
+     * @return the flow credits, or {@code null} if the credits aren't limited
+     */
+    FlowCredits flowCredits() {
+        return credits;
+    }
+
+    private synchronized Thread dispatcher() {
+        return dispatcher;
+    }
+
+    private void dispatch() {
+        while (!shutdown) {
+            // Reads the interruptions first, so that a suspension after the check interrupts the take
+            int interruption = reader.interruptions();
+            awaitResumed();
+            // Waits for the credits no longer than the pending batches, whose messages hold credits already, and
+            // checks for the retired batches meanwhile
+            if (credits != null && !credits.await(creditTimeout())) {
+                flushBatches(false);
+                continue;
+            }
+            Message message = reader.take(batchTimeout(), interruption);
+            if (message != null) {
+                route(message);
+                for (int i = 0; i < GATHER_LIMIT && !batches.isEmpty() && hasCredit()
+                    && (message = reader.poll()) != null; i++) {
+                    route(message);
+                }
+            }
+            flushBatches(false);
+        }
+        flushBatches(true);
+    }
+
+    /**
+     * Returns the time in milliseconds until the earliest pending batch is due, zero if there isn't any.
+     */
+    private long batchTimeout() {
+        long now = System.nanoTime();
+        long remaining = Long.MAX_VALUE;
+        for (ListenerBatch batch : batches.values()) {
+            if (!batch.isEmpty()) {
+                remaining = Math.min(remaining, batch.remainingNanos(now));
+            }
+        }
+        if (!retiredBatches.isEmpty()) {
+            remaining = 0;
+        }
+        return remaining == Long.MAX_VALUE ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining));
+    }
+
+    private long creditTimeout() {
+        long timeout = batchTimeout();
+        if (batches.isEmpty()) {
+            return timeout;
+        }
+        return timeout == 0 ? RETIRED_BATCH_CHECK : Math.min(timeout, RETIRED_BATCH_CHECK);
+    }
+
+    private boolean hasCredit() {
+        return credits == null || credits.hasCredit();
+    }
+
+    private void route(final Message message) {
+        if (credits != null) {
+            credits.acquire(message);
+        }
+        ListenerBatch batch = batches.get(message.sysHeaders().getString(Message.BuiltinKeys.DESTINATION));
+        if (batch != null) {
+            if (batch.overflows(message)) {
+                handOver(batch);
+            }
+            if (batch.add(message)) {
+                handOver(batch);
+            }
+            return;
+        }
+        if (workers == null) {
+            deliver(message);
+            return;
+        }
+        Runnable delivery = new Runnable() {
+            @Override
+            public void run() {
+                deliver(message);
+            }
+        };
+        if (!handOver(message.sysHeaders().getString(Message.BuiltinKeys.STREAM_KEY), delivery) && credits != null) {
+            credits.release(message);
+        }
+    }
+
+    private void retire(ListenerBatch batch) {
+        if (batch != null) {
+            retiredBatches.add(batch);
+            reader.interrupt();
+        }
+    }
+
+    private void flushBatches(boolean all) {
+        ListenerBatch retired;
+        while ((retired = retiredBatches.poll()) != null) {
+            if (!retired.isEmpty()) {
+                handOver(retired);
+            }
+        }
+        long now = System.nanoTime();
+        for (ListenerBatch batch : batches.values()) {
+            if (!batch.isEmpty() && (all || batch.remainingNanos(now) <= 0)) {
+                handOver(batch);
+            }
+        }
+    }
+
+    /**
+     * Runs the delivery inline, or queues it on a consume thread, giving up only on a shutdown, which may be
+     * called by a listener whose own queue is full.
+     */
+    private boolean handOver(String key, Runnable delivery) {
+        if (workers == null) {
+            delivery.run();
+            return true;
+        }
+        while (!workers.dispatch(key, delivery, HAND_OVER_TIMEOUT)) {
+            if (shutdown || Thread.interrupted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hands the pending messages of a batch over to its listener, or gives their credits back if the delivery is
+     * given up.
+     */
+    private void handOver(ListenerBatch batch) {
+        List<Message> messages = batch.drain();
+        if (!handOver(batch.queue(), batchDelivery(batch, messages))) {
+            release(messages);
+        }
+    }
+
+    private void release(List<Message> messages) {
+        if (credits == null) {
+            return;
+        }
+        long size = 0;
+        for (Message message : messages) {
+            size += FlowCredits.sizeOf(message);
+        }
+        credits.release(messages.size(), size);
+    }
+
+    private void awaitResumed() {
+        for (;;) {
+            long until = suspendedUntil.get();
+            if (until == RUNNING || shutdown) {
+                return;
+            }
+            long remaining = until - System.currentTimeMillis();
+            if (remaining <= 0) {
+                suspendedUntil.compareAndSet(until, RUNNING);
+                return;
+            }
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(remaining));
+        }
+    }
+
+    private void deliver(Message message) {
+        MessageListener listener = listeners.get(message.sysHeaders().getString(Message.BuiltinKeys.DESTINATION));
+        DeliveryContext context = new DeliveryContext(message, credits);
+        if (listener == null) {
+            context.ack();
+            return;
+        }
+        PushConsumerInterceptorChain.Invocation invocation = interceptors.before(message);
+        Throwable exception = null;
+        try {
+            listener.onReceived(message, context);
+        } catch (Throwable e) {
+            exception = e;
+            context.ack();
+        }
+        interceptors.after(invocation, exception);
+    }
+
+    private Runnable batchDelivery(final ListenerBatch batch, final List<Message> messages) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                PushConsumerInterceptorChain.Invocation invocation = interceptors.before(messages);
+                BatchDeliveryContext context = new BatchDeliveryContext(messages, credits);
+                Throwable exception = null;
+                try {
+                    batch.listener().onReceived(messages, context);
+                } catch (Throwable e) {
+                    exception = e;
+                    context.ack();
+                }
+                interceptors.after(invocation, messages, exception);
+            }
+        };
+    }
+
+    private static void copy(KeyValue from, KeyValue to) {
+        for (String key : from.keySet()) {
+            to.put(key, from.getString(key));
+        }
+    }
+
+    private static final class DeliveryContext implements MessageListener.Context {
+        private final Message message;
+        private final FlowCredits credits;
+        private KeyValue attributes;
+        private boolean acked;
+
+        DeliveryContext(Message message, FlowCredits credits) {
+            this.message = message;
+            this.credits = credits;
+        }
+
+        @Override
+        public KeyValue attributes() {
+            if (attributes == null) {
+                attributes = OMS.newKeyValue();
+            }
+            return attributes;
+        }
+
+        @Override
+        public void ack() {
+            if (credits == null) {
+                return;
+            }
+            synchronized (this) {
+                if (acked) {
+                    return;
+                }
+                acked = true;
+            }
+            credits.release(message);
+        }
+    }
+
+    private static final class BatchDeliveryContext implements BatchMessageListener.Context {
+        private final List<Message> messages;
+        private final FlowCredits credits;
+        private final boolean[] acked;
+        private KeyValue attributes;
+
+        BatchDeliveryContext(List<Message> messages, FlowCredits credits) {
+            this.messages = messages;
+            this.credits = credits;
+            this.acked = credits != null ? new boolean[messages.size()] : null;
+        }
+
+        @Override
+        public KeyValue attributes() {
+            if (attributes == null) {
+                attributes = OMS.newKeyValue();
+            }
+            return attributes;
+        }
+
+        @Override
+        public void ack() {
+            if (credits == null) {
+                return;
+            }
+            int count = 0;
+            long size = 0;
+            synchronized (this) {
+                for (int i = 0; i < acked.length; i++) {
+                    if (!acked[i]) {
+                        acked[i] = true;
+                        count++;
+                        size += FlowCredits.sizeOf(messages.get(i));
+                    }
+                }
+            }
+            credits.release(count, size);
+        }
+
+        @Override
+        public void ack(String messageId) {
+            if (credits == null) {
+                return;
+            }
+            Message released = null;
+            synchronized (this) {
+                for (int i = 0; i < acked.length; i++) {
+                    Message message = messages.get(i);
+                    if (!acked[i] && messageId.equals(message.sysHeaders().getString(Message.BuiltinKeys.MESSAGE_ID))) {
+                        acked[i] = true;
+                        released = message;
+                        break;
+                    }
+                }
+            }
+            if (released != null) {
+                credits.release(released);
+            }
+        }
+    }
+}
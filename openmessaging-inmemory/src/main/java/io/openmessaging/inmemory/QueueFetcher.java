@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.Future;
+import io.openmessaging.Message;
+import io.openmessaging.internal.DefaultPromise;
+import io.openmessaging.internal.MessageFetcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The {@link MessageFetcher} of a prefetched queue, which claims its messages on a thread of its own, with a
+ * long-poll of {@link #LONG_POLL_TIMEOUT} milliseconds.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+class QueueFetcher implements MessageFetcher {
+    static final long LONG_POLL_TIMEOUT = 1000;
+
+    private final InMemoryQueue queue;
+    private final QueueReader reader = new QueueReader();
+    private final ExecutorService executor;
+
+    QueueFetcher(InMemoryQueue queue, final String threadName) {
+        this.queue = queue;
+        reader.attach(queue);
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public Future<List<Message>> fetch(String queue, final int maxMessages, final long maxBytes) {
+        final DefaultPromise<List<Message>> promise = new DefaultPromise<List<Message>>();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    List<Message> messages = new ArrayList<Message>(Math.min(maxMessages, 256));
+                    try {
+                        reader.take(maxMessages, maxBytes, messages, LONG_POLL_TIMEOUT);
+                    } catch (RuntimeException e) {
+                        promise.setFailure(e);
+                        return;
+                    }
+                    promise.set(messages);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed, along with the buffer which doesn't fetch anymore
+            promise.set(new ArrayList<Message>(0));
+        }
+        return promise;
+    }
+
+    @Override
+    public void release(String queue, List<Message> messages) {
+        this.queue.release(messages);
+    }
+
+    /**
+     * Ends the pending long-poll and stops the fetching thread.
+     */
+    void close() {
+        reader.close();
+        executor.shutdown();
+    }
+}
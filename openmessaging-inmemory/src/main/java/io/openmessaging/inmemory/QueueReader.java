@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.BytesMessage;
+import io.openmessaging.Message;
+import io.openmessaging.internal.PrefetchBuffer;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reads the messages of the queues attached to a consumer, in turn, and parks the reading threads while all of them
+ * are empty. A queue is either read directly, or through a {@link PrefetchBuffer}, which wakes the reading threads
+ * when it is refilled. The prefetched messages are read first.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+class QueueReader {
+    private final Map<String, InMemoryQueue> attached = new LinkedHashMap<String, InMemoryQueue>();
+    private volatile InMemoryQueue[] queues = new InMemoryQueue[0];
+    private final Map<String, PrefetchBuffer> prefetched = new LinkedHashMap<String, PrefetchBuffer>();
+    private volatile PrefetchBuffer[] buffers = new PrefetchBuffer[0];
+    private final AtomicInteger rotation = new AtomicInteger();
+    private final Waiters readers = new Waiters();
+    private final AtomicInteger interruptions = new AtomicInteger();
+    private volatile boolean closed;
+
+    synchronized void attach(InMemoryQueue queue) {
+        attached.put(queue.name(), queue);
+        queues = attached.values().toArray(new InMemoryQueue[0]);
+        readers.wakeAll();
+    }
+
+    synchronized void attach(PrefetchBuffer buffer) {
+        prefetched.put(buffer.queue(), buffer);
+        buffers = prefetched.values().toArray(new PrefetchBuffer[0]);
+        readers.wakeAll();
+    }
+
+    synchronized void detach(String queueName) {
+        if (attached.remove(queueName) != null) {
+            queues = attached.values().toArray(new InMemoryQueue[0]);
+            readers.wakeAll();
+        }
+        if (prefetched.remove(queueName) != null) {
+            buffers = prefetched.values().toArray(new PrefetchBuffer[0]);
+        }
+    }
+
+    /**
+     * Wakes the waiting threads to read again, like when a prefetch buffer is refilled.
+     */
+    void wake() {
+        readers.wakeAll();
+    }
+
+    /**
+     * Claims the next message of the attached queues without waiting.
+     *
+     * @return the claimed message, or {@code null} if all the queues are empty
+     */
+    Message poll() {
+        int first = rotation.getAndIncrement() & Integer.MAX_VALUE;
+        PrefetchBuffer[] buffers = this.buffers;
+        for (int i = 0; i < buffers.length; i++) {
+            Message message = buffers[(first + i) % buffers.length].poll();
+            if (message != null) {
+                return message;
+            }
+        }
+        InMemoryQueue[] queues = this.queues;
+        int count = queues.length;
+        for (int i = 0; i < count; i++) {
+            Message message = queues[(first + i) % count].poll(first);
+            if (message != null) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Claims the next messages of the attached queues, up to the specified number and, for the queues read
+     * directly, the specified total body size, without waiting.
+     *
+     * @return the number of claimed messages
+     */
+    int poll(int maxMessages, long maxBytes, Collection<? super Message> messages) {
+        if (maxMessages <= 0) {
+            return 0;
+        }
+        int first = rotation.getAndIncrement() & Integer.MAX_VALUE;
+        int claimed = 0;
+        PrefetchBuffer[] buffers = this.buffers;
+        for (int i = 0; i < buffers.length && claimed < maxMessages; i++) {
+            claimed += buffers[(first + i) % buffers.length].poll(maxMessages - claimed, messages);
+        }
+        InMemoryQueue[] queues = this.queues;
+        int count = queues.length;
+        for (int i = 0; i < count && claimed < maxMessages; i++) {
+            claimed += queues[(first + i) % count].poll(first, maxMessages - claimed, maxBytes, messages);
+        }
+        return claimed;
+    }
+
+    /**
+     * Claims the next messages of the attached queues, up to the specified number and total body size, waiting for
+     * the first one up to the specified timeout, then taking the ones available at this moment.
+     *
+     * @param timeout the timeout in milliseconds, not waiting at all if non-positive
+     * @return the number of claimed messages
+     */
+    int take(int maxMessages, long maxBytes, Collection<? super Message> messages, long timeout) {
+        int claimed = poll(maxMessages, maxBytes, messages);
+        if (claimed > 0 || timeout <= 0 || maxMessages <= 0) {
+            return claimed;
+        }
+        Message first = take(timeout);
+        if (first == null) {
+            return 0;
+        }
+        messages.add(first);
+        long size = first instanceof BytesMessage ? ((BytesMessage) first).getBodyLength() : 0;
+        return size < maxBytes ? 1 + poll(maxMessages - 1, maxBytes - size, messages) : 1;
+    }
+
+    /**
+     * Claims the next message of the attached queues, waiting for one up to the specified timeout.
+     *
+     * @param timeout the timeout in milliseconds, no timeout if non-positive
+     * @return the claimed message, or {@code null} if the timeout expires, the reader is closed or interrupted,
+     * or the thread is interrupted
+     */
+    Message take(long timeout) {
+        return take(timeout, interruptions.get());
+    }
+
+    /**
+     * Returns the number of interruptions so far, to check the state of a caller before a {@link #take(long, int)}
+     * without missing an interruption.
+     */
+    int interruptions() {
+        return interruptions.get();
+    }
+
+    /**
+     * Claims the next message of the attached queues, like {@link #take(long)}, but returns {@code null} right away
+     * if the reader is interrupted since the specified number of interruptions.
+     */
+    Message take(long timeout, int interruption) {
+        long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+        Thread thread = Thread.currentThread();
+        while (!closed && interruptions.get() == interruption) {
+            Message message = poll();
+            if (message != null || thread.isInterrupted()) {
+                return message;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (timeout > 0 && remaining <= 0) {
+                return null;
+            }
+            InMemoryQueue[] queues = this.queues;
+            readers.add(thread);
+            for (InMemoryQueue queue : queues) {
+                queue.waiters().add(thread);
+            }
+            try {
+                // Checks the queues again once registered, not to miss a message appended meanwhile
+                message = poll();
+                if (message != null) {
+                    return message;
+                }
+                if (!closed && interruptions.get() == interruption && queues == this.queues) {
+                    if (timeout > 0) {
+                        LockSupport.parkNanos(this, remaining);
+                    } else {
+                        LockSupport.park(this);
+                    }
+                }
+            } finally {
+                readers.remove(thread);
+                for (InMemoryQueue queue : queues) {
+                    queue.waiters().remove(thread);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Makes the pending {@link #take(long)} calls return {@code null} right away.
+     */
+    void interrupt() {
+        interruptions.incrementAndGet();
+        readers.wakeAll();
+    }
+
+    /**
+     * Wakes the waiting threads and lets any further {@link #take(long)} return {@code null} right away.
+     */
+    void close() {
+        closed = true;
+        readers.wakeAll();
+    }
+}
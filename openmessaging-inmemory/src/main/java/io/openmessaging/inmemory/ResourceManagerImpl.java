@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.ResourceManager;
+import io.openmessaging.exception.OMSNotSupportedException;
+import io.openmessaging.exception.OMSResourceNotExistException;
+import io.openmessaging.internal.InternalErrorCode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code ResourceManager} of the in-memory driver. The routings are kept as metadata only, the messages aren't
+ * routed.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+class ResourceManagerImpl implements ResourceManager {
+    private final MessagingAccessPointImpl accessPoint;
+    private volatile Namespace current;
+
+    ResourceManagerImpl(MessagingAccessPointImpl accessPoint, Namespace current) {
+        this.accessPoint = accessPoint;
+        this.current = current;
+    }
+
+    @Override
+    public void createNamespace(String nsName, KeyValue attributes) {
+        accessPoint.createNamespace(nsName, attributes);
+    }
+
+    @Override
+    public void setNamespaceAttributes(KeyValue attributes) throws OMSResourceNotExistException {
+        current().attributes(attributes);
+    }
+
+    @Override
+    public KeyValue getNamespaceAttributes() throws OMSResourceNotExistException {
+        return current().attributes();
+    }
+
+    @Override
+    public void deleteNamespace(String nsName) throws OMSResourceNotExistException {
+        if (!accessPoint.deleteNamespace(nsName)) {
+            throw notExist("namespace", nsName);
+        }
+    }
+
+    @Override
+    public List<String> listNamespaces() {
+        return accessPoint.namespaceNames();
+    }
+
+    @Override
+    public void switchNamespace(String nsName) throws OMSResourceNotExistException {
+        Namespace namespace = accessPoint.findNamespace(nsName);
+        if (namespace == null) {
+            throw notExist("namespace", nsName);
+        }
+        current = namespace;
+    }
+
+    @Override
+    public void createQueue(String queueName, KeyValue attributes) throws OMSResourceNotExistException {
+        current().createQueue(queueName, attributes);
+    }
+
+    @Override
+    public void setQueueAttributes(String queueName, KeyValue attributes) throws OMSResourceNotExistException {
+        KeyValue queueAttributes = queue(queueName).attributes();
+        for (String key : attributes.keySet()) {
+            queueAttributes.put(key, attributes.getString(key));
+        }
+    }
+
+    @Override
+    public KeyValue getQueueAttributes(String queueName) throws OMSResourceNotExistException {
+        return queue(queueName).attributes();
+    }
+
+    @Override
+    public void deleteQueue(String queueName) throws OMSResourceNotExistException {
+        if (!current().deleteQueue(queueName)) {
+            throw notExist("queue", queueName);
+        }
+    }
+
+    @Override
+    public List<String> listQueues() throws OMSResourceNotExistException {
+        return current().queueNames();
+    }
+
+    @Override
+    public void createRouting(String routingName, KeyValue attributes) throws OMSResourceNotExistException {
+        current().routings().put(routingName, attributes);
+    }
+
+    @Override
+    public void setRoutingAttributes(String routingName, KeyValue attributes) throws OMSResourceNotExistException {
+        if (current().routings().replace(routingName, attributes) == null) {
+            throw notExist("routing", routingName);
+        }
+    }
+
+    @Override
+    public KeyValue getRoutingAttributes(String routingName) throws OMSResourceNotExistException {
+        KeyValue attributes = current().routings().get(routingName);
+        if (attributes == null) {
+            throw notExist("routing", routingName);
+        }
+        return attributes;
+    }
+
+    @Override
+    public void deleteRouting(String routingName) throws OMSResourceNotExistException {
+        if (current().routings().remove(routingName) == null) {
+            throw notExist("routing", routingName);
+        }
+    }
+
+    @Override
+    public List<String> listRoutings() throws OMSResourceNotExistException {
+        return new ArrayList<String>(current().routings().keySet());
+    }
+
+    @Override
+    public List<String> listStreams(String queueName) {
+        InMemoryQueue queue = current.findQueue(queueName);
+        return queue != null ? queue.streamNames() : new ArrayList<String>();
+    }
+
+    @Override
+    public void updateMessage(String messageId, KeyValue headers) {
+        throw new OMSNotSupportedException(InternalErrorCode.OPERATION_NOT_SUPPORTED.name(),
+            InternalErrorCode.OPERATION_NOT_SUPPORTED.formatMessage("updateMessage"));
+    }
+
+    private Namespace current() throws OMSResourceNotExistException {
+        Namespace namespace = current;
+        if (accessPoint.findNamespace(namespace.name()) != namespace) {
+            throw notExist("namespace", namespace.name());
+        }
+        return namespace;
+    }
+
+    private InMemoryQueue queue(String queueName) throws OMSResourceNotExistException {
+        InMemoryQueue queue = current().findQueue(queueName);
+        if (queue == null) {
+            throw notExist("queue", queueName);
+        }
+        return queue;
+    }
+
+    private static OMSResourceNotExistException notExist(String type, String name) {
+        return new OMSResourceNotExistException(InternalErrorCode.RESOURCE_NOT_EXIST.name(),
+            InternalErrorCode.RESOURCE_NOT_EXIST.formatMessage(type, name));
+    }
+}
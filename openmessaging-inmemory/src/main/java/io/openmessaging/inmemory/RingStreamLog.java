@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.Message;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free {@link StreamLog} keeping the latest messages of a stream in a ring buffer, the oldest message is
+ * overwritten when a message is appended to a full ring.
+ * <p>
+ * The producers claim the offsets with an atomic increment, then publish their message in the slot of the offset.
+ * Every slot has a sequence, which holds the offset of the message in the slot once it is published, so a reader
+ * checks the sequence before and after reading the slot to detect a message not published yet or overwritten.
+ * <p>
+ * The store times don't grow with the offsets: a message is stamped when it is sent, and may be appended after
+ * messages sent later, like the ones lingering in a batch or sent concurrently. So every slot also holds the latest
+ * store time up to its message, which {@link #offsetOfTime(long)} searches. The producers hand this running maximum
+ * over to each other in the order of their offsets, right after claiming them.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public class RingStreamLog implements StreamLog {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final long EMPTY = -1;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<Message> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray maxTimestamps;
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * The offset up to which the running maximum of the store times is computed, publishing {@link #maxTimestamp}.
+     */
+    private final AtomicLong maxTimestampOffset = new AtomicLong(-1);
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Constructs a {@code RingStreamLog} retaining the specified number of messages.
+     *
+     * @param capacity the number of messages to retain, rounded up to a power of two
+     */
+    public RingStreamLog(int capacity) {
+        int size = 1;
+        while (size < capacity && size < 1 << 30) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<Message>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.maxTimestamps = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.lazySet(i, EMPTY);
+        }
+    }
+
+    @Override
+    public long append(Message message) {
+        long offset = tail.getAndIncrement();
+        int index = (int) offset & mask;
+        // The writer of the previous lap of the slot may still be publishing, only when the ring is wrapped meanwhile
+        long previous = offset < capacity ? EMPTY : offset - capacity;
+        while (sequences.get(index) != previous) {
+            Thread.yield();
+        }
+        sequences.lazySet(index, writing(offset));
+        long timestamp = message.sysHeaders().getLong(Message.BuiltinKeys.STORE_TIMESTAMP);
+        while (maxTimestampOffset.get() != offset - 1) {
+            Thread.yield();
+        }
+        long max = Math.max(maxTimestamp, timestamp);
+        maxTimestamp = max;
+        maxTimestampOffset.set(offset);
+        maxTimestamps.lazySet(index, max);
+        slots.lazySet(index, message);
+        sequences.set(index, offset);
+        return offset;
+    }
+
+    @Override
+    public Message read(long offset) {
+        if (offset < 0) {
+            return null;
+        }
+        int index = (int) offset & mask;
+        if (sequences.get(index) != offset) {
+            return null;
+        }
+        Message message = slots.get(index);
+        return sequences.get(index) == offset ? message : null;
+    }
+
+    @Override
+    public int read(long offset, int maxMessages, Collection<? super Message> messages) {
+        int count = 0;
+        Message message;
+        while (count < maxMessages && (message = read(offset + count)) != null) {
+            messages.add(message);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Searches the latest store times up to the retained messages by bisection, a message overwritten or not
+     * published yet while searching is considered later than the specified time.
+     */
+    @Override
+    public long offsetOfTime(long timestamp) {
+        long low = beginOffset();
+        long high = endOffset();
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (maxTimestampOf(middle) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return Math.max(low, beginOffset());
+    }
+
+    @Override
+    public long beginOffset() {
+        return Math.max(0, tail.get() - capacity);
+    }
+
+    @Override
+    public long endOffset() {
+        return tail.get();
+    }
+
+    /**
+     * Returns the number of messages the ring retains.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Returns the latest store time up to the specified offset, {@code Long.MAX_VALUE} if its message isn't
+     * published or is overwritten.
+     */
+    private long maxTimestampOf(long offset) {
+        int index = (int) offset & mask;
+        if (sequences.get(index) != offset) {
+            return Long.MAX_VALUE;
+        }
+        long max = maxTimestamps.get(index);
+        return sequences.get(index) == offset ? max : Long.MAX_VALUE;
+    }
+
+    private static long writing(long offset) {
+        // Negative and distinct from EMPTY, so that no reader mistakes the slot for a published one
+        return -offset - 2;
+    }
+}
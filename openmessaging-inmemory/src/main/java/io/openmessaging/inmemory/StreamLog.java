@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.Message;
+import java.util.Collection;
+
+/**
+ * A {@code StreamLog} is the append-only storage of a stream, which addresses its messages by consecutive offsets
+ * starting from zero.
+ * <p>
+ * A log may retain only the latest part of the stream, starting from {@link #beginOffset()}. Its implementations
+ * are expected to be thread-safe: {@link #append(Message)} may be called concurrently by the producers, and
+ * {@link #read(long)} by any number of readers, without any external lock.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public interface StreamLog {
+    /**
+     * Appends a message to the end of the log.
+     * <p>
+     * The message is visible to the readers as soon as this method returns, and this publication is ordered
+     * before any volatile read which follows it, so that a producer can check for waiting readers afterwards.
+     *
+     * @param message the message to append
+     * @return the offset of the message
+     */
+    long append(Message message);
+
+    /**
+     * Reads the message at the specified offset.
+     *
+     * @param offset the offset of the message
+     * @return the message, or {@code null} if the offset is out of the retained range, or if the message at this
+     * offset isn't completely appended yet
+     */
+    Message read(long offset);
+
+    /**
+     * Reads the consecutive messages from the specified offset into the specified collection, up to the specified
+     * number, and up to the first message which can't be read like with {@link #read(long)}.
+     *
+     * @param offset the offset of the first message
+     * @param maxMessages the maximum number of messages to read
+     * @param messages the collection receiving the messages
+     * @return the number of messages read
+     */
+    int read(long offset, int maxMessages, Collection<? super Message> messages);
+
+    /**
+     * Returns the offset of the first retained message whose {@link Message.BuiltinKeys#STORE_TIMESTAMP} is at or
+     * after the specified time, the store times of a log being expected to grow with the offsets.
+     *
+     * @param timestamp the store time in milliseconds since the epoch
+     * @return the offset of the message, or the end offset if no message is stored at or after this time
+     */
+    long offsetOfTime(long timestamp);
+
+    /**
+     * Returns the offset of the oldest message retained in the log.
+     *
+     * @return the first offset
+     */
+    long beginOffset();
+
+    /**
+     * Returns the offset of the next message to append, the messages below this offset may still be being appended.
+     *
+     * @return the end offset
+     */
+    long endOffset();
+
+    /**
+     * Releases the resources held by the log.
+     */
+    void close();
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.KeyValue;
+
+/**
+ * Creates the {@link StreamLog}s storing the streams of the queues, which lets a driver built on the in-memory one
+ * plug another storage.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public interface StreamLogFactory {
+    /**
+     * Creates the log of a stream.
+     *
+     * @param namespace the namespace of the queue
+     * @param streamName the name of the stream
+     * @param queueAttributes the attributes of the queue owning the stream
+     * @return the log of the stream
+     */
+    StreamLog createStreamLog(String namespace, String streamName, KeyValue queueAttributes);
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.consumer.StreamingConsumer;
+import io.openmessaging.consumer.StreamingIterator;
+import io.openmessaging.internal.InternalErrorCode;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.openmessaging.internal.InternalErrorCode.generateInternalException;
+
+/**
+ * The {@code StreamingConsumer} of the in-memory driver. The positions are the offsets of the messages in their
+ * stream, as decimal strings, and the store times are searched with {@link StreamLog#offsetOfTime(long)}.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+class StreamingConsumerImpl implements StreamingConsumer {
+    private static final AtomicLong CONSUMER_IDS = new AtomicLong();
+
+    private final Namespace namespace;
+    private final KeyValue attributes;
+
+    StreamingConsumerImpl(Namespace namespace, KeyValue attributes) {
+        this.namespace = namespace;
+        this.attributes = attributes;
+        if (!attributes.containsKey(OMSBuiltinKeys.CONSUMER_ID)) {
+            attributes.put(OMSBuiltinKeys.CONSUMER_ID, "OMS-StreamingConsumer-" + CONSUMER_IDS.incrementAndGet());
+        }
+    }
+
+    @Override
+    public KeyValue attributes() {
+        return attributes;
+    }
+
+    @Override
+    public StreamingIterator seekToEnd(String streamName) {
+        StreamLog log = stream(streamName);
+        return new StreamingIteratorImpl(streamName, log, log.endOffset(), attributes);
+    }
+
+    @Override
+    public StreamingIterator seekToBeginning(String streamName) {
+        StreamLog log = stream(streamName);
+        return new StreamingIteratorImpl(streamName, log, log.beginOffset(), attributes);
+    }
+
+    @Override
+    public StreamingIterator seek(String streamName, String position) {
+        StreamLog log = stream(streamName);
+        long offset;
+        try {
+            offset = Long.parseLong(position);
+        } catch (NumberFormatException e) {
+            throw generateInternalException(InternalErrorCode.STREAM_POSITION_ILLEGAL, position, streamName);
+        }
+        offset = Math.min(Math.max(offset, log.beginOffset()), log.endOffset());
+        return new StreamingIteratorImpl(streamName, log, offset, attributes);
+    }
+
+    @Override
+    public StreamingIterator seekByTime(String streamName, long timestamp) {
+        StreamLog log = stream(streamName);
+        return new StreamingIteratorImpl(streamName, log, log.offsetOfTime(timestamp), attributes);
+    }
+
+    @Override
+    public void startup() {
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    private StreamLog stream(String streamName) {
+        StreamLog log = namespace.findStream(streamName);
+        if (log == null) {
+            throw generateInternalException(InternalErrorCode.RESOURCE_NOT_EXIST, "stream", streamName);
+        }
+        return log;
+    }
+}
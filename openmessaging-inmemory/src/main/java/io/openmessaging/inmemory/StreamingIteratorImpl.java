@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.consumer.StreamingIterator;
+import io.openmessaging.internal.InternalErrorCode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static io.openmessaging.internal.InternalErrorCode.generateInternalException;
+
+/**
+ * A {@code StreamingIterator} over a {@link StreamLog}, which doesn't take any lock. An iterator left behind the
+ * retained range of its stream skips to the oldest retained message. The batches are read from the log in one
+ * call, with {@link StreamLog#read(long, int, Collection)}.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+class StreamingIteratorImpl implements StreamingIterator {
+    private final String streamName;
+    private final StreamLog log;
+    private final KeyValue attributes;
+    private long offset;
+
+    StreamingIteratorImpl(String streamName, StreamLog log, long offset, KeyValue attributes) {
+        this.streamName = streamName;
+        this.log = log;
+        this.offset = offset;
+        this.attributes = attributes;
+    }
+
+    @Override
+    public KeyValue attributes() {
+        return attributes;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return log.read(nextOffset()) != null;
+    }
+
+    @Override
+    public Message next() {
+        long next = nextOffset();
+        Message message = read(next);
+        offset = next + 1;
+        return message;
+    }
+
+    @Override
+    public List<Message> next(int maxMessages) {
+        List<Message> messages = new ArrayList<Message>(Math.max(0, (int) Math.min(maxMessages,
+            log.endOffset() - nextOffset())));
+        drainTo(messages, maxMessages);
+        return messages;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Message> messages, int maxMessages) {
+        long next = nextOffset();
+        int count = maxMessages > 0 ? log.read(next, maxMessages, messages) : 0;
+        offset = next + count;
+        return count;
+    }
+
+    @Override
+    public boolean hasPrevious() {
+        long previous = nextOffset() - 1;
+        return previous >= log.beginOffset() && log.read(previous) != null;
+    }
+
+    @Override
+    public Message previous() {
+        long previous = nextOffset() - 1;
+        Message message = previous >= log.beginOffset() ? log.read(previous) : null;
+        if (message == null) {
+            throw generateInternalException(InternalErrorCode.STREAM_NO_MESSAGE, streamName, String.valueOf(previous));
+        }
+        offset = previous;
+        return message;
+    }
+
+    @Override
+    public List<Message> previous(int maxMessages) {
+        long next = nextOffset();
+        long first = Math.max(log.beginOffset(), next - Math.max(0, maxMessages));
+        List<Message> messages = new ArrayList<Message>((int) (next - first));
+        // Reads forwards from the first message, then keeps the messages adjacent to the position only
+        while (first < next && log.read(first, (int) (next - first), messages) < next - first) {
+            messages.clear();
+            first++;
+        }
+        Collections.reverse(messages);
+        offset = first;
+        return messages;
+    }
+
+    @Override
+    public String nextPosition() {
+        long next = nextOffset();
+        read(next);
+        return String.valueOf(next);
+    }
+
+    @Override
+    public String previousPosition() {
+        long previous = nextOffset() - 1;
+        if (previous < log.beginOffset() || log.read(previous) == null) {
+            throw generateInternalException(InternalErrorCode.STREAM_NO_MESSAGE, streamName, String.valueOf(previous));
+        }
+        return String.valueOf(previous);
+    }
+
+    /**
+     * Returns the offset of the next message, skipping the messages no longer retained.
+     */
+    private long nextOffset() {
+        long begin = log.beginOffset();
+        if (offset < begin) {
+            offset = begin;
+        }
+        return offset;
+    }
+
+    private Message read(long offset) {
+        Message message = log.read(offset);
+        if (message == null) {
+            throw generateInternalException(InternalErrorCode.STREAM_NO_MESSAGE, streamName, String.valueOf(offset));
+        }
+        return message;
+    }
+}
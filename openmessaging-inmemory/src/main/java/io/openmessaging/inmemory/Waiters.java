@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The threads parked until a queue receives new messages. Waking them costs a producer only a volatile read while
+ * nobody waits.
+ * <p>
+ * A reader registers itself before checking the queue a last time and parking, so a message appended after this
+ * check always finds it registered.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+class Waiters {
+    private final ConcurrentLinkedQueue<Thread> threads = new ConcurrentLinkedQueue<Thread>();
+    private final AtomicInteger count = new AtomicInteger();
+
+    void add(Thread thread) {
+        count.incrementAndGet();
+        threads.add(thread);
+    }
+
+    void remove(Thread thread) {
+        if (threads.remove(thread)) {
+            count.decrementAndGet();
+        }
+    }
+
+    void wakeAll() {
+        if (count.get() == 0) {
+            return;
+        }
+        Thread thread;
+        while ((thread = threads.poll()) != null) {
+            count.decrementAndGet();
+            LockSupport.unpark(thread);
+        }
+    }
+}
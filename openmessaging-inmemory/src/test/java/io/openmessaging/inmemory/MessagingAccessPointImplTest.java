@@ -0,0 +1,794 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.Future;
+import io.openmessaging.KeyValue;
+import io.openmessaging.Message;
+import io.openmessaging.MessagingAccessPoint;
+import io.openmessaging.OMS;
+import io.openmessaging.OMSBuiltinKeys;
+import io.openmessaging.ResourceManager;
+import io.openmessaging.consumer.BatchMessageListener;
+import io.openmessaging.consumer.MessageListener;
+import io.openmessaging.consumer.PullConsumer;
+import io.openmessaging.consumer.PushConsumer;
+import io.openmessaging.consumer.StreamingConsumer;
+import io.openmessaging.consumer.StreamingIterator;
+import io.openmessaging.exception.OMSResourceNotExistException;
+import io.openmessaging.exception.OMSRuntimeException;
+import io.openmessaging.interceptor.LatencyHistogram;
+import io.openmessaging.interceptor.LatencyProducerInterceptor;
+import io.openmessaging.interceptor.ProducerInterceptor;
+import io.openmessaging.interceptor.LatencyPushConsumerInterceptor;
+import io.openmessaging.internal.InternalErrorCode;
+import io.openmessaging.internal.PrefetchBuffer;
+import io.openmessaging.producer.BatchMessageSender;
+import io.openmessaging.producer.LocalTransactionBranchExecutor;
+import io.openmessaging.producer.Producer;
+import io.openmessaging.producer.SendResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class MessagingAccessPointImplTest {
+    private static final String QUEUE = "HELLO_QUEUE";
+
+    private MessagingAccessPoint accessPoint;
+    private Producer producer;
+
+    @Before
+    public void before() {
+        accessPoint = OMS.getMessagingAccessPoint("oms:inmemory://localhost/us-east:default");
+        producer = accessPoint.createProducer();
+        producer.startup();
+    }
+
+    @After
+    public void after() {
+        producer.shutdown();
+        accessPoint.shutdown();
+    }
+
+    @Test
+    public void testLoadFromUrl() throws Exception {
+        assertThat(accessPoint).isInstanceOf(MessagingAccessPointImpl.class);
+        assertThat(accessPoint.attributes().getString(OMSBuiltinKeys.NAMESPACE)).isEqualTo("default");
+        assertThat(accessPoint.implVersion()).isEqualTo(OMS.specVersion);
+    }
+
+    @Test
+    public void testSendAndReceive() throws Exception {
+        PullConsumer consumer = accessPoint.createPullConsumer(OMS.newKeyValue().put(OMSBuiltinKeys.OPERATION_TIMEOUT, 10));
+        consumer.attachQueue(QUEUE);
+        Message message = producer.createBytesMessage(QUEUE, "HELLO".getBytes());
+        SendResult result = producer.send(message);
+
+        assertThat(result.messageId()).isEqualTo(message.sysHeaders().getString(Message.BuiltinKeys.MESSAGE_ID));
+        assertThat(message.sysHeaders().getLong(Message.BuiltinKeys.STORE_TIMESTAMP)).isPositive();
+        assertThat(message.sysHeaders().getLong(Message.BuiltinKeys.BORN_TIMESTAMP)).isPositive();
+        assertThat(consumer.receive()).isSameAs(message);
+        assertThat(consumer.receive()).isNull();
+        consumer.ack(result.messageId());
+    }
+
+    @Test
+    public void testReceiveWaitsForMessage() throws Exception {
+        final PullConsumer consumer = accessPoint.createPullConsumer();
+        consumer.attachQueue(QUEUE);
+        final List<Message> received = Collections.synchronizedList(new ArrayList<Message>());
+        final CountDownLatch done = new CountDownLatch(1);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                received.add(consumer.receive());
+                received.add(consumer.receive());
+                done.countDown();
+            }
+        }).start();
+        Thread.sleep(50);
+        Message message = producer.createBytesMessage(QUEUE, new byte[1]);
+        producer.send(message);
+        Thread.sleep(50);
+        consumer.shutdown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly(message, null);
+    }
+
+    @Test
+    public void testReceiveBatch() throws Exception {
+        accessPoint.resourceManager().createQueue(QUEUE, OMS.newKeyValue().put(InMemoryBuiltinKeys.STREAM_COUNT, 2));
+        PullConsumer consumer = accessPoint.createPullConsumer();
+        consumer.attachQueue(QUEUE);
+        Set<Message> sent = new HashSet<Message>();
+        for (int i = 0; i < 5; i++) {
+            Message message = producer.createBytesMessage(QUEUE, new byte[i]);
+            producer.send(message);
+            sent.add(message);
+        }
+        List<Message> first = consumer.receive(3, 1000);
+        List<Message> second = consumer.receive(10, 1000);
+        assertThat(first).hasSize(3);
+        assertThat(second).hasSize(2);
+        Set<Message> received = new HashSet<Message>(first);
+        received.addAll(second);
+        assertThat(received).isEqualTo(sent);
+        assertThat(consumer.receive(10, 0)).isEmpty();
+        assertThat(consumer.receive(10, 20)).isEmpty();
+
+        final Message late = producer.createBytesMessage(QUEUE, new byte[1]);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignore) {
+                }
+                producer.send(late);
+            }
+        }).start();
+        long start = System.currentTimeMillis();
+        assertThat(consumer.receive(10, 5000)).containsExactly(late);
+        assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+        consumer.shutdown();
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        PullConsumerImpl consumer = (PullConsumerImpl) accessPoint.createPullConsumer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.OPERATION_TIMEOUT, 1000));
+        consumer.attachQueue(QUEUE, OMS.newKeyValue().put(OMSBuiltinKeys.PREFETCH_MAX_MESSAGES, 10));
+        PrefetchBuffer buffer = consumer.prefetchBuffer(QUEUE);
+        assertThat(buffer.maxMessages()).isEqualTo(10);
+
+        List<Message> sent = new ArrayList<Message>();
+        for (int i = 0; i < 25; i++) {
+            Message message = producer.createBytesMessage(QUEUE, new byte[i]);
+            producer.send(message);
+            sent.add(message);
+        }
+        List<Message> received = new ArrayList<Message>();
+        for (int i = 0; i < 25; i++) {
+            Message message = consumer.receive();
+            assertThat(message).isNotNull();
+            received.add(message);
+            assertThat(buffer.bufferedMessages()).isLessThanOrEqualTo(10);
+        }
+        assertThat(received).isEqualTo(sent);
+        assertThat(buffer.refills()).isGreaterThanOrEqualTo(3);
+
+        consumer.detachQueue(QUEUE);
+        assertThat(consumer.prefetchBuffer(QUEUE)).isNull();
+        producer.send(producer.createBytesMessage(QUEUE, new byte[1]));
+        assertThat(consumer.receive(OMS.newKeyValue().put(OMSBuiltinKeys.OPERATION_TIMEOUT, 20))).isNull();
+        consumer.shutdown();
+    }
+
+    @Test
+    public void testPrefetchTurnedOffOrDetached() throws Exception {
+        KeyValue prefetching = OMS.newKeyValue().put(OMSBuiltinKeys.PREFETCH_MAX_MESSAGES, 10);
+        List<Message> sent = new ArrayList<Message>();
+        for (int i = 0; i < 6; i++) {
+            Message message = producer.createBytesMessage(QUEUE, new byte[i]);
+            producer.send(message);
+            sent.add(message);
+        }
+        PullConsumerImpl consumer = (PullConsumerImpl) accessPoint.createPullConsumer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.OPERATION_TIMEOUT, 1000));
+        consumer.attachQueue(QUEUE, prefetching);
+        PrefetchBuffer buffer = consumer.prefetchBuffer(QUEUE);
+        assertThat(consumer.receive()).isSameAs(sent.get(0));
+
+        // Attached again without prefetching, the prefetched messages are released back to the queue
+        consumer.attachQueue(QUEUE, OMS.newKeyValue().put(OMSBuiltinKeys.PREFETCH_MAX_MESSAGES, 0));
+        assertThat(consumer.prefetchBuffer(QUEUE)).isNull();
+        assertThat(buffer.releasedMessages()).isEqualTo(5);
+        assertThat(consumer.receive()).isSameAs(sent.get(1));
+
+        // Detached, they are delivered to a competing consumer
+        consumer.attachQueue(QUEUE, prefetching);
+        buffer = consumer.prefetchBuffer(QUEUE);
+        assertThat(consumer.receive()).isSameAs(sent.get(2));
+        consumer.detachQueue(QUEUE);
+        assertThat(buffer.releasedMessages()).isEqualTo(3);
+        PullConsumer competitor = accessPoint.createPullConsumer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.OPERATION_TIMEOUT, 10));
+        competitor.attachQueue(QUEUE);
+        assertThat(competitor.receive(10, 10)).isEqualTo(sent.subList(3, 6));
+        assertThat(competitor.receive()).isNull();
+        competitor.shutdown();
+        consumer.shutdown();
+    }
+
+    @Test
+    public void testCompetingConsumers() throws Exception {
+        final int messages = 10000;
+        final Set<Message> received = Collections.synchronizedSet(new HashSet<Message>());
+        final CountDownLatch done = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            final PullConsumer consumer = accessPoint.createPullConsumer(
+                OMS.newKeyValue().put(OMSBuiltinKeys.OPERATION_TIMEOUT, 200));
+            consumer.attachQueue(QUEUE);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Message message;
+                    while ((message = consumer.receive()) != null) {
+                        assertThat(received.add(message)).isTrue();
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        for (int i = 0; i < messages; i++) {
+            producer.send(producer.createBytesMessage(QUEUE, new byte[0]));
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).hasSize(messages);
+    }
+
+    @Test
+    public void testPushConsumer() throws Exception {
+        final List<Message> received = Collections.synchronizedList(new ArrayList<Message>());
+        PushConsumer consumer = accessPoint.createPushConsumer();
+        consumer.attachQueue(QUEUE, new MessageListener() {
+            @Override
+            public void onReceived(Message message, Context context) {
+                received.add(message);
+                context.ack();
+            }
+        });
+        consumer.startup();
+        Message first = producer.createBytesMessage(QUEUE, new byte[1]);
+        producer.send(first);
+        awaitSize(received, 1);
+
+        consumer.suspend();
+        assertThat(consumer.isSuspended()).isTrue();
+        Message second = producer.createBytesMessage(QUEUE, new byte[1]);
+        producer.send(second);
+        Thread.sleep(50);
+        assertThat(received).containsExactly(first);
+
+        consumer.resume();
+        assertThat(consumer.isSuspended()).isFalse();
+        awaitSize(received, 2);
+        assertThat(received).containsExactly(first, second);
+
+        consumer.suspend(20);
+        Message third = producer.createBytesMessage(QUEUE, new byte[1]);
+        producer.send(third);
+        awaitSize(received, 3);
+        consumer.shutdown();
+    }
+
+    @Test
+    public void testPushConsumerThreads() throws Exception {
+        final Map<String, List<Integer>> received = new ConcurrentHashMap<String, List<Integer>>();
+        final CountDownLatch done = new CountDownLatch(200);
+        PushConsumer consumer = accessPoint.createPushConsumer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.CONSUME_THREADS, 4)
+            .put(OMSBuiltinKeys.CONSUME_QUEUE_CAPACITY, 2));
+        consumer.attachQueue(QUEUE, new MessageListener() {
+            @Override
+            public void onReceived(Message message, Context context) {
+                String key = message.sysHeaders().getString(Message.BuiltinKeys.STREAM_KEY);
+                received.get(key).add(message.userHeaders().getInt("index"));
+                done.countDown();
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            received.put("key-" + i, Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        consumer.startup();
+        for (int i = 0; i < 200; i++) {
+            Message message = producer.createBytesMessage(QUEUE, new byte[1]);
+            message.sysHeaders().put(Message.BuiltinKeys.STREAM_KEY, "key-" + i % 5);
+            message.userHeaders().put("index", i);
+            producer.send(message);
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        consumer.shutdown();
+        for (int i = 0; i < 5; i++) {
+            List<Integer> indexes = received.get("key-" + i);
+            assertThat(indexes).hasSize(40);
+            for (int j = 0; j < indexes.size(); j++) {
+                assertThat(indexes.get(j)).isEqualTo(i + j * 5);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchMessageListener() throws Exception {
+        final List<List<Message>> batches = new CopyOnWriteArrayList<List<Message>>();
+        PushConsumer consumer = accessPoint.createPushConsumer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.CONSUME_BATCH_MAX_MESSAGES, 4)
+            .put(OMSBuiltinKeys.CONSUME_BATCH_MAX_WAIT, 60000));
+        consumer.attachQueue(QUEUE, new BatchMessageListener() {
+            @Override
+            public void onReceived(List<Message> messages, Context context) {
+                batches.add(messages);
+                context.ack(messages.get(0).sysHeaders().getString(Message.BuiltinKeys.MESSAGE_ID));
+                context.ack();
+            }
+        }, OMS.newKeyValue().put(OMSBuiltinKeys.CONSUME_BATCH_MAX_BYTES, 10));
+        consumer.startup();
+        List<Message> sent = new ArrayList<Message>();
+        for (int i = 0; i < 6; i++) {
+            Message message = producer.createBytesMessage(QUEUE, new byte[i < 4 ? 1 : 8]);
+            producer.send(message);
+            sent.add(message);
+        }
+        awaitSize(batches, 2);
+        assertThat(batches.get(0)).isEqualTo(sent.subList(0, 4));
+        assertThat(batches.get(1)).isEqualTo(sent.subList(4, 5));
+
+        // The last message waits for the shutdown, as the batch is neither full nor due
+        Thread.sleep(50);
+        assertThat(batches).hasSize(2);
+        consumer.shutdown();
+        assertThat(batches).hasSize(3);
+        assertThat(batches.get(2)).isEqualTo(sent.subList(5, 6));
+    }
+
+    @Test
+    public void testBatchMessageListenerMaxWait() throws Exception {
+        final List<List<Message>> batches = new CopyOnWriteArrayList<List<Message>>();
+        PushConsumer consumer = accessPoint.createPushConsumer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.CONSUME_BATCH_MAX_WAIT, 20)
+            .put(OMSBuiltinKeys.CONSUME_THREADS, 2));
+        consumer.attachQueue(QUEUE, new BatchMessageListener() {
+            @Override
+            public void onReceived(List<Message> messages, Context context) {
+                batches.add(messages);
+            }
+        });
+        consumer.startup();
+        for (int i = 0; i < 3; i++) {
+            producer.send(producer.createBytesMessage(QUEUE, new byte[1]));
+        }
+        int delivered = 0;
+        for (int i = 0; i < 500 && delivered < 3; i++) {
+            Thread.sleep(10);
+            delivered = 0;
+            for (List<Message> batch : batches) {
+                delivered += batch.size();
+            }
+        }
+        assertThat(delivered).isEqualTo(3);
+        consumer.shutdown();
+    }
+
+    @Test
+    public void testBatchMessageListenerDetached() throws Exception {
+        final List<List<Message>> batches = new CopyOnWriteArrayList<List<Message>>();
+        final List<Message> received = new CopyOnWriteArrayList<Message>();
+        BatchMessageListener batchListener = new BatchMessageListener() {
+            @Override
+            public void onReceived(List<Message> messages, Context context) {
+                batches.add(messages);
+                context.ack();
+            }
+        };
+        PushConsumer consumer = accessPoint.createPushConsumer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.CONSUME_BATCH_MAX_WAIT, 60000));
+        consumer.attachQueue(QUEUE, batchListener);
+        consumer.startup();
+        Message first = producer.createBytesMessage(QUEUE, new byte[1]);
+        Message second = producer.createBytesMessage(QUEUE, new byte[1]);
+        producer.send(first);
+        producer.send(second);
+        Thread.sleep(50);
+
+        // The pending batch is delivered to its listener when the queue is attached again
+        consumer.attachQueue(QUEUE, new MessageListener() {
+            @Override
+            public void onReceived(Message message, Context context) {
+                received.add(message);
+                context.ack();
+            }
+        });
+        awaitSize(batches, 1);
+        assertThat(batches.get(0)).containsExactly(first, second);
+        Message third = producer.createBytesMessage(QUEUE, new byte[1]);
+        producer.send(third);
+        awaitSize(received, 1);
+        assertThat(received).containsExactly(third);
+
+        // And when the queue is detached
+        consumer.attachQueue(QUEUE, batchListener);
+        Message fourth = producer.createBytesMessage(QUEUE, new byte[1]);
+        producer.send(fourth);
+        Thread.sleep(50);
+        consumer.detachQueue(QUEUE);
+        awaitSize(batches, 2);
+        assertThat(batches.get(1)).containsExactly(fourth);
+        consumer.shutdown();
+    }
+
+    @Test
+    public void testPushConsumerCredits() throws Exception {
+        final List<MessageListener.Context> unacked = new CopyOnWriteArrayList<MessageListener.Context>();
+        PushConsumerImpl consumer = (PushConsumerImpl) accessPoint.createPushConsumer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.CONSUME_CREDIT_MESSAGES, 2));
+        consumer.attachQueue(QUEUE, new MessageListener() {
+            @Override
+            public void onReceived(Message message, Context context) {
+                unacked.add(context);
+            }
+        });
+        consumer.startup();
+        for (int i = 0; i < 5; i++) {
+            producer.send(producer.createBytesMessage(QUEUE, new byte[1]));
+        }
+        awaitSize(unacked, 2);
+        Thread.sleep(50);
+        assertThat(unacked).hasSize(2);
+        assertThat(consumer.flowCredits().availableMessages()).isEqualTo(0);
+
+        unacked.get(0).ack();
+        unacked.get(0).ack();
+        awaitSize(unacked, 3);
+        Thread.sleep(50);
+        assertThat(unacked).hasSize(3);
+        for (MessageListener.Context context : unacked) {
+            context.ack();
+        }
+        awaitSize(unacked, 5);
+        assertThat(consumer.flowCredits().stalls()).isPositive();
+        consumer.shutdown();
+    }
+
+    @Test
+    public void testPushConsumerListenerThrowingError() throws Exception {
+        final List<Message> received = Collections.synchronizedList(new ArrayList<Message>());
+        PushConsumerImpl consumer = (PushConsumerImpl) accessPoint.createPushConsumer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.CONSUME_CREDIT_MESSAGES, 1));
+        consumer.attachQueue(QUEUE, new MessageListener() {
+            @Override
+            public void onReceived(Message message, Context context) {
+                received.add(message);
+                throw new AssertionError("failed");
+            }
+        });
+        consumer.startup();
+        for (int i = 0; i < 3; i++) {
+            producer.send(producer.createBytesMessage(QUEUE, new byte[1]));
+        }
+        // Each error releases the only credit, so the inline delivery goes on with the next message
+        awaitSize(received, 3);
+        Thread.sleep(50);
+        assertThat(consumer.flowCredits().availableMessages()).isEqualTo(1);
+        consumer.shutdown();
+    }
+
+    @Test
+    public void testLatencyInterceptors() throws Exception {
+        LatencyProducerInterceptor producerLatency = new LatencyProducerInterceptor();
+        LatencyPushConsumerInterceptor consumerLatency = new LatencyPushConsumerInterceptor();
+        producer.addInterceptor(producerLatency);
+        PushConsumer consumer = accessPoint.createPushConsumer();
+        consumer.addInterceptor(consumerLatency);
+        consumer.attachQueue(QUEUE, new MessageListener() {
+            @Override
+            public void onReceived(Message message, Context context) {
+                context.ack();
+            }
+        });
+        consumer.startup();
+        producer.send(producer.createBytesMessage(QUEUE, new byte[10]));
+        producer.send(producer.createBytesMessage(QUEUE, new byte[20]));
+        for (int i = 0; i < 500 && consumerLatency.processingTime(QUEUE) == null
+            || consumerLatency.processingTime(QUEUE).snapshot().count() < 2; i++) {
+            Thread.sleep(10);
+        }
+        consumer.shutdown();
+
+        assertThat(producerLatency.queues()).containsOnly(QUEUE);
+        assertThat(producerLatency.sendLatency(QUEUE).snapshot().count()).isEqualTo(2);
+        assertThat(producerLatency.messageSize(QUEUE).snapshot().max()).isEqualTo(20);
+        assertThat(consumerLatency.queues()).containsOnly(QUEUE);
+        assertThat(consumerLatency.endToEndLatency(QUEUE).snapshot().count()).isEqualTo(2);
+        assertThat(consumerLatency.processingTime(QUEUE).snapshot().count()).isEqualTo(2);
+        assertThat(consumerLatency.messageSize(QUEUE).snapshot().sum()).isEqualTo(30);
+        assertThat(consumerLatency.messageSize("OTHER_QUEUE")).isNull();
+
+        // The latency of an asynchronous send includes its batching
+        Producer batching = accessPoint.createProducer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.BATCH_MAX_MESSAGES, 2)
+            .put(OMSBuiltinKeys.BATCH_LINGER_TIME, 60000));
+        LatencyProducerInterceptor batchingLatency = new LatencyProducerInterceptor();
+        batching.addInterceptor(batchingLatency);
+        batching.sendAsync(batching.createBytesMessage(QUEUE, new byte[1]));
+        Thread.sleep(20);
+        assertThat(batchingLatency.sendLatency(QUEUE)).isNull();
+        batching.sendAsync(batching.createBytesMessage(QUEUE, new byte[1]));
+        LatencyHistogram.Snapshot snapshot = batchingLatency.sendLatency(QUEUE).snapshot();
+        assertThat(snapshot.count()).isEqualTo(2);
+        assertThat(snapshot.max()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+        batching.shutdown();
+    }
+
+    @Test
+    public void testPushConsumerCreditsOfRetiredBatch() throws Exception {
+        final List<List<Message>> batches = new CopyOnWriteArrayList<List<Message>>();
+        final List<Message> received = new CopyOnWriteArrayList<Message>();
+        PushConsumerImpl consumer = (PushConsumerImpl) accessPoint.createPushConsumer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.CONSUME_CREDIT_MESSAGES, 2)
+            .put(OMSBuiltinKeys.CONSUME_BATCH_MAX_WAIT, 60000));
+        consumer.attachQueue(QUEUE, new BatchMessageListener() {
+            @Override
+            public void onReceived(List<Message> messages, Context context) {
+                batches.add(messages);
+                context.ack();
+            }
+        });
+        consumer.startup();
+        for (int i = 0; i < 4; i++) {
+            producer.send(producer.createBytesMessage(QUEUE, new byte[1]));
+        }
+        Thread.sleep(50);
+        // The pending batch holds all the credits
+        assertThat(consumer.flowCredits().availableMessages()).isEqualTo(0);
+        assertThat(batches).isEmpty();
+
+        consumer.attachQueue(QUEUE, new MessageListener() {
+            @Override
+            public void onReceived(Message message, Context context) {
+                received.add(message);
+                context.ack();
+            }
+        });
+        awaitSize(batches, 1);
+        assertThat(batches.get(0)).hasSize(2);
+        awaitSize(received, 2);
+        for (int i = 0; i < 500 && consumer.flowCredits().availableMessages() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(consumer.flowCredits().availableMessages()).isEqualTo(2);
+        consumer.shutdown();
+    }
+
+    @Test
+    public void testSendAsync() throws Exception {
+        Producer batching = accessPoint.createProducer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.BATCH_MAX_MESSAGES, 2)
+            .put(OMSBuiltinKeys.BATCH_LINGER_TIME, 60000));
+        final List<String> intercepted = new CopyOnWriteArrayList<String>();
+        batching.addInterceptor(new ProducerInterceptor() {
+            @Override
+            public void sendBefore(SendBeforeContext context) {
+            }
+
+            @Override
+            public void sendAfter(SendAfterContext context) {
+                intercepted.add(context.result().messageId());
+            }
+        });
+        PullConsumer consumer = accessPoint.createPullConsumer(OMS.newKeyValue().put(OMSBuiltinKeys.OPERATION_TIMEOUT, 10));
+        consumer.attachQueue(QUEUE);
+
+        Message first = batching.createBytesMessage(QUEUE, new byte[1]);
+        Future<SendResult> future = batching.sendAsync(first);
+        assertThat(future.isDone()).isFalse();
+        assertThat(consumer.receive()).isNull();
+        assertThat(intercepted).isEmpty();
+
+        Message second = batching.createBytesMessage(QUEUE, new byte[1]);
+        batching.sendAsync(second);
+        assertThat(future.get(1000).messageId()).isEqualTo(first.sysHeaders().getString(Message.BuiltinKeys.MESSAGE_ID));
+        assertThat(consumer.receive()).isSameAs(first);
+        // The asynchronous sends are intercepted once completed, with their result
+        assertThat(intercepted).containsExactly(first.sysHeaders().getString(Message.BuiltinKeys.MESSAGE_ID),
+            second.sysHeaders().getString(Message.BuiltinKeys.MESSAGE_ID));
+        batching.shutdown();
+    }
+
+    @Test
+    public void testTransaction() throws Exception {
+        PullConsumer consumer = accessPoint.createPullConsumer(OMS.newKeyValue().put(OMSBuiltinKeys.OPERATION_TIMEOUT, 10));
+        consumer.attachQueue(QUEUE);
+        Message committed = producer.createBytesMessage(QUEUE, new byte[1]);
+        producer.send(committed, new LocalTransactionBranchExecutor() {
+            @Override
+            public void doLocalTransactionBranch(Message message, DoLocalTransactionBranchContext context) {
+            }
+
+            @Override
+            public void checkLocalTransactionBranch(Message message, CheckLocalTransactionBranchContext context) {
+                context.commit();
+            }
+        }, OMS.newKeyValue());
+        producer.send(producer.createBytesMessage(QUEUE, new byte[1]), new LocalTransactionBranchExecutor() {
+            @Override
+            public void doLocalTransactionBranch(Message message, DoLocalTransactionBranchContext context) {
+                context.rollback();
+            }
+
+            @Override
+            public void checkLocalTransactionBranch(Message message, CheckLocalTransactionBranchContext context) {
+                context.commit();
+            }
+        }, OMS.newKeyValue());
+
+        assertThat(consumer.receive()).isSameAs(committed);
+        assertThat(consumer.receive()).isNull();
+    }
+
+    @Test
+    public void testBatchMessageSender() throws Exception {
+        PullConsumer consumer = accessPoint.createPullConsumer(OMS.newKeyValue().put(OMSBuiltinKeys.OPERATION_TIMEOUT, 10));
+        consumer.attachQueue(QUEUE);
+        BatchMessageSender sender = producer.createBatchMessageSender();
+        sender.send(producer.createBytesMessage(QUEUE, new byte[1]));
+        sender.rollback();
+        Message message = producer.createBytesMessage(QUEUE, new byte[1]);
+        sender.send(message);
+        assertThat(consumer.receive()).isNull();
+        sender.commit();
+        sender.close();
+
+        assertThat(consumer.receive()).isSameAs(message);
+        assertThat(consumer.receive()).isNull();
+    }
+
+    @Test
+    public void testStreamingConsumer() throws Exception {
+        ResourceManager resourceManager = accessPoint.resourceManager();
+        resourceManager.createQueue(QUEUE, OMS.newKeyValue().put(InMemoryBuiltinKeys.STREAM_COUNT, 2));
+        assertThat(resourceManager.listStreams(QUEUE)).containsExactly(QUEUE + "-0", QUEUE + "-1");
+
+        List<Message> messages = new ArrayList<Message>();
+        for (int i = 0; i < 3; i++) {
+            Message message = producer.createBytesMessage(QUEUE, new byte[i]).putSysHeaders(Message.BuiltinKeys.STREAM_KEY, "KEY");
+            producer.send(message);
+            messages.add(message);
+        }
+        StreamingConsumer consumer = accessPoint.createStreamingConsumer();
+        StreamingIterator first = consumer.seekToBeginning(QUEUE + "-0");
+        StreamingIterator second = consumer.seekToBeginning(QUEUE + "-1");
+        StreamingIterator iterator = first.hasNext() ? first : second;
+        assertThat(first.hasNext() ^ second.hasNext()).isTrue();
+
+        assertThat(iterator.hasPrevious()).isFalse();
+        assertThat(iterator.nextPosition()).isEqualTo("0");
+        assertThat(iterator.next()).isSameAs(messages.get(0));
+        assertThat(iterator.next()).isSameAs(messages.get(1));
+        assertThat(iterator.previousPosition()).isEqualTo("1");
+        assertThat(iterator.previous()).isSameAs(messages.get(1));
+        assertThat(iterator.next()).isSameAs(messages.get(1));
+        assertThat(iterator.next()).isSameAs(messages.get(2));
+        assertThat(iterator.hasNext()).isFalse();
+        try {
+            iterator.next();
+            failBecauseExceptionWasNotThrown(OMSRuntimeException.class);
+        } catch (OMSRuntimeException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.STREAM_NO_MESSAGE.name());
+        }
+
+        String streamName = iterator == first ? QUEUE + "-0" : QUEUE + "-1";
+        iterator = consumer.seekToBeginning(streamName);
+        assertThat(iterator.next(2)).containsExactly(messages.get(0), messages.get(1));
+        List<Message> batch = new ArrayList<Message>();
+        assertThat(iterator.drainTo(batch, 10)).isEqualTo(1);
+        assertThat(batch).containsExactly(messages.get(2));
+        assertThat(iterator.next(10)).isEmpty();
+        assertThat(iterator.previous(2)).containsExactly(messages.get(2), messages.get(1));
+        assertThat(iterator.previous(10)).containsExactly(messages.get(0));
+        assertThat(iterator.previous(10)).isEmpty();
+        assertThat(iterator.nextPosition()).isEqualTo("0");
+
+        assertThat(consumer.seek(streamName, "1").next()).isSameAs(messages.get(1));
+        assertThat(consumer.seek(streamName, "100").hasNext()).isFalse();
+        assertThat(consumer.seekToEnd(streamName).previous()).isSameAs(messages.get(2));
+        assertThat(consumer.seekByTime(streamName, 0).next()).isSameAs(messages.get(0));
+        assertThat(consumer.seekByTime(streamName, Long.MAX_VALUE).hasNext()).isFalse();
+        try {
+            consumer.seek(streamName, "LATEST");
+            failBecauseExceptionWasNotThrown(OMSRuntimeException.class);
+        } catch (OMSRuntimeException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.STREAM_POSITION_ILLEGAL.name());
+        }
+        try {
+            consumer.seekToBeginning(QUEUE + "-2");
+            failBecauseExceptionWasNotThrown(OMSRuntimeException.class);
+        } catch (OMSRuntimeException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.RESOURCE_NOT_EXIST.name());
+        }
+    }
+
+    @Test
+    public void testSeekByTimeOfInterleavedSends() throws Exception {
+        Producer batching = accessPoint.createProducer(OMS.newKeyValue()
+            .put(OMSBuiltinKeys.BATCH_MAX_MESSAGES, 2)
+            .put(OMSBuiltinKeys.BATCH_LINGER_TIME, 60000));
+        producer.send(producer.createBytesMessage(QUEUE, new byte[1]));
+        Thread.sleep(2);
+        // Lingers in its batch, so it is stored after the next message though stamped before it
+        Message lingering = batching.createBytesMessage(QUEUE, new byte[1]);
+        batching.sendAsync(lingering);
+        Thread.sleep(2);
+        Message later = producer.createBytesMessage(QUEUE, new byte[1]);
+        producer.send(later);
+        Thread.sleep(2);
+        batching.sendAsync(batching.createBytesMessage(QUEUE, new byte[1])).get(1000);
+
+        long timestamp = lingering.sysHeaders().getLong(Message.BuiltinKeys.STORE_TIMESTAMP) + 1;
+        assertThat(later.sysHeaders().getLong(Message.BuiltinKeys.STORE_TIMESTAMP)).isGreaterThanOrEqualTo(timestamp);
+        StreamingIterator iterator = accessPoint.createStreamingConsumer().seekByTime(QUEUE + "-0", timestamp);
+        assertThat(iterator.next()).isSameAs(later);
+        assertThat(iterator.next()).isSameAs(lingering);
+        batching.shutdown();
+    }
+
+    @Test
+    public void testResourceManager() throws Exception {
+        ResourceManager resourceManager = accessPoint.resourceManager();
+        resourceManager.createQueue(QUEUE, OMS.newKeyValue());
+        resourceManager.createNamespace("other", OMS.newKeyValue());
+        assertThat(resourceManager.listNamespaces()).containsOnly("default", "other");
+
+        resourceManager.switchNamespace("other");
+        assertThat(resourceManager.listQueues()).isEmpty();
+        resourceManager.createRouting("ROUTING", OMS.newKeyValue().put(OMSBuiltinKeys.ROUTING_SOURCE, QUEUE));
+        assertThat(resourceManager.getRoutingAttributes("ROUTING").getString(OMSBuiltinKeys.ROUTING_SOURCE))
+            .isEqualTo(QUEUE);
+        resourceManager.deleteRouting("ROUTING");
+        assertThat(resourceManager.listRoutings()).isEmpty();
+        resourceManager.deleteNamespace("other");
+        try {
+            resourceManager.listQueues();
+            failBecauseExceptionWasNotThrown(OMSResourceNotExistException.class);
+        } catch (OMSResourceNotExistException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.RESOURCE_NOT_EXIST.name());
+        }
+
+        resourceManager.switchNamespace("default");
+        assertThat(resourceManager.listQueues()).containsExactly(QUEUE);
+        resourceManager.setQueueAttributes(QUEUE, OMS.newKeyValue().put("COLOR", "RED"));
+        assertThat(resourceManager.getQueueAttributes(QUEUE).getString("COLOR")).isEqualTo("RED");
+        resourceManager.deleteQueue(QUEUE);
+        try {
+            resourceManager.deleteQueue(QUEUE);
+            failBecauseExceptionWasNotThrown(OMSResourceNotExistException.class);
+        } catch (OMSResourceNotExistException e) {
+            assertThat(e.getErrorCode()).isEqualTo(InternalErrorCode.RESOURCE_NOT_EXIST.name());
+        }
+    }
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        for (int i = 0; i < 500 && list.size() < size; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(list).hasSize(size);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.inmemory;
+
+import io.openmessaging.Message;
+import io.openmessaging.internal.DefaultBytesMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RingStreamLogTest {
+    @Test
+    public void testAppendAndRead() throws Exception {
+        RingStreamLog log = new RingStreamLog(3);
+        assertThat(log.capacity()).isEqualTo(4);
+        assertThat(log.read(0)).isNull();
+
+        List<Message> messages = new ArrayList<Message>();
+        for (int i = 0; i < 6; i++) {
+            Message message = new DefaultBytesMessage("HELLO_QUEUE", new byte[i]);
+            messages.add(message);
+            assertThat(log.append(message)).isEqualTo(i);
+        }
+        assertThat(log.beginOffset()).isEqualTo(2);
+        assertThat(log.endOffset()).isEqualTo(6);
+        assertThat(log.read(1)).isNull();
+        for (int i = 2; i < 6; i++) {
+            assertThat(log.read(i)).isSameAs(messages.get(i));
+        }
+        assertThat(log.read(6)).isNull();
+        assertThat(log.read(-1)).isNull();
+    }
+
+    @Test
+    public void testOffsetOfTime() throws Exception {
+        RingStreamLog log = new RingStreamLog(4);
+        for (int i = 0; i < 6; i++) {
+            log.append(new DefaultBytesMessage("HELLO_QUEUE", new byte[0])
+                .putSysHeaders(Message.BuiltinKeys.STORE_TIMESTAMP, 1000L + i * 10));
+        }
+        assertThat(log.offsetOfTime(0)).isEqualTo(2);
+        assertThat(log.offsetOfTime(1030)).isEqualTo(3);
+        assertThat(log.offsetOfTime(1031)).isEqualTo(4);
+        assertThat(log.offsetOfTime(1050)).isEqualTo(5);
+        assertThat(log.offsetOfTime(1051)).isEqualTo(6);
+    }
+
+    @Test
+    public void testOffsetOfTimeOutOfOrder() throws Exception {
+        RingStreamLog log = new RingStreamLog(4);
+        long[] timestamps = {99, 102, 100, 103};
+        for (long timestamp : timestamps) {
+            log.append(new DefaultBytesMessage("HELLO_QUEUE", new byte[0])
+                .putSysHeaders(Message.BuiltinKeys.STORE_TIMESTAMP, timestamp));
+        }
+        assertThat(log.offsetOfTime(99)).isEqualTo(0);
+        assertThat(log.offsetOfTime(100)).isEqualTo(1);
+        assertThat(log.offsetOfTime(101)).isEqualTo(1);
+        assertThat(log.offsetOfTime(103)).isEqualTo(3);
+        assertThat(log.offsetOfTime(104)).isEqualTo(4);
+    }
+
+    @Test
+    public void testConcurrentAppend() throws Exception {
+        final int producers = 4;
+        final int perProducer = 10000;
+        final RingStreamLog log = new RingStreamLog(producers * perProducer);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            final String queue = "QUEUE_" + p;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ignore) {
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        log.append(new DefaultBytesMessage(queue, new byte[0]).putUserHeaders("SEQ", i));
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        assertThat(log.endOffset()).isEqualTo(producers * perProducer);
+        int[] last = new int[producers];
+        for (int p = 0; p < producers; p++) {
+            last[p] = -1;
+        }
+        for (long offset = 0; offset < log.endOffset(); offset++) {
+            Message message = log.read(offset);
+            int producer = Integer.parseInt(message.sysHeaders().getString(Message.BuiltinKeys.DESTINATION).substring(6));
+            int sequence = message.userHeaders().getInt("SEQ");
+            assertThat(sequence).isEqualTo(last[producer] + 1);
+            last[producer] = sequence;
+        }
+    }
+}
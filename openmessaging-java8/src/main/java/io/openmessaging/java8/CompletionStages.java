@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.java8;
+
+import io.openmessaging.Future;
+import io.openmessaging.FutureListener;
+import io.openmessaging.Promise;
+import io.openmessaging.internal.DefaultPromise;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * Adapters between the OMS {@link Future} and {@link Promise}, and the Java 8 {@link CompletionStage}, so that
+ * asynchronous sends can be composed with the {@code CompletionStage} API without blocking on {@link Future#get()}.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public final class CompletionStages {
+    private CompletionStages() {
+    }
+
+    /**
+     * Returns a {@code CompletableFuture} completed like the specified {@code Future}, the dependent stages run in
+     * the thread completing the {@code Future}.
+     * <p>
+     * Cancelling the returned {@code CompletableFuture} cancels the specified {@code Future} if it is a
+     * {@code Promise}.
+     *
+     * @param future the OMS future
+     * @param <V> the result type
+     * @return the {@code CompletableFuture} view of the future
+     */
+    public static <V> CompletableFuture<V> toCompletableFuture(Future<V> future) {
+        CompletableFuture<V> stage = new CompletableFuture<>();
+        future.addListener(new Bridge<>(stage));
+        cancelOnCancel(stage, future);
+        return stage;
+    }
+
+    /**
+     * Returns a {@code CompletableFuture} completed like the specified {@code Future}, the completion is handed
+     * over to the specified executor, so that the dependent stages don't run in the thread completing the
+     * {@code Future}, like a driver I/O thread.
+     *
+     * @param future the OMS future
+     * @param executor the executor completing the returned stage
+     * @param <V> the result type
+     * @return the {@code CompletableFuture} view of the future
+     */
+    public static <V> CompletableFuture<V> toCompletableFuture(Future<V> future, Executor executor) {
+        CompletableFuture<V> stage = new CompletableFuture<>();
+        future.addListener(new Bridge<>(stage), executor);
+        cancelOnCancel(stage, future);
+        return stage;
+    }
+
+    /**
+     * Returns an OMS {@code Promise} completed like the specified {@code CompletionStage}.
+     *
+     * @param stage the completion stage
+     * @param <V> the result type
+     * @return the {@code Promise} view of the stage
+     */
+    public static <V> Promise<V> toPromise(CompletionStage<V> stage) {
+        DefaultPromise<V> promise = new DefaultPromise<>();
+        stage.whenComplete((value, cause) -> {
+            if (cause == null) {
+                promise.set(value);
+                return;
+            }
+            Throwable unwrapped = cause instanceof CompletionException && cause.getCause() != null ?
+                cause.getCause() : cause;
+            if (unwrapped instanceof CancellationException) {
+                promise.cancel(false);
+            } else {
+                promise.setFailure(unwrapped);
+            }
+        });
+        return promise;
+    }
+
+    private static <V> void cancelOnCancel(CompletableFuture<V> stage, Future<V> future) {
+        if (future instanceof Promise) {
+            stage.whenComplete((value, cause) -> {
+                if (stage.isCancelled()) {
+                    ((Promise<V>) future).cancel(false);
+                }
+            });
+        }
+    }
+
+    private static final class Bridge<V> implements FutureListener<V> {
+        private final CompletableFuture<V> stage;
+
+        Bridge(CompletableFuture<V> stage) {
+            this.stage = stage;
+        }
+
+        @Override
+        public void operationSucceeded(Future<V> future) {
+            stage.complete(future.get());
+        }
+
+        @Override
+        public void operationFailed(Future<V> future) {
+            if (future.isCancelled()) {
+                stage.cancel(false);
+            } else {
+                Throwable cause = future.getThrowable();
+                stage.completeExceptionally(cause != null ? cause : new IllegalStateException("Failed without a cause"));
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.openmessaging.java8;
+
+import io.openmessaging.Message;
+import io.openmessaging.consumer.StreamingConsumer;
+import io.openmessaging.consumer.StreamingIterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Adapters from a range of positions of a stream to a {@link Spliterator} and a {@link Stream} of its messages, so
+ * that a stream can be scanned again in parallel, like for a backfill, with {@code Stream.parallel()} on the common
+ * fork-join pool.
+ * <p>
+ * The range is split by bisecting its positions, so it requires a driver whose positions are the decimal offsets of
+ * the messages in their stream, like the in-memory and the file drivers. Every sub-range is read through an
+ * iterator of its own, created by {@link StreamingConsumer#seek(String, String)}, which is expected to locate the
+ * position with the index of the stream, then in batches with {@link StreamingIterator#next(int)}. The
+ * {@code StreamingConsumer} is used by several threads at once, and has to support concurrent seeks.
+ * <p>
+ * The messages which aren't retained anymore, or aren't stored yet, when a sub-range is read are skipped.
+ *
+ * @version OMS 1.0.0
+ * @since OMS 1.0.0
+ */
+public final class StreamingSpliterators {
+    /**
+     * The number of messages below which a range isn't split anymore.
+     */
+    public static final int MIN_SPLIT_SIZE = 1024;
+
+    private static final int BATCH_SIZE = 256;
+
+    private StreamingSpliterators() {
+    }
+
+    /**
+     * Returns a {@code Spliterator} over the messages of the specified stream, from its oldest retained message up
+     * to its end when this method is called.
+     *
+     * @param consumer the consumer reading the stream
+     * @param streamName the name of the stream
+     * @return the spliterator over the messages of the stream
+     */
+    public static Spliterator<Message> spliterator(StreamingConsumer consumer, String streamName) {
+        return spliterator(consumer, streamName, beginOf(consumer, streamName), endOf(consumer, streamName));
+    }
+
+    /**
+     * Returns a {@code Spliterator} over the messages of the specified stream from a position, inclusive, up to
+     * another one, exclusive.
+     *
+     * @param consumer the consumer reading the stream
+     * @param streamName the name of the stream
+     * @param fromPosition the position of the first message
+     * @param toPosition the position following the last message
+     * @return the spliterator over the messages of the range
+     */
+    public static Spliterator<Message> spliterator(StreamingConsumer consumer, String streamName, long fromPosition,
+        long toPosition) {
+        return new RangeSpliterator(consumer, streamName, fromPosition, Math.max(fromPosition, toPosition));
+    }
+
+    /**
+     * Returns a {@code Stream} of the messages of the specified stream, from its oldest retained message up to its
+     * end when this method is called.
+     *
+     * @param consumer the consumer reading the stream
+     * @param streamName the name of the stream
+     * @param parallel whether the returned stream is parallel
+     * @return the stream of the messages
+     */
+    public static Stream<Message> stream(StreamingConsumer consumer, String streamName, boolean parallel) {
+        return StreamSupport.stream(spliterator(consumer, streamName), parallel);
+    }
+
+    private static long beginOf(StreamingConsumer consumer, String streamName) {
+        StreamingIterator iterator = consumer.seekToBeginning(streamName);
+        return iterator.hasNext() ? Long.parseLong(iterator.nextPosition()) : endOf(consumer, streamName);
+    }
+
+    private static long endOf(StreamingConsumer consumer, String streamName) {
+        StreamingIterator iterator = consumer.seekToEnd(streamName);
+        return iterator.hasPrevious() ? Long.parseLong(iterator.previousPosition()) + 1 : 0;
+    }
+
+    private static final class RangeSpliterator implements Spliterator<Message> {
+        private final StreamingConsumer consumer;
+        private final String streamName;
+        private long from;
+        private final long to;
+        private StreamingIterator iterator;
+        private List<Message> batch;
+        private int index;
+
+        RangeSpliterator(StreamingConsumer consumer, String streamName, long from, long to) {
+            this.consumer = consumer;
+            this.streamName = streamName;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Message> action) {
+            if ((batch == null || index == batch.size()) && !nextBatch()) {
+                return false;
+            }
+            action.accept(batch.get(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Message> action) {
+            do {
+                if (batch != null) {
+                    while (index < batch.size()) {
+                        action.accept(batch.get(index++));
+                    }
+                }
+            } while (nextBatch());
+        }
+
+        /**
+         * Reads the next batch of the range, checking the position first in case some messages are skipped.
+         */
+        private boolean nextBatch() {
+            if (iterator == null) {
+                if (from >= to) {
+                    return false;
+                }
+                iterator = consumer.seek(streamName, String.valueOf(from));
+            }
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            long position = Long.parseLong(iterator.nextPosition());
+            if (position >= to) {
+                return false;
+            }
+            batch = iterator.next((int) Math.min(BATCH_SIZE, to - position));
+            index = 0;
+            from = position + batch.size();
+            return !batch.isEmpty();
+        }
+
+        @Override
+        public Spliterator<Message> trySplit() {
+            if (iterator != null || to - from < 2L * MIN_SPLIT_SIZE) {
+                return null;
+            }
+            long middle = from + (to - from) / 2;
+            Spliterator<Message> prefix = new RangeSpliterator(consumer, streamName, from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+}
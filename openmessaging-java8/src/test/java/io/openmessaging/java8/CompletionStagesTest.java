@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.java8;
+
+import io.openmessaging.Future;
+import io.openmessaging.Futures;
+import io.openmessaging.Promise;
+import io.openmessaging.internal.DefaultPromise;
+import io.openmessaging.producer.SendResult;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Fail.failBecauseExceptionWasNotThrown;
+
+public class CompletionStagesTest {
+    @Test
+    public void testToCompletableFuture() throws Exception {
+        DefaultPromise<String> promise = new DefaultPromise<>();
+        CompletableFuture<Integer> length = CompletionStages.toCompletableFuture(promise).thenApply(String::length);
+        assertThat(length.isDone()).isFalse();
+
+        promise.set("HELLO");
+        assertThat(length.get(1, TimeUnit.SECONDS)).isEqualTo(5);
+    }
+
+    @Test
+    public void testToCompletableFutureFailure() throws Exception {
+        DefaultPromise<String> promise = new DefaultPromise<>();
+        CompletableFuture<String> stage = CompletionStages.toCompletableFuture(promise);
+        RuntimeException cause = new RuntimeException("failed");
+        promise.setFailure(cause);
+        try {
+            stage.get();
+            failBecauseExceptionWasNotThrown(ExecutionException.class);
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isSameAs(cause);
+        }
+    }
+
+    @Test
+    public void testToCompletableFutureWithExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "callback"));
+        try {
+            DefaultPromise<String> promise = new DefaultPromise<>();
+            CompletableFuture<String> thread = CompletionStages.toCompletableFuture(promise, executor)
+                .thenApply(value -> Thread.currentThread().getName());
+            promise.set("HELLO");
+            assertThat(thread.get(1, TimeUnit.SECONDS)).isEqualTo("callback");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        DefaultPromise<String> promise = new DefaultPromise<>();
+        CompletionStages.toCompletableFuture(promise).cancel(false);
+        assertThat(promise.isCancelled()).isTrue();
+    }
+
+    @Test
+    public void testToPromise() throws Exception {
+        CompletableFuture<String> stage = new CompletableFuture<>();
+        Promise<String> promise = CompletionStages.toPromise(stage.thenApply(String::toUpperCase));
+        stage.complete("hello");
+        assertThat(promise.get(1000)).isEqualTo("HELLO");
+
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        RuntimeException cause = new RuntimeException("failed");
+        Promise<String> failure = CompletionStages.toPromise(failed.thenApply(String::toUpperCase));
+        failed.completeExceptionally(cause);
+        assertThat(failure.getThrowable()).isSameAs(cause);
+    }
+
+    @Test
+    public void testFanOut() throws Exception {
+        DefaultPromise<SendResult> first = new DefaultPromise<>();
+        DefaultPromise<SendResult> second = new DefaultPromise<>();
+        List<Future<SendResult>> sends = Arrays.<Future<SendResult>>asList(first, second);
+        CompletableFuture<Integer> acked = CompletionStages.toCompletableFuture(Futures.allOf(sends))
+            .thenApply(List::size);
+
+        first.set(() -> "MESSAGE_1");
+        assertThat(acked.isDone()).isFalse();
+        second.set(() -> "MESSAGE_2");
+        assertThat(acked.get(1, TimeUnit.SECONDS)).isEqualTo(2);
+    }
+}
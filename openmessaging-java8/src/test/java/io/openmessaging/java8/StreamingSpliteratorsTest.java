@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openmessaging.java8;
+
+import io.openmessaging.Message;
+import io.openmessaging.MessagingAccessPoint;
+import io.openmessaging.OMS;
+import io.openmessaging.consumer.StreamingConsumer;
+import io.openmessaging.producer.Producer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamingSpliteratorsTest {
+    private static final String QUEUE = "HELLO_QUEUE";
+    private static final String STREAM = QUEUE + "-0";
+    private static final int MESSAGES = 10000;
+
+    private MessagingAccessPoint accessPoint;
+    private StreamingConsumer consumer;
+
+    @Before
+    public void before() {
+        accessPoint = OMS.getMessagingAccessPoint("oms:inmemory://localhost/us-east:default");
+        Producer producer = accessPoint.createProducer();
+        for (int i = 0; i < MESSAGES; i++) {
+            producer.send(producer.createBytesMessage(QUEUE, new byte[0]).putUserHeaders("INDEX", i));
+        }
+        producer.shutdown();
+        consumer = accessPoint.createStreamingConsumer();
+    }
+
+    @After
+    public void after() {
+        accessPoint.shutdown();
+    }
+
+    @Test
+    public void testTrySplit() throws Exception {
+        Spliterator<Message> spliterator = StreamingSpliterators.spliterator(consumer, STREAM);
+        assertThat(spliterator.estimateSize()).isEqualTo(MESSAGES);
+        Spliterator<Message> prefix = spliterator.trySplit();
+        assertThat(prefix.estimateSize()).isEqualTo(MESSAGES / 2);
+        assertThat(spliterator.estimateSize()).isEqualTo(MESSAGES / 2);
+
+        List<Integer> indexes = new ArrayList<>();
+        prefix.tryAdvance(message -> indexes.add(message.userHeaders().getInt("INDEX")));
+        assertThat(prefix.trySplit()).isNull();
+        prefix.forEachRemaining(message -> indexes.add(message.userHeaders().getInt("INDEX")));
+        spliterator.forEachRemaining(message -> indexes.add(message.userHeaders().getInt("INDEX")));
+        assertThat(indexes).hasSize(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            assertThat(indexes.get(i)).isEqualTo(i);
+        }
+
+        Spliterator<Message> small = StreamingSpliterators.spliterator(consumer, STREAM, 100, 200);
+        assertThat(small.trySplit()).isNull();
+        assertThat(small.tryAdvance(message -> assertThat(message.userHeaders().getInt("INDEX")).isEqualTo(100)))
+            .isTrue();
+    }
+
+    @Test
+    public void testParallelStream() throws Exception {
+        List<Integer> indexes = StreamingSpliterators.stream(consumer, STREAM, true)
+            .map(message -> message.userHeaders().getInt("INDEX"))
+            .collect(Collectors.toList());
+        assertThat(indexes).hasSize(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            assertThat(indexes.get(i)).isEqualTo(i);
+        }
+        assertThat(StreamingSpliterators.stream(consumer, STREAM, true)
+            .filter(message -> message.userHeaders().getInt("INDEX") % 2 == 0).count()).isEqualTo(MESSAGES / 2);
+    }
+}